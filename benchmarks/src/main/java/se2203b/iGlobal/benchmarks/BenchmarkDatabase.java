@@ -0,0 +1,64 @@
+package se2203b.iGlobal.benchmarks;
+
+import se2203b.iGlobal.ConnectionPool;
+import se2203b.iGlobal.SchemaMigrator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * The BenchmarkDatabase class gives each benchmark trial its own empty Derby database.
+ *
+ * The application opens "iGlobalDB" relative to derby.system.home, so pointing that
+ * property at a new temporary directory before the ConnectionPool is first used gives a
+ * fresh database with the current schema. JMH runs every trial in a forked JVM, so the
+ * pool and the embedded engine are always started after create() has run. The text
+ * index file is redirected to the same directory, and close() deletes it all.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    // The temporary directory holding the database
+    private final Path home;
+
+    private BenchmarkDatabase(Path home) {
+        this.home = home;
+    }
+
+    /**
+     * Creates an empty database with the application schema, and the reference data
+     * the generated properties refer to.
+     *
+     * @return the database; close it in the trial tear-down.
+     * @throws IOException  if the directory cannot be created.
+     * @throws SQLException if the schema cannot be created.
+     */
+    static BenchmarkDatabase create() throws IOException, SQLException {
+        Path home = Files.createTempDirectory("iglobal-bench");
+        System.setProperty("derby.system.home", home.toString());
+        System.setProperty("derby.stream.error.file", home.resolve("derby.log").toString());
+        System.setProperty("iglobal.textIndexFile", home.resolve("iGlobalTextIndex.dat").toString());
+        BenchmarkDatabase database = new BenchmarkDatabase(home);
+        SchemaMigrator.migrate();
+        DataGenerator.seedReferenceData();
+        return database;
+    }
+
+    /**
+     * Shuts Derby down and deletes the database directory.
+     */
+    @Override
+    public void close() {
+        ConnectionPool.shutdown();
+        try (Stream<Path> files = Files.walk(home)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
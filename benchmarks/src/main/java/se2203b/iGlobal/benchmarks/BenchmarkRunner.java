@@ -0,0 +1,41 @@
+package se2203b.iGlobal.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the benchmarks and saves the results as JSON.
+ *
+ * Takes the usual JMH command line, for example a benchmark name pattern such as
+ * "PasswordHash" or "-p rows=1000". Unless -rf or -rff is given, the results are written
+ * to results/iglobal-&lt;date&gt;-&lt;time&gt;.json so that runs before and after a change can be
+ * compared, for instance with a JMH result visualizer.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            Path dir = Files.createDirectories(Paths.get("results"));
+            String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.result(dir.resolve("iglobal-" + stamp + ".json").toString());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,161 @@
+package se2203b.iGlobal.benchmarks;
+
+import se2203b.iGlobal.City;
+import se2203b.iGlobal.CityTableAdapter;
+import se2203b.iGlobal.CredentialService;
+import se2203b.iGlobal.Property;
+import se2203b.iGlobal.PropertyTableAdapter;
+import se2203b.iGlobal.PropertyType;
+import se2203b.iGlobal.PropertyTypeTableAdapter;
+import se2203b.iGlobal.ProvinceTableAdapter;
+import se2203b.iGlobal.SchemaMigrator;
+import se2203b.iGlobal.UserAccount;
+import se2203b.iGlobal.UserAccountTableAdapter;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The DataGenerator class creates the rows the benchmarks run against.
+ *
+ * Every value is derived from the row number and a fixed seed, so each run sees the
+ * same data and a benchmark can compute the key of any seeded row, for example the
+ * address of property n, without reading it back. Rows are written through the
+ * application's own adapters.
+ */
+final class DataGenerator {
+    // Seed for all generated values
+    private static final long SEED = 2203L;
+    // Rows inserted per transaction while seeding
+    private static final int CHUNK_SIZE = 5000;
+    // Seeded accounts all have this password, so the login benchmark can verify it
+    static final String PASSWORD = "Benchmark#2203";
+
+    private static final String[] PROVINCES = {"AB", "BC", "MB", "NB", "NL", "NS", "ON", "PE", "QC", "SK"};
+    private static final int CITIES_PER_PROVINCE = 20;
+    private static final String[] TYPES = {"Detached", "Semi-Detached", "Townhouse", "Condo", "Bungalow"};
+    private static final String[] AMENITIES = {"pool", "garage", "fireplace", "garden", "gym", "balcony"};
+
+    private DataGenerator() {
+    }
+
+    /**
+     * Adds the provinces, cities and property types that generated properties refer to.
+     *
+     * @throws SQLException if a database access error occurs.
+     */
+    static void seedReferenceData() throws SQLException {
+        ProvinceTableAdapter provinces = new ProvinceTableAdapter(false);
+        List<City> cities = new ArrayList<>();
+        for (String province : PROVINCES) {
+            provinces.addNewRecord(province);
+            for (int i = 0; i < CITIES_PER_PROVINCE; i++) {
+                cities.add(new City(city(province, i), province));
+            }
+        }
+        new CityTableAdapter(false).addRecordList(cities);
+        List<PropertyType> types = new ArrayList<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            types.add(new PropertyType("T" + i, TYPES[i]));
+        }
+        new PropertyTypeTableAdapter(false).addRecordList(types);
+    }
+
+    /**
+     * @return the name of the index-th city of a province.
+     */
+    static String city(String province, int index) {
+        return province + " City " + index;
+    }
+
+    /**
+     * @return the address of the n-th generated property; addresses are unique.
+     */
+    static String address(int n) {
+        return n + " Benchmark Street";
+    }
+
+    /**
+     * Creates the n-th generated property.
+     *
+     * @param n the row number, from 0.
+     * @return the property.
+     */
+    static Property property(int n) {
+        SplittableRandom random = new SplittableRandom(SEED + n);
+        String province = PROVINCES[random.nextInt(PROVINCES.length)];
+        double squareFootage = 600 + random.nextInt(4000);
+        return new Property(
+                TYPES[random.nextInt(TYPES.length)],
+                squareFootage * (1.5 + random.nextDouble() * 3),
+                squareFootage,
+                1 + random.nextInt(6),
+                1 + random.nextInt(8) * 0.5,
+                1900 + random.nextInt(125),
+                Math.round(squareFootage * (200 + random.nextInt(900)) / 1000.0) * 1000.0,
+                province,
+                city(province, random.nextInt(CITIES_PER_PROVINCE)),
+                address(n),
+                province.charAt(0) + "" + random.nextInt(10) + (char) ('A' + random.nextInt(26)),
+                AMENITIES[random.nextInt(AMENITIES.length)] + ", " + AMENITIES[random.nextInt(AMENITIES.length)],
+                "A generated " + squareFootage + " sq ft listing for benchmark row " + n);
+    }
+
+    /**
+     * Creates the generated properties from first to first + count - 1.
+     */
+    static List<Property> properties(int first, int count) {
+        List<Property> list = new ArrayList<>(count);
+        for (int n = first; n < first + count; n++) {
+            list.add(property(n));
+        }
+        return list;
+    }
+
+    /**
+     * Inserts properties 0 to count - 1 the way the bulk CSV import does: with the
+     * secondary indexes and summary trigger dropped, and restored at the end.
+     *
+     * @param count the number of properties.
+     * @throws SQLException if a database access error occurs.
+     */
+    static void seedProperties(int count) throws SQLException {
+        PropertyTableAdapter adapter = new PropertyTableAdapter(false);
+        int lastId = SchemaMigrator.beginBulkLoad();
+        try {
+            for (int first = 0; first < count; first += CHUNK_SIZE) {
+                adapter.importRecordList(properties(first, Math.min(CHUNK_SIZE, count - first)));
+            }
+        } finally {
+            SchemaMigrator.endBulkLoad(lastId);
+        }
+        adapter.importFinished();
+    }
+
+    /**
+     * @return the name of the n-th generated user account.
+     */
+    static String accountName(int n) {
+        return "bench" + n;
+    }
+
+    /**
+     * Adds count user accounts, all with the password PASSWORD hashed by the given
+     * service. They share one salt, so seeding pays for a single slow hash.
+     *
+     * @param count       the number of accounts.
+     * @param credentials the service that hashes the password.
+     * @throws SQLException if a database access error occurs.
+     */
+    static void seedAccounts(int count, CredentialService credentials) throws SQLException {
+        String salt = Long.toHexString(new SplittableRandom(SEED).nextLong());
+        String hash = credentials.hash(PASSWORD, salt);
+        List<UserAccount> accounts = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            accounts.add(new UserAccount(accountName(n), hash, salt, "agent"));
+        }
+        new UserAccountTableAdapter(false).addRecordList(accounts);
+    }
+}
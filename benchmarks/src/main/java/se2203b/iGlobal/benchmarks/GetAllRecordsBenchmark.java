@@ -0,0 +1,64 @@
+package se2203b.iGlobal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se2203b.iGlobal.PropertyTableAdapter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reading the whole PROPERTY table: getAllRecords(), which builds the full list, and
+ * streamAllRecords(), which reads the same rows from a forward-only cursor. Seeding a
+ * million rows takes a few minutes, so each size runs in one fork with few iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class GetAllRecordsBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private PropertyTableAdapter adapter;
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        database = BenchmarkDatabase.create();
+        DataGenerator.seedProperties(rows);
+        adapter = new PropertyTableAdapter(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Object> getAllRecords() throws Exception {
+        return adapter.getAllRecords();
+    }
+
+    @Benchmark
+    public long streamAllRecords() throws Exception {
+        try (Stream<Object> records = adapter.streamAllRecords()) {
+            return records.filter(record -> record != null).count();
+        }
+    }
+}
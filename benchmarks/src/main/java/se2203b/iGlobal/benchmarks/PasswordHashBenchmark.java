@@ -0,0 +1,87 @@
+package se2203b.iGlobal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se2203b.iGlobal.CredentialService;
+import se2203b.iGlobal.UserAccount;
+import se2203b.iGlobal.UserAccountTableAdapter;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing at several CredentialService iteration counts, to choose the value
+ * of iglobal.passwordIterations. hash() is the hash alone; verifyLogin() is what a
+ * login costs: look the account up by name, which after the first time comes from the
+ * UserAccountCache, and check the entered password against the stored hash.
+ * verifyLegacy() checks a hash in the old SHA-256 format, which is what a login did
+ * before CredentialService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PasswordHashBenchmark {
+    // Number of seeded accounts
+    private static final int ACCOUNTS = 1000;
+    private static final String SALT = "5f1c3a9e0b7d2468";
+
+    @Param({"100000", "310000", "600000"})
+    public int iterations;
+
+    private BenchmarkDatabase database;
+    private UserAccountTableAdapter accounts;
+    private CredentialService credentials;
+    private String legacyHash;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        credentials = new CredentialService(iterations);
+        database = BenchmarkDatabase.create();
+        DataGenerator.seedAccounts(ACCOUNTS, credentials);
+        accounts = new UserAccountTableAdapter(false);
+        legacyHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest((DataGenerator.PASSWORD + SALT).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        database.close();
+    }
+
+    @Benchmark
+    public String hash() {
+        return credentials.hash(DataGenerator.PASSWORD, SALT);
+    }
+
+    @Benchmark
+    public boolean verifyLogin() throws Exception {
+        UserAccount account = (UserAccount) accounts.findOneRecord(DataGenerator.accountName(random.nextInt(ACCOUNTS)));
+        if (!credentials.matches(DataGenerator.PASSWORD, account.getPasswordSalt(), account.getEncryptedPassword())) {
+            throw new IllegalStateException("Seeded password did not verify for " + account.getUserAccountName());
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean verifyLegacy() {
+        return credentials.matches(DataGenerator.PASSWORD, SALT, legacyHash);
+    }
+}
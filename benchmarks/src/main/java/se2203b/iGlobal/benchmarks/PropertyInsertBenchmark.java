@@ -0,0 +1,77 @@
+package se2203b.iGlobal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se2203b.iGlobal.Property;
+import se2203b.iGlobal.PropertyTableAdapter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting properties one at a time with addNewRecord() and as a JDBC batch with
+ * addRecordList(). Scores are per call, so divide the batch score by batchSize to
+ * compare the cost per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PropertyInsertBenchmark {
+
+    private BenchmarkDatabase database;
+    private PropertyTableAdapter adapter;
+    // The next row number to insert; each call inserts new addresses
+    private int next;
+
+    /**
+     * The rows for the next batchInsert() call, generated outside the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({"100", "1000"})
+        public int batchSize;
+
+        private List<Property> rows;
+
+        @Setup(Level.Invocation)
+        public void nextBatch(PropertyInsertBenchmark benchmark) {
+            rows = DataGenerator.properties(benchmark.next, batchSize);
+            benchmark.next += batchSize;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        database = BenchmarkDatabase.create();
+        adapter = new PropertyTableAdapter(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        database.close();
+    }
+
+    @Benchmark
+    public void singleInsert() throws Exception {
+        adapter.addNewRecord(DataGenerator.property(next++));
+    }
+
+    @Benchmark
+    public void batchInsert(Batch batch) throws Exception {
+        adapter.addRecordList(batch.rows);
+    }
+}
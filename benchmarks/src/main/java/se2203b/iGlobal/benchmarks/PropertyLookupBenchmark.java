@@ -0,0 +1,71 @@
+package se2203b.iGlobal.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se2203b.iGlobal.CityTableAdapter;
+import se2203b.iGlobal.PropertyTableAdapter;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-row reads: PropertyTableAdapter.findOneRecord() by address, and the
+ * CityTableAdapter.cityExists() check made before a property is saved, for a city
+ * that exists and one that does not. Keys are picked at random from the seeded rows
+ * so the benchmark does not just re-read one cached page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PropertyLookupBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private PropertyTableAdapter properties;
+    private CityTableAdapter cities;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws Exception {
+        database = BenchmarkDatabase.create();
+        DataGenerator.seedProperties(rows);
+        properties = new PropertyTableAdapter(false);
+        cities = new CityTableAdapter(false);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object findOneRecord() throws Exception {
+        return properties.findOneRecord(DataGenerator.address(random.nextInt(rows)));
+    }
+
+    @Benchmark
+    public boolean cityExists() throws Exception {
+        return cities.cityExists(DataGenerator.city("ON", random.nextInt(20)), "ON");
+    }
+
+    @Benchmark
+    public boolean cityMissing() throws Exception {
+        return cities.cityExists("Nowhere " + random.nextInt(20), "ON");
+    }
+}
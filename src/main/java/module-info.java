@@ -2,6 +2,8 @@ module se2203b.iGlobal {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.sql;
+    requires java.management;
+    requires java.logging;
 
 
     opens se2203b.iGlobal to javafx.fxml;
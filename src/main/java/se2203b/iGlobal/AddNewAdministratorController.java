@@ -4,10 +4,9 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.time.ZoneId;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller class for adding a new Administrator.
@@ -25,23 +24,14 @@ public class AddNewAdministratorController {
     private AdministratorTableAdapter adminAdapter;
     // Reference to the parent controller to allow refreshing of the table after a new record is added.
     private ManageAdministratorProfilesController parentController;
-    // Database connection instance.
-    private Connection connection;
 
     /**
-     * Sets the database connection and initializes the AdministratorTableAdapter.
+     * Sets the AdministratorTableAdapter used to save the new administrator.
      *
-     * @param conn The database connection.
+     * @param adapter The AdministratorTableAdapter shared with the parent window.
      */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            // Initialize the adapter with reset=false (do not reset the DB table).
-            adminAdapter = new AdministratorTableAdapter(false);
-        } catch (SQLException e) {
-            // Show an alert if there is a database error.
-            showAlert("DB Error", e.getMessage());
-        }
+    public void setDataStore(AdministratorTableAdapter adapter) {
+        this.adminAdapter = adapter;
     }
 
     /**
@@ -63,11 +53,6 @@ public class AddNewAdministratorController {
             // Create a new Administrator instance.
             Administrator admin = new Administrator();
 
-            // Generate a new unique ID for the administrator.
-            // Here we use a naive approach: current key count + 2 (adjust as necessary).
-            int newID = adminAdapter.getKeys().size() + 2;
-            admin.setID(String.valueOf(newID));
-
             // Set administrator details from form input.
             admin.setFirstName(firstNameField.getText());
             admin.setLastName(lastNameField.getText());
@@ -80,12 +65,25 @@ public class AddNewAdministratorController {
                 admin.setDateCreated(dateHired);
             }
 
-            // Add the new administrator record to the database.
-            adminAdapter.addNewRecord(admin);
-            // Refresh the table in the parent controller to display the new record.
-            parentController.refreshTable();
-            // Close the current window.
-            close();
+            // Assign the ID and add the record in the background.
+            saveBtn.setDisable(true);
+            CompletableFuture<Void> saved = AsyncDataStore.run(() -> {
+                // Generate a new unique ID for the administrator.
+                // Here we use a naive approach: current key count + 2 (adjust as necessary).
+                int newID = adminAdapter.getKeys().size() + 2;
+                admin.setID(String.valueOf(newID));
+                // Add the new administrator record to the database.
+                adminAdapter.addNewRecord(admin);
+            });
+            AsyncDataStore.onFxThread(saved, done -> {
+                // Refresh the table in the parent controller to display the new record.
+                parentController.refreshTable();
+                // Close the current window.
+                close();
+            }, error -> {
+                saveBtn.setDisable(false);
+                showAlert("Input Error", error.getMessage());
+            });
         } catch (Exception e) {
             // Show an alert if any input error occurs.
             showAlert("Input Error", e.getMessage());
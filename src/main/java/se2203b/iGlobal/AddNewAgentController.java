@@ -3,7 +3,6 @@ package se2203b.iGlobal;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import java.sql.Connection;
 
 /**
  * Controller for the "Add New Agent" view.
@@ -20,23 +19,14 @@ public class AddNewAgentController {
     private AgentTableAdapter agentAdapter;
     // Reference to the parent controller that manages the list of agents
     private ManageAgentProfilesController parentController;
-    // Database connection used for executing operations
-    private Connection connection;
 
     /**
-     * Sets the database connection and initializes the AgentTableAdapter.
+     * Sets the AgentTableAdapter used to save the new agent.
      *
-     * @param conn the Connection to be used for database operations
+     * @param adapter the AgentTableAdapter shared with the parent window
      */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            // Initialize the adapter with the current connection; reset flag is false to avoid table recreation.
-            agentAdapter = new AgentTableAdapter(connection, false);
-        } catch (Exception e) {
-            // If an error occurs during initialization, show an alert with the error message.
-            showAlert("DB Error", e.getMessage());
-        }
+    public void setDataStore(AgentTableAdapter adapter) {
+        this.agentAdapter = adapter;
     }
 
     /**
@@ -66,12 +56,17 @@ public class AddNewAgentController {
                     licenseField.getText(),
                     specializationField.getText()
             );
-            // Insert the new agent record into the database.
-            agentAdapter.addNewRecord(agent);
-            // Refresh the parent controller's table view to reflect the new addition.
-            parentController.refreshTable();
-            // Close the Add New Agent window.
-            close();
+            // Insert the new agent record into the database in the background.
+            saveBtn.setDisable(true);
+            AsyncDataStore.onFxThread(new AsyncDataStore(agentAdapter).addNewRecord(agent), done -> {
+                // Refresh the parent controller's table view to reflect the new addition.
+                parentController.refreshTable();
+                // Close the Add New Agent window.
+                close();
+            }, error -> {
+                saveBtn.setDisable(false);
+                showAlert("Input Error", error.getMessage());
+            });
         } catch (Exception e) {
             // Show an error alert if any exception occurs during the save operation.
             showAlert("Input Error", e.getMessage());
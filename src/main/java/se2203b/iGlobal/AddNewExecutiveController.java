@@ -3,7 +3,6 @@ package se2203b.iGlobal;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import java.sql.Connection;
 
 /**
  * Controller class for the "Add New Executive" view.
@@ -21,22 +20,14 @@ public class AddNewExecutiveController {
     private ExecutiveTableAdapter executiveAdapter;
     // Reference to the parent controller that manages the list of executives
     private ManageExecutiveProfilesController parentController;
-    // Database connection used to execute SQL operations
-    private Connection connection;
 
     /**
-     * Sets the database connection and initializes the ExecutiveTableAdapter.
+     * Sets the ExecutiveTableAdapter used to save the new executive.
      *
-     * @param conn The Connection object to use for database operations.
+     * @param adapter The ExecutiveTableAdapter shared with the parent window.
      */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            // Initialize the adapter without resetting the table (i.e., without recreating it)
-            executiveAdapter = new ExecutiveTableAdapter(connection, false);
-        } catch (Exception e) {
-            showAlert("DB Error", e.getMessage());
-        }
+    public void setDataStore(ExecutiveTableAdapter adapter) {
+        this.executiveAdapter = adapter;
     }
 
     /**
@@ -66,12 +57,17 @@ public class AddNewExecutiveController {
                     phoneField.getText(),
                     privatePhoneField.getText()
             );
-            // Save the new executive record in the database
-            executiveAdapter.addNewRecord(e);
-            // Refresh the table view in the parent controller to show the new record
-            parentController.refreshTable();
-            // Close the current window after saving
-            close();
+            // Save the new executive record in the database in the background
+            saveBtn.setDisable(true);
+            AsyncDataStore.onFxThread(new AsyncDataStore(executiveAdapter).addNewRecord(e), done -> {
+                // Refresh the table view in the parent controller to show the new record
+                parentController.refreshTable();
+                // Close the current window after saving
+                close();
+            }, error -> {
+                saveBtn.setDisable(false);
+                showAlert("Input Error", error.getMessage());
+            });
         } catch (Exception ex) {
             showAlert("Input Error", ex.getMessage());
         }
@@ -4,9 +4,8 @@ import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller class for the "Add New Property" view.
@@ -15,6 +14,11 @@ import java.util.List;
  * It loads necessary lookup values (such as property types, provinces, and cities),
  * ensures that new provinces or cities are added to the database if they don't exist,
  * and creates a new Property record in the database.
+ *
+ * All database calls run in the background through AsyncDataStore; the combo boxes and
+ * the parent table are updated on the JavaFX thread once the results arrive. The lookup
+ * values and the existence checks are served by the ReferenceDataCache, so after the
+ * first use neither opening the dialog nor saving reads the lookup tables again.
  */
 public class AddNewPropertyController {
 
@@ -26,39 +30,29 @@ public class AddNewPropertyController {
     @FXML private TextArea descriptionField;
     @FXML private Button saveBtn, cancelBtn;
 
-    // Adapters for interacting with the database tables
+    // Adapter for interacting with the Property table
     private PropertyTableAdapter propertyAdapter;
-    private ProvinceTableAdapter provinceAdapter;
-    private CityTableAdapter cityAdapter;
-    private PropertyTypeTableAdapter propertyTypeAdapter;
+    // Cached provinces, cities and property types
+    private final ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
     // Reference to the parent controller to refresh the property records table after adding a record
     private ManagePropertyRecordsController parentController;
-    // Database connection for executing SQL commands
-    private Connection connection;
 
     /**
-     * Sets the database connection.
+     * Sets the adapter used to save the new property.
      *
-     * @param conn The Connection object to use for all database operations.
+     * @param adapter The PropertyTableAdapter shared with the parent window.
      */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
+    public void setDataStore(PropertyTableAdapter adapter) {
+        this.propertyAdapter = adapter;
     }
 
     /**
-     * Sets the parent controller and initializes all required adapters.
-     * Also loads the values for the combo boxes.
+     * Sets the parent controller and loads the values for the combo boxes.
      *
      * @param controller The parent ManagePropertyRecordsController.
-     * @throws SQLException if an SQL error occurs.
      */
-    public void setParentController(ManagePropertyRecordsController controller) throws SQLException {
+    public void setParentController(ManagePropertyRecordsController controller) {
         parentController = controller;
-        // Initialize adapters with the current connection. The 'false' parameter means do not reset the tables.
-        propertyAdapter = new PropertyTableAdapter(connection, false);
-        provinceAdapter = new ProvinceTableAdapter(false);
-        cityAdapter = new CityTableAdapter(false);
-        propertyTypeAdapter = new PropertyTypeTableAdapter(false);
 
         // Load lookup values into the combo boxes for property types, provinces, and cities.
         loadComboBoxes();
@@ -69,49 +63,45 @@ public class AddNewPropertyController {
      *
      * Loads property types, provinces, and cities (based on the currently selected province)
      * so that the user can select or type new values.
-     *
-     * @throws SQLException if an SQL error occurs.
      */
-    private void loadComboBoxes() throws SQLException {
-        // Load property types from the PropertyType table.
-        List<String> propertyTypes = propertyTypeAdapter.getKeys();
-        propertyTypeCB.setItems(FXCollections.observableArrayList(propertyTypes));
-        propertyTypeCB.getSelectionModel().selectFirst();
-
-        // Load provinces from the Province table.
-        List<String> provinces = provinceAdapter.getKeys();
-        provinceCB.setItems(FXCollections.observableArrayList(provinces));
+    private void loadComboBoxes() {
         provinceCB.setEditable(true);  // Allow users to type in a new province if needed.
-
-        // Load cities for the initially selected province.
-        loadCities();
-
-        // Allow users to type in a new city.
-        cityCB.setEditable(true);
+        cityCB.setEditable(true);      // Allow users to type in a new city.
+
+        // Load property types from the lookup cache.
+        AsyncDataStore.onFxThread(AsyncDataStore.call(referenceData::getPropertyTypes), propertyTypes -> {
+            propertyTypeCB.setItems(FXCollections.observableArrayList(propertyTypes));
+            propertyTypeCB.getSelectionModel().selectFirst();
+        }, error -> showAlert("Load Error", error.getMessage()));
+
+        // Load provinces from the lookup cache, then the cities of the initial province.
+        AsyncDataStore.onFxThread(AsyncDataStore.call(referenceData::getProvinces), provinces -> {
+            provinceCB.setItems(FXCollections.observableArrayList(provinces));
+            loadCities();
+        }, error -> showAlert("Load Error", error.getMessage()));
     }
 
     /**
      * Loads cities for the currently selected or typed province.
      *
      * Reads the province value from the province combo box editor,
-     * retrieves the corresponding list of cities from the City table,
+     * retrieves the corresponding list of cities from the lookup cache,
      * and updates the city combo box.
      */
     @FXML
     private void loadCities() {
-        try {
-            // Retrieve the province value from the editable combo box.
-            String selectedProvince = provinceCB.getEditor().getText();
-            // Get cities in that province.
-            List<String> cities = cityAdapter.getCitiesInProvince(selectedProvince);
+        // Retrieve the province value from the editable combo box.
+        String selectedProvince = provinceCB.getEditor().getText();
+        // Get cities in that province in the background.
+        CompletableFuture<List<String>> cities =
+                AsyncDataStore.call(() -> referenceData.getCitiesInProvince(selectedProvince));
+        AsyncDataStore.onFxThread(cities, list -> {
             // Update the city combo box with the retrieved cities.
-            cityCB.setItems(FXCollections.observableArrayList(cities));
-            if (!cities.isEmpty()) {
+            cityCB.setItems(FXCollections.observableArrayList(list));
+            if (!list.isEmpty()) {
                 cityCB.getSelectionModel().selectFirst();
             }
-        } catch (SQLException e) {
-            showAlert("City Load Error", e.getMessage());
-        }
+        }, error -> showAlert("City Load Error", error.getMessage()));
     }
 
     /**
@@ -132,21 +122,8 @@ public class AddNewPropertyController {
         try {
             // 1. Read the province value (typed or selected) from the province combo box.
             String chosenProvince = provinceCB.getEditor().getText();
-            // 2. If the province is not already in the database and is not blank, insert it.
-            if (!provinceAdapter.getKeys().contains(chosenProvince) && !chosenProvince.isBlank()) {
-                provinceAdapter.addNewRecord(chosenProvince);
-                // Update the combo box items so the new province appears for future selections.
-                provinceCB.getItems().add(chosenProvince);
-            }
-
             // 3. Read the city value (typed or selected) from the city combo box.
             String chosenCity = cityCB.getEditor().getText();
-            // 4. If the (city, province) combination does not exist in the City table, insert it.
-            if (!cityAdapter.cityExists(chosenCity, chosenProvince) && !chosenCity.isBlank()) {
-                cityAdapter.addNewRecord(new City(chosenCity, chosenProvince));
-                // Add the new city to the combo box items.
-                cityCB.getItems().add(chosenCity);
-            }
 
             // 5. Create a new Property object using the values from the view.
             Property p = new Property(
@@ -165,12 +142,30 @@ public class AddNewPropertyController {
                     descriptionField.getText()
             );
 
-            // 6. Insert the new property record into the database.
-            propertyAdapter.addNewRecord(p);
-            // 7. Refresh the parent controller's property table to include the new record.
-            parentController.refreshTable();
-            // 8. Close the current window.
-            close();
+            // Steps 2, 4 and 6 run together in the background while the Save button is disabled.
+            saveBtn.setDisable(true);
+            CompletableFuture<Void> saved = AsyncDataStore.run(() -> {
+                // 2. If the province is not already in the database and is not blank, insert it.
+                // The adapters add the new rows to the lookup cache as well.
+                if (!referenceData.provinceExists(chosenProvince) && !chosenProvince.isBlank()) {
+                    new ProvinceTableAdapter(false).addNewRecord(chosenProvince);
+                }
+                // 4. If the (city, province) combination does not exist in the City table, insert it.
+                if (!referenceData.cityExists(chosenCity, chosenProvince) && !chosenCity.isBlank()) {
+                    new CityTableAdapter(false).addNewRecord(new City(chosenCity, chosenProvince));
+                }
+                // 6. Insert the new property record into the database.
+                propertyAdapter.addNewRecord(p);
+            });
+            AsyncDataStore.onFxThread(saved, done -> {
+                // 7. Refresh the parent controller's property table to include the new record.
+                parentController.refreshTable();
+                // 8. Close the current window.
+                close();
+            }, error -> {
+                saveBtn.setDisable(false);
+                showAlert("Input Error", error.getMessage());
+            });
         } catch (Exception e) {
             showAlert("Input Error", e.getMessage());
         }
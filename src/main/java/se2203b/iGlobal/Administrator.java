@@ -6,7 +6,9 @@ import java.util.Date;
  * @author Abdelkader Ouda
  */
 public class Administrator extends IGlobalUser {
-    private ObjectProperty<Date> dateCreated;
+    // Created on first use, like the properties of IGlobalUser
+    private Date dateCreated;
+    private ObjectProperty<Date> dateCreatedProperty;
 
     // Constructors
     public Administrator(){
@@ -16,7 +18,6 @@ public class Administrator extends IGlobalUser {
         setEmail(null);
         setPhone(null);
         setUserAccount(new UserAccount());
-        this.dateCreated = new SimpleObjectProperty<>();
     }
 
     public Administrator(int id,
@@ -32,18 +33,25 @@ public class Administrator extends IGlobalUser {
         setEmail(email);
         setPhone(phone);
         setUserAccount(account);
-        this.dateCreated = new SimpleObjectProperty<>(dateCreated);
+        this.dateCreated = dateCreated;
     }
 
     // dateCreated property
     public void setDateCreated(Date _date) {
-        this.dateCreated.set(_date);
+        if (this.dateCreatedProperty == null) {
+            this.dateCreated = _date;
+        } else {
+            this.dateCreatedProperty.set(_date);
+        }
     }
     public ObjectProperty<Date> dateCreatedProperty() {
-        return this.dateCreated;
+        if (this.dateCreatedProperty == null) {
+            this.dateCreatedProperty = new SimpleObjectProperty<>(this, "dateCreated", this.dateCreated);
+        }
+        return this.dateCreatedProperty;
     }
     public Date getDateCreated() {
-        return this.dateCreated.get();
+        return this.dateCreatedProperty == null ? this.dateCreated : this.dateCreatedProperty.get();
     }
 
 }
@@ -9,16 +9,24 @@ import javafx.beans.property.StringProperty;
  * email address, phone number, license number, and specialization.
  *
  * This class uses JavaFX properties to facilitate data binding in the user interface.
+ * A property is only created when its xxxProperty() method is first called, such as by a
+ * table cell being shown; until then the value is held in a plain field.
  */
 public class Agent {
 
-    // JavaFX properties to hold the agent's details.
-    private final StringProperty firstName = new SimpleStringProperty();
-    private final StringProperty lastName = new SimpleStringProperty();
-    private final StringProperty emailAddress = new SimpleStringProperty();
-    private final StringProperty phoneNumber = new SimpleStringProperty();
-    private final StringProperty licenseNumber = new SimpleStringProperty();
-    private final StringProperty specialization = new SimpleStringProperty();
+    // The agent's details, and their JavaFX properties once they have been requested.
+    private String firstName;
+    private StringProperty firstNameProperty;
+    private String lastName;
+    private StringProperty lastNameProperty;
+    private String emailAddress;
+    private StringProperty emailAddressProperty;
+    private String phoneNumber;
+    private StringProperty phoneNumberProperty;
+    private String licenseNumber;
+    private StringProperty licenseNumberProperty;
+    private String specialization;
+    private StringProperty specializationProperty;
 
     /**
      * Default constructor.
@@ -38,12 +46,12 @@ public class Agent {
      */
     public Agent(String firstName, String lastName, String emailAddress, String phoneNumber,
                  String licenseNumber, String specialization) {
-        this.firstName.set(firstName);
-        this.lastName.set(lastName);
-        this.emailAddress.set(emailAddress);
-        this.phoneNumber.set(phoneNumber);
-        this.licenseNumber.set(licenseNumber);
-        this.specialization.set(specialization);
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.emailAddress = emailAddress;
+        this.phoneNumber = phoneNumber;
+        this.licenseNumber = licenseNumber;
+        this.specialization = specialization;
     }
 
     /**
@@ -52,7 +60,7 @@ public class Agent {
      * @return the first name as a String.
      */
     public String getFirstName() {
-        return firstName.get();
+        return firstNameProperty == null ? firstName : firstNameProperty.get();
     }
 
     /**
@@ -61,7 +69,11 @@ public class Agent {
      * @param value the new first name.
      */
     public void setFirstName(String value) {
-        firstName.set(value);
+        if (firstNameProperty == null) {
+            firstName = value;
+        } else {
+            firstNameProperty.set(value);
+        }
     }
 
     /**
@@ -71,7 +83,10 @@ public class Agent {
      * @return the firstName property.
      */
     public StringProperty firstNameProperty() {
-        return firstName;
+        if (firstNameProperty == null) {
+            firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+        }
+        return firstNameProperty;
     }
 
     /**
@@ -80,7 +95,7 @@ public class Agent {
      * @return the last name as a String.
      */
     public String getLastName() {
-        return lastName.get();
+        return lastNameProperty == null ? lastName : lastNameProperty.get();
     }
 
     /**
@@ -89,7 +104,11 @@ public class Agent {
      * @param value the new last name.
      */
     public void setLastName(String value) {
-        lastName.set(value);
+        if (lastNameProperty == null) {
+            lastName = value;
+        } else {
+            lastNameProperty.set(value);
+        }
     }
 
     /**
@@ -99,7 +118,10 @@ public class Agent {
      * @return the lastName property.
      */
     public StringProperty lastNameProperty() {
-        return lastName;
+        if (lastNameProperty == null) {
+            lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+        }
+        return lastNameProperty;
     }
 
     /**
@@ -108,7 +130,7 @@ public class Agent {
      * @return the email address as a String.
      */
     public String getEmailAddress() {
-        return emailAddress.get();
+        return emailAddressProperty == null ? emailAddress : emailAddressProperty.get();
     }
 
     /**
@@ -117,7 +139,11 @@ public class Agent {
      * @param value the new email address.
      */
     public void setEmailAddress(String value) {
-        emailAddress.set(value);
+        if (emailAddressProperty == null) {
+            emailAddress = value;
+        } else {
+            emailAddressProperty.set(value);
+        }
     }
 
     /**
@@ -127,7 +153,10 @@ public class Agent {
      * @return the emailAddress property.
      */
     public StringProperty emailAddressProperty() {
-        return emailAddress;
+        if (emailAddressProperty == null) {
+            emailAddressProperty = new SimpleStringProperty(this, "emailAddress", emailAddress);
+        }
+        return emailAddressProperty;
     }
 
     /**
@@ -136,7 +165,7 @@ public class Agent {
      * @return the phone number as a String.
      */
     public String getPhoneNumber() {
-        return phoneNumber.get();
+        return phoneNumberProperty == null ? phoneNumber : phoneNumberProperty.get();
     }
 
     /**
@@ -145,7 +174,11 @@ public class Agent {
      * @param value the new phone number.
      */
     public void setPhoneNumber(String value) {
-        phoneNumber.set(value);
+        if (phoneNumberProperty == null) {
+            phoneNumber = value;
+        } else {
+            phoneNumberProperty.set(value);
+        }
     }
 
     /**
@@ -155,7 +188,10 @@ public class Agent {
      * @return the phoneNumber property.
      */
     public StringProperty phoneNumberProperty() {
-        return phoneNumber;
+        if (phoneNumberProperty == null) {
+            phoneNumberProperty = new SimpleStringProperty(this, "phoneNumber", phoneNumber);
+        }
+        return phoneNumberProperty;
     }
 
     /**
@@ -164,7 +200,7 @@ public class Agent {
      * @return the license number as a String.
      */
     public String getLicenseNumber() {
-        return licenseNumber.get();
+        return licenseNumberProperty == null ? licenseNumber : licenseNumberProperty.get();
     }
 
     /**
@@ -173,7 +209,11 @@ public class Agent {
      * @param value the new license number.
      */
     public void setLicenseNumber(String value) {
-        licenseNumber.set(value);
+        if (licenseNumberProperty == null) {
+            licenseNumber = value;
+        } else {
+            licenseNumberProperty.set(value);
+        }
     }
 
     /**
@@ -183,7 +223,10 @@ public class Agent {
      * @return the licenseNumber property.
      */
     public StringProperty licenseNumberProperty() {
-        return licenseNumber;
+        if (licenseNumberProperty == null) {
+            licenseNumberProperty = new SimpleStringProperty(this, "licenseNumber", licenseNumber);
+        }
+        return licenseNumberProperty;
     }
 
     /**
@@ -192,7 +235,7 @@ public class Agent {
      * @return the specialization as a String.
      */
     public String getSpecialization() {
-        return specialization.get();
+        return specializationProperty == null ? specialization : specializationProperty.get();
     }
 
     /**
@@ -201,7 +244,11 @@ public class Agent {
      * @param value the new specialization.
      */
     public void setSpecialization(String value) {
-        specialization.set(value);
+        if (specializationProperty == null) {
+            specialization = value;
+        } else {
+            specializationProperty.set(value);
+        }
     }
 
     /**
@@ -211,6 +258,9 @@ public class Agent {
      * @return the specialization property.
      */
     public StringProperty specializationProperty() {
-        return specialization;
+        if (specializationProperty == null) {
+            specializationProperty = new SimpleStringProperty(this, "specialization", specialization);
+        }
+        return specializationProperty;
     }
 }
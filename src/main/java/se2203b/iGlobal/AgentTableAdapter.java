@@ -6,6 +6,7 @@ import javafx.collections.ObservableList;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The AgentTableAdapter class implements the DataStore interface and provides database
@@ -15,36 +16,23 @@ import java.util.List;
  * It uses Java's JDBC API to interact with the underlying Derby database.
  */
 public class AgentTableAdapter implements DataStore {
-    // Holds the database connection for performing SQL operations.
-    private final Connection connection;
+    // SQL INSERT statement with parameter placeholders.
+    private static final String INSERT_SQL = "INSERT INTO AGENT (FIRSTNAME, LASTNAME, EMAIL, PHONE, " +
+            "LICENSENUMBER, SPECIALIZATION) VALUES (?, ?, ?, ?, ?, ?)";
+    // SQL DELETE statement using the license number as the unique identifier.
+    private static final String DELETE_SQL = "DELETE FROM AGENT WHERE LICENSENUMBER = ?";
 
     /**
      * Constructor for AgentTableAdapter.
+     * Connections are borrowed from the shared ConnectionPool for each operation.
      *
-     * @param conn  the JDBC Connection object
      * @param reset if true, drops the existing AGENT table and recreates it; otherwise, uses the existing table.
      * @throws SQLException if a database access error occurs.
      */
-    public AgentTableAdapter(Connection conn, boolean reset) throws SQLException {
-        this.connection = conn;
-        Statement stmt = connection.createStatement();
+    public AgentTableAdapter(boolean reset) throws SQLException {
         if (reset) {
-            try {
-                // Attempt to drop the AGENT table if it exists.
-                stmt.execute("DROP TABLE AGENT");
-            } catch (SQLException ex) {
-                // Ignore exception if the table does not exist.
-            }
-            // Create the AGENT table with necessary columns.
-            stmt.execute("CREATE TABLE AGENT (" +
-                    "ID INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1), " +
-                    "FIRSTNAME VARCHAR(50), " +
-                    "LASTNAME VARCHAR(50), " +
-                    "EMAIL VARCHAR(100), " +
-                    "PHONE VARCHAR(20), " +
-                    "LICENSENUMBER VARCHAR(30), " +
-                    "SPECIALIZATION VARCHAR(50) " +
-                    ")");
+            // The migrations recreate the table with its primary key and unique license number.
+            SchemaMigrator.reset("AGENT");
         }
     }
 
@@ -56,23 +44,25 @@ public class AgentTableAdapter implements DataStore {
      */
     @Override
     public void addNewRecord(Object data) throws SQLException {
-        if (!(data instanceof Agent)) {
-            throw new IllegalArgumentException("Invalid type, expected Agent");
+        Agent a = toAgent(data);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            // Set the values for the prepared statement from the Agent object.
+            bindInsert(ps, a);
+            // Execute the insertion.
+            ps.executeUpdate();
         }
-        Agent a = (Agent) data;
-        // Prepare SQL INSERT statement with parameter placeholders.
-        String insert = "INSERT INTO AGENT (FIRSTNAME, LASTNAME, EMAIL, PHONE, LICENSENUMBER, SPECIALIZATION) " +
-                "VALUES (?, ?, ?, ?, ?, ?)";
-        PreparedStatement ps = connection.prepareStatement(insert);
-        // Set the values for the prepared statement from the Agent object.
-        ps.setString(1, a.getFirstName());
-        ps.setString(2, a.getLastName());
-        ps.setString(3, a.getEmailAddress());
-        ps.setString(4, a.getPhoneNumber());
-        ps.setString(5, a.getLicenseNumber());
-        ps.setString(6, a.getSpecialization());
-        // Execute the insertion.
-        ps.executeUpdate();
+    }
+
+    /**
+     * Adds many Agent records as JDBC batches in a single transaction.
+     *
+     * @param data a list of Agent objects.
+     * @throws SQLException if a database access error occurs; no record is added.
+     */
+    @Override
+    public void addRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(INSERT_SQL, data, (ps, record) -> bindInsert(ps, toAgent(record)));
     }
 
     /**
@@ -126,15 +116,23 @@ public class AgentTableAdapter implements DataStore {
      */
     @Override
     public void deleteOneRecord(Object data) throws SQLException {
-        if (!(data instanceof Agent)) {
-            throw new IllegalArgumentException("Invalid type, expected Agent");
+        Agent a = toAgent(data);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_SQL)) {
+            ps.setString(1, a.getLicenseNumber());
+            ps.executeUpdate();
         }
-        Agent a = (Agent) data;
-        // Prepare SQL DELETE statement using the license number as the unique identifier.
-        String delete = "DELETE FROM AGENT WHERE LICENSENUMBER = ?";
-        PreparedStatement ps = connection.prepareStatement(delete);
-        ps.setString(1, a.getLicenseNumber());
-        ps.executeUpdate();
+    }
+
+    /**
+     * Deletes many Agent records, matched by license number, in a single transaction.
+     *
+     * @param data a list of Agent objects to delete.
+     * @throws SQLException if a database access error occurs; no record is deleted.
+     */
+    @Override
+    public void deleteRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(DELETE_SQL, data, (ps, record) -> ps.setString(1, toAgent(record).getLicenseNumber()));
     }
 
     /**
@@ -159,11 +157,13 @@ public class AgentTableAdapter implements DataStore {
     @Override
     public List<String> getKeys() throws SQLException {
         List<String> list = new ArrayList<>();
-        Statement stmt = connection.createStatement();
         // Execute SQL query to retrieve license numbers.
-        ResultSet rs = stmt.executeQuery("SELECT LICENSENUMBER FROM AGENT");
-        while (rs.next()) {
-            list.add(rs.getString("LICENSENUMBER"));
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT LICENSENUMBER FROM AGENT");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(rs.getString("LICENSENUMBER"));
+            }
         }
         return list;
     }
@@ -177,19 +177,13 @@ public class AgentTableAdapter implements DataStore {
     @Override
     public List<Object> getAllRecords() throws SQLException {
         List<Object> list = new ArrayList<>();
-        Statement stmt = connection.createStatement();
         // Execute SQL query to retrieve all columns from the AGENT table.
-        ResultSet rs = stmt.executeQuery("SELECT * FROM AGENT");
-        while (rs.next()) {
-            Agent a = new Agent();
-            // Populate the Agent object with data from the ResultSet.
-            a.setFirstName(rs.getString("FIRSTNAME"));
-            a.setLastName(rs.getString("LASTNAME"));
-            a.setEmailAddress(rs.getString("EMAIL"));
-            a.setPhoneNumber(rs.getString("PHONE"));
-            a.setLicenseNumber(rs.getString("LICENSENUMBER"));
-            a.setSpecialization(rs.getString("SPECIALIZATION"));
-            list.add(a);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT * FROM AGENT");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(readAgent(rs));
+            }
         }
         return list;
     }
@@ -206,6 +200,33 @@ public class AgentTableAdapter implements DataStore {
         throw new UnsupportedOperationException("getAllRecords(Object) not implemented.");
     }
 
+    /**
+     * Counts the Agent records, so a load can report its progress.
+     *
+     * @return the number of rows in the AGENT table.
+     * @throws SQLException if a database access error occurs.
+     */
+    @Override
+    public long countRecords() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM AGENT");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Streams all Agent records from a forward-only cursor without loading the whole table.
+     *
+     * @param fetchSize the number of rows fetched from Derby per round trip.
+     * @return a Stream of Agent objects; it must be closed to release its connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    @Override
+    public Stream<Object> streamAllRecords(int fetchSize) throws SQLException {
+        return RecordStream.open("SELECT * FROM AGENT", fetchSize, AgentTableAdapter::readAgent);
+    }
+
     /**
      * Convenience method to retrieve all Agent records as an ObservableList.
      * This is particularly useful for populating JavaFX TableViews.
@@ -215,19 +236,50 @@ public class AgentTableAdapter implements DataStore {
      */
     public ObservableList<Agent> getAllAgents() throws SQLException {
         ObservableList<Agent> list = FXCollections.observableArrayList();
-        Statement stmt = connection.createStatement();
         // Execute SQL query to retrieve all Agent records.
-        ResultSet rs = stmt.executeQuery("SELECT * FROM AGENT");
-        while (rs.next()) {
-            Agent a = new Agent();
-            a.setFirstName(rs.getString("FIRSTNAME"));
-            a.setLastName(rs.getString("LASTNAME"));
-            a.setEmailAddress(rs.getString("EMAIL"));
-            a.setPhoneNumber(rs.getString("PHONE"));
-            a.setLicenseNumber(rs.getString("LICENSENUMBER"));
-            a.setSpecialization(rs.getString("SPECIALIZATION"));
-            list.add(a);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT * FROM AGENT");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(readAgent(rs));
+            }
         }
         return list;
     }
+
+    /**
+     * Checks that a record passed in through the DataStore interface is an Agent.
+     */
+    private static Agent toAgent(Object data) {
+        if (!(data instanceof Agent)) {
+            throw new IllegalArgumentException("Invalid type, expected Agent");
+        }
+        return (Agent) data;
+    }
+
+    /**
+     * Sets the INSERT parameters from an Agent object.
+     */
+    private static void bindInsert(PreparedStatement ps, Agent a) throws SQLException {
+        ps.setString(1, a.getFirstName());
+        ps.setString(2, a.getLastName());
+        ps.setString(3, a.getEmailAddress());
+        ps.setString(4, a.getPhoneNumber());
+        ps.setString(5, a.getLicenseNumber());
+        ps.setString(6, a.getSpecialization());
+    }
+
+    /**
+     * Builds an Agent object from the current row of a ResultSet.
+     */
+    private static Agent readAgent(ResultSet rs) throws SQLException {
+        Agent a = new Agent();
+        a.setFirstName(rs.getString("FIRSTNAME"));
+        a.setLastName(rs.getString("LASTNAME"));
+        a.setEmailAddress(rs.getString("EMAIL"));
+        a.setPhoneNumber(rs.getString("PHONE"));
+        a.setLicenseNumber(rs.getString("LICENSENUMBER"));
+        a.setSpecialization(rs.getString("SPECIALIZATION"));
+        return a;
+    }
 }
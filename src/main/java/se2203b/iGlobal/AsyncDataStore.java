@@ -0,0 +1,188 @@
+package se2203b.iGlobal;
+
+import javafx.application.Platform;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * The AsyncDataStore class is the asynchronous counterpart of the DataStore interface.
+ *
+ * It wraps a DataStore and runs every call on a shared virtual-thread executor, returning
+ * a CompletableFuture instead of blocking the caller. Controllers should use it so that
+ * no JDBC call runs on the JavaFX application thread; the onFxThread() helper delivers
+ * the result, or the error, back on the FX thread where the UI may be updated.
+ *
+ * Adapter-specific methods that are not part of DataStore can be run through call().
+ */
+public class AsyncDataStore {
+    // One virtual thread per call; JDBC blocking only parks the virtual thread.
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Runs tasks on the JavaFX application thread.
+    private static final Executor FX_EXECUTOR = Platform::runLater;
+
+    private final DataStore store;
+
+    /**
+     * A database call that produces a result.
+     *
+     * @param <T> the result type.
+     */
+    @FunctionalInterface
+    public interface DataCall<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * A database call without a result.
+     */
+    @FunctionalInterface
+    public interface DataAction {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Creates an asynchronous view of the given DataStore.
+     *
+     * @param store the DataStore whose calls should run in the background.
+     */
+    public AsyncDataStore(DataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * @return the wrapped DataStore.
+     */
+    public DataStore getDataStore() {
+        return store;
+    }
+
+    public CompletableFuture<Void> addNewRecord(Object data) {
+        return run(() -> store.addNewRecord(data));
+    }
+
+    public CompletableFuture<Void> updateRecord(Object data) {
+        return run(() -> store.updateRecord(data));
+    }
+
+    public CompletableFuture<Object> findOneRecord(String key) {
+        return call(() -> store.findOneRecord(key));
+    }
+
+    public CompletableFuture<Object> findOneRecord(Object referencedObject) {
+        return call(() -> store.findOneRecord(referencedObject));
+    }
+
+    public CompletableFuture<Void> deleteOneRecord(Object data) {
+        return run(() -> store.deleteOneRecord(data));
+    }
+
+    public CompletableFuture<Void> deleteRecords(Object referencedObject) {
+        return run(() -> store.deleteRecords(referencedObject));
+    }
+
+    public CompletableFuture<List<String>> getKeys() {
+        return call(store::getKeys);
+    }
+
+    public CompletableFuture<List<Object>> getAllRecords() {
+        return call(store::getAllRecords);
+    }
+
+    public CompletableFuture<List<Object>> getAllRecords(Object referencedObject) {
+        return call(() -> store.getAllRecords(referencedObject));
+    }
+
+    public CompletableFuture<Void> addRecordList(List<?> data) {
+        return run(() -> store.addRecordList(data));
+    }
+
+    public CompletableFuture<Void> updateRecordList(List<?> data) {
+        return run(() -> store.updateRecordList(data));
+    }
+
+    public CompletableFuture<Void> deleteRecordList(List<?> data) {
+        return run(() -> store.deleteRecordList(data));
+    }
+
+    /**
+     * Runs any database call on the background executor.
+     *
+     * @param call the call to run.
+     * @return a future completed with the call's result, or exceptionally with its error.
+     */
+    public static <T> CompletableFuture<T> call(DataCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Runs any database action without a result on the background executor.
+     *
+     * @param action the action to run.
+     * @return a future completed when the action finishes, or exceptionally with its error.
+     */
+    public static CompletableFuture<Void> run(DataAction action) {
+        return call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Delivers the outcome of a future on the JavaFX application thread.
+     *
+     * @param future    the background call.
+     * @param onSuccess receives the result on the FX thread.
+     * @param onError   receives the underlying error (not the CompletionException wrapper) on the FX thread.
+     * @return a future that completes after the callback has run.
+     */
+    public static <T> CompletableFuture<Void> onFxThread(CompletableFuture<T> future, Consumer<? super T> onSuccess,
+                                                        Consumer<? super Throwable> onError) {
+        return future.handleAsync((result, error) -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+            return null;
+        }, FX_EXECUTOR);
+    }
+
+    /**
+     * @return an Executor that runs tasks on the JavaFX application thread,
+     * for use with the *Async methods of CompletableFuture.
+     */
+    public static Executor fxExecutor() {
+        return FX_EXECUTOR;
+    }
+
+    /**
+     * Returns the real cause of an error raised inside a CompletableFuture.
+     */
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Stops accepting new background calls. Called when the application exits.
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+}
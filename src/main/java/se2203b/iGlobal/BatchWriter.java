@@ -0,0 +1,135 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * The BatchWriter class runs one SQL statement for many records using JDBC batching.
+ *
+ * All records are written on a single pooled connection inside one transaction: rows are
+ * queued with addBatch(), sent to Derby every batch-size rows with executeBatch(), and
+ * committed once at the end. This avoids the log sync Derby performs on every auto-commit.
+ * If any row fails, the whole batch is rolled back.
+ *
+ * A batch is always its own transaction. The adapters update their in-memory caches and
+ * indexes as soon as execute() returns, which is only right once the rows are committed,
+ * so execute() refuses to run on a thread whose connection already has a transaction open.
+ *
+ * The batch size defaults to DEFAULT_BATCH_SIZE and can be changed with the
+ * iglobal.batchSize system property or setBatchSize().
+ */
+public final class BatchWriter {
+    // Number of rows sent to Derby per executeBatch() call when nothing else is configured.
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static volatile int batchSize = Integer.getInteger("iglobal.batchSize", DEFAULT_BATCH_SIZE);
+
+    /**
+     * Binds the values of one record to the parameters of a PreparedStatement.
+     *
+     * @param <T> the record type.
+     */
+    @FunctionalInterface
+    public interface Binder<T> {
+        void bind(PreparedStatement ps, T record) throws SQLException;
+    }
+
+    private BatchWriter() {
+    }
+
+    /**
+     * @return the number of rows sent to Derby per executeBatch() call.
+     */
+    public static int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of rows sent to Derby per executeBatch() call.
+     *
+     * @param size the new batch size; must be at least 1.
+     */
+    public static void setBatchSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        batchSize = size;
+    }
+
+    /**
+     * Runs the SQL statement once for every record, using the configured batch size.
+     *
+     * @param sql     the SQL statement with parameter placeholders.
+     * @param records the records to write.
+     * @param binder  sets the statement parameters from one record.
+     * @return the number of rows affected.
+     * @throws SQLException if a database access error occurs; nothing is committed.
+     */
+    public static <T> int execute(String sql, List<? extends T> records, Binder<T> binder) throws SQLException {
+        return execute(sql, records, batchSize, binder);
+    }
+
+    /**
+     * Runs the SQL statement once for every record, sending them to Derby in batches.
+     *
+     * @param sql       the SQL statement with parameter placeholders.
+     * @param records   the records to write.
+     * @param batchSize the number of rows per executeBatch() call.
+     * @param binder    sets the statement parameters from one record.
+     * @return the number of rows affected.
+     * @throws SQLException if a database access error occurs, or the thread already has a
+     *                      transaction open; nothing is committed.
+     */
+    public static <T> int execute(String sql, List<? extends T> records, int batchSize, Binder<T> binder)
+            throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            if (!connection.getAutoCommit()) {
+                throw new SQLException("BatchWriter cannot join a transaction the caller has open; "
+                        + "commit or roll it back first");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int affected = 0;
+                int pending = 0;
+                for (T record : records) {
+                    binder.bind(ps, record);
+                    ps.addBatch();
+                    if (++pending == batchSize) {
+                        affected += sum(ps.executeBatch());
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    affected += sum(ps.executeBatch());
+                }
+                connection.commit();
+                return affected;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Adds up the update counts returned by executeBatch().
+     * Rows reported as SUCCESS_NO_INFO are counted as one row each.
+     */
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+}
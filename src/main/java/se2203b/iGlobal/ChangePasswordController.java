@@ -8,13 +8,11 @@ import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 
 import java.net.URL;
-import java.sql.SQLException;
-import java.util.Random;
 import java.util.ResourceBundle;
 /**
  * @author Abdelkader Ouda
  */
-public class ChangePasswordController implements Initializable {
+public class ChangePasswordController implements Initializable, ViewRegistry.Reusable {
 
     @FXML
     private Button cancelBtn;
@@ -55,48 +53,44 @@ public class ChangePasswordController implements Initializable {
         username.setText("Change password for " + loggedInUser);
     }
 
+    /**
+     * Checks the old password and saves the new one, both in the background; the Save
+     * button stays disabled until that is done.
+     */
     public void changePassword() {
         errorMsg.setText("");
-        try {
-            // Get the user account information from database
-            UserAccount account = (UserAccount) userAccountTable.findOneRecord(userAccountName);
-            // check the old password
-            String salt = account.getPasswordSalt();
-            String encryptedPassword = iGlobalController.encrypt(oldPassword.getText(), salt);
-            String retrievedEncryptedPassword = account.getEncryptedPassword();
-            if (encryptedPassword.equals(retrievedEncryptedPassword)) {
-                // check if the two new password are identical
-                if (newPassword1.getText().equals(newPassword2.getText())) {
-                    // Encrypt the new password
-                    Random random = new Random();
-                    String newSalt = Integer.toString(random.nextInt());
-                    String encryptedNewPassword = iGlobalController.encrypt(newPassword1.getText(), newSalt);
-
-                    // save the new password then exit and logout
-                    account.setEncryptedPassword(encryptedNewPassword);
-                    account.setPasswordSalt(newSalt);
-                    try {
-                        userAccountTable.updateRecord(account);
-
-                        // Get current stage reference
-                        Stage stage = (Stage) cancelBtn.getScene().getWindow();
-                        // Close stage
-                        stage.close();
-                        iGlobalController.logout();
-                    } catch (SQLException e) {
-                        iGlobalController.displayAlert("Change password: " + e.getMessage());
-                    }
+        // check if the two new password are identical
+        if (!newPassword1.getText().equals(newPassword2.getText())) {
+            // wrong new password
+            errorMsg.setText("The new passwords do not match");
+            return;
+        }
+        String old = oldPassword.getText();
+        String entered = newPassword1.getText();
+        saveBtn.setDisable(true);
+        // Get the user account information from database
+        AsyncDataStore.onFxThread(new AsyncDataStore(userAccountTable).findOneRecord(userAccountName), found -> {
+            // check the old password, then hash and save the new one
+            AsyncDataStore.onFxThread(CredentialService.getInstance()
+                    .changePassword((UserAccount) found, old, entered, userAccountTable), changed -> {
+                saveBtn.setDisable(false);
+                if (changed) {
+                    // exit and logout
+                    Stage stage = (Stage) cancelBtn.getScene().getWindow();
+                    stage.close();
+                    iGlobalController.logout();
                 } else {
-                    // wrong new password
-                    errorMsg.setText("The new passwords do not match");
+                    // wrong password
+                    errorMsg.setText("Wrong old password");
                 }
-            } else {
-                // wrong password
-                errorMsg.setText("Wrong old password");
-            }
-        } catch (SQLException ex) {
-            iGlobalController.displayAlert("Find User Account: " + ex.getMessage());
-        }
+            }, error -> {
+                saveBtn.setDisable(false);
+                iGlobalController.displayAlert("Change password: " + error.getMessage());
+            });
+        }, error -> {
+            saveBtn.setDisable(false);
+            iGlobalController.displayAlert("Find User Account: " + error.getMessage());
+        });
     }
 
     public void cancel() {
@@ -114,4 +108,16 @@ public class ChangePasswordController implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
 
     }
+
+    /**
+     * Clears the passwords typed the last time the window was open.
+     */
+    @Override
+    public void prepareForReuse() {
+        oldPassword.clear();
+        newPassword1.clear();
+        newPassword2.clear();
+        errorMsg.setText("");
+        saveBtn.setDisable(false);
+    }
 }
@@ -8,50 +8,26 @@ import java.util.List;
  * The CityTableAdapter class provides the database access functionality for
  * the City entity in the iGlobal system. It implements the DataStore interface
  * to perform CRUD operations on the City table.
+ * New cities are also added to the ReferenceDataCache.
  */
 public class CityTableAdapter implements DataStore {
-    // Database URL for the iGlobalDB Derby database
-    private final String DB_URL = "jdbc:derby:iGlobalDB";
-
-    // Connection object to be used for database operations
-    private final Connection connection;
+    private static final String INSERT_SQL = "INSERT INTO City (cityName, provinceCode) VALUES (?, ?)";
 
     /**
      * Constructs a new CityTableAdapter.
-     * If the reset flag is true, it drops the City table if it exists and then creates a new one.
+     * If the reset flag is true, it drops the City table and recreates it through SchemaMigrator.reset();
+     * otherwise the table is left to SchemaMigrator.bootstrap() and nothing is run.
      *
      * @param reset if true, the City table is dropped and re-created.
      * @throws SQLException if a database access error occurs.
      */
     public CityTableAdapter(boolean reset) throws SQLException {
-        // Establish a connection to the database
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-
-        // If reset is true, drop the City table if it exists
         if (reset) {
-            try {
-                stmt.execute("DROP TABLE City");
-            } catch (SQLException e) {
-                // Ignore the exception if the table does not exist.
-            }
-        }
-
-        // Create the City table if it doesn't exist already
-        try {
-            String command = "CREATE TABLE City (" +
-                    "cityName VARCHAR(50) NOT NULL, " +
-                    "provinceCode VARCHAR(20) NOT NULL, " +
-                    "PRIMARY KEY (cityName, provinceCode), " +
-                    "FOREIGN KEY (provinceCode) REFERENCES Province(provinceCode)" +
-                    ")";
-            stmt.execute(command);
-        } catch (SQLException e) {
-            // Ignore the exception if the table already exists.
+            // The migrations recreate the table with its primary key and its foreign key to Province.
+            SchemaMigrator.reset("CITY");
+            // The cached lookup data described the old table.
+            ReferenceDataCache.getInstance().invalidate();
         }
-
-        // Close the connection since we're done with initialization.
-        connection.close();
     }
 
     /**
@@ -64,15 +40,36 @@ public class CityTableAdapter implements DataStore {
     public void addNewRecord(Object data) throws SQLException {
         // Cast the data object to a City instance.
         City city = (City) data;
-        // Open a new connection for the insertion.
-        Connection conn = DriverManager.getConnection(DB_URL);
-        Statement stmt = conn.createStatement();
-        // Build the SQL insert command using the city name and province code.
-        String command = "INSERT INTO City (cityName, provinceCode) VALUES ('"
-                + city.getCityName() + "', '" + city.getProvinceCode() + "')";
-        stmt.executeUpdate(command);
-        // Close the connection after the operation.
-        conn.close();
+        // Borrow a connection for the insertion.
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(INSERT_SQL)) {
+            // Bind the city name and province code.
+            ps.setString(1, city.getCityName());
+            ps.setString(2, city.getProvinceCode());
+            ps.executeUpdate();
+        }
+        // Keep the lookup cache in step with the table.
+        ReferenceDataCache.getInstance().citiesAdded(List.of(city));
+    }
+
+    /**
+     * Adds many City records as JDBC batches in a single transaction.
+     *
+     * @param data a list of City objects.
+     * @throws SQLException if a database access error occurs; no record is added.
+     */
+    @Override
+    public void addRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(INSERT_SQL, data, (ps, record) -> {
+            City city = (City) record;
+            ps.setString(1, city.getCityName());
+            ps.setString(2, city.getProvinceCode());
+        });
+        List<City> cities = new ArrayList<>();
+        for (Object record : data) {
+            cities.add((City) record);
+        }
+        ReferenceDataCache.getInstance().citiesAdded(cities);
     }
 
     /**
@@ -84,17 +81,18 @@ public class CityTableAdapter implements DataStore {
      */
     public List<String> getCitiesInProvince(String provinceCode) throws SQLException {
         List<String> list = new ArrayList<>();
-        // Open a new connection.
-        Connection conn = DriverManager.getConnection(DB_URL);
-        Statement stmt = conn.createStatement();
         // Execute a query to retrieve city names for the given province code.
-        ResultSet rs = stmt.executeQuery("SELECT cityName FROM City WHERE provinceCode = '" + provinceCode + "'");
-        while (rs.next()) {
-            // Add each city name to the list.
-            list.add(rs.getString("cityName"));
+        String sql = "SELECT cityName FROM City WHERE provinceCode = ?";
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, provinceCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    // Add each city name to the list.
+                    list.add(rs.getString("cityName"));
+                }
+            }
         }
-        // Close the connection and return the list.
-        conn.close();
         return list;
     }
 
@@ -107,18 +105,17 @@ public class CityTableAdapter implements DataStore {
      * @throws SQLException if a database access error occurs.
      */
     public boolean cityExists(String cityName, String provinceCode) throws SQLException {
-        // Open a new connection.
-        Connection conn = DriverManager.getConnection(DB_URL);
         // Use a PreparedStatement to safely query the database.
         String sql = "SELECT 1 FROM City WHERE cityName = ? AND provinceCode = ?";
-        PreparedStatement ps = conn.prepareStatement(sql);
-        ps.setString(1, cityName);
-        ps.setString(2, provinceCode);
-        ResultSet rs = ps.executeQuery();
-        // If rs.next() returns true, the city exists.
-        boolean exists = rs.next();
-        conn.close();
-        return exists;
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, cityName);
+            ps.setString(2, provinceCode);
+            try (ResultSet rs = ps.executeQuery()) {
+                // If rs.next() returns true, the city exists.
+                return rs.next();
+            }
+        }
     }
 
     // The following methods are part of the DataStore interface.
@@ -0,0 +1,167 @@
+package se2203b.iGlobal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * The Configuration class applies a profile of tuning settings before the embedded
+ * database starts.
+ *
+ * A profile is a properties file shipped with the application: desktop (the default)
+ * for one user on a workstation, branch for a branch server shared by many users, and
+ * bulk-load for large imports and exports. It is chosen with the iglobal.profile system
+ * property. Settings in an iGlobal.properties file in the working directory, or in the
+ * file named by iglobal.config, replace those of the profile, so a deployment can be
+ * tuned without rebuilding; a setting given on the command line with -D wins over both.
+ *
+ * Every setting ends up as a system property. The derby.* settings are Derby system
+ * properties, such as derby.storage.pageSize, derby.storage.logBufferSize and
+ * derby.language.statementCacheSize; Derby reads them when it boots and they take
+ * precedence over any stored in the database. The iglobal.* settings are read by the
+ * classes they belong to, such as ConnectionPool, BatchWriter, RecordStream,
+ * SlowQueryLog and CredentialService, when they are first used.
+ *
+ * Unless derby.storage.pageCacheSize is given, the page cache is sized to the share of
+ * the maximum heap set by iglobal.pageCacheHeapPercent, counted in pages of
+ * derby.storage.pageSize bytes. Derby uses larger pages for tables with long rows, so the
+ * cache can take somewhat more memory than that share.
+ *
+ * apply() must run before the first connection is opened; main() and ConnectionPool
+ * both call it, and only the first call has any effect.
+ */
+public final class Configuration {
+    // The profile used when iglobal.profile is not set
+    public static final String DEFAULT_PROFILE = "desktop";
+    // The profiles shipped with the application
+    public static final List<String> PROFILES = List.of("desktop", "branch", "bulk-load");
+    // Settings file read from the working directory when iglobal.config is not set
+    public static final String OVERRIDE_FILE = "iGlobal.properties";
+
+    private static final String PAGE_CACHE_PERCENT = "iglobal.pageCacheHeapPercent";
+    private static final String PAGE_CACHE_SIZE = "derby.storage.pageCacheSize";
+    private static final String PAGE_SIZE = "derby.storage.pageSize";
+    // Derby's default page size
+    private static final int DEFAULT_PAGE_SIZE = 4096;
+    // Derby's smallest page cache, in pages
+    private static final int MIN_PAGE_CACHE_PAGES = 40;
+
+    private static final Logger LOG = Logger.getLogger(Configuration.class.getName());
+
+    // The profile applied, or null before apply()
+    private static String profile;
+    // The value in effect for every setting of the profile and the override file
+    private static Map<String, String> settings = Map.of();
+
+    private Configuration() {
+    }
+
+    /**
+     * Applies the chosen profile and the override file, once per process.
+     *
+     * @throws IllegalArgumentException if the profile does not exist or a setting is out of range.
+     * @throws UncheckedIOException     if the profile or the override file cannot be read.
+     */
+    public static synchronized void apply() {
+        if (profile != null) {
+            return;
+        }
+        String name = System.getProperty("iglobal.profile", DEFAULT_PROFILE);
+        Properties merged = loadProfile(name);
+        merged.putAll(loadOverrides());
+
+        Map<String, String> effective = new TreeMap<>();
+        for (String key : merged.stringPropertyNames()) {
+            if (System.getProperty(key) == null) {
+                System.setProperty(key, merged.getProperty(key).trim());
+            }
+            effective.put(key, System.getProperty(key));
+        }
+        if (System.getProperty(PAGE_CACHE_SIZE) == null && System.getProperty(PAGE_CACHE_PERCENT) != null) {
+            System.setProperty(PAGE_CACHE_SIZE, String.valueOf(pageCachePages(
+                    Integer.getInteger(PAGE_CACHE_PERCENT, 0), Integer.getInteger(PAGE_SIZE, DEFAULT_PAGE_SIZE))));
+        }
+        if (System.getProperty(PAGE_CACHE_SIZE) != null) {
+            effective.put(PAGE_CACHE_SIZE, System.getProperty(PAGE_CACHE_SIZE));
+        }
+        settings = Collections.unmodifiableMap(effective);
+        profile = name;
+        LOG.config(() -> "Configuration profile " + name + ": " + settings);
+    }
+
+    /**
+     * @return the name of the profile applied, or null if apply() has not run.
+     */
+    public static synchronized String getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return the value in effect for each setting of the profile and the override file,
+     * including the computed page cache size; empty if apply() has not run.
+     */
+    public static synchronized Map<String, String> getSettings() {
+        return settings;
+    }
+
+    /**
+     * Works out the page cache size for a share of the maximum heap.
+     *
+     * @param heapPercent the percentage of the heap, from 1 to 90.
+     * @param pageSize    the page size in bytes.
+     * @return the number of pages, at least Derby's minimum.
+     */
+    static int pageCachePages(int heapPercent, int pageSize) {
+        if (heapPercent < 1 || heapPercent > 90) {
+            throw new IllegalArgumentException(PAGE_CACHE_PERCENT + " must be between 1 and 90: " + heapPercent);
+        }
+        long pages = Runtime.getRuntime().maxMemory() / 100 * heapPercent / pageSize;
+        return (int) Math.max(MIN_PAGE_CACHE_PAGES, Math.min(pages, Integer.MAX_VALUE));
+    }
+
+    private static Properties loadProfile(String name) {
+        if (!PROFILES.contains(name)) {
+            throw new IllegalArgumentException("Unknown configuration profile: " + name
+                    + " (expected one of " + PROFILES + ")");
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Configuration.class.getResourceAsStream("profile-" + name + ".properties")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Configuration profile not found: " + name);
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read configuration profile " + name, e);
+        }
+        return properties;
+    }
+
+    /**
+     * Reads the override file; it is optional unless named by iglobal.config.
+     */
+    private static Properties loadOverrides() {
+        String configured = System.getProperty("iglobal.config");
+        Path file = Paths.get(configured != null ? configured : OVERRIDE_FILE);
+        Properties properties = new Properties();
+        if (configured == null && !Files.exists(file)) {
+            return properties;
+        }
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read configuration file " + file, e);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,486 @@
+package se2203b.iGlobal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The ConnectionPool class owns every JDBC connection to the embedded iGlobalDB database.
+ *
+ * All DataStore adapters borrow their connections from the shared pool instead of opening
+ * their own. The pool is bounded, validates connections before handing them out, and gives
+ * each thread a single physical connection: nested borrows on the same thread share the
+ * connection that thread already holds, which is how the adapters can call each other
+ * without exhausting the pool. Borrowed connections are returned by calling close() on them,
+ * so the usual try-with-resources pattern works unchanged.
+ *
+ * Each physical connection also carries a StatementCache: prepareStatement(String) calls made
+ * through a pooled connection reuse the PreparedStatement compiled for the same SQL text.
+ * Every statement handed out is passed through the SlowQueryLog.
+ *
+ * The shared pool applies the Configuration before it opens its first connection, so the
+ * Derby settings of the chosen profile are in place when the engine boots. Its URL, size and
+ * borrow timeout are read from the iglobal.databaseUrl, iglobal.poolSize and
+ * iglobal.poolTimeoutMillis system properties.
+ */
+public final class ConnectionPool {
+    // Default database URL for the embedded Derby iGlobalDB database.
+    private static final String DB_URL = "jdbc:derby:iGlobalDB;create=true";
+    // URL used to shut the embedded Derby engine down when the application closes.
+    private static final String SHUTDOWN_URL = "jdbc:derby:;shutdown=true";
+    // SQLState Derby reports for a successful engine shutdown.
+    private static final String SHUTDOWN_STATE = "XJ015";
+
+    // Default number of physical connections the pool may open.
+    private static final int DEFAULT_MAX_SIZE = 8;
+    // Default time a thread waits for a free connection before giving up.
+    private static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 10_000;
+    // Timeout, in seconds, passed to Connection.isValid() when validating.
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    // The shared pool instance, created on first use.
+    private static ConnectionPool instance;
+
+    private final String url;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+
+    // Idle physical connections, most recently returned first so warm connections are reused.
+    private final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    // Every physical connection this pool has opened and not yet closed, with its statement cache.
+    private final Map<Connection, StatementCache> physical = new ConcurrentHashMap<>();
+    // One permit per physical connection the pool is allowed to hand out.
+    private final Semaphore permits;
+    // The lease held by the current thread, if any.
+    private final ThreadLocal<Lease> currentLease = new ThreadLocal<>();
+    private volatile boolean closed;
+
+    // Metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder reuseCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder invalidatedCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalHoldNanos = new LongAdder();
+    private final LongAdder releaseCount = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong maxHoldNanos = new AtomicLong();
+    // Statement cache counts from connections that have since been closed.
+    private final LongAdder retiredCacheHits = new LongAdder();
+    private final LongAdder retiredCacheMisses = new LongAdder();
+
+    /**
+     * Creates a pool for the given database URL.
+     *
+     * @param url                 the JDBC URL of the database.
+     * @param maxSize             the maximum number of physical connections.
+     * @param borrowTimeoutMillis how long a borrower waits for a free connection.
+     */
+    public ConnectionPool(String url, int maxSize, long borrowTimeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    /**
+     * Returns the shared pool for the iGlobalDB database, creating it on first use.
+     *
+     * @return the shared ConnectionPool.
+     */
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null || instance.closed) {
+            Configuration.apply();
+            instance = new ConnectionPool(System.getProperty("iglobal.databaseUrl", DB_URL),
+                    Integer.getInteger("iglobal.poolSize", DEFAULT_MAX_SIZE),
+                    Long.getLong("iglobal.poolTimeoutMillis", DEFAULT_BORROW_TIMEOUT_MILLIS));
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared pool (if it was ever created) and shuts the embedded Derby engine down.
+     * Called once when the application exits.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+        try {
+            DriverManager.getConnection(SHUTDOWN_URL);
+        } catch (SQLException e) {
+            // Derby always reports a successful shutdown as an exception.
+            if (!SHUTDOWN_STATE.equals(e.getSQLState())) {
+                LOG.log(Level.WARNING, "Error shutting down Derby", e);
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection for the current thread.
+     * If the thread already holds a connection, the same physical connection is shared.
+     * The caller must close the returned connection to give it back to the pool.
+     *
+     * @return a pooled Connection.
+     * @throws SQLException if the pool is closed, no connection becomes free in time,
+     *                      or a new connection cannot be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        Lease lease = currentLease.get();
+        if (lease != null && lease.acquire()) {
+            // The thread already holds a connection; share it.
+            borrowCount.increment();
+            reuseCount.increment();
+            return lease.newHandle();
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        Connection conn;
+        try {
+            conn = takeValidConnection();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        long waited = System.nanoTime() - waitStart;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        borrowCount.increment();
+
+        lease = new Lease(conn);
+        currentLease.set(lease);
+        return lease.newHandle();
+    }
+
+    /**
+     * Takes an idle connection that passes validation, or opens a new one.
+     */
+    private Connection takeValidConnection() throws SQLException {
+        Connection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            if (isUsable(conn)) {
+                return conn;
+            }
+            invalidatedCount.increment();
+            discard(conn);
+        }
+        conn = DriverManager.getConnection(url);
+        physical.put(conn, new StatementCache(conn, StatementCache.DEFAULT_CAPACITY));
+        createdCount.increment();
+        return conn;
+    }
+
+    /**
+     * Checks that an idle connection is still open and responsive.
+     */
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Puts a physical connection back in the idle queue once its lease is fully released.
+     */
+    private void release(Lease lease) {
+        Connection conn = lease.connection;
+        long held = System.nanoTime() - lease.borrowedAt;
+        totalHoldNanos.add(held);
+        maxHoldNanos.accumulateAndGet(held, Math::max);
+        releaseCount.increment();
+        if (currentLease.get() == lease) {
+            currentLease.remove();
+        }
+        try {
+            // Never hand the next borrower an open transaction.
+            if (!conn.isClosed() && !conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            if (closed || conn.isClosed()) {
+                discard(conn);
+            } else {
+                idle.offerFirst(conn);
+            }
+        } catch (SQLException e) {
+            invalidatedCount.increment();
+            discard(conn);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes a physical connection and forgets about it.
+     */
+    private void discard(Connection conn) {
+        StatementCache cache = physical.remove(conn);
+        if (cache != null) {
+            retiredCacheHits.add(cache.getHitCount());
+            retiredCacheMisses.add(cache.getMissCount());
+            cache.close();
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // The connection is already unusable; nothing else to do.
+        }
+    }
+
+    /**
+     * Closes the pool and every physical connection it opened.
+     * Connections still borrowed are closed when their borrowers return them.
+     */
+    public void close() {
+        closed = true;
+        Connection conn;
+        while ((conn = idle.pollFirst()) != null) {
+            discard(conn);
+        }
+    }
+
+    /**
+     * @return true if close() has been called on this pool.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Metrics accessors
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getOpenCount() {
+        return physical.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getReuseCount() {
+        return reuseCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public long getInvalidatedCount() {
+        return invalidatedCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * @return the average time, in milliseconds, a borrower waited for a physical connection.
+     */
+    public double getAverageWaitMillis() {
+        long waits = borrowCount.sum() - reuseCount.sum();
+        return waits == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / waits;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return the average time, in milliseconds, a physical connection stayed borrowed.
+     */
+    public double getAverageHoldMillis() {
+        long releases = releaseCount.sum();
+        return releases == 0 ? 0 : totalHoldNanos.sum() / 1_000_000.0 / releases;
+    }
+
+    public double getMaxHoldMillis() {
+        return maxHoldNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return the number of prepareStatement calls served from a statement cache.
+     */
+    public long getStatementCacheHits() {
+        long hits = retiredCacheHits.sum();
+        for (StatementCache cache : physical.values()) {
+            hits += cache.getHitCount();
+        }
+        return hits;
+    }
+
+    /**
+     * @return the number of prepareStatement calls that had to compile a statement.
+     */
+    public long getStatementCacheMisses() {
+        long misses = retiredCacheMisses.sum();
+        for (StatementCache cache : physical.values()) {
+            misses += cache.getMissCount();
+        }
+        return misses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[open=%d, active=%d, idle=%d, borrows=%d, reused=%d, " +
+                        "avgWait=%.2fms, maxWait=%.2fms, avgHold=%.2fms, timeouts=%d, invalidated=%d, " +
+                        "stmtCacheHits=%d, stmtCacheMisses=%d]",
+                getOpenCount(), getActiveCount(), getIdleCount(), getBorrowCount(), getReuseCount(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getAverageHoldMillis(),
+                getTimeoutCount(), getInvalidatedCount(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    /**
+     * A lease ties one physical connection to the thread that borrowed it.
+     * Each getConnection() call on that thread adds a reference; the connection goes back
+     * to the pool when the last reference is closed.
+     */
+    private final class Lease {
+        private final Connection connection;
+        private final StatementCache statements;
+        private final long borrowedAt = System.nanoTime();
+        private int references = 1;
+        private boolean released;
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+            this.statements = physical.get(connection);
+        }
+
+        /**
+         * Adds a reference if the lease is still active.
+         *
+         * @return false if the lease has already been released.
+         */
+        private synchronized boolean acquire() {
+            if (released) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+
+        private void dropReference() {
+            boolean last;
+            synchronized (this) {
+                last = --references == 0;
+                if (last) {
+                    released = true;
+                }
+            }
+            if (last) {
+                ConnectionPool.this.release(this);
+            }
+        }
+    }
+
+    /**
+     * The connection object seen by callers. Every call is forwarded to the physical
+     * connection except close(), which only drops this handle's reference to the lease,
+     * and prepareStatement(String), which goes through the connection's statement cache.
+     * Statements are handed out through the SlowQueryLog.
+     */
+    private static final class Handle implements InvocationHandler {
+        private final Lease lease;
+        private boolean closed;
+
+        private Handle(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        lease.dropReference();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || lease.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + lease.connection + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    Object result;
+                    if (method.getName().equals("prepareStatement") && args.length == 1
+                            && lease.statements != null) {
+                        result = lease.statements.prepare((String) args[0]);
+                    } else {
+                        try {
+                            result = method.invoke(lease.connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    if (result instanceof Statement statement) {
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return SlowQueryLog.getInstance().trace(statement, sql);
+                    }
+                    return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package se2203b.iGlobal;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The CredentialService class hashes and checks user account passwords.
+ *
+ * New passwords are stored as "pbkdf2$<iterations>$<hex>": PBKDF2-HMAC-SHA256 of the
+ * password with the account's salt, 32 bytes, hex encoded. The iteration count is the
+ * cost of every login; it is read from the iglobal.passwordIterations system property
+ * (DEFAULT_ITERATIONS if unset) and is stored with each hash, so it can be raised without
+ * breaking existing accounts. PasswordHashBenchmark in the benchmarks module measures
+ * the cost of a login at several counts.
+ *
+ * Accounts created by older releases hold a plain SHA-256 of password + salt as 64 hex
+ * digits. They are still accepted, and verify() replaces them, like any hash made with a
+ * different iteration count, with a new hash the first time the right password is given.
+ *
+ * Hashes are compared in constant time. Hashing is CPU-bound and deliberately slow, so
+ * the asynchronous methods run it on a small pool of platform threads of its own rather
+ * than on the JavaFX application thread or the database executor.
+ */
+public final class CredentialService {
+    // The iteration count used when iglobal.passwordIterations is not set
+    public static final int DEFAULT_ITERATIONS = 310_000;
+
+    private static final String SCHEME = "pbkdf2";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    // Length of the derived key
+    private static final int KEY_BITS = 256;
+    // Random bytes in a new salt
+    private static final int SALT_BYTES = 16;
+    // Hex digits of an old-style SHA-256 hash
+    private static final int LEGACY_HEX_LENGTH = 64;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final CredentialService INSTANCE =
+            new CredentialService(Integer.getInteger("iglobal.passwordIterations", DEFAULT_ITERATIONS));
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+    // Runs hashing off the FX thread; sized so logins cannot take every core
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "credential-hash");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Creates a service that hashes new passwords with the given iteration count. The
+     * application uses getInstance(); this is for measuring other counts.
+     *
+     * @param iterations the PBKDF2 iteration count for new hashes.
+     * @throws IllegalArgumentException if iterations is not positive.
+     */
+    public CredentialService(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Password iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    public static CredentialService getInstance() {
+        return INSTANCE;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return a new random salt, as hex.
+     */
+    public String newSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return toHex(salt);
+    }
+
+    /**
+     * Hashes a password with the configured iteration count.
+     *
+     * @param password the password.
+     * @param salt     the account's salt.
+     * @return the hash to store, as "pbkdf2$<iterations>$<hex>".
+     */
+    public String hash(String password, String salt) {
+        return SCHEME + "$" + iterations + "$" + toHex(derive(password, salt, iterations));
+    }
+
+    /**
+     * Gives an account a new salt and the hash of a new password. The account is not saved.
+     *
+     * @param account  the account to change.
+     * @param password the new password.
+     */
+    public void setPassword(UserAccount account, String password) {
+        String salt = newSalt();
+        account.setPasswordSalt(salt);
+        account.setEncryptedPassword(hash(password, salt));
+    }
+
+    /**
+     * Checks a password against a stored hash, in either the current or the old format.
+     *
+     * @param password the password given.
+     * @param salt     the account's salt.
+     * @param stored   the stored hash.
+     * @return true if the password is right; false if not or if the hash is not readable.
+     */
+    public boolean matches(String password, String salt, String stored) {
+        if (stored == null || salt == null || password == null) {
+            return false;
+        }
+        if (stored.startsWith(SCHEME + "$")) {
+            int split = stored.indexOf('$', SCHEME.length() + 1);
+            if (split < 0) {
+                return false;
+            }
+            int storedIterations;
+            try {
+                storedIterations = Integer.parseInt(stored, SCHEME.length() + 1, split, 10);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            byte[] expected = fromHex(stored, split + 1);
+            return storedIterations > 0 && expected != null
+                    && MessageDigest.isEqual(derive(password, salt, storedIterations), expected);
+        }
+        if (stored.length() == LEGACY_HEX_LENGTH) {
+            byte[] expected = fromHex(stored, 0);
+            return expected != null && MessageDigest.isEqual(legacyHash(password, salt), expected);
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a stored hash is in the old format or uses another iteration count.
+     */
+    public boolean needsRehash(String stored) {
+        return stored == null || !stored.startsWith(SCHEME + "$" + iterations + "$");
+    }
+
+    /**
+     * Checks a password against an account in the background. When it is right but the
+     * stored hash needs rehashing, the account gets a new salt and hash, saved through
+     * the given data store; if that save fails the old hash keeps working.
+     *
+     * @param account  the account, as read from the database.
+     * @param password the password given.
+     * @param accounts the data store the account belongs to.
+     * @return a future completed with true if the password is right.
+     */
+    public CompletableFuture<Boolean> verify(UserAccount account, String password, DataStore accounts) {
+        return CompletableFuture.supplyAsync(() -> {
+            String stored = account.getEncryptedPassword();
+            if (!matches(password, account.getPasswordSalt(), stored)) {
+                return false;
+            }
+            if (needsRehash(stored)) {
+                String oldSalt = account.getPasswordSalt();
+                setPassword(account, password);
+                try {
+                    accounts.updateRecord(account);
+                } catch (SQLException e) {
+                    // Keep the old hash; the next login tries again.
+                    account.setPasswordSalt(oldSalt);
+                    account.setEncryptedPassword(stored);
+                }
+            }
+            return true;
+        }, executor);
+    }
+
+    /**
+     * Changes an account's password in the background if the old password is right.
+     *
+     * @param account     the account, as read from the database.
+     * @param oldPassword the current password given.
+     * @param newPassword the new password.
+     * @param accounts    the data store the account is saved through.
+     * @return a future completed with false if the old password is wrong, or true once
+     * the new password is saved; it fails with the SQLException if saving fails.
+     */
+    public CompletableFuture<Boolean> changePassword(UserAccount account, String oldPassword, String newPassword,
+                                                     DataStore accounts) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!matches(oldPassword, account.getPasswordSalt(), account.getEncryptedPassword())) {
+                return false;
+            }
+            setPassword(account, newPassword);
+            try {
+                accounts.updateRecord(account);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+            return true;
+        }, executor);
+    }
+
+    /**
+     * Gives an account a new salt and password hash in the background. The account is
+     * not saved.
+     *
+     * @return a future completed once the account holds the new hash.
+     */
+    public CompletableFuture<Void> setPasswordAsync(UserAccount account, String password) {
+        return CompletableFuture.runAsync(() -> setPassword(account, password), executor);
+    }
+
+    private static byte[] derive(String password, String salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(StandardCharsets.UTF_8),
+                iterations, KEY_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // The hash used before PBKDF2: SHA-256 of password + salt
+    private static byte[] legacyHash(String password, String salt) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest((password + salt).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Decodes the hex digits from start to the end of text.
+     *
+     * @return the bytes, or null if the digits are not valid hex.
+     */
+    private static byte[] fromHex(String text, int start) {
+        int length = text.length() - start;
+        if (length == 0 || length % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(text.charAt(start + 2 * i), 16);
+            int low = Character.digit(text.charAt(start + 2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+}
@@ -2,6 +2,7 @@ package se2203b.iGlobal;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Abdelkader Ouda
@@ -25,4 +26,39 @@ public interface DataStore {
     public List<Object> getAllRecords() throws SQLException;
     // Get a list of specific records by referenced table data
     public List<Object> getAllRecords(Object referencedObject) throws SQLException;
+    // Count all data records, or return -1 if they cannot be counted without reading them all
+    public default long countRecords() throws SQLException {
+        return -1;
+    }
+    // Stream all data records; the stream must be closed to release its connection
+    public default Stream<Object> streamAllRecords() throws SQLException {
+        return streamAllRecords(RecordStream.getFetchSize());
+    }
+    // Stream all data records, reading fetchSize rows per round trip; Derby adapters read from a forward-only cursor
+    public default Stream<Object> streamAllRecords(int fetchSize) throws SQLException {
+        List<Object> records = getAllRecords();
+        if (records == null) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot list all its records");
+        }
+        return records.stream();
+    }
+
+    // Add a group of new records; Derby adapters write them as one JDBC batch and commit once
+    public default void addRecordList(List<?> data) throws SQLException {
+        for (Object record : data) {
+            addNewRecord(record);
+        }
+    }
+    // Update a group of existing records; Derby adapters write them as one JDBC batch and commit once
+    public default void updateRecordList(List<?> data) throws SQLException {
+        for (Object record : data) {
+            updateRecord(record);
+        }
+    }
+    // Delete a group of specific records; Derby adapters write them as one JDBC batch and commit once
+    public default void deleteRecordList(List<?> data) throws SQLException {
+        for (Object record : data) {
+            deleteOneRecord(record);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,394 @@
+package se2203b.iGlobal;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The DataStoreMetrics class records how often each data store operation runs, how
+ * often it fails, how many rows it returns and how long it takes.
+ *
+ * Every statement run on a pooled connection is recorded, by the same wrapper that
+ * times statements for the SlowQueryLog, so nothing has to be instrumented by hand and
+ * no path to the database is missed. A statement is recorded under the operation that
+ * ran it: the innermost method on the call stack of a class of this application that is
+ * not part of the connection layer, for example PropertyTableAdapter.searchProperties or
+ * ReferenceDataCache.load. A statement run from a lambda is recorded under the method
+ * that declares the lambda. The stack is walked only as far as that method, and the
+ * operation of each method is looked up once and then cached, so finding it costs a few
+ * frames per statement. An operation that runs several statements counts each of them.
+ * The time recorded is the time spent in the driver, and the rows are those read or
+ * changed. Lookups answered from a cache run no statement and are not
+ * recorded.
+ *
+ * Latencies go into a histogram with eight buckets per power of two of microseconds, so
+ * percentiles are accurate to within about 6% whatever the range, and recording a call
+ * only increments a few counters without any locking.
+ *
+ * Setting the iglobal.metrics system property to false turns the metrics off; with the
+ * SlowQueryLog also off, statements are then not wrapped at all.
+ *
+ * The metrics are registered with the platform MBean server as
+ * se2203b.iGlobal:type=DataStoreMetrics, so they can also be read with JConsole or
+ * any other JMX client, and are shown in the Performance window.
+ */
+public final class DataStoreMetrics implements DataStoreMetricsMXBean {
+    // Name under which the metrics are registered with the platform MBean server.
+    public static final String OBJECT_NAME = "se2203b.iGlobal:type=DataStoreMetrics";
+
+    // Linear sub-buckets per power of two; 8 gives a bucket width of at most 1/8 of its lower bound.
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for latencies up to 2^40 microseconds, far beyond any real call.
+    private static final int BUCKETS = (40 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private static final String PACKAGE = DataStoreMetrics.class.getPackageName() + ".";
+    // Classes that run statements on behalf of others, so they never name an operation
+    private static final Set<String> CONNECTION_LAYER = Set.of("ConnectionPool", "StatementCache", "SlowQueryLog",
+            "TracedStatement", "TracedPreparedStatement", "TracedResultSet", "DataStoreMetrics", "BatchWriter", "RecordStream", "AsyncDataStore");
+
+    private static final Logger LOG = Logger.getLogger(DataStoreMetrics.class.getName());
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    private static final Caller UNKNOWN = new Caller("(unknown)", "(unknown)");
+    // Stands in for the operations of a class that never names one, such as a connection layer class
+    private static final Map<String, Caller> NOT_AN_OPERATION = Collections.emptyMap();
+    // The operations of each class by method name, filled in as statements are run
+    private static final ClassValue<Map<String, Caller>> CALLERS = new ClassValue<>() {
+        @Override
+        protected Map<String, Caller> computeValue(Class<?> type) {
+            return isApplicationClass(type.getName()) ? new ConcurrentHashMap<>() : NOT_AN_OPERATION;
+        }
+    };
+
+    // Whether statements are recorded, read once from the iglobal.metrics system property
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("iglobal.metrics", "true"));
+
+    private static DataStoreMetrics instance;
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    private DataStoreMetrics() {
+    }
+
+    /**
+     * @return the shared metrics, registered with the platform MBean server on first use.
+     */
+    public static synchronized DataStoreMetrics getInstance() {
+        if (instance == null) {
+            instance = new DataStoreMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                // The metrics still work, they are just not visible over JMX.
+                LOG.log(Level.WARNING, "DataStoreMetrics not registered with JMX", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return true if statements are being recorded.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Records a statement that has finished.
+     *
+     * @param caller       the operation that ran it, found by caller() when it started.
+     * @param elapsedNanos how long it spent in the driver.
+     * @param rows         the number of rows it read or changed.
+     * @param failed       whether it ended with an error.
+     */
+    void record(Caller caller, long elapsedNanos, long rows, boolean failed) {
+        operation(caller.adapter, caller.operation).record(elapsedNanos, rows, failed);
+    }
+
+    /**
+     * Finds the operation the current thread is running a statement for, walking the stack
+     * out to the first method of an application class.
+     *
+     * @return the data class and method on the call stack, or "(unknown)" if there is none.
+     */
+    static Caller caller() {
+        return WALKER.walk(frames -> {
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                Map<String, Caller> callers = CALLERS.get(frame.getDeclaringClass());
+                if (callers == NOT_AN_OPERATION) {
+                    continue;
+                }
+                String method = frame.getMethodName();
+                Caller caller = callers.get(method);
+                if (caller == null) {
+                    caller = callers.computeIfAbsent(method, name -> new Caller(
+                            frame.getClassName().substring(PACKAGE.length()), operationName(name)));
+                }
+                return caller;
+            }
+            return UNKNOWN;
+        });
+    }
+
+    /**
+     * @return the method a lambda body was declared in, from its synthetic name lambda$method$n,
+     * or the name itself for any other method.
+     */
+    static String operationName(String methodName) {
+        if (!methodName.startsWith("lambda$")) {
+            return methodName;
+        }
+        int end = methodName.indexOf('$', "lambda$".length());
+        return end < 0 ? methodName : methodName.substring("lambda$".length(), end);
+    }
+
+    /**
+     * @return true for a class of this application outside the connection layer.
+     */
+    private static boolean isApplicationClass(String className) {
+        if (!className.startsWith(PACKAGE)) {
+            return false;
+        }
+        int nested = className.indexOf('$');
+        String outer = nested < 0 ? className : className.substring(0, nested);
+        return !CONNECTION_LAYER.contains(outer.substring(PACKAGE.length()));
+    }
+
+    /**
+     * @return the statistics of every operation recorded so far, slowest in total first.
+     */
+    @Override
+    public List<OperationStats> getOperations() {
+        List<OperationStats> list = new ArrayList<>();
+        for (Operation operation : operations.values()) {
+            list.add(operation.snapshot());
+        }
+        list.sort(Comparator.comparingDouble(OperationStats::getTotalMillis).reversed());
+        return list;
+    }
+
+    @Override
+    public long getTotalCalls() {
+        return operations.values().stream().mapToLong(operation -> operation.calls.sum()).sum();
+    }
+
+    @Override
+    public long getTotalErrors() {
+        return operations.values().stream().mapToLong(operation -> operation.errors.sum()).sum();
+    }
+
+    /**
+     * Clears all recorded statistics.
+     */
+    @Override
+    public void reset() {
+        operations.clear();
+    }
+
+    private Operation operation(String adapter, String operation) {
+        return operations.computeIfAbsent(adapter + '.' + operation, key -> new Operation(adapter, operation));
+    }
+
+    /**
+     * The operation a statement runs for: a class name without its package, and a method name.
+     */
+    static final class Caller {
+        private final String adapter;
+        private final String operation;
+
+        private Caller(String adapter, String operation) {
+            this.adapter = adapter;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * @return the histogram bucket of a latency in microseconds.
+     */
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    /**
+     * @return the middle of a histogram bucket, in microseconds.
+     */
+    static double bucketMiddle(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket + 0.5;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (1L << exponent) + sub * width;
+        return lower + width / 2.0;
+    }
+
+    /**
+     * The counters of one operation.
+     */
+    private static final class Operation {
+        private final String adapter;
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        private Operation(String adapter, String name) {
+            this.adapter = adapter;
+            this.name = name;
+        }
+
+        private void record(long nanos, long rowCount, boolean failed) {
+            calls.increment();
+            if (failed) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.incrementAndGet(bucketOf(nanos / 1000));
+        }
+
+        private OperationStats snapshot() {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                count += counts[i];
+            }
+            return new OperationStats(adapter, name, calls.sum(), errors.sum(), rows.sum(),
+                    totalNanos.sum() / 1e6, maxNanos.get() / 1e6,
+                    percentile(counts, count, 0.50), percentile(counts, count, 0.95),
+                    percentile(counts, count, 0.99));
+        }
+
+        private static double percentile(long[] counts, long count, double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketMiddle(i) / 1000;
+                }
+            }
+            return bucketMiddle(counts.length - 1) / 1000;
+        }
+    }
+
+    /**
+     * The statistics of one operation at one point in time. Times are in milliseconds.
+     */
+    public static final class OperationStats {
+        private final String adapter;
+        private final String operation;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double totalMillis;
+        private final double maxMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+
+        public OperationStats(String adapter, String operation, long calls, long errors, long rows,
+                              double totalMillis, double maxMillis, double p50Millis, double p95Millis,
+                              double p99Millis) {
+            this.adapter = adapter;
+            this.operation = operation;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.totalMillis = totalMillis;
+            this.maxMillis = maxMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+        }
+
+        /**
+         * Rebuilds the statistics from their JMX form; used by JMX client proxies.
+         */
+        public static OperationStats from(CompositeData data) {
+            return new OperationStats((String) data.get("adapter"), (String) data.get("operation"),
+                    (Long) data.get("calls"), (Long) data.get("errors"), (Long) data.get("rows"),
+                    (Double) data.get("totalMillis"), (Double) data.get("maxMillis"),
+                    (Double) data.get("p50Millis"), (Double) data.get("p95Millis"), (Double) data.get("p99Millis"));
+        }
+
+        public String getAdapter() {
+            return adapter;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getTotalMillis() {
+            return totalMillis;
+        }
+
+        public double getMeanMillis() {
+            return calls == 0 ? 0 : totalMillis / calls;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s.%s: %d calls, %d errors, %d rows, mean %.2f ms, p50 %.2f, p95 %.2f, "
+                            + "p99 %.2f, max %.2f ms", adapter, operation, calls, errors, rows, getMeanMillis(),
+                    p50Millis, p95Millis, p99Millis, maxMillis);
+        }
+    }
+}
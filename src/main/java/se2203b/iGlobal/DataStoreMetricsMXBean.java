@@ -0,0 +1,17 @@
+package se2203b.iGlobal;
+
+import java.util.List;
+
+/**
+ * The management interface of DataStoreMetrics, as seen by JMX clients such as JConsole.
+ */
+public interface DataStoreMetricsMXBean {
+    // Statistics of every recorded operation, slowest in total first
+    List<DataStoreMetrics.OperationStats> getOperations();
+    // Number of calls recorded over all operations
+    long getTotalCalls();
+    // Number of failed calls over all operations
+    long getTotalErrors();
+    // Clear all recorded statistics
+    void reset();
+}
@@ -5,15 +5,22 @@ import javafx.beans.property.*;
 /**
  * The Executive class represents an executive user in the iGlobal system.
  * It contains properties for the executive's personal information.
- * This class uses JavaFX properties to support data binding in the UI.
+ * This class uses JavaFX properties to support data binding in the UI; each property is
+ * created on the first call to its xxxProperty() method, and until then the value is
+ * kept in a plain field.
  */
 public class Executive {
-    // JavaFX properties for executive attributes
-    private final StringProperty firstName = new SimpleStringProperty();
-    private final StringProperty lastName = new SimpleStringProperty();
-    private final StringProperty emailAddress = new SimpleStringProperty();
-    private final StringProperty phoneNumber = new SimpleStringProperty();
-    private final StringProperty privatePhoneNumber = new SimpleStringProperty();
+    // Executive attributes, and their JavaFX properties once they have been requested
+    private String firstName;
+    private StringProperty firstNameProperty;
+    private String lastName;
+    private StringProperty lastNameProperty;
+    private String emailAddress;
+    private StringProperty emailAddressProperty;
+    private String phoneNumber;
+    private StringProperty phoneNumberProperty;
+    private String privatePhoneNumber;
+    private StringProperty privatePhoneNumberProperty;
 
     /**
      * Default constructor.
@@ -31,11 +38,11 @@ public class Executive {
      * @param privatePhone   the private phone number of the executive.
      */
     public Executive(String firstName, String lastName, String emailAddress, String phoneNumber, String privatePhone) {
-        this.firstName.set(firstName);
-        this.lastName.set(lastName);
-        this.emailAddress.set(emailAddress);
-        this.phoneNumber.set(phoneNumber);
-        this.privatePhoneNumber.set(privatePhone);
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.emailAddress = emailAddress;
+        this.phoneNumber = phoneNumber;
+        this.privatePhoneNumber = privatePhone;
     }
 
     /**
@@ -44,7 +51,7 @@ public class Executive {
      * @return the first name.
      */
     public String getFirstName() {
-        return firstName.get();
+        return firstNameProperty == null ? firstName : firstNameProperty.get();
     }
 
     /**
@@ -53,7 +60,11 @@ public class Executive {
      * @param value the first name to set.
      */
     public void setFirstName(String value) {
-        firstName.set(value);
+        if (firstNameProperty == null) {
+            firstName = value;
+        } else {
+            firstNameProperty.set(value);
+        }
     }
 
     /**
@@ -62,7 +73,10 @@ public class Executive {
      * @return the first name property.
      */
     public StringProperty firstNameProperty() {
-        return firstName;
+        if (firstNameProperty == null) {
+            firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+        }
+        return firstNameProperty;
     }
 
     /**
@@ -71,7 +85,7 @@ public class Executive {
      * @return the last name.
      */
     public String getLastName() {
-        return lastName.get();
+        return lastNameProperty == null ? lastName : lastNameProperty.get();
     }
 
     /**
@@ -80,7 +94,11 @@ public class Executive {
      * @param value the last name to set.
      */
     public void setLastName(String value) {
-        lastName.set(value);
+        if (lastNameProperty == null) {
+            lastName = value;
+        } else {
+            lastNameProperty.set(value);
+        }
     }
 
     /**
@@ -89,7 +107,10 @@ public class Executive {
      * @return the last name property.
      */
     public StringProperty lastNameProperty() {
-        return lastName;
+        if (lastNameProperty == null) {
+            lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+        }
+        return lastNameProperty;
     }
 
     /**
@@ -98,7 +119,7 @@ public class Executive {
      * @return the email address.
      */
     public String getEmailAddress() {
-        return emailAddress.get();
+        return emailAddressProperty == null ? emailAddress : emailAddressProperty.get();
     }
 
     /**
@@ -107,7 +128,11 @@ public class Executive {
      * @param value the email address to set.
      */
     public void setEmailAddress(String value) {
-        emailAddress.set(value);
+        if (emailAddressProperty == null) {
+            emailAddress = value;
+        } else {
+            emailAddressProperty.set(value);
+        }
     }
 
     /**
@@ -116,7 +141,10 @@ public class Executive {
      * @return the email address property.
      */
     public StringProperty emailAddressProperty() {
-        return emailAddress;
+        if (emailAddressProperty == null) {
+            emailAddressProperty = new SimpleStringProperty(this, "emailAddress", emailAddress);
+        }
+        return emailAddressProperty;
     }
 
     /**
@@ -125,7 +153,7 @@ public class Executive {
      * @return the public phone number.
      */
     public String getPhoneNumber() {
-        return phoneNumber.get();
+        return phoneNumberProperty == null ? phoneNumber : phoneNumberProperty.get();
     }
 
     /**
@@ -134,7 +162,11 @@ public class Executive {
      * @param value the public phone number to set.
      */
     public void setPhoneNumber(String value) {
-        phoneNumber.set(value);
+        if (phoneNumberProperty == null) {
+            phoneNumber = value;
+        } else {
+            phoneNumberProperty.set(value);
+        }
     }
 
     /**
@@ -143,7 +175,10 @@ public class Executive {
      * @return the phone number property.
      */
     public StringProperty phoneNumberProperty() {
-        return phoneNumber;
+        if (phoneNumberProperty == null) {
+            phoneNumberProperty = new SimpleStringProperty(this, "phoneNumber", phoneNumber);
+        }
+        return phoneNumberProperty;
     }
 
     /**
@@ -152,7 +187,7 @@ public class Executive {
      * @return the private phone number.
      */
     public String getPrivatePhoneNumber() {
-        return privatePhoneNumber.get();
+        return privatePhoneNumberProperty == null ? privatePhoneNumber : privatePhoneNumberProperty.get();
     }
 
     /**
@@ -161,7 +196,11 @@ public class Executive {
      * @param value the private phone number to set.
      */
     public void setPrivatePhoneNumber(String value) {
-        privatePhoneNumber.set(value);
+        if (privatePhoneNumberProperty == null) {
+            privatePhoneNumber = value;
+        } else {
+            privatePhoneNumberProperty.set(value);
+        }
     }
 
     /**
@@ -170,6 +209,9 @@ public class Executive {
      * @return the private phone number property.
      */
     public StringProperty privatePhoneNumberProperty() {
-        return privatePhoneNumber;
+        if (privatePhoneNumberProperty == null) {
+            privatePhoneNumberProperty = new SimpleStringProperty(this, "privatePhoneNumber", privatePhoneNumber);
+        }
+        return privatePhoneNumberProperty;
     }
 }
@@ -5,6 +5,7 @@ import javafx.collections.ObservableList;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * The ExecutiveTableAdapter class implements the DataStore interface to provide
@@ -13,37 +14,24 @@ import java.util.List;
  * deleting, and retrieving Executive records.
  */
 public class ExecutiveTableAdapter implements DataStore {
-    // The connection used to interact with the database.
-    private final Connection connection;
+    // SQL insert statement with placeholders for parameters.
+    private static final String INSERT_SQL =
+            "INSERT INTO EXECUTIVE (FIRSTNAME, LASTNAME, EMAIL, PHONE, PRIVATEPHONE) VALUES (?, ?, ?, ?, ?)";
+    // SQL delete statement that deletes based on the EMAIL column.
+    private static final String DELETE_SQL = "DELETE FROM EXECUTIVE WHERE EMAIL = ?";
 
     /**
      * Constructor for ExecutiveTableAdapter.
      * If reset is true, drops and recreates the EXECUTIVE table.
+     * Connections are borrowed from the shared ConnectionPool for each operation.
      *
-     * @param conn  the database connection to use.
      * @param reset if true, resets (drops and creates) the EXECUTIVE table.
      * @throws SQLException if a database access error occurs.
      */
-    public ExecutiveTableAdapter(Connection conn, boolean reset) throws SQLException {
-        this.connection = conn;
-        Statement stmt = connection.createStatement();
+    public ExecutiveTableAdapter(boolean reset) throws SQLException {
         if (reset) {
-            // Attempt to drop the table if it exists; ignore any exception if it does not.
-            try {
-                stmt.execute("DROP TABLE EXECUTIVE");
-            } catch (SQLException ex) {
-                // Table does not exist, so ignore the exception.
-            }
-            // Create the EXECUTIVE table with the specified columns and primary key.
-            stmt.execute("CREATE TABLE EXECUTIVE (" +
-                    "ID INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1), " +
-                    "FIRSTNAME VARCHAR(50), " +
-                    "LASTNAME VARCHAR(50), " +
-                    "EMAIL VARCHAR(100), " +
-                    "PHONE VARCHAR(20), " +
-                    "PRIVATEPHONE VARCHAR(20), " +
-                    "PRIMARY KEY (ID)" +
-                    ")");
+            // The migrations recreate the table with its unique email address.
+            SchemaMigrator.reset("EXECUTIVE");
         }
     }
 
@@ -55,20 +43,24 @@ public class ExecutiveTableAdapter implements DataStore {
      */
     @Override
     public void addNewRecord(Object data) throws SQLException {
-        if (!(data instanceof Executive)) {
-            throw new IllegalArgumentException("Invalid type, expected Executive");
+        Executive e = toExecutive(data);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            // Set parameters based on the properties of the Executive object.
+            bindInsert(ps, e);
+            ps.executeUpdate();
         }
-        Executive e = (Executive) data;
-        // SQL insert statement with placeholders for parameters.
-        String insert = "INSERT INTO EXECUTIVE (FIRSTNAME, LASTNAME, EMAIL, PHONE, PRIVATEPHONE) VALUES (?, ?, ?, ?, ?)";
-        PreparedStatement ps = connection.prepareStatement(insert);
-        // Set parameters based on the properties of the Executive object.
-        ps.setString(1, e.getFirstName());
-        ps.setString(2, e.getLastName());
-        ps.setString(3, e.getEmailAddress());
-        ps.setString(4, e.getPhoneNumber());
-        ps.setString(5, e.getPrivatePhoneNumber());
-        ps.executeUpdate();
+    }
+
+    /**
+     * Adds many Executive records as JDBC batches in a single transaction.
+     *
+     * @param data a list of Executive objects to add.
+     * @throws SQLException if a database access error occurs; no record is added.
+     */
+    @Override
+    public void addRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(INSERT_SQL, data, (ps, record) -> bindInsert(ps, toExecutive(record)));
     }
 
     /**
@@ -115,15 +107,23 @@ public class ExecutiveTableAdapter implements DataStore {
      */
     @Override
     public void deleteOneRecord(Object data) throws SQLException {
-        if (!(data instanceof Executive)) {
-            throw new IllegalArgumentException("Invalid type, expected Executive");
+        Executive e = toExecutive(data);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_SQL)) {
+            ps.setString(1, e.getEmailAddress());
+            ps.executeUpdate();
         }
-        Executive e = (Executive) data;
-        // SQL delete statement that deletes based on the EMAIL column.
-        String delete = "DELETE FROM EXECUTIVE WHERE EMAIL = ?";
-        PreparedStatement ps = connection.prepareStatement(delete);
-        ps.setString(1, e.getEmailAddress());
-        ps.executeUpdate();
+    }
+
+    /**
+     * Deletes many Executive records, matched by email, in a single transaction.
+     *
+     * @param data a list of Executive objects to delete.
+     * @throws SQLException if a database access error occurs; no record is deleted.
+     */
+    @Override
+    public void deleteRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(DELETE_SQL, data, (ps, record) -> ps.setString(1, toExecutive(record).getEmailAddress()));
     }
 
     /**
@@ -146,11 +146,13 @@ public class ExecutiveTableAdapter implements DataStore {
     @Override
     public List<String> getKeys() throws SQLException {
         List<String> list = new ArrayList<>();
-        Statement stmt = connection.createStatement();
         // Execute a query to get all email addresses from the EXECUTIVE table.
-        ResultSet rs = stmt.executeQuery("SELECT EMAIL FROM EXECUTIVE");
-        while (rs.next()) {
-            list.add(rs.getString("EMAIL"));
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT EMAIL FROM EXECUTIVE");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(rs.getString("EMAIL"));
+            }
         }
         return list;
     }
@@ -164,17 +166,13 @@ public class ExecutiveTableAdapter implements DataStore {
     @Override
     public List<Object> getAllRecords() throws SQLException {
         List<Object> list = new ArrayList<>();
-        Statement stmt = connection.createStatement();
         // Execute a query to retrieve all columns from the EXECUTIVE table.
-        ResultSet rs = stmt.executeQuery("SELECT * FROM EXECUTIVE");
-        while (rs.next()) {
-            Executive e = new Executive();
-            e.setFirstName(rs.getString("FIRSTNAME"));
-            e.setLastName(rs.getString("LASTNAME"));
-            e.setEmailAddress(rs.getString("EMAIL"));
-            e.setPhoneNumber(rs.getString("PHONE"));
-            e.setPrivatePhoneNumber(rs.getString("PRIVATEPHONE"));
-            list.add(e);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT * FROM EXECUTIVE");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(readExecutive(rs));
+            }
         }
         return list;
     }
@@ -191,6 +189,33 @@ public class ExecutiveTableAdapter implements DataStore {
         throw new UnsupportedOperationException("getAllRecords(Object) not implemented.");
     }
 
+    /**
+     * Counts the Executive records, so a load can report its progress.
+     *
+     * @return the number of rows in the EXECUTIVE table.
+     * @throws SQLException if a database access error occurs.
+     */
+    @Override
+    public long countRecords() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM EXECUTIVE");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Streams all Executive records from a forward-only cursor without loading the whole table.
+     *
+     * @param fetchSize the number of rows fetched from Derby per round trip.
+     * @return a Stream of Executive objects; it must be closed to release its connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    @Override
+    public Stream<Object> streamAllRecords(int fetchSize) throws SQLException {
+        return RecordStream.open("SELECT * FROM EXECUTIVE", fetchSize, ExecutiveTableAdapter::readExecutive);
+    }
+
     /**
      * Convenience method to return an ObservableList of Executive objects.
      * This is used primarily for JavaFX TableView data binding.
@@ -200,17 +225,47 @@ public class ExecutiveTableAdapter implements DataStore {
      */
     public ObservableList<Executive> getAllExecutives() throws SQLException {
         ObservableList<Executive> list = FXCollections.observableArrayList();
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery("SELECT * FROM EXECUTIVE");
-        while (rs.next()) {
-            Executive e = new Executive();
-            e.setFirstName(rs.getString("FIRSTNAME"));
-            e.setLastName(rs.getString("LASTNAME"));
-            e.setEmailAddress(rs.getString("EMAIL"));
-            e.setPhoneNumber(rs.getString("PHONE"));
-            e.setPrivatePhoneNumber(rs.getString("PRIVATEPHONE"));
-            list.add(e);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT * FROM EXECUTIVE");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(readExecutive(rs));
+            }
         }
         return list;
     }
+
+    /**
+     * Checks that a record passed in through the DataStore interface is an Executive.
+     */
+    private static Executive toExecutive(Object data) {
+        if (!(data instanceof Executive)) {
+            throw new IllegalArgumentException("Invalid type, expected Executive");
+        }
+        return (Executive) data;
+    }
+
+    /**
+     * Sets the INSERT parameters from an Executive object.
+     */
+    private static void bindInsert(PreparedStatement ps, Executive e) throws SQLException {
+        ps.setString(1, e.getFirstName());
+        ps.setString(2, e.getLastName());
+        ps.setString(3, e.getEmailAddress());
+        ps.setString(4, e.getPhoneNumber());
+        ps.setString(5, e.getPrivatePhoneNumber());
+    }
+
+    /**
+     * Builds an Executive object from the current row of a ResultSet.
+     */
+    private static Executive readExecutive(ResultSet rs) throws SQLException {
+        Executive e = new Executive();
+        e.setFirstName(rs.getString("FIRSTNAME"));
+        e.setLastName(rs.getString("LASTNAME"));
+        e.setEmailAddress(rs.getString("EMAIL"));
+        e.setPhoneNumber(rs.getString("PHONE"));
+        e.setPrivatePhoneNumber(rs.getString("PRIVATEPHONE"));
+        return e;
+    }
 }
@@ -0,0 +1,190 @@
+package se2203b.iGlobal;
+
+import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Controller class for the "Export Data" view.
+ *
+ * The administrator picks a table, optionally some of its columns and row filters, and
+ * the file format, then chooses where to save the file. The TableExporter streams the
+ * rows to the file on a background thread; the export can be cancelled, in which case
+ * no file is written.
+ */
+public class ExportDataController implements ViewRegistry.Reusable {
+
+    @FXML private ComboBox<String> tableCombo;
+    @FXML private ListView<String> columnList;
+    @FXML private TextArea filterArea;
+    @FXML private ComboBox<TableExporter.Format> formatCombo;
+    @FXML private CheckBox gzipCB;
+    @FXML private ProgressIndicator progress;
+    @FXML private Label statusLabel;
+    @FXML private Button exportBtn, cancelExportBtn, closeBtn;
+
+    // The running export, or null
+    private TableExporter exporter;
+
+    @FXML
+    public void initialize() {
+        columnList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        columnList.setPlaceholder(new Label("Choose a table"));
+        formatCombo.setItems(FXCollections.observableArrayList(TableExporter.Format.values()));
+        formatCombo.setValue(TableExporter.Format.CSV);
+        loadTables();
+        tableCombo.valueProperty().addListener((obs, oldTable, table) -> {
+            columnList.getItems().clear();
+            if (table != null) {
+                AsyncDataStore.onFxThread(AsyncDataStore.call(() -> TableExporter.getColumns(table)),
+                        columns -> {
+                            if (table.equals(tableCombo.getValue())) {
+                                columnList.getItems().setAll(columns);
+                            }
+                        },
+                        error -> showAlert("Export Error", error.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Fills the table choices from the catalog.
+     */
+    private void loadTables() {
+        AsyncDataStore.onFxThread(AsyncDataStore.call(TableExporter::getExportableTables),
+                tables -> tableCombo.setItems(FXCollections.observableArrayList(tables)),
+                error -> showAlert("Export Error", error.getMessage()));
+    }
+
+    /**
+     * Clears the choices made the last time the window was open. An export still running
+     * is left alone, so it can be followed and cancelled.
+     */
+    @Override
+    public void prepareForReuse() {
+        if (exporter != null) {
+            return;
+        }
+        tableCombo.setValue(null);
+        filterArea.clear();
+        formatCombo.setValue(TableExporter.Format.CSV);
+        gzipCB.setSelected(false);
+        statusLabel.setText("");
+        loadTables();
+    }
+
+    /**
+     * Asks where to save the file, then exports the chosen table in the background.
+     */
+    @FXML
+    private void startExport() {
+        String table = tableCombo.getValue();
+        if (table == null) {
+            showAlert("Export Error", "Choose a table first.");
+            return;
+        }
+        TableExporter running = new TableExporter(table);
+        // No selection exports every column.
+        running.setColumns(List.copyOf(columnList.getSelectionModel().getSelectedItems()));
+        try {
+            for (String line : filterArea.getText().split("\\R")) {
+                if (!line.isBlank()) {
+                    running.addFilter(TableExporter.Filter.parse(line.trim()));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            showAlert("Export Error", e.getMessage());
+            return;
+        }
+        TableExporter.Format format = formatCombo.getValue();
+        running.setFormat(format);
+        running.setGzip(gzipCB.isSelected());
+
+        String extension = (format == TableExporter.Format.CSV ? ".csv" : ".json") + (gzipCB.isSelected() ? ".gz" : "");
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Export As");
+        chooser.setInitialFileName(table.toLowerCase() + extension);
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(format + " Files", "*" + extension));
+        File file = chooser.showSaveDialog(exportBtn.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        exporter = running;
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return running.exportTo(file.toPath());
+            }
+        };
+        task.setOnSucceeded(event -> {
+            finished();
+            long rows = task.getValue();
+            statusLabel.setText(rows < 0 ? "Export cancelled" : "Exported " + rows + " rows to " + file.getName());
+        });
+        task.setOnFailed(event -> {
+            finished();
+            statusLabel.setText("Export stopped");
+            showAlert("Export Error", task.getException().getMessage());
+        });
+
+        statusLabel.setText("Exporting " + table + "...");
+        progress.setVisible(true);
+        exportBtn.setDisable(true);
+        closeBtn.setDisable(true);
+        cancelExportBtn.setDisable(false);
+        Thread thread = new Thread(task, "table-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Asks the running export to stop before its next row.
+     */
+    @FXML
+    private void cancelExport() {
+        if (exporter != null) {
+            exporter.cancel();
+            cancelExportBtn.setDisable(true);
+        }
+    }
+
+    /**
+     * Re-enables the controls once an export has ended.
+     */
+    private void finished() {
+        exporter = null;
+        progress.setVisible(false);
+        exportBtn.setDisable(false);
+        closeBtn.setDisable(false);
+        cancelExportBtn.setDisable(true);
+    }
+
+    /**
+     * Closes the current window.
+     */
+    @FXML
+    private void close() {
+        Stage stage = (Stage) closeBtn.getScene().getWindow();
+        stage.close();
+    }
+
+    /**
+     * Displays an alert dialog with a given title and message.
+     *
+     * @param title The title of the alert dialog.
+     * @param msg   The message to display.
+     */
+    private void showAlert(String title, String msg) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setHeaderText(title);
+        alert.setContentText(msg);
+        alert.showAndWait();
+    }
+}
@@ -3,36 +3,50 @@ package se2203b.iGlobal;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
+import java.util.Arrays;
 
 public class IGlobalApplication extends Application {
 
-    private static Connection connection;
-    private static final String DB_URL = "jdbc:derby:iGlobalDB;create=true";
-
     @Override
     public void start(Stage stage) throws IOException {
+        // Start decoding the images every window uses while the main view is parsed.
+        ImageRegistry.getInstance().preload(ImageRegistry.LOGO, ImageRegistry.BACKGROUND);
         FXMLLoader fxmlLoader = new FXMLLoader(IGlobalApplication.class.getResource("iGlobal-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load());
         stage.setTitle("iGlobal");
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
+        stage.getIcons().add(ImageRegistry.getInstance().get(ImageRegistry.LOGO));
         stage.setScene(scene);
         stage.show();
+        // Parse the windows opened most often in the background, so they open at once.
+        ViewRegistry.getInstance().preload("login-view.fxml", "alert-View.fxml", "about-view.fxml",
+                "changePassword-view.fxml", "managePropertyTypes-view.fxml");
+        // Build the property snapshot the record totals are counted in, so opening the window never waits for it.
+        PropertyColumnStore.getInstance().buildInBackground();
     }
 
-    public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL);
+    @Override
+    public void stop() {
+        // Keep the property text index for the next start, so it does not have to be rebuilt.
+        try {
+            PropertyTextIndex.getInstance().save();
+        } catch (IOException e) {
+            // The index is rebuilt from the PROPERTY table on the next start.
         }
-        return connection;
+        // Stop the background database executor, then close every pooled connection
+        // and shut the embedded database down cleanly.
+        AsyncDataStore.shutdown();
+        ConnectionPool.shutdown();
     }
 
     public static void main(String[] args) {
+        // Apply the configuration profile before anything reads its settings or starts Derby.
+        Configuration.apply();
+        // "export <table> <file> ..." writes a table to a file without starting the user interface.
+        if (args.length > 0 && args[0].equals("export")) {
+            System.exit(TableExporter.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
         launch();
     }
 }
@@ -2,27 +2,25 @@ package se2203b.iGlobal;
 
 import java.io.IOException;
 import java.net.URL;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ResourceBundle;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.stage.Modality;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundImage;
+import javafx.scene.layout.BackgroundPosition;
+import javafx.scene.layout.BackgroundRepeat;
+import javafx.scene.layout.BackgroundSize;
+import javafx.scene.layout.BorderPane;
 import javafx.stage.Stage;
 
 public class IGlobalController implements Initializable {
 
+    @FXML private BorderPane rootPane;
     @FXML private Menu aboutMenu;
     @FXML private MenuItem aboutusMenuItem;
     @FXML private MenuItem changePasswordMenuItem;
@@ -45,11 +43,16 @@ public class IGlobalController implements Initializable {
 
     @Override
     public void initialize(URL url, ResourceBundle rb) {
-        ImageView face = new ImageView(new Image("file:src/main/resources/se2203b/iGlobal/UserIcon.png", 20, 20, true, true));
+        // Stretch the background image over the whole window.
+        rootPane.setBackground(new Background(new BackgroundImage(ImageRegistry.getInstance().get(ImageRegistry.BACKGROUND),
+                BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT, BackgroundPosition.DEFAULT,
+                new BackgroundSize(1, 1, true, true, false, false))));
+        ImageView face = new ImageView(ImageRegistry.getInstance().get(ImageRegistry.USER_ICON, 20, 20));
         userMenuItem.setGraphic(face);
         disableMenuItems();
         try {
-            new AdministratorTableAdapter(false);
+            // Create or update the schema and the default admin once, before any adapter is used.
+            SchemaMigrator.bootstrap();
         } catch (SQLException ex) {
             displayAlert(ex.getMessage());
         }
@@ -57,15 +60,7 @@ public class IGlobalController implements Initializable {
 
     @FXML
     public void showAbout() throws Exception {
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("about-view.fxml"));
-        Parent about = fxmlLoader.load();
-        Scene scene = new Scene(about);
-        Stage stage = new Stage();
-        stage.setScene(scene);
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("About Us");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        ViewRegistry.getInstance().get("about-view.fxml", "About Us").getStage().show();
     }
 
     @FXML
@@ -76,32 +71,21 @@ public class IGlobalController implements Initializable {
 
     @FXML
     public void login() throws Exception {
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("login-view.fxml"));
-        Parent login = fxmlLoader.load();
-        LoginController loginController = fxmlLoader.getController();
+        ViewRegistry.View<LoginController> view = ViewRegistry.getInstance().get("login-view.fxml", "Login to iGlobal");
+        LoginController loginController = view.getController();
         loginController.setIGlobalController(this);
         loginController.setDataStore(new UserAccountTableAdapter(false));
-        Stage stage = new Stage();
-        stage.setScene(new Scene(login));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Login to iGlobal");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        view.getStage().show();
     }
 
     @FXML
     public void changePassword() throws Exception {
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("ChangePassword-view.fxml"));
-        Parent changePassword = fxmlLoader.load();
-        ChangePasswordController changePasswordController = fxmlLoader.getController();
+        ViewRegistry.View<ChangePasswordController> view =
+                ViewRegistry.getInstance().get("changePassword-view.fxml", "Change Password");
+        ChangePasswordController changePasswordController = view.getController();
         changePasswordController.setIGlobalController(this);
         changePasswordController.setDataStore(new UserAccountTableAdapter(false));
-        Stage stage = new Stage();
-        stage.setScene(new Scene(changePassword));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Change Password");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        view.getStage().show();
     }
 
     @FXML
@@ -111,92 +95,69 @@ public class IGlobalController implements Initializable {
 
     @FXML
     public void managePropertyTypes() throws Exception {
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("managePropertyTypes-view.fxml"));
-        Parent propertyType = fxmlLoader.load();
-        ManagePropertyTypesController managePropertyTypesController = fxmlLoader.getController();
+        ViewRegistry.View<ManagePropertyTypesController> view =
+                ViewRegistry.getInstance().get("managePropertyTypes-view.fxml", "Manage Property Types");
+        ManagePropertyTypesController managePropertyTypesController = view.getController();
         managePropertyTypesController.setIGlobalController(this);
         managePropertyTypesController.setDataStore(new PropertyTypeTableAdapter(false));
-        Stage stage = new Stage();
-        stage.setScene(new Scene(propertyType));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Manage Property Types");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        view.getStage().show();
     }
 
     @FXML
     public void managePropertyRecords() throws Exception {
         System.out.println("managePropertyRecords() called.");
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("managePropertyRecords-view.fxml"));
-        Parent propertyRecords = fxmlLoader.load();
-        ManagePropertyRecordsController controller = fxmlLoader.getController();
-        controller.setConnection(IGlobalApplication.getConnection());
-        Stage stage = new Stage();
-        stage.setScene(new Scene(propertyRecords));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Manage Property Records");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        ViewRegistry.View<ManagePropertyRecordsController> view = ViewRegistry.getInstance().get("managePropertyRecords-view.fxml", "Manage Property Records");
+        view.getController().setDataStore(new PropertyTableAdapter(false));
+        view.getStage().show();
     }
 
     @FXML
     public void manageAgentProfiles() throws Exception {
         System.out.println("manageAgentProfiles() called.");
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("manageAgentProfiles-view.fxml"));
-        Parent agentProfiles = fxmlLoader.load();
-        ManageAgentProfilesController controller = fxmlLoader.getController();
-        controller.setConnection(IGlobalApplication.getConnection());
-        Stage stage = new Stage();
-        stage.setScene(new Scene(agentProfiles));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Manage Agent Profiles");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        ViewRegistry.View<ManageAgentProfilesController> view = ViewRegistry.getInstance().get("manageAgentProfiles-view.fxml", "Manage Agent Profiles");
+        view.getController().setDataStore(new AgentTableAdapter(false));
+        view.getStage().show();
     }
 
     @FXML
     public void manageExecutives() throws Exception {
         System.out.println("manageExecutives() called.");
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("manageExecutiveProfiles-view.fxml"));
-        Parent execProfiles = fxmlLoader.load();
-        ManageExecutiveProfilesController controller = fxmlLoader.getController();
-        controller.setConnection(IGlobalApplication.getConnection());
-        Stage stage = new Stage();
-        stage.setScene(new Scene(execProfiles));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Manage Executive Profiles");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        ViewRegistry.View<ManageExecutiveProfilesController> view = ViewRegistry.getInstance().get("manageExecutiveProfiles-view.fxml", "Manage Executive Profiles");
+        view.getController().setDataStore(new ExecutiveTableAdapter(false));
+        view.getStage().show();
     }
 
     @FXML
     public void manageAdministrators() throws Exception {
         System.out.println("manageAdministrators() called.");
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("manageAdministratorProfiles-view.fxml"));
-        Parent adminProfiles = fxmlLoader.load();
-        ManageAdministratorProfilesController controller = fxmlLoader.getController();
-        controller.setConnection(IGlobalApplication.getConnection());
-        Stage stage = new Stage();
-        stage.setScene(new Scene(adminProfiles));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Manage Administrator Profiles");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        ViewRegistry.View<ManageAdministratorProfilesController> view = ViewRegistry.getInstance().get("manageAdministratorProfiles-view.fxml", "Manage Administrator Profiles");
+        view.getController().setDataStore(new AdministratorTableAdapter(false));
+        view.getStage().show();
     }
 
     @FXML
     public void manageUserAccounts() throws Exception {
         System.out.println("manageUserAccounts() called.");
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("manageUserAccounts-view.fxml"));
-        Parent userAccountsView = fxmlLoader.load();
-        ManageUserAccountsController controller = fxmlLoader.getController();
-        controller.setDataStore(new UserAccountTableAdapter(false));
-        Stage stage = new Stage();
-        stage.setScene(new Scene(userAccountsView));
-        stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-        stage.setTitle("Manage User Accounts");
-        stage.initModality(Modality.APPLICATION_MODAL);
-        stage.show();
+        ViewRegistry.View<ManageUserAccountsController> view = ViewRegistry.getInstance().get("manageUserAccounts-view.fxml", "Manage User Accounts");
+        view.getController().setDataStore(new UserAccountTableAdapter(false));
+        view.getStage().show();
+    }
+
+    @FXML
+    public void exportData() throws Exception {
+        ViewRegistry.getInstance().get("exportData-view.fxml", "Export Data").getStage().show();
+    }
+
+    @FXML
+    public void showPerformance() throws Exception {
+        ViewRegistry.View<PerformanceController> view = ViewRegistry.getInstance().get("performance-view.fxml", "Performance");
+        view.getController().setStage(view.getStage());
+        view.getStage().show();
+    }
+
+    @FXML
+    public void showSlowQueries() throws Exception {
+        ViewRegistry.getInstance().get("slowQueries-view.fxml", "Slow Queries").getStage().show();
     }
 
     public void enableAdminControls() {
@@ -241,33 +202,11 @@ public class IGlobalController implements Initializable {
 
     public void displayAlert(String msg) {
         try {
-            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("alert-View.fxml"));
-            Parent alertWindow = fxmlLoader.load();
-            AlertController alertController = fxmlLoader.getController();
-            Stage stage = new Stage();
-            stage.setScene(new Scene(alertWindow));
-            stage.getIcons().add(new Image("file:src/main/resources/se2203b/iGlobal/WesternLogo.png"));
-            alertController.setAlertText(msg);
-            stage.initModality(Modality.APPLICATION_MODAL);
-            stage.showAndWait();
+            ViewRegistry.View<AlertController> view = ViewRegistry.getInstance().get("alert-View.fxml", null);
+            view.getController().setAlertText(msg);
+            view.getStage().showAndWait();
         } catch (IOException ex1) {
             System.out.println("Error in Display Alert " + ex1);
         }
     }
-
-    public String encrypt(String password, String salt) {
-        try {
-            String saltedPassword = password + salt;
-            MessageDigest crypto = MessageDigest.getInstance("SHA-256");
-            byte[] passBytes = saltedPassword.getBytes();
-            byte[] passHash = crypto.digest(passBytes);
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < passHash.length; i++) {
-                sb.append(Integer.toString((passHash[i] & 0xff) + 0x100, 16).substring(1));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-    }
 }
@@ -2,82 +2,132 @@ package se2203b.iGlobal;
 
 import javafx.beans.property.*;
 /**
+ * Each value is kept in a plain field; its JavaFX property is only created the first
+ * time the xxxProperty() method is called, and then holds the value from there on.
+ *
  * @author Abdelkader Ouda
  */
 public class IGlobalUser {
-    private StringProperty id;
-    private StringProperty firstName;
-    private StringProperty lastName;
-    private StringProperty email;
-    private StringProperty phone;
-    private ObjectProperty<UserAccount> userAccount
-            = new SimpleObjectProperty(new UserAccount());
+    private String id;
+    private StringProperty idProperty;
+    private String firstName;
+    private StringProperty firstNameProperty;
+    private String lastName;
+    private StringProperty lastNameProperty;
+    private String email;
+    private StringProperty emailProperty;
+    private String phone;
+    private StringProperty phoneProperty;
+    private UserAccount userAccount = new UserAccount();
+    private ObjectProperty<UserAccount> userAccountProperty;
 
     //set and get methods
     // id property
     public void setID(String id) {
-        this.id = new SimpleStringProperty(id);
+        if (this.idProperty == null) {
+            this.id = id;
+        } else {
+            this.idProperty.set(id);
+        }
     }
     public StringProperty idProperty() {
-        return this.id;
+        if (this.idProperty == null) {
+            this.idProperty = new SimpleStringProperty(this, "id", this.id);
+        }
+        return this.idProperty;
     }
     public String getID() {
-        return this.id.get();
+        return this.idProperty == null ? this.id : this.idProperty.get();
     }
 
     // first name property
     public void setFirstName(String firstName) {
-        this.firstName = new SimpleStringProperty(firstName);
+        if (this.firstNameProperty == null) {
+            this.firstName = firstName;
+        } else {
+            this.firstNameProperty.set(firstName);
+        }
     }
     public StringProperty firstNameProperty() {
-        return this.firstName;
+        if (this.firstNameProperty == null) {
+            this.firstNameProperty = new SimpleStringProperty(this, "firstName", this.firstName);
+        }
+        return this.firstNameProperty;
     }
     public String getFirstName() {
-        return this.firstName.get();
+        return this.firstNameProperty == null ? this.firstName : this.firstNameProperty.get();
     }
 
     // last name property
     public void setLastName(String lastName) {
-        this.lastName = new SimpleStringProperty(lastName);
+        if (this.lastNameProperty == null) {
+            this.lastName = lastName;
+        } else {
+            this.lastNameProperty.set(lastName);
+        }
     }
     public StringProperty lastNameProperty() {
-        return this.lastName;
+        if (this.lastNameProperty == null) {
+            this.lastNameProperty = new SimpleStringProperty(this, "lastName", this.lastName);
+        }
+        return this.lastNameProperty;
     }
     public String getLastName() {
-        return this.lastName.get();
+        return this.lastNameProperty == null ? this.lastName : this.lastNameProperty.get();
     }
 
     // email property
     public void setEmail(String email) {
-        this.email = new SimpleStringProperty(email);
+        if (this.emailProperty == null) {
+            this.email = email;
+        } else {
+            this.emailProperty.set(email);
+        }
     }
     public StringProperty emailProperty() {
-        return this.email;
+        if (this.emailProperty == null) {
+            this.emailProperty = new SimpleStringProperty(this, "email", this.email);
+        }
+        return this.emailProperty;
     }
     public String getEmail() {
-        return this.email.get();
+        return this.emailProperty == null ? this.email : this.emailProperty.get();
     }
 
     // phone property
     public void setPhone(String phone) {
-        this.phone = new SimpleStringProperty(phone);
+        if (this.phoneProperty == null) {
+            this.phone = phone;
+        } else {
+            this.phoneProperty.set(phone);
+        }
     }
     public StringProperty phoneProperty() {
-        return this.phone;
+        if (this.phoneProperty == null) {
+            this.phoneProperty = new SimpleStringProperty(this, "phone", this.phone);
+        }
+        return this.phoneProperty;
     }
     public String getPhone() {
-        return this.phone.get();
+        return this.phoneProperty == null ? this.phone : this.phoneProperty.get();
     }
 
     // userAccount Property
     public void setUserAccount(UserAccount userAccount) {
-        this.userAccount.set(userAccount);
+        if (this.userAccountProperty == null) {
+            this.userAccount = userAccount;
+        } else {
+            this.userAccountProperty.set(userAccount);
+        }
     }
     public ObjectProperty<UserAccount> userAccountProperty() {
-        return this.userAccount;
+        if (this.userAccountProperty == null) {
+            this.userAccountProperty = new SimpleObjectProperty<>(this, "userAccount", this.userAccount);
+        }
+        return this.userAccountProperty;
     }
     public UserAccount getUserAccount() {
-        return this.userAccount.get();
+        return this.userAccountProperty == null ? this.userAccount : this.userAccountProperty.get();
     }
 
 }
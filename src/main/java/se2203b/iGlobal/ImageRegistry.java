@@ -0,0 +1,78 @@
+package se2203b.iGlobal;
+
+import javafx.scene.image.Image;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ImageRegistry class loads the application's images once and shares them.
+ *
+ * Images are read from this package on the module path rather than from a file path,
+ * so they are found whatever the working directory is, including in a packaged runtime
+ * image. Each image is decoded on a JavaFX background thread the first time it is asked
+ * for, and the same Image instance is then handed to every window that shows it; a
+ * window whose image is still loading shows it as soon as decoding finishes.
+ */
+public final class ImageRegistry {
+    // The window icon
+    public static final String LOGO = "WesternLogo.png";
+    // Shown next to the logged-in user's name
+    public static final String USER_ICON = "UserIcon.png";
+    // The main window background
+    public static final String BACKGROUND = "WesternBackground.png";
+
+    private static final ImageRegistry INSTANCE = new ImageRegistry();
+
+    // Loaded images by file name and requested size
+    private final Map<String, Image> images = new ConcurrentHashMap<>();
+
+    private ImageRegistry() {
+    }
+
+    public static ImageRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns an image at its own size.
+     *
+     * @param name the image file name, relative to this package.
+     * @return the shared image, possibly still loading.
+     * @throws IllegalArgumentException if there is no such image.
+     */
+    public Image get(String name) {
+        return get(name, 0, 0);
+    }
+
+    /**
+     * Returns an image scaled to fit the given size, keeping its aspect ratio.
+     *
+     * @param name   the image file name, relative to this package.
+     * @param width  the width to fit, or 0 for the image's own width.
+     * @param height the height to fit, or 0 for the image's own height.
+     * @return the shared image, possibly still loading.
+     * @throws IllegalArgumentException if there is no such image.
+     */
+    public Image get(String name, double width, double height) {
+        return images.computeIfAbsent(name + "@" + width + "x" + height, key -> {
+            URL resource = ImageRegistry.class.getResource(name);
+            if (resource == null) {
+                throw new IllegalArgumentException("Image not found: " + name);
+            }
+            return new Image(resource.toExternalForm(), width, height, true, true, true);
+        });
+    }
+
+    /**
+     * Starts decoding images at their own size, so they are ready when first shown.
+     *
+     * @param names the image file names, relative to this package.
+     */
+    public void preload(String... names) {
+        for (String name : names) {
+            get(name);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package se2203b.iGlobal;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+
+import java.io.File;
+
+/**
+ * Controller class for the "Import Properties" view.
+ *
+ * The user picks a CSV file of property listings and starts the import; the
+ * PropertyImporter runs on a background thread while the window shows how far it has
+ * got and lists the rows it skipped, with the reason for each. The import can be
+ * cancelled, in which case the rows written so far are kept. When it finishes, the
+ * parent property table is refreshed.
+ */
+public class ImportPropertiesController {
+
+    @FXML private TextField fileField;
+    @FXML private CheckBox bulkLoadCB;
+    @FXML private ProgressBar progressBar;
+    @FXML private Label statusLabel;
+    @FXML private ListView<String> errorList;
+    @FXML private Button browseBtn, importBtn, cancelImportBtn, closeBtn;
+
+    // Adapter for the Property table
+    private PropertyTableAdapter propertyAdapter;
+    // Reference to the parent controller to refresh the property records table after the import
+    private ManagePropertyRecordsController parentController;
+    // The file chosen by the user
+    private File file;
+    // The running import, or null
+    private PropertyImporter importer;
+    // Skipped rows shown in the list; limited like the importer's own error list
+    private final ObservableList<String> errors = FXCollections.observableArrayList();
+
+    @FXML
+    public void initialize() {
+        errorList.setItems(errors);
+        errorList.setPlaceholder(new Label("None"));
+    }
+
+    /**
+     * Sets the adapter used to write the imported properties.
+     *
+     * @param adapter The PropertyTableAdapter shared with the parent window.
+     */
+    public void setDataStore(PropertyTableAdapter adapter) {
+        this.propertyAdapter = adapter;
+    }
+
+    /**
+     * @param controller The parent ManagePropertyRecordsController, refreshed after an import.
+     */
+    public void setParentController(ManagePropertyRecordsController controller) {
+        parentController = controller;
+    }
+
+    /**
+     * Lets the user choose the CSV file to import.
+     */
+    @FXML
+    private void chooseFile() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Choose a CSV File");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+                new FileChooser.ExtensionFilter("All Files", "*.*"));
+        File chosen = chooser.showOpenDialog(browseBtn.getScene().getWindow());
+        if (chosen != null) {
+            file = chosen;
+            fileField.setText(chosen.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Starts importing the chosen file in the background.
+     */
+    @FXML
+    private void startImport() {
+        if (file == null) {
+            showAlert("Import Error", "Choose a CSV file first.");
+            return;
+        }
+        errors.clear();
+        boolean bulkLoad = bulkLoadCB.isSelected();
+        PropertyImporter running = new PropertyImporter(propertyAdapter);
+        running.setBulkLoad(bulkLoad);
+        importer = running;
+
+        Task<PropertyImporter.Result> task = new Task<>() {
+            @Override
+            protected PropertyImporter.Result call() throws Exception {
+                updateMessage("Importing...");
+                return running.importFile(file.toPath(), new PropertyImporter.Listener() {
+                    @Override
+                    public void progress(long bytesRead, long totalBytes, long imported, long rejected) {
+                        updateProgress(bytesRead, totalBytes);
+                        updateMessage(bytesRead < totalBytes
+                                ? "Imported " + imported + " properties, skipped " + rejected + "..."
+                                : bulkLoad ? "Rebuilding indexes..." : "Finishing...");
+                    }
+
+                    @Override
+                    public void rowRejected(PropertyImporter.RowError error) {
+                        Platform.runLater(() -> {
+                            if (errors.size() < PropertyImporter.MAX_REPORTED_ERRORS) {
+                                errors.add(error.toString());
+                            }
+                        });
+                    }
+                });
+            }
+        };
+        progressBar.progressProperty().bind(task.progressProperty());
+        statusLabel.textProperty().bind(task.messageProperty());
+        task.setOnSucceeded(event -> {
+            finished();
+            PropertyImporter.Result result = task.getValue();
+            statusLabel.setText(result.toString());
+            // Show the skipped rows in line order.
+            errors.setAll(result.getErrors().stream().map(PropertyImporter.RowError::toString).toList());
+        });
+        task.setOnFailed(event -> {
+            finished();
+            statusLabel.setText("Import stopped");
+            showAlert("Import Error", task.getException().getMessage());
+        });
+
+        importBtn.setDisable(true);
+        browseBtn.setDisable(true);
+        bulkLoadCB.setDisable(true);
+        closeBtn.setDisable(true);
+        cancelImportBtn.setDisable(false);
+        Thread thread = new Thread(task, "property-import-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Asks the running import to stop after the rows it is writing.
+     */
+    @FXML
+    private void cancelImport() {
+        if (importer != null) {
+            importer.cancel();
+            cancelImportBtn.setDisable(true);
+        }
+    }
+
+    /**
+     * Re-enables the controls once an import has ended, and refreshes the parent table.
+     */
+    private void finished() {
+        importer = null;
+        progressBar.progressProperty().unbind();
+        statusLabel.textProperty().unbind();
+        importBtn.setDisable(false);
+        browseBtn.setDisable(false);
+        bulkLoadCB.setDisable(false);
+        closeBtn.setDisable(false);
+        cancelImportBtn.setDisable(true);
+        parentController.refreshTable();
+    }
+
+    /**
+     * Closes the current window.
+     */
+    @FXML
+    private void close() {
+        Stage stage = (Stage) closeBtn.getScene().getWindow();
+        stage.close();
+    }
+
+    /**
+     * Displays an alert dialog with a given title and message.
+     *
+     * @param title The title of the alert dialog.
+     * @param msg   The message to display.
+     */
+    private void showAlert(String title, String msg) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setHeaderText(title);
+        alert.setContentText(msg);
+        alert.showAndWait();
+    }
+}
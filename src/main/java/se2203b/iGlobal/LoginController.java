@@ -15,7 +15,7 @@ import java.util.ResourceBundle;
 /**
  * @author Abdelkader Ouda
  */
-public class LoginController implements Initializable {
+public class LoginController implements Initializable, ViewRegistry.Reusable {
     @FXML
     private TextField user;
     @FXML
@@ -38,33 +38,40 @@ public class LoginController implements Initializable {
 
     /**
      * Check authorization credentials.
+     * The account is read and the password hashed in the background; the Login button
+     * stays disabled until the check is done.
      */
     public void authorize() {
         errorMsg.setText("");
-        try {
-            // Get the user account information from database
-            UserAccount account = (UserAccount) userAccountTable.findOneRecord(user.getText());
+        String entered = password.getText();
+        saveBtn.setDisable(true);
+        // Get the user account information from database
+        AsyncDataStore.onFxThread(new AsyncDataStore(userAccountTable).findOneRecord(user.getText()), found -> {
+            UserAccount account = (UserAccount) found;
             if (account.getUserAccountName() == null) {
                 // Account not found
+                saveBtn.setDisable(false);
                 errorMsg.setText("Incorrect username");
-            } else {
-                // Account exist, now check the password
-                String salt = account.getPasswordSalt();
-                String encryptedPassword = iGlobalController.encrypt(password.getText(), salt);
-                String retrievedEncryptedPassword = account.getEncryptedPassword();
-                if (encryptedPassword.equals(retrievedEncryptedPassword)) {
+                return;
+            }
+            // Account exist, now check the password; an outdated hash is upgraded on success
+            AsyncDataStore.onFxThread(CredentialService.getInstance().verify(account, entered, userAccountTable), valid -> {
+                saveBtn.setDisable(false);
+                if (valid) {
                     // enable controls based on the account type
                     authenticated(account, account.getAccountType());
                 } else {
                     // wrong password
                     errorMsg.setText("Wrong password");
                 }
-            }
-        } catch (SQLException ex) {
-            iGlobalController.displayAlert("ERROR: " + ex.getMessage());
-        }
-
+            }, this::loginFailed);
+        }, this::loginFailed);
+    }
 
+    // Re-enable the form and report a database error
+    private void loginFailed(Throwable error) {
+        saveBtn.setDisable(false);
+        iGlobalController.displayAlert("ERROR: " + error.getMessage());
     }
 
     /**
@@ -113,4 +120,15 @@ public class LoginController implements Initializable {
     public void initialize(URL url, ResourceBundle resourceBundle) {
         errorMsg.setText("");
     }
+
+    /**
+     * Clears the credentials typed the last time the window was open.
+     */
+    @Override
+    public void prepareForReuse() {
+        user.clear();
+        password.clear();
+        errorMsg.setText("");
+        saveBtn.setDisable(false);
+    }
 }
\ No newline at end of file
@@ -7,17 +7,15 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.text.SimpleDateFormat;
-import java.util.List;
 
 /**
  * This controller is responsible for managing the Administrator profiles.
  * It loads administrator data into a TableView, allows for adding and removing administrators,
  * and handles refreshing and closing the view.
+ * Administrators are loaded in the background and appear in batches while the window is open.
  */
-public class ManageAdministratorProfilesController {
+public class ManageAdministratorProfilesController implements ViewRegistry.Reusable {
 
     // FXML fields linked to the UI elements defined in the corresponding FXML file.
     @FXML private TableView<Administrator> adminTable;
@@ -27,46 +25,28 @@ public class ManageAdministratorProfilesController {
     @FXML private TableColumn<Administrator, String> phoneCol;
     @FXML private TableColumn<Administrator, String> dateCreatedCol;
     @FXML private Button addAdminBtn, removeBtn, exitBtn;
+    @FXML private ProgressIndicator loadingIndicator; // Shown while administrators are loading.
+    @FXML private Label loadingLabel;                  // Loading status message.
+    @FXML private Button cancelLoadBtn;                // Cancels a running load.
 
     // Adapter for accessing Administrator data in the database.
     private AdministratorTableAdapter adminAdapter;
-    // Database connection used to retrieve and update administrator records.
-    private Connection connection;
+    // The administrators shown in the table and the background loader that fills the list.
+    private final ObservableList<Administrator> admins = FXCollections.observableArrayList();
+    private final RecordLoader<Administrator> loader =
+            new RecordLoader<>(admins, () -> adminAdapter.streamAllRecords().map(Administrator.class::cast));
 
     /**
-     * Sets the database connection for this controller and initializes the AdministratorTableAdapter.
-     * Then it loads the list of administrator records into the TableView.
-     *
-     * @param conn the Connection object to the database.
-     */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            // Create an instance of AdministratorTableAdapter.
-            adminAdapter = new AdministratorTableAdapter(false);
-            // Load administrator records from the database.
-            loadAdministrators();
-        } catch (SQLException e) {
-            // Show an alert if there is a database error.
-            showAlert("DB Error", e.getMessage());
-        }
-    }
-
-    /**
-     * Loads all administrator records from the database and populates the TableView.
-     *
-     * @throws SQLException if a database access error occurs.
+     * Initializes the table and the loading controls once the FXML has been loaded.
      */
-    private void loadAdministrators() throws SQLException {
-        // Retrieve all administrator records as a List of Objects.
-        List<Object> allAdmins = adminAdapter.getAllRecords();
-        // Convert the List<Object> to an ObservableList<Administrator> for use in the TableView.
-        ObservableList<Administrator> admins = FXCollections.observableArrayList();
-        for (Object obj : allAdmins) {
-            admins.add((Administrator) obj);
-        }
+    @FXML
+    public void initialize() {
         // Set the TableView's items to the list of administrators.
         adminTable.setItems(admins);
+        loader.showPlaceholderIn(adminTable, "No administrators found");
+        loader.showProgressIn(loadingIndicator, loadingLabel, cancelLoadBtn);
+        // Show an alert if there is a database error.
+        loader.setOnFailed(event -> showAlert("DB Error", loader.getException().getMessage()));
 
         // Set up the cell value factories for each column to bind to the corresponding Administrator properties.
         firstNameCol.setCellValueFactory(cellData -> cellData.getValue().firstNameProperty());
@@ -85,6 +65,38 @@ public class ManageAdministratorProfilesController {
         });
     }
 
+    /**
+     * Stops a load still running from the last time the window was open and clears the
+     * table's sort order, selection and scroll position; setDataStore() then loads the administrators again.
+     */
+    @Override
+    public void prepareForReuse() {
+        loader.cancel();
+        admins.clear();
+        adminTable.getSortOrder().clear();
+        adminTable.getSelectionModel().clearSelection();
+        adminTable.scrollTo(0);
+    }
+
+    /**
+     * Sets the AdministratorTableAdapter used by this controller.
+     * Then it starts loading the administrator records into the TableView.
+     *
+     * @param adapter the AdministratorTableAdapter instance.
+     */
+    public void setDataStore(AdministratorTableAdapter adapter) {
+        this.adminAdapter = adapter;
+        loadAdministrators();
+    }
+
+    /**
+     * Clears the TableView and reloads the administrator records in the background.
+     */
+    private void loadAdministrators() {
+        admins.clear();
+        loader.restart();
+    }
+
     /**
      * Opens the "Add New Administrator" window by loading its FXML view and setting its controller.
      */
@@ -96,8 +108,8 @@ public class ManageAdministratorProfilesController {
             javafx.scene.Parent root = loader.load();
             // Retrieve the controller for the add administrator view.
             AddNewAdministratorController controller = loader.getController();
-            // Pass the current connection and set this controller as the parent.
-            controller.setConnection(connection);
+            // Pass the administrator adapter and set this controller as the parent.
+            controller.setDataStore(adminAdapter);
             controller.setParentController(this);
 
             // Create a new Stage (window) to display the add administrator view.
@@ -116,11 +128,7 @@ public class ManageAdministratorProfilesController {
      * Refreshes the TableView by reloading the administrator records from the database.
      */
     public void refreshTable() {
-        try {
-            loadAdministrators();
-        } catch (SQLException e) {
-            showAlert("Refresh Error", e.getMessage());
-        }
+        loadAdministrators();
     }
 
     /**
@@ -134,14 +142,10 @@ public class ManageAdministratorProfilesController {
             showAlert("No Selection", "Please select an administrator to remove.");
             return;
         }
-        try {
-            // Delete the selected administrator.
-            adminAdapter.deleteOneRecord(selected);
-            // Refresh the TableView after deletion.
-            refreshTable();
-        } catch (SQLException e) {
-            showAlert("Delete Error", e.getMessage());
-        }
+        // Delete the selected administrator in the background, then refresh the TableView.
+        AsyncDataStore.onFxThread(new AsyncDataStore(adminAdapter).deleteOneRecord(selected),
+                done -> refreshTable(),
+                error -> showAlert("Delete Error", error.getMessage()));
     }
 
     /**
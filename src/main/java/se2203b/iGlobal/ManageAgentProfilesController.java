@@ -1,5 +1,6 @@
 package se2203b.iGlobal;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -8,15 +9,14 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import java.sql.Connection;
-import java.sql.SQLException;
 
 /**
  * Controller for managing agent profiles.
  * It loads agent data into a TableView, allows adding and removing agents,
  * and provides a method to refresh the displayed data.
+ * Agents are loaded in the background and appear in batches while the window is open.
  */
-public class ManageAgentProfilesController {
+public class ManageAgentProfilesController implements ViewRegistry.Reusable {
 
     // FXML fields corresponding to the UI components in the FXML file.
     @FXML private TableView<Agent> agentTable;             // Table to display agents
@@ -28,41 +28,29 @@ public class ManageAgentProfilesController {
     @FXML private TableColumn<Agent, String> specializationCol; // Column for specialization
 
     @FXML private Button addAgentBtn, removeBtn, exitBtn;    // Buttons for add, remove, and exit actions
+    @FXML private ProgressIndicator loadingIndicator;       // Shown while agents are loading
+    @FXML private Label loadingLabel;                        // Loading status message
+    @FXML private Button cancelLoadBtn;                      // Cancels a running load
 
     // Adapter for accessing agent records in the database.
     private AgentTableAdapter agentAdapter;
-    // Database connection to be used by this controller.
-    private Connection connection;
+    // The agents shown in the table and the background loader that fills the list.
+    private final ObservableList<Agent> agents = FXCollections.observableArrayList();
+    private final RecordLoader<Agent> loader =
+            new RecordLoader<>(agents, () -> agentAdapter.streamAllRecords().map(Agent.class::cast),
+                    () -> agentAdapter.countRecords());
 
     /**
-     * Sets the database connection and initializes the agent adapter.
-     * Also loads the agent records into the TableView.
-     *
-     * @param conn the Connection object to the database.
+     * Initializes the table and the loading controls once the FXML has been loaded.
      */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            // Create a new AgentTableAdapter using the provided connection.
-            agentAdapter = new AgentTableAdapter(conn, false);
-            // Load agent records into the TableView.
-            loadAgents();
-        } catch (SQLException e) {
-            // Show an error alert if a database error occurs.
-            showAlert("DB Error", e.getMessage());
-        }
-    }
-
-    /**
-     * Loads agent records from the database using the adapter and sets them into the TableView.
-     *
-     * @throws SQLException if a database access error occurs.
-     */
-    private void loadAgents() throws SQLException {
-        // Retrieve all agents as an ObservableList.
-        ObservableList<Agent> agents = agentAdapter.getAllAgents();
+    @FXML
+    public void initialize() {
         // Set the items of the TableView to the list of agents.
         agentTable.setItems(agents);
+        loader.showPlaceholderIn(agentTable, "No agents found");
+        loader.showProgressIn(loadingIndicator, loadingLabel, cancelLoadBtn);
+        // Show an error alert if a database error occurs.
+        loader.setOnFailed(event -> showAlert("DB Error", loader.getException().getMessage()));
 
         // Bind each table column to the corresponding property of the Agent class.
         firstNameCol.setCellValueFactory(cellData -> cellData.getValue().firstNameProperty());
@@ -73,9 +61,41 @@ public class ManageAgentProfilesController {
         specializationCol.setCellValueFactory(cellData -> cellData.getValue().specializationProperty());
     }
 
+    /**
+     * Stops a load still running from the last time the window was open and clears the
+     * table's sort order, selection and scroll position; setDataStore() then loads the agents again.
+     */
+    @Override
+    public void prepareForReuse() {
+        loader.cancel();
+        agents.clear();
+        agentTable.getSortOrder().clear();
+        agentTable.getSelectionModel().clearSelection();
+        agentTable.scrollTo(0);
+    }
+
+    /**
+     * Sets the agent adapter used by this window.
+     * Also starts loading the agent records into the TableView.
+     *
+     * @param adapter the AgentTableAdapter instance.
+     */
+    public void setDataStore(AgentTableAdapter adapter) {
+        this.agentAdapter = adapter;
+        loadAgents();
+    }
+
+    /**
+     * Clears the TableView and reloads the agent records in the background.
+     */
+    private void loadAgents() {
+        agents.clear();
+        loader.restart();
+    }
+
     /**
      * Opens a new window for adding a new agent.
-     * Loads the addNewAgent-view.fxml file and sets the controller's connection and parent controller.
+     * Loads the addNewAgent-view.fxml file and sets the controller's adapter and parent controller.
      */
     @FXML
     private void openAddAgentWindow() {
@@ -85,8 +105,8 @@ public class ManageAgentProfilesController {
             Parent root = loader.load();
             // Retrieve the controller associated with the add agent view.
             AddNewAgentController controller = loader.getController();
-            // Set the database connection and parent controller for the add agent controller.
-            controller.setConnection(connection);
+            // Set the agent adapter and parent controller for the add agent controller.
+            controller.setDataStore(agentAdapter);
             controller.setParentController(this);
 
             // Create a new Stage (window) to display the add agent form.
@@ -107,12 +127,7 @@ public class ManageAgentProfilesController {
      * Refreshes the TableView by reloading the agent data from the database.
      */
     public void refreshTable() {
-        try {
-            loadAgents();
-        } catch (SQLException e) {
-            // Show an error alert if there is an error refreshing the data.
-            showAlert("Refresh Error", e.getMessage());
-        }
+        loadAgents();
     }
 
     /**
@@ -128,15 +143,11 @@ public class ManageAgentProfilesController {
             showAlert("No Selection", "Please select an agent to remove.");
             return;
         }
-        try {
-            // Delete the selected agent record using the adapter.
-            agentAdapter.deleteOneRecord(selected);
-            // Refresh the TableView after deletion.
-            refreshTable();
-        } catch (SQLException e) {
-            // Show an error alert if deletion fails.
-            showAlert("Delete Error", e.getMessage());
-        }
+        // Delete the selected agent record in the background, then refresh the TableView.
+        AsyncDataStore.onFxThread(new AsyncDataStore(agentAdapter).deleteOneRecord(selected),
+                done -> refreshTable(),
+                // Show an error alert if deletion fails.
+                error -> showAlert("Delete Error", error.getMessage()));
     }
 
     /**
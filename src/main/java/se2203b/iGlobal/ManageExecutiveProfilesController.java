@@ -1,5 +1,6 @@
 package se2203b.iGlobal;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -8,14 +9,12 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import java.sql.Connection;
-import java.sql.SQLException;
 
 /**
  * Controller for managing executive profiles.
  * This class is responsible for displaying, adding, refreshing, and deleting executive records.
  */
-public class ManageExecutiveProfilesController {
+public class ManageExecutiveProfilesController implements ViewRegistry.Reusable {
 
     // FXML components that are defined in the corresponding FXML file.
     @FXML private TableView<Executive> executiveTable;         // TableView to display executives.
@@ -25,41 +24,29 @@ public class ManageExecutiveProfilesController {
     @FXML private TableColumn<Executive, String> phoneCol;       // Column for phone number.
     @FXML private TableColumn<Executive, String> privatePhoneCol; // Column for private phone number.
     @FXML private Button addExecutiveBtn, removeBtn, exitBtn;    // Buttons for adding, removing, and exiting.
+    @FXML private ProgressIndicator loadingIndicator;           // Shown while executives are loading.
+    @FXML private Label loadingLabel;                            // Loading status message.
+    @FXML private Button cancelLoadBtn;                          // Cancels a running load.
 
     // Adapter for database operations related to executive records.
     private ExecutiveTableAdapter executiveAdapter;
-    // Database connection object.
-    private Connection connection;
+    // The executives shown in the table and the background loader that fills the list.
+    private final ObservableList<Executive> executives = FXCollections.observableArrayList();
+    private final RecordLoader<Executive> loader =
+            new RecordLoader<>(executives, () -> executiveAdapter.streamAllRecords().map(Executive.class::cast),
+                    () -> executiveAdapter.countRecords());
 
     /**
-     * Sets the database connection and initializes the executive adapter.
-     * Also loads the executive records into the TableView.
-     *
-     * @param conn the Connection object to the database.
+     * Initializes the table and the loading controls once the FXML has been loaded.
      */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            // Initialize the ExecutiveTableAdapter with the connection.
-            executiveAdapter = new ExecutiveTableAdapter(conn, false);
-            // Load executive data into the TableView.
-            loadExecutives();
-        } catch (SQLException e) {
-            // If a database error occurs, display an alert.
-            showAlert("DB Error", e.getMessage());
-        }
-    }
-
-    /**
-     * Loads executive records from the database into the TableView.
-     *
-     * @throws SQLException if a database access error occurs.
-     */
-    private void loadExecutives() throws SQLException {
-        // Retrieve all executives as an ObservableList.
-        ObservableList<Executive> executives = executiveAdapter.getAllExecutives();
-        // Set the TableView's items to the retrieved executive list.
+    @FXML
+    public void initialize() {
+        // Set the TableView's items to the executive list.
         executiveTable.setItems(executives);
+        loader.showPlaceholderIn(executiveTable, "No executives found");
+        loader.showProgressIn(loadingIndicator, loadingLabel, cancelLoadBtn);
+        // If a database error occurs, display an alert.
+        loader.setOnFailed(event -> showAlert("DB Error", loader.getException().getMessage()));
 
         // Bind each TableColumn to the corresponding property of the Executive class.
         firstNameCol.setCellValueFactory(cellData -> cellData.getValue().firstNameProperty());
@@ -69,9 +56,41 @@ public class ManageExecutiveProfilesController {
         privatePhoneCol.setCellValueFactory(cellData -> cellData.getValue().privatePhoneNumberProperty());
     }
 
+    /**
+     * Stops a load still running from the last time the window was open and clears the
+     * table's sort order, selection and scroll position; setDataStore() then loads the executives again.
+     */
+    @Override
+    public void prepareForReuse() {
+        loader.cancel();
+        executives.clear();
+        executiveTable.getSortOrder().clear();
+        executiveTable.getSelectionModel().clearSelection();
+        executiveTable.scrollTo(0);
+    }
+
+    /**
+     * Sets the executive adapter used by this window.
+     * Also starts loading the executive records into the TableView.
+     *
+     * @param adapter the ExecutiveTableAdapter instance.
+     */
+    public void setDataStore(ExecutiveTableAdapter adapter) {
+        this.executiveAdapter = adapter;
+        loadExecutives();
+    }
+
+    /**
+     * Clears the TableView and reloads the executive records in the background.
+     */
+    private void loadExecutives() {
+        executives.clear();
+        loader.restart();
+    }
+
     /**
      * Opens the "Add New Executive" window.
-     * Loads the FXML file, gets its controller, passes the connection and parent controller,
+     * Loads the FXML file, gets its controller, passes the adapter and parent controller,
      * and then displays the window as a modal dialog.
      */
     @FXML
@@ -82,8 +101,8 @@ public class ManageExecutiveProfilesController {
             Parent root = loader.load();
             // Get the controller of the add-new-executive window.
             AddNewExecutiveController controller = loader.getController();
-            // Pass the database connection and set this controller as the parent.
-            controller.setConnection(connection);
+            // Pass the executive adapter and set this controller as the parent.
+            controller.setDataStore(executiveAdapter);
             controller.setParentController(this);
 
             // Create a new stage for the window.
@@ -104,12 +123,7 @@ public class ManageExecutiveProfilesController {
      * Refreshes the executive TableView by reloading the executive records.
      */
     public void refreshTable() {
-        try {
-            loadExecutives();
-        } catch (SQLException e) {
-            // If an error occurs while refreshing, display an alert.
-            showAlert("Refresh Error", e.getMessage());
-        }
+        loadExecutives();
     }
 
     /**
@@ -125,15 +139,11 @@ public class ManageExecutiveProfilesController {
             showAlert("No Selection", "Please select an executive to remove.");
             return;
         }
-        try {
-            // Delete the selected executive from the database.
-            executiveAdapter.deleteOneRecord(selected);
-            // Refresh the table to reflect the changes.
-            refreshTable();
-        } catch (SQLException e) {
-            // Display an alert if an error occurs during deletion.
-            showAlert("Delete Error", e.getMessage());
-        }
+        // Delete the selected executive in the background, then refresh the table.
+        AsyncDataStore.onFxThread(new AsyncDataStore(executiveAdapter).deleteOneRecord(selected),
+                done -> refreshTable(),
+                // Display an alert if an error occurs during deletion.
+                error -> showAlert("Delete Error", error.getMessage()));
     }
 
     /**
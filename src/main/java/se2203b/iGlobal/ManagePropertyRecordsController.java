@@ -1,22 +1,41 @@
 package se2203b.iGlobal;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
-import java.sql.Connection;
+
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Controller class for managing property records.
  * It handles displaying property records in a TableView, opening dialogs to add new properties,
  * removing selected records, and refreshing the displayed list.
+ *
+ * Records are loaded one page at a time: the next page is fetched when the user scrolls
+ * to the bottom of the table or presses "Load More", so the window opens quickly and
+ * only holds the rows the user has actually browsed. Pages are fetched in the background
+ * and can be cancelled while they load.
+ *
+ * The filter panel above the table narrows the records with a PropertySearchCriteria;
+ * the search runs in the database, orders the matches by price and is paged the same way.
+ * When keywords are entered, the best PAGE_SIZE matches from the PropertyTextIndex that
+ * also meet the filters are shown instead, best match first.
  */
-public class ManagePropertyRecordsController {
+public class ManagePropertyRecordsController implements ViewRegistry.Reusable {
+    // Number of property records fetched per page.
+    private static final int PAGE_SIZE = 100;
 
     // FXML components defined in the corresponding FXML file.
 
@@ -32,39 +51,56 @@ public class ManagePropertyRecordsController {
     @FXML private TableColumn<Property, String> cityCol; // Column for city.
     @FXML private TableColumn<Property, String> addressCol; // Column for address.
     @FXML private TableColumn<Property, String> postalCodeCol; // Column for postal code.
-    @FXML private Button addNewPropertyBtn, removeBtn, exitBtn; // Buttons for actions.
+    @FXML private Button addNewPropertyBtn, importBtn, removeBtn, exitBtn, loadMoreBtn; // Buttons for actions.
+    @FXML private Label pageInfoLabel; // Shows how many records are loaded.
+    @FXML private ProgressIndicator loadingIndicator; // Shown while a page is loading.
+    @FXML private Label loadingLabel; // Loading status message.
+    @FXML private Button cancelLoadBtn; // Cancels the page being loaded.
+    // Search filter controls.
+    @FXML private ComboBox<String> typeFilterCB, provinceFilterCB, cityFilterCB;
+    @FXML private TextField keywordField;
+    @FXML private TextField minBedroomsField, minBathroomsField, minPriceField, maxPriceField,
+            minYearField, maxYearField, minLotSizeField, maxLotSizeField;
+    @FXML private Button searchBtn, clearSearchBtn;
 
     // Adapter for property database operations.
     private PropertyTableAdapter propertyAdapter;
-    // Database connection.
-    private Connection connection;
 
-    /**
-     * Sets the database connection and initializes the PropertyTableAdapter.
-     * Then, loads the properties from the database into the TableView.
-     *
-     * @param conn The active database connection.
-     */
-    public void setConnection(Connection conn) {
-        this.connection = conn;
-        try {
-            propertyAdapter = new PropertyTableAdapter(conn, false);
-            loadProperties();
-        } catch (SQLException e) {
-            showAlert("DB Error", e.getMessage());
-        }
-    }
+    // Paging state: the rows loaded so far in fetch order, the last loaded row and whether more rows exist.
+    // The table shows them through a SortedList, so sorting by a column never reorders this list.
+    private final ObservableList<Property> properties = FXCollections.observableArrayList();
+    private Property lastLoaded;
+    private boolean morePages;
+    // The search applied to the table; empty criteria show every record.
+    private PropertySearchCriteria criteria = new PropertySearchCriteria();
+    // The keywords of a ranked text search, or an empty string for none.
+    private String keywords = "";
+    // Number of records matching the criteria, counted in the PropertySnapshot; -1 until known.
+    private int totalMatches = -1;
+    // Set while the total waits for the snapshot to be built or counted.
+    private boolean counting;
+    // Fetches the page that follows the last loaded record in the background.
+    private final RecordLoader<Property> loader = new RecordLoader<>(properties, this::nextPage);
 
     /**
-     * Loads property records from the database and binds them to the TableView.
-     * Each TableColumn is bound to a property of the Property entity.
-     *
-     * @throws SQLException if a database access error occurs.
+     * Initializes the table once the FXML has been loaded.
+     * Binds each TableColumn to its Property attribute and starts watching the
+     * vertical scroll bar so the next page is fetched when the user reaches the bottom.
      */
-    private void loadProperties() throws SQLException {
-        // Retrieve properties from the database as an ObservableList.
-        ObservableList<Property> properties = propertyAdapter.getAllProperties();
-        propertyTable.setItems(properties);
+    @FXML
+    public void initialize() {
+        SortedList<Property> sorted = new SortedList<>(properties);
+        sorted.comparatorProperty().bind(propertyTable.comparatorProperty());
+        propertyTable.setItems(sorted);
+        loader.showPlaceholderIn(propertyTable, "No properties found");
+        loader.showProgressIn(loadingIndicator, loadingLabel, cancelLoadBtn);
+        loader.setOnSucceeded(event -> pageLoaded(loader.getValue()));
+        loader.setOnFailed(event -> showAlert("DB Error", loader.getException().getMessage()));
+        // Rows of a cancelled page that already arrived are kept; "Load More" fetches the rest.
+        loader.setOnCancelled(event -> {
+            rememberLastLoaded();
+            updatePageInfo();
+        });
 
         // Bind each TableColumn to its corresponding Property attribute.
         typeCol.setCellValueFactory(cellData -> cellData.getValue().propertyTypeProperty());
@@ -78,6 +114,256 @@ public class ManagePropertyRecordsController {
         cityCol.setCellValueFactory(cellData -> cellData.getValue().cityProperty());
         addressCol.setCellValueFactory(cellData -> cellData.getValue().addressProperty());
         postalCodeCol.setCellValueFactory(cellData -> cellData.getValue().postalCodeProperty());
+
+        // The scroll bar only exists once the table skin has been created.
+        propertyTable.skinProperty().addListener((obs, oldSkin, newSkin) -> watchScrollBar());
+
+        loadFilterChoices();
+    }
+
+    /**
+     * Stops a page still loading from the last time the window was open, and clears the
+     * table's sort order, selection and scroll position and the filter panel; setDataStore()
+     * then loads the first page of every record.
+     */
+    @Override
+    public void prepareForReuse() {
+        loader.cancel();
+        properties.clear();
+        propertyTable.getSortOrder().clear();
+        propertyTable.getSelectionModel().clearSelection();
+        propertyTable.scrollTo(0);
+        clearFilterPanel();
+        loadFilterChoices();
+    }
+
+    /**
+     * Fills the type and province filters from the lookup cache.
+     */
+    private void loadFilterChoices() {
+        AsyncDataStore.onFxThread(AsyncDataStore.call(ReferenceDataCache.getInstance()::getPropertyTypes),
+                types -> typeFilterCB.setItems(FXCollections.observableArrayList(types)),
+                error -> showAlert("Load Error", error.getMessage()));
+        AsyncDataStore.onFxThread(AsyncDataStore.call(ReferenceDataCache.getInstance()::getProvinces),
+                provinces -> provinceFilterCB.setItems(FXCollections.observableArrayList(provinces)),
+                error -> showAlert("Load Error", error.getMessage()));
+    }
+
+    /**
+     * Opens the query for the next page; runs on the loader's worker thread.
+     */
+    private Stream<Property> nextPage() throws SQLException {
+        if (!keywords.isEmpty()) {
+            return propertyAdapter.searchText(keywords, criteria, PAGE_SIZE).stream();
+        }
+        if (!criteria.isEmpty()) {
+            return propertyAdapter.searchProperties(criteria, lastLoaded, PAGE_SIZE).stream();
+        }
+        return propertyAdapter.getPropertiesAfter(lastLoaded == null ? 0 : lastLoaded.getId(), PAGE_SIZE).stream();
+    }
+
+    /**
+     * Fills the city filter with the cities of the selected province.
+     * This method is linked to the province filter's onAction event.
+     */
+    @FXML
+    private void loadFilterCities() {
+        String province = provinceFilterCB.getValue();
+        cityFilterCB.getSelectionModel().clearSelection();
+        if (province == null) {
+            cityFilterCB.getItems().clear();
+            return;
+        }
+        AsyncDataStore.onFxThread(AsyncDataStore.call(() -> ReferenceDataCache.getInstance().getCitiesInProvince(province)),
+                cities -> cityFilterCB.setItems(FXCollections.observableArrayList(cities)),
+                error -> showAlert("Load Error", error.getMessage()));
+    }
+
+    /**
+     * Reloads the table with the records that match the filter panel.
+     * This method is linked to the "Search" button's onAction event.
+     */
+    @FXML
+    private void searchProperties() {
+        PropertySearchCriteria search = new PropertySearchCriteria();
+        try {
+            search.setPropertyType(typeFilterCB.getValue());
+            search.setProvince(provinceFilterCB.getValue());
+            search.setCity(cityFilterCB.getValue());
+            search.setMinBedrooms(parseInteger(minBedroomsField));
+            search.setMinBathrooms(parseDouble(minBathroomsField));
+            search.setMinPrice(parseDouble(minPriceField));
+            search.setMaxPrice(parseDouble(maxPriceField));
+            search.setMinYearBuilt(parseInteger(minYearField));
+            search.setMaxYearBuilt(parseInteger(maxYearField));
+            search.setMinLotSize(parseDouble(minLotSizeField));
+            search.setMaxLotSize(parseDouble(maxLotSizeField));
+        } catch (NumberFormatException e) {
+            showAlert("Input Error", "Please enter numbers only in the numeric filters.");
+            return;
+        }
+        criteria = search;
+        keywords = keywordField.getText().trim();
+        loadProperties();
+    }
+
+    /**
+     * Clears the filter panel and shows every record again.
+     * This method is linked to the "Clear" button's onAction event.
+     */
+    @FXML
+    private void clearSearch() {
+        clearFilterPanel();
+        loadProperties();
+    }
+
+    /**
+     * Empties every filter field and forgets the current search.
+     */
+    private void clearFilterPanel() {
+        typeFilterCB.getSelectionModel().clearSelection();
+        provinceFilterCB.getSelectionModel().clearSelection();
+        cityFilterCB.getItems().clear();
+        for (TextField field : List.of(minBedroomsField, minBathroomsField, minPriceField, maxPriceField,
+                minYearField, maxYearField, minLotSizeField, maxLotSizeField)) {
+            field.clear();
+        }
+        keywordField.clear();
+        criteria = new PropertySearchCriteria();
+        keywords = "";
+    }
+
+    /**
+     * Reads an optional whole-number filter; an empty field is not applied.
+     */
+    private static Integer parseInteger(TextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : Integer.valueOf(text);
+    }
+
+    /**
+     * Reads an optional decimal filter; an empty field is not applied.
+     */
+    private static Double parseDouble(TextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : Double.valueOf(text);
+    }
+
+    /**
+     * Loads the next page whenever the vertical scroll bar reaches the bottom.
+     */
+    private void watchScrollBar() {
+        for (Node node : propertyTable.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                bar.valueProperty().addListener((obs, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= bar.getMax() && morePages) {
+                        loadNextPage();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Sets the PropertyTableAdapter used by this window.
+     * Then, loads the properties from the database into the TableView.
+     *
+     * @param adapter The PropertyTableAdapter instance.
+     */
+    public void setDataStore(PropertyTableAdapter adapter) {
+        this.propertyAdapter = adapter;
+        loadProperties();
+    }
+
+    /**
+     * Clears the table and starts loading the first page of property records.
+     */
+    private void loadProperties() {
+        properties.clear();
+        lastLoaded = null;
+        morePages = true;
+        totalMatches = -1;
+        counting = false;
+        loader.restart();
+        if (keywords.isEmpty()) {
+            countMatches();
+        }
+    }
+
+    /**
+     * Counts every record that matches the current criteria in the columnar PropertySnapshot,
+     * in the background, so the status line can show the total while pages are still loading.
+     * The window never builds the snapshot itself: until the build started after startup is
+     * done the status line says the total is being counted, and if the table is too large
+     * for a snapshot no total is shown.
+     */
+    private void countMatches() {
+        PropertySearchCriteria counted = criteria;
+        PropertyColumnStore store = PropertyColumnStore.getInstance();
+        counting = true;
+        AsyncDataStore.onFxThread(
+                store.buildInBackground().thenCompose(built -> built == null ? CompletableFuture.completedFuture(-1)
+                        : AsyncDataStore.call(() -> store.getSnapshot().select(counted).count())),
+                total -> {
+                    // Ignore the count if another search has started meanwhile.
+                    if (counted == criteria && keywords.isEmpty()) {
+                        counting = false;
+                        totalMatches = total;
+                        updatePageInfo();
+                    }
+                },
+                // The total is only informative; the page load reports database errors.
+                error -> {
+                    if (counted == criteria) {
+                        counting = false;
+                        updatePageInfo();
+                    }
+                });
+    }
+
+    /**
+     * Starts loading the next page of property records, unless one is already loading.
+     * This method is also linked to the "Load More" button's onAction event.
+     */
+    @FXML
+    private void loadNextPage() {
+        if (!morePages || loader.isRunning()) {
+            return;
+        }
+        loader.restart();
+    }
+
+    /**
+     * Updates the paging state once a page has been appended to the TableView.
+     *
+     * @param count the number of records in the page.
+     */
+    private void pageLoaded(int count) {
+        rememberLastLoaded();
+        // A short page means the end of the table was reached; a text search shows one page of best matches.
+        morePages = keywords.isEmpty() && count == PAGE_SIZE;
+        updatePageInfo();
+    }
+
+    /**
+     * Records the last row fetched, where the next page starts, whatever order the table shows.
+     */
+    private void rememberLastLoaded() {
+        if (!properties.isEmpty()) {
+            lastLoaded = properties.get(properties.size() - 1);
+        }
+    }
+
+    /**
+     * Shows how many records are loaded and enables "Load More" while more pages exist.
+     */
+    private void updatePageInfo() {
+        loadMoreBtn.setDisable(!morePages);
+        String shown = !keywords.isEmpty() ? " best matches for \"" + keywords + "\""
+                : criteria.isEmpty() ? " properties" : " matching properties by price";
+        String of = !keywords.isEmpty() ? "" : totalMatches >= 0 ? " of " + totalMatches
+                : counting ? " of (counting...)" : "";
+        pageInfoLabel.setText("Showing " + properties.size() + of + shown + (morePages ? " (scroll for more)" : ""));
     }
 
     /**
@@ -91,7 +377,7 @@ public class ManagePropertyRecordsController {
 
     /**
      * Loads and displays the Add New Property dialog.
-     * It passes the database connection and parent controller to the dialog controller.
+     * It passes the property adapter and parent controller to the dialog controller.
      */
     private void openAddPropertyDialog() {
         try {
@@ -99,8 +385,8 @@ public class ManagePropertyRecordsController {
             Parent root = loader.load();
             // Get the controller for the add property dialog.
             AddNewPropertyController controller = loader.getController();
-            // Set the database connection and parent controller for callback.
-            controller.setConnection(connection);
+            // Set the property adapter and parent controller for callback.
+            controller.setDataStore(propertyAdapter);
             controller.setParentController(this);
 
             // Create a new stage and display the dialog modally.
@@ -114,6 +400,29 @@ public class ManagePropertyRecordsController {
         }
     }
 
+    /**
+     * Opens the Import Properties dialog, which loads property listings from a CSV file.
+     * This method is triggered by the "Import CSV" button (onAction="#openImportWindow").
+     */
+    @FXML
+    private void openImportWindow() {
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("importProperties-view.fxml"));
+            Parent root = loader.load();
+            ImportPropertiesController controller = loader.getController();
+            controller.setDataStore(propertyAdapter);
+            controller.setParentController(this);
+
+            Stage stage = new Stage();
+            stage.setTitle("Import Properties");
+            stage.setScene(new Scene(root));
+            stage.initModality(Modality.APPLICATION_MODAL);
+            stage.showAndWait();
+        } catch (Exception e) {
+            showAlert("Load Error", e.getMessage());
+        }
+    }
+
     /**
      * Removes the selected property record from the database.
      * This method is linked to the "Remove" button's onAction event.
@@ -126,14 +435,10 @@ public class ManagePropertyRecordsController {
             showAlert("No Selection", "Please select a property to remove.");
             return;
         }
-        try {
-            // Call the adapter method to delete the property using its address.
-            propertyAdapter.deletePropertyByAddress(selected.getAddress());
-            // Refresh the TableView to update the list.
-            refreshTable();
-        } catch (SQLException e) {
-            showAlert("Delete Error", e.getMessage());
-        }
+        // Delete the property by its address in the background, then refresh the TableView.
+        AsyncDataStore.onFxThread(AsyncDataStore.run(() -> propertyAdapter.deletePropertyByAddress(selected.getAddress())),
+                done -> refreshTable(),
+                error -> showAlert("Delete Error", error.getMessage()));
     }
 
     /**
@@ -151,11 +456,7 @@ public class ManagePropertyRecordsController {
      * It reloads the properties from the database.
      */
     public void refreshTable() {
-        try {
-            loadProperties();
-        } catch (SQLException e) {
-            showAlert("Refresh Error", e.getMessage());
-        }
+        loadProperties();
     }
 
     /**
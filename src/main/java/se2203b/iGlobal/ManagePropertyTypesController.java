@@ -19,7 +19,7 @@ import java.util.ResourceBundle;
  * This controller handles the creation, editing, and deletion of property types.
  * It interacts with a DataStore that manages PropertyType entities.
  */
-public class ManagePropertyTypesController implements Initializable {
+public class ManagePropertyTypesController implements Initializable, ViewRegistry.Reusable {
 
     // FXML elements from the corresponding FXML file
     @FXML private Button addTypeBtn;                            // Button to add a new property type
@@ -169,6 +169,17 @@ public class ManagePropertyTypesController implements Initializable {
         propertyTypeTableView.setItems(propertyTypeViewData);
     }
 
+    /**
+     * Clears the table and the input fields before the form is opened again;
+     * setDataStore() then reloads the property types.
+     */
+    @Override
+    public void prepareForReuse() {
+        propertyTypeViewData.clear();
+        typeCode.setText("");
+        typeName.setText("");
+    }
+
     /**
      * Deletes the selected property type record.
      * This method is invoked when the user clicks the "Remove" button.
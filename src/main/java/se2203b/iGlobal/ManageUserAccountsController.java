@@ -5,16 +5,14 @@ import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller class for managing user accounts.
  * This controller allows the administrator to view, create, update, and delete user accounts.
  * It interacts with the UserAccountTableAdapter to perform database operations.
  */
-public class ManageUserAccountsController {
+public class ManageUserAccountsController implements ViewRegistry.Reusable {
 
     // FXML controls bound from the corresponding FXML file.
     @FXML private ComboBox<String> userAccountCombo;  // ComboBox for selecting existing accounts or "New" for a new account.
@@ -25,17 +23,59 @@ public class ManageUserAccountsController {
     @FXML private Button saveBtn;                     // Button to save new or updated account data.
     @FXML private Button deleteBtn;                   // Button to delete the selected user account.
     @FXML private Button cancelBtn;                   // Button to cancel and close the form.
+    @FXML private ProgressIndicator loadingIndicator; // Shown while the account names are loading.
+    @FXML private Button cancelLoadBtn;               // Cancels a running load.
 
     // Adapter for database operations on user accounts.
     private UserAccountTableAdapter userAccountAdapter;
     // Observable list that holds the user account names for the ComboBox.
     private ObservableList<String> userList = FXCollections.observableArrayList();
+    // Loads the account names into userList in the background.
+    private final RecordLoader<String> loader =
+            new RecordLoader<>(userList, () -> userAccountAdapter.getAllKeys().stream());
+    // Account to select once the running load has finished, or null to keep "New" selected.
+    private String pendingSelection;
 
     // Flag indicating if a new user account is being created.
     private boolean creatingNewUser = false;
     // Stores the currently loaded user account when an existing account is selected.
     private UserAccount currentUserAccount = null;
 
+    /**
+     * Initializes the ComboBox and the loading controls once the FXML has been loaded.
+     */
+    @FXML
+    public void initialize() {
+        // Set the items in the ComboBox.
+        userAccountCombo.setItems(userList);
+        loader.showProgressIn(loadingIndicator, null, cancelLoadBtn);
+        loader.setOnSucceeded(event -> {
+            if (pendingSelection != null) {
+                userAccountCombo.getSelectionModel().select(pendingSelection);
+                pendingSelection = null;
+                handleUserSelection();
+            }
+        });
+        loader.setOnFailed(event -> showAlert("Load Error", loader.getException().getMessage()));
+    }
+
+    /**
+     * Stops a load still running from the last time the window was open and clears the
+     * account and the passwords typed then; setDataStore() then loads the account names again.
+     */
+    @Override
+    public void prepareForReuse() {
+        loader.cancel();
+        pendingSelection = null;
+        creatingNewUser = false;
+        currentUserAccount = null;
+        emailField.clear();
+        usernameField.clear();
+        passwordField.clear();
+        confirmPasswordField.clear();
+        userList.clear();
+    }
+
     /**
      * Sets the DataStore (UserAccountTableAdapter) used to interact with the user account data.
      *
@@ -48,26 +88,19 @@ public class ManageUserAccountsController {
 
     /**
      * Loads the list of user accounts from the database and populates the ComboBox.
-     * It adds an option "New" to allow creation of a new user account.
+     * It adds an option "New" to allow creation of a new user account; the account
+     * names follow in the background.
      */
     private void loadUserList() {
-        try {
-            // Retrieve all user account keys (usernames) from the adapter.
-            List<String> allUsers = userAccountAdapter.getAllKeys(); // or getKeys()
-            // Clear the current list and add "New" as the first item.
-            userList.clear();
-            userList.add("New");
-            // Add all user account names retrieved from the database.
-            userList.addAll(allUsers);
-            // Set the items in the ComboBox.
-            userAccountCombo.setItems(userList);
-            // Select the first item ("New") by default.
-            userAccountCombo.getSelectionModel().selectFirst();
-            // Handle the selection to update the form fields accordingly.
-            handleUserSelection();
-        } catch (SQLException e) {
-            showAlert("Load Error", e.getMessage());
-        }
+        pendingSelection = null;
+        // Clear the current list and add "New" as the first item.
+        userList.setAll("New");
+        // Select the first item ("New") by default.
+        userAccountCombo.getSelectionModel().selectFirst();
+        // Handle the selection to update the form fields accordingly.
+        handleUserSelection();
+        // Add all user account names retrieved from the database.
+        loader.restart();
     }
 
     /**
@@ -92,13 +125,21 @@ public class ManageUserAccountsController {
         } else {
             // Load the details of the selected existing user account.
             creatingNewUser = false;
-            try {
-                // Retrieve the user account from the database based on the username.
-                currentUserAccount = (UserAccount) userAccountAdapter.findOneRecord(selected);
-                if (currentUserAccount == null) {
+            // Forget the previous account so Delete and Save cannot act on it while this one loads.
+            currentUserAccount = null;
+            deleteBtn.setDisable(true);
+            // Retrieve the user account from the database based on the username, in the background.
+            AsyncDataStore.onFxThread(new AsyncDataStore(userAccountAdapter).findOneRecord(selected), found -> {
+                // Another account, or "New", was chosen while this one was loading.
+                if (isStale(selected)) return;
+                UserAccount account = (UserAccount) found;
+                // The adapter returns an empty account when the name is not in the table.
+                if (account.getUserAccountName() == null) {
+                    currentUserAccount = null;
                     showAlert("Load Error", "User account not found.");
                     return;
                 }
+                currentUserAccount = account;
                 // Set the form fields with data from the retrieved account.
                 // (Email field is cleared here, adjust if email data is stored elsewhere.)
                 emailField.setText("");
@@ -106,49 +147,65 @@ public class ManageUserAccountsController {
                 passwordField.setText(""); // For security, do not display the encrypted password.
                 confirmPasswordField.setText("");
                 deleteBtn.setDisable(false); // Enable delete button for existing account.
-            } catch (SQLException e) {
-                showAlert("Load Error", e.getMessage());
-            }
+            }, error -> {
+                if (!isStale(selected)) showAlert("Load Error", error.getMessage());
+            });
         }
     }
 
+    /**
+     * Tells whether a lookup started for an account has been overtaken by a later selection.
+     *
+     * @param requested The account name the lookup was started for.
+     * @return true if the ComboBox no longer shows that account or a new account is being created.
+     */
+    private boolean isStale(String requested) {
+        return creatingNewUser || !requested.equals(userAccountCombo.getSelectionModel().getSelectedItem());
+    }
+
     /**
      * Saves a new user account or updates an existing one.
      * Validates the password fields and performs the appropriate database operation.
      */
     @FXML
     private void saveUser() {
-        try {
-            // Validate that the password and confirm password fields match.
-            if (passwordField.getText() == null || !passwordField.getText().equals(confirmPasswordField.getText())) {
-                showAlert("Password Error", "Passwords do not match.");
+        // Validate that the password and confirm password fields match.
+        if (passwordField.getText() == null || !passwordField.getText().equals(confirmPasswordField.getText())) {
+            showAlert("Password Error", "Passwords do not match.");
+            return;
+        }
+        AsyncDataStore store = new AsyncDataStore(userAccountAdapter);
+        CredentialService credentials = CredentialService.getInstance();
+        CompletableFuture<Void> saved;
+        String message;
+        if (creatingNewUser) {
+            // Create a new user account.
+            UserAccount newAccount = new UserAccount();
+            newAccount.setUserAccountName(usernameField.getText());
+            newAccount.setAccountType("agent"); // Optionally, set account type (agent, executive, etc.)
+            // Hash the password with a new salt in the background, then save the account.
+            saved = credentials.setPasswordAsync(newAccount, passwordField.getText())
+                    .thenCompose(hashed -> store.addNewRecord(newAccount));
+            message = "New user account created.";
+        } else {
+            // Update the existing user account, once it has loaded.
+            if (currentUserAccount == null) {
+                showAlert("No Selection", "The selected user account has not loaded yet.");
                 return;
             }
-            if (creatingNewUser) {
-                // Create a new user account.
-                UserAccount newAccount = new UserAccount();
-                newAccount.setUserAccountName(usernameField.getText());
-                // For this example, we store the raw password; in production, perform encryption.
-                newAccount.setEncryptedPassword(passwordField.getText());
-                newAccount.setPasswordSalt("someSalt"); // Replace with proper salt generation.
-                newAccount.setAccountType("agent"); // Optionally, set account type (agent, executive, etc.)
-                userAccountAdapter.addNewRecord(newAccount);
-                showAlert("Success", "New user account created.");
-            } else {
-                // Update the existing user account.
-                currentUserAccount.setUserAccountName(usernameField.getText());
-                currentUserAccount.setEncryptedPassword(passwordField.getText());
-                currentUserAccount.setPasswordSalt("someSalt"); // Replace with proper salt generation.
-                userAccountAdapter.updateRecord(currentUserAccount);
-                showAlert("Success", "User account updated.");
-            }
-            // Reload the list of user accounts and re-select the updated/created account.
-            loadUserList();
-            userAccountCombo.getSelectionModel().select(usernameField.getText());
-            handleUserSelection();
-        } catch (Exception e) {
-            showAlert("Save Error", e.getMessage());
+            UserAccount account = currentUserAccount;
+            account.setUserAccountName(usernameField.getText());
+            saved = credentials.setPasswordAsync(account, passwordField.getText())
+                    .thenCompose(hashed -> store.updateRecord(account));
+            message = "User account updated.";
         }
+        String username = usernameField.getText();
+        AsyncDataStore.onFxThread(saved, done -> {
+            showAlert("Success", message);
+            // Reload the list of user accounts and re-select the updated/created account once it is loaded.
+            loadUserList();
+            pendingSelection = username;
+        }, error -> showAlert("Save Error", error.getMessage()));
     }
 
     /**
@@ -160,13 +217,10 @@ public class ManageUserAccountsController {
             showAlert("No Selection", "No user selected to delete.");
             return;
         }
-        try {
-            userAccountAdapter.deleteOneRecord(currentUserAccount);
+        AsyncDataStore.onFxThread(new AsyncDataStore(userAccountAdapter).deleteOneRecord(currentUserAccount), done -> {
             showAlert("Success", "User account deleted.");
             loadUserList();
-        } catch (SQLException e) {
-            showAlert("Delete Error", e.getMessage());
-        }
+        }, error -> showAlert("Delete Error", error.getMessage()));
     }
 
     /**
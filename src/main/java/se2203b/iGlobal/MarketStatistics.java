@@ -0,0 +1,100 @@
+package se2203b.iGlobal;
+
+/**
+ * The MarketStatistics class holds the market figures of one group of properties,
+ * such as all the properties in a province, a city or of a property type.
+ *
+ * The figures are read from the summary tables by the MarketStatisticsAdapter. A key
+ * that the group is not split by (for example the city of a per-province figure) is null.
+ */
+public class MarketStatistics {
+    private final String province;
+    private final String city;
+    private final String propertyType;
+    // The number of properties in the group.
+    private final int listings;
+    // The number of properties in the group that have a price.
+    private final int pricedListings;
+    private final double totalPrice;
+    private final double totalSquareFootage;
+    // Estimated from the price-per-square-foot histogram; NaN when no property has one.
+    private final double medianPricePerSquareFoot;
+
+    /**
+     * Constructs a MarketStatistics object.
+     *
+     * @param province                 The province of the group, or null if not grouped by province.
+     * @param city                     The city of the group, or null if not grouped by city.
+     * @param propertyType             The property type of the group, or null if not grouped by type.
+     * @param listings                 The number of properties in the group.
+     * @param pricedListings           The number of properties in the group that have a price.
+     * @param totalPrice               The sum of the listing prices.
+     * @param totalSquareFootage       The sum of the square footage.
+     * @param medianPricePerSquareFoot The median price per square foot, or NaN if unknown.
+     */
+    public MarketStatistics(String province, String city, String propertyType, int listings, int pricedListings,
+                            double totalPrice, double totalSquareFootage, double medianPricePerSquareFoot) {
+        this.province = province;
+        this.city = city;
+        this.propertyType = propertyType;
+        this.listings = listings;
+        this.pricedListings = pricedListings;
+        this.totalPrice = totalPrice;
+        this.totalSquareFootage = totalSquareFootage;
+        this.medianPricePerSquareFoot = medianPricePerSquareFoot;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    /**
+     * @return the number of properties in the group, its inventory.
+     */
+    public int getListings() {
+        return listings;
+    }
+
+    /**
+     * @return the total listing price of the group.
+     */
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    /**
+     * @return the total square footage of the group.
+     */
+    public double getTotalSquareFootage() {
+        return totalSquareFootage;
+    }
+
+    /**
+     * @return the average listing price of the properties that have a price, or NaN if none has.
+     */
+    public double getAveragePrice() {
+        return pricedListings == 0 ? Double.NaN : totalPrice / pricedListings;
+    }
+
+    /**
+     * @return the estimated median price per square foot, or NaN if no property has one.
+     */
+    public double getMedianPricePerSquareFoot() {
+        return medianPricePerSquareFoot;
+    }
+
+    @Override
+    public String toString() {
+        return "MarketStatistics{province=" + province + ", city=" + city + ", type=" + propertyType
+                + ", listings=" + listings + ", averagePrice=" + getAveragePrice()
+                + ", medianPricePerSquareFoot=" + medianPricePerSquareFoot + "}";
+    }
+}
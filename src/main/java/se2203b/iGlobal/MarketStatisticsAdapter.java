@@ -0,0 +1,309 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MarketStatisticsAdapter class reads the market figures for the executive dashboard
+ * from the MARKET_SUMMARY and MARKET_PPSF_HISTOGRAM tables.
+ *
+ * Triggers on PROPERTY record every change in MARKET_CHANGE (see SchemaMigrator migration 6).
+ * Before each read the adapter folds the recorded changes into the two tables, so every
+ * figure is computed from one summary row per (province, city, type) and the histogram
+ * rows of the groups reported, never from the PROPERTY rows themselves. Properties without
+ * a province, city or type are reported under an empty string.
+ *
+ * The adapter never changes PROPERTY; it does not implement DataStore.
+ */
+public class MarketStatisticsAdapter {
+    // The groupings the adapter reports. The histogram keeps a copy of the counts for each,
+    // under a GRAIN named after its columns, so no grouping has to add up finer rows.
+    private static final String[][] GROUPINGS = {
+            {"PROVINCE"}, {"PROVINCE", "CITY"}, {"TYPE"}, {"PROVINCE", "CITY", "TYPE"}, {}
+    };
+    private static final String[] KEY_COLUMNS = {"PROVINCE", "CITY", "TYPE"};
+
+    private static final String SUMMARY_SQL = "SELECT %1$sSUM(LISTINGS), SUM(PRICED_LISTINGS), SUM(TOTAL_PRICE), "
+            + "SUM(TOTAL_SQUAREFOOTAGE) FROM MARKET_SUMMARY%2$s HAVING SUM(LISTINGS) > 0%3$s";
+    private static final String HISTOGRAM_SQL = "SELECT PROVINCE, CITY, TYPE, BUCKET, LISTINGS "
+            + "FROM MARKET_PPSF_HISTOGRAM WHERE GRAIN = ? AND LISTINGS > 0 ORDER BY PROVINCE, CITY, TYPE, BUCKET";
+
+    // Statements that fold MARKET_CHANGE into the summary tables.
+    private static final String SUMMARY_CHANGES_SQL = "SELECT PROVINCE, CITY, TYPE, SUM(LISTINGS), "
+            + "SUM(PRICED_LISTINGS), SUM(PRICE), SUM(SQUAREFOOTAGE) FROM MARKET_CHANGE GROUP BY PROVINCE, CITY, TYPE";
+    private static final String UPDATE_SUMMARY_SQL = "UPDATE MARKET_SUMMARY SET LISTINGS = LISTINGS + ?, "
+            + "PRICED_LISTINGS = PRICED_LISTINGS + ?, TOTAL_PRICE = TOTAL_PRICE + ?, "
+            + "TOTAL_SQUAREFOOTAGE = TOTAL_SQUAREFOOTAGE + ? WHERE PROVINCE = ? AND CITY = ? AND TYPE = ?";
+    private static final String INSERT_SUMMARY_SQL = "INSERT INTO MARKET_SUMMARY (LISTINGS, PRICED_LISTINGS, "
+            + "TOTAL_PRICE, TOTAL_SQUAREFOOTAGE, PROVINCE, CITY, TYPE) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String HISTOGRAM_CHANGES_SQL = "SELECT %1$sBUCKET, SUM(LISTINGS) FROM MARKET_CHANGE "
+            + "WHERE BUCKET IS NOT NULL GROUP BY %1$sBUCKET";
+    private static final String UPDATE_HISTOGRAM_SQL = "UPDATE MARKET_PPSF_HISTOGRAM SET LISTINGS = LISTINGS + ? "
+            + "WHERE GRAIN = ? AND PROVINCE = ? AND CITY = ? AND TYPE = ? AND BUCKET = ?";
+    private static final String INSERT_HISTOGRAM_SQL = "INSERT INTO MARKET_PPSF_HISTOGRAM "
+            + "(LISTINGS, GRAIN, PROVINCE, CITY, TYPE, BUCKET) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * @return the figures of each province, ordered by province.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<MarketStatistics> getByProvince() throws SQLException {
+        return summarize(GROUPINGS[0]);
+    }
+
+    /**
+     * @return the figures of each city, ordered by province and city.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<MarketStatistics> getByCity() throws SQLException {
+        return summarize(GROUPINGS[1]);
+    }
+
+    /**
+     * @return the figures of each property type, ordered by type.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<MarketStatistics> getByPropertyType() throws SQLException {
+        return summarize(GROUPINGS[2]);
+    }
+
+    /**
+     * @return the figures of each property type in each city, ordered by province, city and type.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<MarketStatistics> getByCityAndPropertyType() throws SQLException {
+        return summarize(GROUPINGS[3]);
+    }
+
+    /**
+     * @return the figures of the whole market; zero listings if there are no properties.
+     * @throws SQLException if a database access error occurs.
+     */
+    public MarketStatistics getOverall() throws SQLException {
+        List<MarketStatistics> all = summarize(GROUPINGS[4]);
+        return all.isEmpty() ? new MarketStatistics(null, null, null, 0, 0, 0, 0, Double.NaN) : all.get(0);
+    }
+
+    /**
+     * Folds the changes recorded in MARKET_CHANGE into the summary tables and clears it.
+     * Every read does this first; calling it directly after a bulk load keeps the next
+     * read fast.
+     *
+     * @throws SQLException if a database access error occurs.
+     */
+    public void applyPendingChanges() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            applyPendingChanges(connection);
+        }
+    }
+
+    /**
+     * Folds MARKET_CHANGE into the summary tables in one transaction. The change table is
+     * locked first, so rows written by other transactions meanwhile wait for the next fold
+     * instead of being deleted unseen. Groups that lose their last property keep a row with
+     * zero listings, which the reads skip.
+     */
+    private void applyPendingChanges(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT 1 FROM MARKET_CHANGE FETCH FIRST ROW ONLY");
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                return;
+            }
+        }
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("LOCK TABLE MARKET_CHANGE IN EXCLUSIVE MODE");
+            // Parameters are in the same order in the update and the insert: the deltas, then the key.
+            List<Object[]> summaryChanges = new ArrayList<>();
+            try (PreparedStatement changes = connection.prepareStatement(SUMMARY_CHANGES_SQL);
+                 ResultSet rs = changes.executeQuery()) {
+                while (rs.next()) {
+                    summaryChanges.add(new Object[]{rs.getInt(4), rs.getInt(5), rs.getDouble(6), rs.getDouble(7),
+                            rs.getString(1), rs.getString(2), rs.getString(3)});
+                }
+            }
+            upsert(connection, UPDATE_SUMMARY_SQL, INSERT_SUMMARY_SQL, summaryChanges);
+            for (String[] columns : GROUPINGS) {
+                upsert(connection, UPDATE_HISTOGRAM_SQL, INSERT_HISTOGRAM_SQL, histogramChanges(connection, columns));
+            }
+            stmt.executeUpdate("DELETE FROM MARKET_CHANGE");
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Reads the recorded changes to the histogram of one grouping, as the parameters of
+     * UPDATE_HISTOGRAM_SQL and INSERT_HISTOGRAM_SQL.
+     */
+    private List<Object[]> histogramChanges(Connection connection, String[] columns) throws SQLException {
+        List<Object[]> result = new ArrayList<>();
+        try (PreparedStatement changes = connection.prepareStatement(
+                String.format(HISTOGRAM_CHANGES_SQL, keyList(columns)));
+             ResultSet rs = changes.executeQuery()) {
+            while (rs.next()) {
+                int delta = rs.getInt(columns.length + 2);
+                if (delta != 0) {
+                    List<String> key = readKey(rs, columns);
+                    result.add(new Object[]{delta, grain(columns), key.get(0), key.get(1), key.get(2),
+                            rs.getInt(columns.length + 1)});
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies each row of parameters with the update statement, in one batch, and then inserts
+     * the rows the update did not find, in a second batch. Both statements take the same
+     * parameters in the same order.
+     */
+    private static void upsert(Connection connection, String updateSql, String insertSql, List<Object[]> rows)
+            throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updated;
+        try (PreparedStatement update = connection.prepareStatement(updateSql)) {
+            for (Object[] row : rows) {
+                bind(update, row);
+                update.addBatch();
+            }
+            updated = update.executeBatch();
+        }
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            boolean any = false;
+            for (int i = 0; i < rows.size(); i++) {
+                if (updated[i] == 0) {
+                    bind(insert, rows.get(i));
+                    insert.addBatch();
+                    any = true;
+                }
+            }
+            if (any) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            ps.setObject(i + 1, row[i]);
+        }
+    }
+
+    /**
+     * Adds up the summary rows by the given key columns and estimates each group's median
+     * price per square foot from its histogram.
+     *
+     * @param columns the key columns to group by, in order; none for a single total.
+     */
+    private List<MarketStatistics> summarize(String[] columns) throws SQLException {
+        String groupBy = columns.length == 0 ? "" : " GROUP BY " + String.join(", ", columns);
+        String orderBy = columns.length == 0 ? "" : " ORDER BY " + String.join(", ", columns);
+        List<MarketStatistics> result = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            applyPendingChanges(connection);
+            Map<List<String>, Double> medians = readMedians(connection, columns);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    String.format(SUMMARY_SQL, keyList(columns), groupBy, orderBy));
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    List<String> key = readKey(rs, columns);
+                    int n = columns.length;
+                    result.add(new MarketStatistics(
+                            groupedValue(columns, rs, "PROVINCE"),
+                            groupedValue(columns, rs, "CITY"),
+                            groupedValue(columns, rs, "TYPE"),
+                            rs.getInt(n + 1),
+                            rs.getInt(n + 2),
+                            rs.getDouble(n + 3),
+                            rs.getDouble(n + 4),
+                            medians.getOrDefault(key, Double.NaN)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the histogram of every group of a grouping and estimates its median, interpolating
+     * within the bucket that holds the middle listing. Bucket b covers prices per square foot
+     * from e^(b / PPSF_BUCKETS_PER_LOG) to e^((b + 1) / PPSF_BUCKETS_PER_LOG).
+     */
+    private Map<List<String>, Double> readMedians(Connection connection, String[] columns) throws SQLException {
+        // Bucket counts of each group, in bucket order.
+        Map<List<String>, List<int[]>> histograms = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(HISTOGRAM_SQL)) {
+            ps.setString(1, grain(columns));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    List<String> key = List.of(rs.getString(1), rs.getString(2), rs.getString(3));
+                    histograms.computeIfAbsent(key, k -> new ArrayList<>())
+                            .add(new int[]{rs.getInt(4), rs.getInt(5)});
+                }
+            }
+        }
+        Map<List<String>, Double> medians = new HashMap<>();
+        histograms.forEach((key, buckets) -> {
+            long total = 0;
+            for (int[] bucket : buckets) {
+                total += bucket[1];
+            }
+            double middle = total / 2.0;
+            long below = 0;
+            for (int[] bucket : buckets) {
+                if (below + bucket[1] >= middle) {
+                    double fraction = (middle - below) / bucket[1];
+                    medians.put(key, Math.exp((bucket[0] + fraction) / SchemaMigrator.PPSF_BUCKETS_PER_LOG));
+                    break;
+                }
+                below += bucket[1];
+            }
+        });
+        return medians;
+    }
+
+    // The histogram GRAIN of a grouping: its column names, comma-separated.
+    private static String grain(String[] columns) {
+        return String.join(",", columns);
+    }
+
+    // The grouping columns as the start of a select list, e.g. "PROVINCE, CITY, ".
+    private static String keyList(String[] columns) {
+        return columns.length == 0 ? "" : String.join(", ", columns) + ", ";
+    }
+
+    /**
+     * Reads the grouping columns at the start of a row as a (province, city, type) key,
+     * with an empty string for each column the grouping does not use.
+     */
+    private static List<String> readKey(ResultSet rs, String[] columns) throws SQLException {
+        List<String> key = new ArrayList<>(List.of("", "", ""));
+        for (int i = 0; i < columns.length; i++) {
+            key.set(List.of(KEY_COLUMNS).indexOf(columns[i]), rs.getString(i + 1));
+        }
+        return key;
+    }
+
+    // Returns the value of a key column in the row, or null if the grouping does not use it.
+    private static String groupedValue(String[] columns, ResultSet rs, String column) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].equals(column)) {
+                return rs.getString(i + 1);
+            }
+        }
+        return null;
+    }
+}
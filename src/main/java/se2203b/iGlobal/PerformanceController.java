@@ -0,0 +1,124 @@
+package se2203b.iGlobal;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.function.Function;
+
+/**
+ * Controller class for the "Performance" view.
+ *
+ * Shows the DataStoreMetrics of every data store operation called since the application
+ * started or the statistics were last reset: calls, errors, rows returned, total and
+ * mean time, and the 50th, 95th and 99th percentile and maximum latency. Operations are
+ * listed slowest in total first, and the table refreshes itself every two seconds while
+ * the window is open. The summary line also shows how many user account lookups the
+ * UserAccountCache answered without reading the database.
+ */
+public class PerformanceController implements ViewRegistry.Reusable {
+
+    @FXML private TableView<DataStoreMetrics.OperationStats> statsTable;
+    @FXML private TableColumn<DataStoreMetrics.OperationStats, String> operationCol;
+    @FXML private TableColumn<DataStoreMetrics.OperationStats, Long> callsCol, errorsCol, rowsCol;
+    @FXML private TableColumn<DataStoreMetrics.OperationStats, Double> totalCol, meanCol, p50Col, p95Col, p99Col, maxCol;
+    @FXML private Label summaryLabel;
+    @FXML private Button closeBtn;
+
+    private final DataStoreMetrics metrics = DataStoreMetrics.getInstance();
+    private final UserAccountCache userAccounts = UserAccountCache.getInstance();
+    private final ObservableList<DataStoreMetrics.OperationStats> stats = FXCollections.observableArrayList();
+    // Refreshes the table while the window is open
+    private final Timeline refresher = new Timeline(new KeyFrame(Duration.seconds(2), event -> refresh()));
+
+    @FXML
+    public void initialize() {
+        operationCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(
+                cellData.getValue().getAdapter() + "." + cellData.getValue().getOperation()));
+        callsCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getCalls()));
+        errorsCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getErrors()));
+        rowsCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getRows()));
+        showMillis(totalCol, DataStoreMetrics.OperationStats::getTotalMillis);
+        showMillis(meanCol, DataStoreMetrics.OperationStats::getMeanMillis);
+        showMillis(p50Col, DataStoreMetrics.OperationStats::getP50Millis);
+        showMillis(p95Col, DataStoreMetrics.OperationStats::getP95Millis);
+        showMillis(p99Col, DataStoreMetrics.OperationStats::getP99Millis);
+        showMillis(maxCol, DataStoreMetrics.OperationStats::getMaxMillis);
+        statsTable.setItems(stats);
+        statsTable.setPlaceholder(new Label("No data store calls recorded yet"));
+        refresh();
+        refresher.setCycleCount(Animation.INDEFINITE);
+        refresher.play();
+    }
+
+    /**
+     * Shows a time column with two decimals.
+     */
+    private void showMillis(TableColumn<DataStoreMetrics.OperationStats, Double> column,
+                            Function<DataStoreMetrics.OperationStats, Double> value) {
+        column.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(value.apply(cellData.getValue())));
+        column.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Double millis, boolean empty) {
+                super.updateItem(millis, empty);
+                setText(empty || millis == null ? null : String.format("%.2f", millis));
+            }
+        });
+    }
+
+    /**
+     * Reloads the statistics, keeping the user's sort order if they sorted a column.
+     */
+    @FXML
+    private void refresh() {
+        stats.setAll(metrics.getOperations());
+        statsTable.sort();
+        summaryLabel.setText(String.format("%d calls, %d errors; user account cache: %.0f%% of %d lookups hit, %d evicted",
+                metrics.getTotalCalls(), metrics.getTotalErrors(), userAccounts.getHitRate() * 100,
+                userAccounts.getHits() + userAccounts.getMisses(), userAccounts.getEvictions()));
+    }
+
+    /**
+     * Clears the statistics, to measure from now on.
+     */
+    @FXML
+    private void reset() {
+        metrics.reset();
+        userAccounts.resetStatistics();
+        refresh();
+    }
+
+    /**
+     * Stops refreshing and closes the current window.
+     */
+    @FXML
+    private void close() {
+        refresher.stop();
+        Stage stage = (Stage) closeBtn.getScene().getWindow();
+        stage.close();
+    }
+
+    /**
+     * Shows the current statistics and refreshes them again when the window is reopened.
+     */
+    @Override
+    public void prepareForReuse() {
+        refresh();
+        refresher.play();
+    }
+
+    /**
+     * Stops refreshing when the window is closed another way.
+     */
+    public void setStage(Stage stage) {
+        stage.setOnHidden(event -> refresher.stop());
+    }
+}
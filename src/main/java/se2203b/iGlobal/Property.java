@@ -7,46 +7,68 @@ import javafx.beans.property.*;
  * It includes attributes such as property type, lot size, square footage,
  * number of bedrooms and bathrooms, year built, price, location details,
  * and additional descriptive information.
+ *
+ * Each attribute is kept in a plain field, and its JavaFX property is only created the
+ * first time the xxxProperty() method is called, for example by a table cell that is
+ * shown on screen. From then on the property holds the value. Most records loaded from
+ * the database are never displayed, so they never pay for the property objects.
  */
 public class Property {
+    // The database-generated ID of the property; 0 until the record has been read back from the database
+    private int id;
+    private IntegerProperty idProperty;
+
     // The type of property (e.g., residential, commercial)
-    private final StringProperty propertyType = new SimpleStringProperty();
+    private String propertyType;
+    private StringProperty propertyTypeProperty;
 
     // The lot size of the property in appropriate units (e.g., acres or square feet)
-    private final DoubleProperty lotSize = new SimpleDoubleProperty();
+    private double lotSize;
+    private DoubleProperty lotSizeProperty;
 
     // The square footage of the property’s interior
-    private final DoubleProperty squareFootage = new SimpleDoubleProperty();
+    private double squareFootage;
+    private DoubleProperty squareFootageProperty;
 
     // The number of bedrooms in the property
-    private final IntegerProperty bedrooms = new SimpleIntegerProperty();
+    private int bedrooms;
+    private IntegerProperty bedroomsProperty;
 
     // The number of bathrooms (can be fractional for half baths) in the property
-    private final DoubleProperty bathrooms = new SimpleDoubleProperty();
+    private double bathrooms;
+    private DoubleProperty bathroomsProperty;
 
     // The year the property was built
-    private final IntegerProperty yearBuilt = new SimpleIntegerProperty();
+    private int yearBuilt;
+    private IntegerProperty yearBuiltProperty;
 
     // The listing price of the property
-    private final DoubleProperty price = new SimpleDoubleProperty();
+    private double price;
+    private DoubleProperty priceProperty;
 
     // The province where the property is located
-    private final StringProperty province = new SimpleStringProperty();
+    private String province;
+    private StringProperty provinceProperty;
 
     // The city where the property is located
-    private final StringProperty city = new SimpleStringProperty();
+    private String city;
+    private StringProperty cityProperty;
 
     // The street address of the property
-    private final StringProperty address = new SimpleStringProperty();
+    private String address;
+    private StringProperty addressProperty;
 
     // The postal code of the property's location
-    private final StringProperty postalCode = new SimpleStringProperty();
+    private String postalCode;
+    private StringProperty postalCodeProperty;
 
     // A list or description of amenities that the property offers
-    private final StringProperty amenities = new SimpleStringProperty();
+    private String amenities;
+    private StringProperty amenitiesProperty;
 
     // A general description of the property
-    private final StringProperty description = new SimpleStringProperty();
+    private String description;
+    private StringProperty descriptionProperty;
 
     /**
      * Default constructor.
@@ -73,176 +95,287 @@ public class Property {
     public Property(String propertyType, double lotSize, double squareFootage, int bedrooms, double bathrooms,
                     int yearBuilt, double price, String province, String city, String address,
                     String postalCode, String amenities, String description) {
-        this.propertyType.set(propertyType);
-        this.lotSize.set(lotSize);
-        this.squareFootage.set(squareFootage);
-        this.bedrooms.set(bedrooms);
-        this.bathrooms.set(bathrooms);
-        this.yearBuilt.set(yearBuilt);
-        this.price.set(price);
-        this.province.set(province);
-        this.city.set(city);
-        this.address.set(address);
-        this.postalCode.set(postalCode);
-        this.amenities.set(amenities);
-        this.description.set(description);
-    }
-
-    // Getters, setters, and property methods for each attribute
+        this.propertyType = propertyType;
+        this.lotSize = lotSize;
+        this.squareFootage = squareFootage;
+        this.bedrooms = bedrooms;
+        this.bathrooms = bathrooms;
+        this.yearBuilt = yearBuilt;
+        this.price = price;
+        this.province = province;
+        this.city = city;
+        this.address = address;
+        this.postalCode = postalCode;
+        this.amenities = amenities;
+        this.description = description;
+    }
+
+    // Getters, setters, and property methods for each attribute. The getters and setters
+    // use the property once it exists, so bindings see every change made after that.
+
+    public int getId() {
+        return idProperty == null ? id : idProperty.get();
+    }
+
+    public void setId(int value) {
+        if (idProperty == null) {
+            id = value;
+        } else {
+            idProperty.set(value);
+        }
+    }
+
+    public IntegerProperty idProperty() {
+        if (idProperty == null) {
+            idProperty = new SimpleIntegerProperty(this, "id", id);
+        }
+        return idProperty;
+    }
 
     public String getPropertyType() {
-        return propertyType.get();
+        return propertyTypeProperty == null ? propertyType : propertyTypeProperty.get();
     }
 
     public void setPropertyType(String value) {
-        propertyType.set(value);
+        if (propertyTypeProperty == null) {
+            propertyType = value;
+        } else {
+            propertyTypeProperty.set(value);
+        }
     }
 
     public StringProperty propertyTypeProperty() {
-        return propertyType;
+        if (propertyTypeProperty == null) {
+            propertyTypeProperty = new SimpleStringProperty(this, "propertyType", propertyType);
+        }
+        return propertyTypeProperty;
     }
 
     public double getLotSize() {
-        return lotSize.get();
+        return lotSizeProperty == null ? lotSize : lotSizeProperty.get();
     }
 
     public void setLotSize(double value) {
-        lotSize.set(value);
+        if (lotSizeProperty == null) {
+            lotSize = value;
+        } else {
+            lotSizeProperty.set(value);
+        }
     }
 
     public DoubleProperty lotSizeProperty() {
-        return lotSize;
+        if (lotSizeProperty == null) {
+            lotSizeProperty = new SimpleDoubleProperty(this, "lotSize", lotSize);
+        }
+        return lotSizeProperty;
     }
 
     public double getSquareFootage() {
-        return squareFootage.get();
+        return squareFootageProperty == null ? squareFootage : squareFootageProperty.get();
     }
 
     public void setSquareFootage(double value) {
-        squareFootage.set(value);
+        if (squareFootageProperty == null) {
+            squareFootage = value;
+        } else {
+            squareFootageProperty.set(value);
+        }
     }
 
     public DoubleProperty squareFootageProperty() {
-        return squareFootage;
+        if (squareFootageProperty == null) {
+            squareFootageProperty = new SimpleDoubleProperty(this, "squareFootage", squareFootage);
+        }
+        return squareFootageProperty;
     }
 
     public int getBedrooms() {
-        return bedrooms.get();
+        return bedroomsProperty == null ? bedrooms : bedroomsProperty.get();
     }
 
     public void setBedrooms(int value) {
-        bedrooms.set(value);
+        if (bedroomsProperty == null) {
+            bedrooms = value;
+        } else {
+            bedroomsProperty.set(value);
+        }
     }
 
     public IntegerProperty bedroomsProperty() {
-        return bedrooms;
+        if (bedroomsProperty == null) {
+            bedroomsProperty = new SimpleIntegerProperty(this, "bedrooms", bedrooms);
+        }
+        return bedroomsProperty;
     }
 
     public double getBathrooms() {
-        return bathrooms.get();
+        return bathroomsProperty == null ? bathrooms : bathroomsProperty.get();
     }
 
     public void setBathrooms(double value) {
-        bathrooms.set(value);
+        if (bathroomsProperty == null) {
+            bathrooms = value;
+        } else {
+            bathroomsProperty.set(value);
+        }
     }
 
     public DoubleProperty bathroomsProperty() {
-        return bathrooms;
+        if (bathroomsProperty == null) {
+            bathroomsProperty = new SimpleDoubleProperty(this, "bathrooms", bathrooms);
+        }
+        return bathroomsProperty;
     }
 
     public int getYearBuilt() {
-        return yearBuilt.get();
+        return yearBuiltProperty == null ? yearBuilt : yearBuiltProperty.get();
     }
 
     public void setYearBuilt(int value) {
-        yearBuilt.set(value);
+        if (yearBuiltProperty == null) {
+            yearBuilt = value;
+        } else {
+            yearBuiltProperty.set(value);
+        }
     }
 
     public IntegerProperty yearBuiltProperty() {
-        return yearBuilt;
+        if (yearBuiltProperty == null) {
+            yearBuiltProperty = new SimpleIntegerProperty(this, "yearBuilt", yearBuilt);
+        }
+        return yearBuiltProperty;
     }
 
     public double getPrice() {
-        return price.get();
+        return priceProperty == null ? price : priceProperty.get();
     }
 
     public void setPrice(double value) {
-        price.set(value);
+        if (priceProperty == null) {
+            price = value;
+        } else {
+            priceProperty.set(value);
+        }
     }
 
     public DoubleProperty priceProperty() {
-        return price;
+        if (priceProperty == null) {
+            priceProperty = new SimpleDoubleProperty(this, "price", price);
+        }
+        return priceProperty;
     }
 
     public String getProvince() {
-        return province.get();
+        return provinceProperty == null ? province : provinceProperty.get();
     }
 
     public void setProvince(String value) {
-        province.set(value);
+        if (provinceProperty == null) {
+            province = value;
+        } else {
+            provinceProperty.set(value);
+        }
     }
 
     public StringProperty provinceProperty() {
-        return province;
+        if (provinceProperty == null) {
+            provinceProperty = new SimpleStringProperty(this, "province", province);
+        }
+        return provinceProperty;
     }
 
     public String getCity() {
-        return city.get();
+        return cityProperty == null ? city : cityProperty.get();
     }
 
     public void setCity(String value) {
-        city.set(value);
+        if (cityProperty == null) {
+            city = value;
+        } else {
+            cityProperty.set(value);
+        }
     }
 
     public StringProperty cityProperty() {
-        return city;
+        if (cityProperty == null) {
+            cityProperty = new SimpleStringProperty(this, "city", city);
+        }
+        return cityProperty;
     }
 
     public String getAddress() {
-        return address.get();
+        return addressProperty == null ? address : addressProperty.get();
     }
 
     public void setAddress(String value) {
-        address.set(value);
+        if (addressProperty == null) {
+            address = value;
+        } else {
+            addressProperty.set(value);
+        }
     }
 
     public StringProperty addressProperty() {
-        return address;
+        if (addressProperty == null) {
+            addressProperty = new SimpleStringProperty(this, "address", address);
+        }
+        return addressProperty;
     }
 
     public String getPostalCode() {
-        return postalCode.get();
+        return postalCodeProperty == null ? postalCode : postalCodeProperty.get();
     }
 
     public void setPostalCode(String value) {
-        postalCode.set(value);
+        if (postalCodeProperty == null) {
+            postalCode = value;
+        } else {
+            postalCodeProperty.set(value);
+        }
     }
 
     public StringProperty postalCodeProperty() {
-        return postalCode;
+        if (postalCodeProperty == null) {
+            postalCodeProperty = new SimpleStringProperty(this, "postalCode", postalCode);
+        }
+        return postalCodeProperty;
     }
 
     public String getAmenities() {
-        return amenities.get();
+        return amenitiesProperty == null ? amenities : amenitiesProperty.get();
     }
 
     public void setAmenities(String value) {
-        amenities.set(value);
+        if (amenitiesProperty == null) {
+            amenities = value;
+        } else {
+            amenitiesProperty.set(value);
+        }
     }
 
     public StringProperty amenitiesProperty() {
-        return amenities;
+        if (amenitiesProperty == null) {
+            amenitiesProperty = new SimpleStringProperty(this, "amenities", amenities);
+        }
+        return amenitiesProperty;
     }
 
     public String getDescription() {
-        return description.get();
+        return descriptionProperty == null ? description : descriptionProperty.get();
     }
 
     public void setDescription(String value) {
-        description.set(value);
+        if (descriptionProperty == null) {
+            description = value;
+        } else {
+            descriptionProperty.set(value);
+        }
     }
 
     public StringProperty descriptionProperty() {
-        return description;
+        if (descriptionProperty == null) {
+            descriptionProperty = new SimpleStringProperty(this, "description", description);
+        }
+        return descriptionProperty;
     }
 }
@@ -0,0 +1,366 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The PropertyColumnStore class builds and refreshes the PropertySnapshot, the columnar
+ * in-memory copy of the PROPERTY table.
+ *
+ * The first snapshot is built by one streaming scan of PROPERTY in ID order, which
+ * appends each row's values straight into the column arrays. After that, refreshes are
+ * incremental: rows with an ID above the highest one already loaded are appended, and
+ * when rows have been deleted the IDs still in the table are read from the primary key
+ * index and the missing rows are cleared from the snapshot's bitmap. Deleted rows are
+ * squeezed out of the arrays once they make up a quarter of them.
+ *
+ * The first snapshot is never built on a window's request: buildInBackground() starts it
+ * on a background thread, which the application does after startup, and skips it when
+ * PROPERTY has more rows than the iglobal.snapshotMaxRows system property allows.
+ * PropertyTableAdapter reports every insert and delete, and getSnapshot() refreshes the
+ * snapshot on the next request after a change. Published snapshots are never modified:
+ * new rows are written past the end the published snapshot can see, and arrays that
+ * have to grow or be compacted are replaced rather than changed.
+ */
+public final class PropertyColumnStore {
+    private static final PropertyColumnStore INSTANCE = new PropertyColumnStore();
+
+    private static final String SCAN_SQL = "SELECT ID, TYPE, PROVINCE, CITY, PRICE, LOTSIZE, SQUAREFOOTAGE, "
+            + "BEDROOMS, BATHROOMS, YEARBUILT FROM PROPERTY WHERE ID > ? ORDER BY ID";
+    private static final String IDS_SQL = "SELECT ID FROM PROPERTY ORDER BY ID";
+    // The scan reads many narrow rows, so it fetches more of them per round trip than the default.
+    private static final int SCAN_FETCH_SIZE = 1000;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Largest PROPERTY table the first snapshot is built for when nothing else is configured.
+    public static final int DEFAULT_MAX_ROWS = 500_000;
+
+    private final int maxRows = Integer.getInteger("iglobal.snapshotMaxRows", DEFAULT_MAX_ROWS);
+    // The first build started by buildInBackground(), or null before one was asked for; guarded by this.
+    private CompletableFuture<PropertySnapshot> firstBuild;
+
+    // The current snapshot, or null before the first request.
+    private volatile PropertySnapshot snapshot;
+    // Set when PROPERTY has changed since the snapshot was taken.
+    private volatile boolean rowsAdded;
+    private volatile boolean rowsRemoved;
+
+    // The working columns, guarded by this. Rows 0 to size - 1 are in use.
+    private int size;
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private double[] price = new double[INITIAL_CAPACITY];
+    private double[] lotSize = new double[INITIAL_CAPACITY];
+    private double[] squareFootage = new double[INITIAL_CAPACITY];
+    private double[] bathrooms = new double[INITIAL_CAPACITY];
+    private int[] bedrooms = new int[INITIAL_CAPACITY];
+    private int[] yearBuilt = new int[INITIAL_CAPACITY];
+    private int[] type = new int[INITIAL_CAPACITY];
+    private int[] province = new int[INITIAL_CAPACITY];
+    private int[] city = new int[INITIAL_CAPACITY];
+    private long[] live = new long[INITIAL_CAPACITY / 64];
+    private int deleted;
+    // The dictionary of each text column: its values by code and its codes by value.
+    private final Map<PropertySnapshot.Category, List<String>> values = new HashMap<>();
+    private final Map<PropertySnapshot.Category, Map<String, Integer>> codes = new HashMap<>();
+
+    private PropertyColumnStore() {
+        for (PropertySnapshot.Category category : PropertySnapshot.Category.values()) {
+            values.put(category, new ArrayList<>());
+            codes.put(category, new HashMap<>());
+        }
+    }
+
+    /**
+     * @return the shared store instance.
+     */
+    public static PropertyColumnStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a snapshot that includes every change reported so far, refreshing it first
+     * if necessary.
+     *
+     * @return the current snapshot.
+     * @throws SQLException if the snapshot has to be refreshed and a database error occurs.
+     */
+    public PropertySnapshot getSnapshot() throws SQLException {
+        PropertySnapshot current = snapshot;
+        return current != null && !rowsAdded && !rowsRemoved ? current : refresh();
+    }
+
+    /**
+     * Starts building the first snapshot on a background thread, unless it has been started
+     * already. A build that failed is started again.
+     *
+     * @return a future completed with the first snapshot, or with null if PROPERTY has more
+     * rows than the configured maximum and no snapshot is built.
+     */
+    public synchronized CompletableFuture<PropertySnapshot> buildInBackground() {
+        if (firstBuild == null || firstBuild.isCompletedExceptionally()) {
+            firstBuild = AsyncDataStore.call(() -> countRows() > maxRows ? null : getSnapshot());
+        }
+        return firstBuild;
+    }
+
+    /**
+     * Records that rows have been inserted into PROPERTY.
+     */
+    public void rowsInserted() {
+        rowsAdded = true;
+    }
+
+    /**
+     * Records that rows have been deleted from PROPERTY.
+     */
+    public void rowsDeleted() {
+        rowsRemoved = true;
+    }
+
+    /**
+     * Drops the snapshot, the columns and the dictionaries, after the PROPERTY table has been
+     * recreated. IDs then start again at 1, so the rows cannot be caught up incrementally;
+     * the next getSnapshot() reads the whole table again.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+        rowsAdded = false;
+        rowsRemoved = false;
+        // The published snapshot may still be in use, so the arrays are replaced rather than cleared.
+        size = 0;
+        ids = new int[INITIAL_CAPACITY];
+        price = new double[INITIAL_CAPACITY];
+        lotSize = new double[INITIAL_CAPACITY];
+        squareFootage = new double[INITIAL_CAPACITY];
+        bathrooms = new double[INITIAL_CAPACITY];
+        bedrooms = new int[INITIAL_CAPACITY];
+        yearBuilt = new int[INITIAL_CAPACITY];
+        type = new int[INITIAL_CAPACITY];
+        province = new int[INITIAL_CAPACITY];
+        city = new int[INITIAL_CAPACITY];
+        live = new long[INITIAL_CAPACITY / 64];
+        deleted = 0;
+        // Published snapshots hold copies of the dictionaries.
+        values.values().forEach(List::clear);
+        codes.values().forEach(Map::clear);
+    }
+
+    /**
+     * Brings the snapshot up to date with the PROPERTY table and publishes it.
+     *
+     * @return the new snapshot.
+     * @throws SQLException if a database error occurs; the previous snapshot stays current.
+     */
+    public synchronized PropertySnapshot refresh() throws SQLException {
+        // The flags are cleared first, so a change reported while the table is read
+        // triggers another refresh.
+        boolean reconcile = rowsRemoved && snapshot != null;
+        rowsAdded = false;
+        rowsRemoved = false;
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            if (reconcile) {
+                clearDeletedRows(connection);
+            }
+            appendNewRows(connection);
+        } catch (SQLException e) {
+            rowsAdded = true;
+            rowsRemoved |= reconcile;
+            throw e;
+        }
+        if (deleted > size / 4) {
+            compact();
+        }
+        snapshot = new PropertySnapshot(size, ids, price, lotSize, squareFootage, bathrooms, bedrooms, yearBuilt,
+                type, province, city,
+                dictionary(PropertySnapshot.Category.TYPE),
+                dictionary(PropertySnapshot.Category.PROVINCE),
+                dictionary(PropertySnapshot.Category.CITY),
+                Arrays.copyOf(live, words(size)));
+        return snapshot;
+    }
+
+    private static long countRows() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM PROPERTY");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Appends the rows above the highest ID loaded so far, in one streaming scan.
+     */
+    private void appendNewRows(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SCAN_SQL)) {
+            ps.setFetchSize(SCAN_FETCH_SIZE);
+            ps.setInt(1, size == 0 ? 0 : ids[size - 1]);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (size == ids.length) {
+                        grow();
+                    }
+                    int row = size;
+                    ids[row] = rs.getInt(1);
+                    type[row] = encode(PropertySnapshot.Category.TYPE, rs.getString(2));
+                    province[row] = encode(PropertySnapshot.Category.PROVINCE, rs.getString(3));
+                    city[row] = encode(PropertySnapshot.Category.CITY, rs.getString(4));
+                    price[row] = readDouble(rs, 5);
+                    lotSize[row] = readDouble(rs, 6);
+                    squareFootage[row] = readDouble(rs, 7);
+                    bedrooms[row] = readInt(rs, 8);
+                    bathrooms[row] = readDouble(rs, 9);
+                    yearBuilt[row] = readInt(rs, 10);
+                    live[row >> 6] |= 1L << row;
+                    size++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the rows whose IDs are no longer in the table. Both the table's IDs and the
+     * snapshot's rows are in ascending ID order, so one pass over each is enough.
+     */
+    private void clearDeletedRows(Connection connection) throws SQLException {
+        int row = 0;
+        try (PreparedStatement ps = connection.prepareStatement(IDS_SQL)) {
+            ps.setFetchSize(SCAN_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && row < size) {
+                    int id = rs.getInt(1);
+                    // Every row before the next ID still in the table has been deleted.
+                    for (; row < size && ids[row] < id; row++) {
+                        clear(row);
+                    }
+                    if (row < size && ids[row] == id) {
+                        row++;
+                    }
+                }
+            }
+        }
+        for (; row < size; row++) {
+            clear(row);
+        }
+    }
+
+    private void clear(int row) {
+        long bit = 1L << row;
+        if ((live[row >> 6] & bit) != 0) {
+            live[row >> 6] &= ~bit;
+            deleted++;
+        }
+    }
+
+    /**
+     * Doubles the capacity of every column. The old arrays may belong to the published
+     * snapshot, so they are copied rather than changed.
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        price = Arrays.copyOf(price, capacity);
+        lotSize = Arrays.copyOf(lotSize, capacity);
+        squareFootage = Arrays.copyOf(squareFootage, capacity);
+        bathrooms = Arrays.copyOf(bathrooms, capacity);
+        bedrooms = Arrays.copyOf(bedrooms, capacity);
+        yearBuilt = Arrays.copyOf(yearBuilt, capacity);
+        type = Arrays.copyOf(type, capacity);
+        province = Arrays.copyOf(province, capacity);
+        city = Arrays.copyOf(city, capacity);
+        live = Arrays.copyOf(live, words(capacity));
+    }
+
+    /**
+     * Copies the rows that still exist into new arrays, dropping the deleted ones.
+     */
+    private void compact() {
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size - deleted)) * 2);
+        int[] newIds = new int[capacity];
+        double[] newPrice = new double[capacity];
+        double[] newLotSize = new double[capacity];
+        double[] newSquareFootage = new double[capacity];
+        double[] newBathrooms = new double[capacity];
+        int[] newBedrooms = new int[capacity];
+        int[] newYearBuilt = new int[capacity];
+        int[] newType = new int[capacity];
+        int[] newProvince = new int[capacity];
+        int[] newCity = new int[capacity];
+        int n = 0;
+        for (int row = 0; row < size; row++) {
+            if ((live[row >> 6] & (1L << row)) == 0) {
+                continue;
+            }
+            newIds[n] = ids[row];
+            newPrice[n] = price[row];
+            newLotSize[n] = lotSize[row];
+            newSquareFootage[n] = squareFootage[row];
+            newBathrooms[n] = bathrooms[row];
+            newBedrooms[n] = bedrooms[row];
+            newYearBuilt[n] = yearBuilt[row];
+            newType[n] = type[row];
+            newProvince[n] = province[row];
+            newCity[n] = city[row];
+            n++;
+        }
+        ids = newIds;
+        price = newPrice;
+        lotSize = newLotSize;
+        squareFootage = newSquareFootage;
+        bathrooms = newBathrooms;
+        bedrooms = newBedrooms;
+        yearBuilt = newYearBuilt;
+        type = newType;
+        province = newProvince;
+        city = newCity;
+        live = new long[words(capacity)];
+        for (int row = 0; row < n; row++) {
+            live[row >> 6] |= 1L << row;
+        }
+        size = n;
+        deleted = 0;
+    }
+
+    /**
+     * Returns the code of a text value, adding the value to the column's dictionary if it is new.
+     */
+    private int encode(PropertySnapshot.Category category, String value) {
+        if (value == null) {
+            return PropertySnapshot.NO_CODE;
+        }
+        Map<String, Integer> columnCodes = codes.get(category);
+        Integer code = columnCodes.get(value);
+        if (code == null) {
+            List<String> columnValues = values.get(category);
+            code = columnValues.size();
+            columnValues.add(value);
+            columnCodes.put(value, code);
+        }
+        return code;
+    }
+
+    private PropertySnapshot.Dictionary dictionary(PropertySnapshot.Category category) {
+        return new PropertySnapshot.Dictionary(values.get(category), codes.get(category));
+    }
+
+    private static double readDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private static int readInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? PropertySnapshot.NO_VALUE : value;
+    }
+
+    // Number of 64-bit words needed for a bitmap of the given number of rows.
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+}
@@ -0,0 +1,749 @@
+package se2203b.iGlobal;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The PropertyImporter class loads property listings from a CSV file into the PROPERTY table.
+ *
+ * The import runs as a pipeline. The calling thread streams the file through an NIO reader
+ * and cuts it into chunks of whole CSV records. Each chunk is handed to a worker thread,
+ * which parses and validates its records, adds any province or city the lookup tables do
+ * not have yet, and inserts the valid records with PropertyTableAdapter.importRecordList()
+ * as JDBC batches in one transaction. Every worker borrows its own pooled connection, so
+ * several chunks are parsed and written at once. Only a few chunks are queued ahead of the
+ * workers, so memory use does not grow with the size of the file.
+ *
+ * The first line of the file names the columns, in any order. Each name is matched without
+ * regard to case, spaces or underscores against the PROPERTY column names or the Property
+ * attribute names, for example "Lot Size", "LOTSIZE" or "lotSize". AMENITIES and DESCRIPTION
+ * may be left out. A record that fails validation or is refused by the database is reported
+ * with its line number and skipped; the other records are still imported.
+ *
+ * In bulk-load mode the secondary indexes on PROPERTY and the market summary trigger are
+ * dropped for the duration of the import and rebuilt once at the end (see
+ * SchemaMigrator.beginBulkLoad()), which is much faster for large files but should only be
+ * used while nobody else is adding properties.
+ */
+public class PropertyImporter {
+    // Number of CSV records parsed and inserted together in one transaction.
+    public static final int DEFAULT_CHUNK_SIZE = 2000;
+    // Number of row errors kept for the Result; later ones are only counted.
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    // Times a chunk is written again after Derby rolled it back to resolve a lock conflict.
+    private static final int MAX_RETRIES = 3;
+    // The last ID passed to finish() when no bulk load was begun; PROPERTY IDs start at 1.
+    private static final int NOT_BULK_LOADING = -1;
+
+    // The columns of a CSV file, in the order Property's constructor takes them.
+    private static final String[] COLUMNS = {"TYPE", "LOTSIZE", "SQUAREFOOTAGE", "BEDROOMS", "BATHROOMS",
+            "YEARBUILT", "PRICE", "PROVINCE", "CITY", "ADDRESS", "POSTALCODE", "AMENITIES", "DESCRIPTION"};
+    private static final int TYPE = 0, LOT_SIZE = 1, SQUARE_FOOTAGE = 2, BEDROOMS = 3, BATHROOMS = 4,
+            YEAR_BUILT = 5, PRICE = 6, PROVINCE = 7, CITY = 8, ADDRESS = 9, POSTAL_CODE = 10,
+            AMENITIES = 11, DESCRIPTION = 12;
+    // The longest value each text column of PROPERTY accepts; 0 for numeric columns.
+    private static final int[] MAX_LENGTH = {50, 0, 0, 0, 0, 0, 0, 20, 50, 100, 20, 200, 500};
+    // Columns a file may leave out.
+    private static final Set<Integer> OPTIONAL_COLUMNS = Set.of(AMENITIES, DESCRIPTION);
+
+    private final PropertyTableAdapter propertyAdapter;
+    private final ReferenceDataCache referenceData = ReferenceDataCache.getInstance();
+    private int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+            ConnectionPool.getInstance().getMaxSize() - 1));
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean bulkLoad;
+    private volatile boolean cancelled;
+
+    /**
+     * Receives the progress of an import. Its methods are called from the worker threads.
+     */
+    public interface Listener {
+        /**
+         * Called after each chunk has been written.
+         *
+         * @param bytesRead  about how many bytes of the file have been written so far.
+         * @param totalBytes the size of the file.
+         * @param imported   the number of records inserted so far.
+         * @param rejected   the number of records skipped so far.
+         */
+        void progress(long bytesRead, long totalBytes, long imported, long rejected);
+
+        /**
+         * Called for every record that is skipped.
+         *
+         * @param error the line number of the record and the reason it was skipped.
+         */
+        default void rowRejected(RowError error) {
+        }
+    }
+
+    /**
+     * A record that could not be imported.
+     */
+    public static final class RowError {
+        private final long lineNumber;
+        private final String message;
+
+        public RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        /**
+         * @return the line of the file the record starts on; the header is line 1.
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class Result {
+        private final long imported;
+        private final long rejected;
+        private final List<RowError> errors;
+        private final long elapsedMillis;
+        private final boolean cancelled;
+
+        private Result(long imported, long rejected, List<RowError> errors, long elapsedMillis, boolean cancelled) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errors = Collections.unmodifiableList(errors);
+            this.elapsedMillis = elapsedMillis;
+            this.cancelled = cancelled;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return up to MAX_REPORTED_ERRORS of the skipped records, in line order.
+         */
+        public List<RowError> getErrors() {
+            return errors;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return true if the import was cancelled; the chunks written before that stay imported.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? 0 : imported * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d properties, skipped %d, in %.1f s (%.0f rows/s)%s",
+                    imported, rejected, elapsedMillis / 1000.0, getRowsPerSecond(), cancelled ? ", cancelled" : "");
+        }
+    }
+
+    /**
+     * Counts the bytes read from the file, so progress is reported in bytes whatever the
+     * encoding of the characters and the line endings.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * A run of consecutive CSV records, with the line number each one starts on.
+     */
+    private static final class Chunk {
+        private final List<String> records;
+        private final long[] lineNumbers;
+        private final long endOffset;
+
+        private Chunk(List<String> records, long[] lineNumbers, long endOffset) {
+            this.records = records;
+            this.lineNumbers = lineNumbers;
+            this.endOffset = endOffset;
+        }
+    }
+
+    /**
+     * Creates an importer that writes through the given adapter.
+     *
+     * @param adapter the adapter for the PROPERTY table.
+     */
+    public PropertyImporter(PropertyTableAdapter adapter) {
+        this.propertyAdapter = adapter;
+    }
+
+    /**
+     * Sets the number of worker threads; by default one per processor, leaving at least
+     * one pooled connection for the rest of the application.
+     *
+     * @param threads the number of chunks parsed and written at once; must be at least 1.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * @param chunkSize the number of records written per transaction; must be at least 1.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param bulkLoad true to drop the PROPERTY indexes during the import and rebuild them afterwards.
+     */
+    public void setBulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * Stops a running import after the chunks already being written. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports the property listings in a CSV file.
+     *
+     * @param file     the CSV file, encoded in UTF-8, with a header line.
+     * @param listener receives progress and skipped records, or null.
+     * @return the number of records imported and skipped, and the reasons for skipping them.
+     * @throws IOException  if the file cannot be read or has no usable header.
+     * @throws SQLException if a database error other than a rejected record occurs; the
+     *                      chunks written before it stay imported.
+     */
+    public Result importFile(Path file, Listener listener) throws IOException, SQLException {
+        long start = System.nanoTime();
+        long totalBytes = Files.size(file);
+        Listener progress = listener != null ? listener : (bytesRead, total, imported, rejected) -> { };
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong bytesDone = new AtomicLong();
+        List<RowError> errors = Collections.synchronizedList(new ArrayList<>());
+
+        // The highest ID before the bulk load, or NOT_BULK_LOADING until one has begun.
+        int lastId = NOT_BULK_LOADING;
+        ExecutorService workers = null;
+        // Bounds the chunks read ahead of the workers.
+        Semaphore inFlight = new Semaphore(threads * 2);
+        List<Future<?>> pending = new ArrayList<>();
+        boolean interrupted = false;
+        boolean stopped;
+        // A decoder of its own reports malformed input, as Files.newBufferedReader() does.
+        try (CountingInputStream counted = new CountingInputStream(Files.newInputStream(file));
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(counted, StandardCharsets.UTF_8.newDecoder()))) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException("The file is empty");
+            }
+            int[] columns = mapColumns(parseRecord(stripByteOrderMark(header)));
+            // The file is open and its header checked before PROPERTY is changed, and the
+            // finally block below ends the bulk load whatever happens after it begins.
+            if (bulkLoad) {
+                lastId = SchemaMigrator.beginBulkLoad();
+            }
+            workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "property-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            long lineNumber = 1;
+            List<String> records = new ArrayList<>(chunkSize);
+            long[] lineNumbers = new long[chunkSize];
+            String line;
+            while (!cancelled && (line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                long recordLine = lineNumber;
+                // A quoted field may contain line breaks; keep reading until its quote is closed.
+                if (hasOpenQuote(line)) {
+                    StringBuilder record = new StringBuilder(line);
+                    while (hasOpenQuote(record) && (line = reader.readLine()) != null) {
+                        lineNumber++;
+                        record.append('\n').append(line);
+                    }
+                    line = record.toString();
+                }
+                lineNumbers[records.size()] = recordLine;
+                records.add(line);
+                if (records.size() == chunkSize) {
+                    submit(workers, inFlight, pending, new Chunk(records, lineNumbers, counted.count), columns,
+                            imported, rejected, bytesDone, totalBytes, errors, progress);
+                    records = new ArrayList<>(chunkSize);
+                    lineNumbers = new long[chunkSize];
+                }
+                // Drop finished futures so the list stays short on large files, and stop
+                // reading early if a worker has failed.
+                if (pending.size() > threads * 4) {
+                    collect(pending, false);
+                }
+            }
+            if (!cancelled && !records.isEmpty()) {
+                submit(workers, inFlight, pending, new Chunk(records, lineNumbers, counted.count), columns,
+                        imported, rejected, bytesDone, totalBytes, errors, progress);
+            }
+            collect(pending, true);
+        } catch (InterruptedException e) {
+            interrupted = true;
+            cancelled = true;
+        } catch (IOException | SQLException | RuntimeException e) {
+            cancelled = true;
+            throw e;
+        } finally {
+            // Let the chunks already being written finish; a Derby write should not be interrupted.
+            if (workers != null) {
+                workers.shutdown();
+                interrupted |= awaitTermination(workers);
+            }
+            stopped = cancelled;
+            // Leave the importer ready for another file.
+            cancelled = false;
+            try {
+                finish(lastId, imported.get() > 0);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        progress.progress(totalBytes, totalBytes, imported.get(), rejected.get());
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        List<RowError> reported = new ArrayList<>(errors);
+        reported.sort(Comparator.comparingLong(RowError::getLineNumber));
+        return new Result(imported.get(), rejected.get(), reported, elapsed, stopped);
+    }
+
+    /**
+     * Waits for the workers to finish, without giving up when the thread is interrupted.
+     *
+     * @return true if the thread was interrupted meanwhile.
+     */
+    private static boolean awaitTermination(ExecutorService workers) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                    return interrupted;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Waits for a free slot and hands a chunk to the workers.
+     */
+    private void submit(ExecutorService workers, Semaphore inFlight, List<Future<?>> pending, Chunk chunk,
+                        int[] columns, AtomicLong imported, AtomicLong rejected, AtomicLong bytesDone,
+                        long totalBytes, List<RowError> errors, Listener progress) throws InterruptedException {
+        inFlight.acquire();
+        pending.add(workers.submit(() -> {
+            try {
+                if (cancelled) {
+                    return null;
+                }
+                List<RowError> chunkErrors = new ArrayList<>();
+                int written = writeChunk(chunk, columns, chunkErrors);
+                imported.addAndGet(written);
+                rejected.addAndGet(chunkErrors.size());
+                for (RowError error : chunkErrors) {
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(error);
+                    }
+                    progress.rowRejected(error);
+                }
+                long bytes = bytesDone.accumulateAndGet(chunk.endOffset, Math::max);
+                progress.progress(Math.min(bytes, totalBytes), totalBytes, imported.get(), rejected.get());
+                return null;
+            } finally {
+                inFlight.release();
+            }
+        }));
+    }
+
+    /**
+     * Waits for the submitted chunks and rethrows the first error a worker ran into.
+     *
+     * @param all true to wait for every chunk, false to only clear the finished ones.
+     */
+    private void collect(List<Future<?>> pending, boolean all) throws SQLException, InterruptedException {
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            Future<?> future = pending.get(i);
+            if (!all && !future.isDone()) {
+                continue;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                cancelled = true;
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new SQLException("Import failed: " + cause.getMessage(), cause);
+            }
+            pending.remove(i);
+        }
+    }
+
+    /**
+     * Parses, validates and inserts one chunk on a worker thread.
+     *
+     * @return the number of records inserted; the skipped ones are added to errors.
+     */
+    private int writeChunk(Chunk chunk, int[] columns, List<RowError> errors) throws SQLException {
+        List<Property> properties = new ArrayList<>(chunk.records.size());
+        List<Long> lineNumbers = new ArrayList<>(chunk.records.size());
+        Set<String> provinces = new LinkedHashSet<>();
+        Set<String> citiesAndProvinces = new LinkedHashSet<>();
+        List<City> cities = new ArrayList<>();
+        List<String> propertyTypes = referenceData.getPropertyTypes();
+        for (int i = 0; i < chunk.records.size(); i++) {
+            long lineNumber = chunk.lineNumbers[i];
+            try {
+                Property p = toProperty(parseRecord(chunk.records.get(i)), columns, propertyTypes);
+                if (!referenceData.provinceExists(p.getProvince())) {
+                    provinces.add(p.getProvince());
+                }
+                if (!referenceData.cityExists(p.getCity(), p.getProvince())
+                        && citiesAndProvinces.add(p.getCity() + '\n' + p.getProvince())) {
+                    cities.add(new City(p.getCity(), p.getProvince()));
+                }
+                properties.add(p);
+                lineNumbers.add(lineNumber);
+            } catch (IllegalArgumentException e) {
+                errors.add(new RowError(lineNumber, e.getMessage()));
+            }
+        }
+        if (!provinces.isEmpty() || !cities.isEmpty()) {
+            addReferences(provinces, cities);
+        }
+        if (properties.isEmpty()) {
+            return 0;
+        }
+        try {
+            return insert(properties);
+        } catch (SQLException e) {
+            if (!isRowError(e)) {
+                throw e;
+            }
+        }
+        // The database refused a record and the chunk was rolled back: insert the records one
+        // at a time to find the bad ones.
+        int written = 0;
+        for (int i = 0; i < properties.size(); i++) {
+            try {
+                written += insert(List.of(properties.get(i)));
+            } catch (SQLException e) {
+                if (!isRowError(e)) {
+                    throw e;
+                }
+                errors.add(new RowError(lineNumbers.get(i), e.getMessage()));
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Inserts records in one transaction, writing them again if Derby rolled the transaction
+     * back because of a lock conflict, such as two workers taking values for PROPERTY.ID at once.
+     */
+    private int insert(List<Property> records) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return propertyAdapter.importRecordList(records);
+            } catch (SQLException e) {
+                if (attempt == MAX_RETRIES || !isConflict(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds provinces and cities that are not in the lookup tables yet. Runs on one worker at a
+     * time, and checks the cache again first, so two chunks never add the same row.
+     */
+    private synchronized void addReferences(Set<String> provinces, List<City> cities) throws SQLException {
+        if (!provinces.isEmpty()) {
+            ProvinceTableAdapter provinceAdapter = new ProvinceTableAdapter(false);
+            for (String province : provinces) {
+                if (!referenceData.provinceExists(province)) {
+                    provinceAdapter.addNewRecord(province);
+                }
+            }
+        }
+        List<City> missing = new ArrayList<>();
+        for (City city : cities) {
+            if (!referenceData.cityExists(city.getCityName(), city.getProvinceCode())) {
+                missing.add(city);
+            }
+        }
+        if (!missing.isEmpty()) {
+            new CityTableAdapter(false).addRecordList(missing);
+        }
+    }
+
+    /**
+     * Ends bulk-load mode, if it was begun, and updates the in-memory indexes.
+     */
+    private void finish(int lastId, boolean rowsAdded) throws SQLException {
+        try {
+            if (lastId != NOT_BULK_LOADING) {
+                SchemaMigrator.endBulkLoad(lastId);
+            }
+        } finally {
+            if (rowsAdded) {
+                propertyAdapter.importFinished();
+            }
+        }
+    }
+
+    /**
+     * Builds a Property from the fields of one record.
+     *
+     * @throws IllegalArgumentException if a field is missing or invalid.
+     */
+    private static Property toProperty(List<String> fields, int[] columns, List<String> propertyTypes) {
+        String[] values = new String[COLUMNS.length];
+        for (int column = 0; column < COLUMNS.length; column++) {
+            int index = columns[column];
+            String value = index >= 0 && index < fields.size() ? fields.get(index).trim() : "";
+            if (value.isEmpty() && !OPTIONAL_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException(COLUMNS[column] + " is missing");
+            }
+            if (MAX_LENGTH[column] > 0 && value.length() > MAX_LENGTH[column]) {
+                throw new IllegalArgumentException(COLUMNS[column] + " is longer than "
+                        + MAX_LENGTH[column] + " characters");
+            }
+            values[column] = value.isEmpty() ? null : value;
+        }
+        if (!propertyTypes.contains(values[TYPE])) {
+            throw new IllegalArgumentException("Unknown property type \"" + values[TYPE] + "\"");
+        }
+        return new Property(values[TYPE],
+                parseDouble(values, LOT_SIZE),
+                parseDouble(values, SQUARE_FOOTAGE),
+                parseInt(values, BEDROOMS),
+                parseDouble(values, BATHROOMS),
+                parseInt(values, YEAR_BUILT),
+                parseDouble(values, PRICE),
+                values[PROVINCE], values[CITY], values[ADDRESS], values[POSTAL_CODE],
+                values[AMENITIES], values[DESCRIPTION]);
+    }
+
+    private static double parseDouble(String[] values, int column) {
+        try {
+            double value = Double.parseDouble(values[column]);
+            if (value >= 0 && !Double.isInfinite(value)) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException(COLUMNS[column] + " is not a valid number: " + values[column]);
+    }
+
+    private static int parseInt(String[] values, int column) {
+        try {
+            int value = Integer.parseInt(values[column]);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new IllegalArgumentException(COLUMNS[column] + " is not a valid whole number: " + values[column]);
+    }
+
+    /**
+     * Finds the position of every known column in the header.
+     *
+     * @return for each entry of COLUMNS, its index in a record, or -1 if the file does not have it.
+     * @throws IOException if a required column is missing.
+     */
+    private static int[] mapColumns(List<String> header) throws IOException {
+        Map<String, Integer> aliases = new HashMap<>();
+        for (int column = 0; column < COLUMNS.length; column++) {
+            aliases.put(COLUMNS[column], column);
+        }
+        aliases.put("PROPERTYTYPE", TYPE);
+
+        int[] columns = new int[COLUMNS.length];
+        Arrays.fill(columns, -1);
+        for (int index = 0; index < header.size(); index++) {
+            String name = header.get(index).replaceAll("[\\s_]", "").toUpperCase(Locale.ROOT);
+            Integer column = aliases.get(name);
+            if (column != null && columns[column] < 0) {
+                columns[column] = index;
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if (columns[column] < 0 && !OPTIONAL_COLUMNS.contains(column)) {
+                missing.add(COLUMNS[column]);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IOException("The header line has no column for " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    /**
+     * Splits one CSV record into its fields. Fields are separated by commas and may be
+     * enclosed in double quotes, inside which a doubled quote stands for one quote and
+     * commas and line breaks are part of the value.
+     */
+    static List<String> parseRecord(String record) {
+        List<String> fields = new ArrayList<>(COLUMNS.length);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * @return true if the text ends inside a quoted field.
+     */
+    private static boolean hasOpenQuote(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return (quotes & 1) != 0;
+    }
+
+    private static String stripByteOrderMark(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+
+    /**
+     * Tells a record the database refused (a value out of range or a broken constraint)
+     * from a failure that affects the whole import.
+     */
+    private static boolean isRowError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    /**
+     * Tells a transaction Derby rolled back to break a deadlock or a lock wait, which
+     * succeeds when it is run again, from other failures.
+     */
+    private static boolean isConflict(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("40");
+    }
+}
@@ -0,0 +1,132 @@
+package se2203b.iGlobal;
+
+/**
+ * The PropertySearchCriteria class holds the filters of a property search.
+ *
+ * Every criterion is optional: a null value (or a blank text value) means the
+ * criterion is not applied. Ranges are inclusive, so a property priced exactly
+ * at the maximum price matches. The criteria are turned into a single
+ * parameterized query by PropertyTableAdapter.searchProperties().
+ */
+public class PropertySearchCriteria {
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minBedrooms;
+    private Double minBathrooms;
+    private String propertyType;
+    private String province;
+    private String city;
+    private Integer minYearBuilt;
+    private Integer maxYearBuilt;
+    private Double minLotSize;
+    private Double maxLotSize;
+
+    /**
+     * @return true if no criterion is set, so every property matches.
+     */
+    public boolean isEmpty() {
+        return minPrice == null && maxPrice == null && minBedrooms == null && minBathrooms == null
+                && isBlank(propertyType) && isBlank(province) && isBlank(city)
+                && minYearBuilt == null && maxYearBuilt == null && minLotSize == null && maxLotSize == null;
+    }
+
+    /**
+     * Checks whether a text criterion is unset.
+     *
+     * @param value the criterion value.
+     * @return true if the value is null or blank.
+     */
+    static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    // Getter and setter methods for each criterion.
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getMinBedrooms() {
+        return minBedrooms;
+    }
+
+    public void setMinBedrooms(Integer minBedrooms) {
+        this.minBedrooms = minBedrooms;
+    }
+
+    public Double getMinBathrooms() {
+        return minBathrooms;
+    }
+
+    public void setMinBathrooms(Double minBathrooms) {
+        this.minBathrooms = minBathrooms;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public void setPropertyType(String propertyType) {
+        this.propertyType = propertyType;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public void setProvince(String province) {
+        this.province = province;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public Integer getMinYearBuilt() {
+        return minYearBuilt;
+    }
+
+    public void setMinYearBuilt(Integer minYearBuilt) {
+        this.minYearBuilt = minYearBuilt;
+    }
+
+    public Integer getMaxYearBuilt() {
+        return maxYearBuilt;
+    }
+
+    public void setMaxYearBuilt(Integer maxYearBuilt) {
+        this.maxYearBuilt = maxYearBuilt;
+    }
+
+    public Double getMinLotSize() {
+        return minLotSize;
+    }
+
+    public void setMinLotSize(Double minLotSize) {
+        this.minLotSize = minLotSize;
+    }
+
+    public Double getMaxLotSize() {
+        return maxLotSize;
+    }
+
+    public void setMaxLotSize(Double maxLotSize) {
+        this.maxLotSize = maxLotSize;
+    }
+}
@@ -0,0 +1,465 @@
+package se2203b.iGlobal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The PropertySnapshot class is a read-only, column-oriented copy of the PROPERTY table
+ * for filtering and aggregating all properties in memory.
+ *
+ * Each numeric column is a primitive array indexed by row: prices, lot sizes, square
+ * footage and bathrooms are doubles (NaN when missing), bedrooms and year built are ints
+ * (NO_VALUE when missing). Type, province and city are dictionary-encoded: each row holds
+ * the int code of its value and the snapshot holds one copy of every distinct string.
+ * Rows are in ascending ID order, and a bitmap marks the rows that still exist.
+ *
+ * Queries work a column at a time on Selections, bitmaps of rows: every filter runs one
+ * tight loop over a primitive array and clears the bits of the rows that fail, skipping
+ * 64 rows at a time where none is selected any more. No Property objects are created.
+ *
+ * Snapshots are built and refreshed by the PropertyColumnStore. A snapshot never changes
+ * once published, so it can be queried from any thread.
+ */
+public final class PropertySnapshot {
+    // Marks a missing value in an int column.
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+    // Marks a missing value in a dictionary-encoded column.
+    static final int NO_CODE = -1;
+
+    /**
+     * The numeric columns.
+     */
+    public enum Column {
+        PRICE, LOT_SIZE, SQUARE_FOOTAGE, BEDROOMS, BATHROOMS, YEAR_BUILT
+    }
+
+    /**
+     * The dictionary-encoded text columns.
+     */
+    public enum Category {
+        TYPE, PROVINCE, CITY
+    }
+
+    /**
+     * The distinct values of a text column, numbered in order of first appearance.
+     * A dictionary is never changed after it is published; adding values makes a new one.
+     */
+    static final class Dictionary {
+        private final String[] values;
+        private final Map<String, Integer> codes;
+
+        private Dictionary(String[] values, Map<String, Integer> codes) {
+            this.values = values;
+            this.codes = codes;
+        }
+
+        int size() {
+            return values.length;
+        }
+
+        String value(int code) {
+            return code == NO_CODE ? null : values[code];
+        }
+
+        int code(String value) {
+            if (value == null) {
+                return NO_CODE;
+            }
+            Integer code = codes.get(value);
+            return code == null ? NO_CODE : code;
+        }
+
+        /**
+         * Copies the values collected by the PropertyColumnStore.
+         */
+        Dictionary(List<String> values, Map<String, Integer> codes) {
+            this(values.toArray(new String[0]), new HashMap<>(codes));
+        }
+    }
+
+    // Number of rows, including deleted ones; the arrays may be longer.
+    private final int size;
+    private final int[] ids;
+    private final double[] price;
+    private final double[] lotSize;
+    private final double[] squareFootage;
+    private final double[] bathrooms;
+    private final int[] bedrooms;
+    private final int[] yearBuilt;
+    private final int[] type;
+    private final int[] province;
+    private final int[] city;
+    private final Dictionary types;
+    private final Dictionary provinces;
+    private final Dictionary cities;
+    // One bit per row, set while the row exists.
+    private final long[] live;
+    private final int liveCount;
+
+    PropertySnapshot(int size, int[] ids, double[] price, double[] lotSize, double[] squareFootage,
+                     double[] bathrooms, int[] bedrooms, int[] yearBuilt, int[] type, int[] province, int[] city,
+                     Dictionary types, Dictionary provinces, Dictionary cities, long[] live) {
+        this.size = size;
+        this.ids = ids;
+        this.price = price;
+        this.lotSize = lotSize;
+        this.squareFootage = squareFootage;
+        this.bathrooms = bathrooms;
+        this.bedrooms = bedrooms;
+        this.yearBuilt = yearBuilt;
+        this.type = type;
+        this.province = province;
+        this.city = city;
+        this.types = types;
+        this.provinces = provinces;
+        this.cities = cities;
+        this.live = live;
+        int count = 0;
+        for (long word : live) {
+            count += Long.bitCount(word);
+        }
+        this.liveCount = count;
+    }
+
+    /**
+     * @return the number of properties in the snapshot.
+     */
+    public int size() {
+        return liveCount;
+    }
+
+    /**
+     * @return a selection of every property, to be narrowed with its filter methods.
+     */
+    public Selection all() {
+        return new Selection(live.clone());
+    }
+
+    /**
+     * Selects the properties that meet the search criteria, applying each criterion the
+     * way PropertyTableAdapter.searchProperties() does.
+     *
+     * @param criteria the search criteria; criteria that are not set are ignored.
+     * @return the selected properties.
+     */
+    public Selection select(PropertySearchCriteria criteria) {
+        Selection s = all();
+        if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+            s.between(Column.PRICE, orElse(criteria.getMinPrice(), Double.NEGATIVE_INFINITY),
+                    orElse(criteria.getMaxPrice(), Double.POSITIVE_INFINITY));
+        }
+        if (criteria.getMinBedrooms() != null) {
+            s.atLeast(Column.BEDROOMS, criteria.getMinBedrooms());
+        }
+        if (criteria.getMinBathrooms() != null) {
+            s.atLeast(Column.BATHROOMS, criteria.getMinBathrooms());
+        }
+        if (!PropertySearchCriteria.isBlank(criteria.getPropertyType())) {
+            s.is(Category.TYPE, criteria.getPropertyType());
+        }
+        if (!PropertySearchCriteria.isBlank(criteria.getProvince())) {
+            s.is(Category.PROVINCE, criteria.getProvince());
+        }
+        if (!PropertySearchCriteria.isBlank(criteria.getCity())) {
+            s.is(Category.CITY, criteria.getCity());
+        }
+        if (criteria.getMinYearBuilt() != null || criteria.getMaxYearBuilt() != null) {
+            s.between(Column.YEAR_BUILT, orElse(criteria.getMinYearBuilt(), Integer.MIN_VALUE + 1),
+                    orElse(criteria.getMaxYearBuilt(), Integer.MAX_VALUE));
+        }
+        if (criteria.getMinLotSize() != null || criteria.getMaxLotSize() != null) {
+            s.between(Column.LOT_SIZE, orElse(criteria.getMinLotSize(), Double.NEGATIVE_INFINITY),
+                    orElse(criteria.getMaxLotSize(), Double.POSITIVE_INFINITY));
+        }
+        return s;
+    }
+
+    private static double orElse(Number value, double otherwise) {
+        return value == null ? otherwise : value.doubleValue();
+    }
+
+    /**
+     * @return the number of rows, including deleted ones.
+     */
+    int rowCount() {
+        return size;
+    }
+
+    /**
+     * @return the ID of each row, in ascending order.
+     */
+    int[] ids() {
+        return ids;
+    }
+
+    long[] live() {
+        return live;
+    }
+
+    Dictionary dictionary(Category category) {
+        switch (category) {
+            case TYPE:
+                return types;
+            case PROVINCE:
+                return provinces;
+            default:
+                return cities;
+        }
+    }
+
+    private int[] codes(Category category) {
+        switch (category) {
+            case TYPE:
+                return type;
+            case PROVINCE:
+                return province;
+            default:
+                return city;
+        }
+    }
+
+    // Returns the array of a double column, or null for an int column.
+    private double[] doubles(Column column) {
+        switch (column) {
+            case PRICE:
+                return price;
+            case LOT_SIZE:
+                return lotSize;
+            case SQUARE_FOOTAGE:
+                return squareFootage;
+            case BATHROOMS:
+                return bathrooms;
+            default:
+                return null;
+        }
+    }
+
+    // Returns the array of an int column.
+    private int[] ints(Column column) {
+        return column == Column.BEDROOMS ? bedrooms : yearBuilt;
+    }
+
+    /**
+     * A set of rows of the snapshot, as a bitmap. The filter methods narrow the selection
+     * in place and return it, so filters can be chained; the aggregate methods read it.
+     * Rows with a missing value never pass a filter on that column and are left out of
+     * aggregates over it.
+     */
+    public final class Selection {
+        private final long[] bits;
+
+        private Selection(long[] bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * Keeps the rows whose value lies between min and max, inclusive.
+         */
+        public Selection between(Column column, double min, double max) {
+            double[] values = doubles(column);
+            if (values != null) {
+                for (int w = 0; w < bits.length; w++) {
+                    long word = bits[w];
+                    if (word == 0) {
+                        continue;
+                    }
+                    int base = w << 6;
+                    int end = Math.min(64, size - base);
+                    long keep = 0;
+                    for (int b = 0; b < end; b++) {
+                        double v = values[base + b];
+                        // NaN fails both comparisons, so missing values are dropped.
+                        if (v >= min && v <= max) {
+                            keep |= 1L << b;
+                        }
+                    }
+                    bits[w] = word & keep;
+                }
+                return this;
+            }
+            int[] ints = ints(column);
+            // NO_VALUE is the smallest int, so a range that starts above it drops missing values.
+            int low = (int) Math.max(Math.ceil(min), Integer.MIN_VALUE + 1);
+            int high = (int) Math.min(Math.floor(max), Integer.MAX_VALUE);
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                if (word == 0) {
+                    continue;
+                }
+                int base = w << 6;
+                int end = Math.min(64, size - base);
+                long keep = 0;
+                for (int b = 0; b < end; b++) {
+                    int v = ints[base + b];
+                    if (v >= low && v <= high) {
+                        keep |= 1L << b;
+                    }
+                }
+                bits[w] = word & keep;
+            }
+            return this;
+        }
+
+        /**
+         * Keeps the rows whose value is at least min.
+         */
+        public Selection atLeast(Column column, double min) {
+            return between(column, min, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Keeps the rows whose value is at most max.
+         */
+        public Selection atMost(Column column, double max) {
+            return between(column, Double.NEGATIVE_INFINITY, max);
+        }
+
+        /**
+         * Keeps the rows whose text value equals the given value.
+         */
+        public Selection is(Category category, String value) {
+            int code = dictionary(category).code(value);
+            if (code == NO_CODE) {
+                Arrays.fill(bits, 0);
+                return this;
+            }
+            int[] values = codes(category);
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                if (word == 0) {
+                    continue;
+                }
+                int base = w << 6;
+                int end = Math.min(64, size - base);
+                long keep = 0;
+                for (int b = 0; b < end; b++) {
+                    if (values[base + b] == code) {
+                        keep |= 1L << b;
+                    }
+                }
+                bits[w] = word & keep;
+            }
+            return this;
+        }
+
+        /**
+         * @return the number of selected properties.
+         */
+        public int count() {
+            int count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * @return the IDs of the selected properties, in ascending order.
+         */
+        public int[] ids() {
+            int[] result = new int[count()];
+            int n = 0;
+            for (int w = 0; w < bits.length; w++) {
+                for (long word = bits[w]; word != 0; word &= word - 1) {
+                    result[n++] = PropertySnapshot.this.ids[(w << 6) + Long.numberOfTrailingZeros(word)];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return the sum of the column over the selected properties that have a value.
+         */
+        public double sum(Column column) {
+            return aggregate(column)[1];
+        }
+
+        /**
+         * @return the average of the column over the selected properties that have a value,
+         * or NaN if none has.
+         */
+        public double average(Column column) {
+            double[] a = aggregate(column);
+            return a[0] == 0 ? Double.NaN : a[1] / a[0];
+        }
+
+        /**
+         * @return the smallest value of the column among the selected properties, or NaN if none has one.
+         */
+        public double min(Column column) {
+            double[] a = aggregate(column);
+            return a[0] == 0 ? Double.NaN : a[2];
+        }
+
+        /**
+         * @return the largest value of the column among the selected properties, or NaN if none has one.
+         */
+        public double max(Column column) {
+            double[] a = aggregate(column);
+            return a[0] == 0 ? Double.NaN : a[3];
+        }
+
+        /**
+         * Counts the selected properties by text value.
+         *
+         * @return the number of selected properties with each value, in dictionary order;
+         * properties without a value are counted under null.
+         */
+        public Map<String, Integer> countBy(Category category) {
+            Dictionary dictionary = dictionary(category);
+            int[] values = codes(category);
+            int[] counts = new int[dictionary.size() + 1];
+            for (int w = 0; w < bits.length; w++) {
+                for (long word = bits[w]; word != 0; word &= word - 1) {
+                    // Missing values (NO_CODE) are counted in the last slot.
+                    int code = values[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    counts[code == NO_CODE ? dictionary.size() : code]++;
+                }
+            }
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] > 0) {
+                    result.put(code == dictionary.size() ? null : dictionary.value(code), counts[code]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Computes the count, sum, min and max of the non-missing values in one pass.
+         */
+        private double[] aggregate(Column column) {
+            long n = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double[] values = doubles(column);
+            int[] ints = values == null ? ints(column) : null;
+            for (int w = 0; w < bits.length; w++) {
+                for (long word = bits[w]; word != 0; word &= word - 1) {
+                    int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                    double v;
+                    if (values != null) {
+                        v = values[row];
+                        if (Double.isNaN(v)) {
+                            continue;
+                        }
+                    } else {
+                        if (ints[row] == NO_VALUE) {
+                            continue;
+                        }
+                        v = ints[row];
+                    }
+                    n++;
+                    sum += v;
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+            }
+            return new double[]{n, sum, min, max};
+        }
+    }
+}
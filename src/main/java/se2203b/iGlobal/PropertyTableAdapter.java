@@ -5,53 +5,55 @@ import javafx.collections.ObservableList;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * The PropertyTableAdapter class is responsible for handling CRUD operations
  * for the PROPERTY table in the iGlobalDB database. It implements the DataStore
  * interface and provides methods for adding, deleting, and retrieving Property records.
+ * Inserts and deletes are passed on to the PropertyTextIndex, which serves searchText(),
+ * and to the PropertyColumnStore, which keeps the columnar PropertySnapshot.
  */
 public class PropertyTableAdapter implements DataStore {
-    // Connection to the database.
-    private final Connection connection;
+    // SQL insert statement with parameter placeholders.
+    private static final String INSERT_SQL = "INSERT INTO PROPERTY (TYPE, LOTSIZE, SQUAREFOOTAGE, BEDROOMS, " +
+            "BATHROOMS, YEARBUILT, PRICE, PROVINCE, CITY, ADDRESS, POSTALCODE, AMENITIES, DESCRIPTION) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM PROPERTY WHERE ADDRESS = ?";
+    // Keyset page query: the rows that follow the last ID already shown, in ID order.
+    private static final String PAGE_SQL = "SELECT * FROM PROPERTY WHERE ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY";
+    // Search query: searchProperties() fills in the conditions; results are ordered by price, then ID.
+    private static final String SEARCH_SQL = "SELECT * FROM PROPERTY%s ORDER BY PRICE, ID FETCH FIRST ? ROWS ONLY";
+    // Keyset condition for the search pages after the first: the rows after the last (PRICE, ID) shown.
+    // The redundant PRICE >= ? lets Derby start the index scan at the last price instead of filtering.
+    private static final String SEARCH_AFTER = "PRICE >= ? AND (PRICE > ? OR (PRICE = ? AND ID > ?))";
+    // Text search results are fetched by ID this many at a time; shorter lists are padded so the
+    // statement text, and with it the cached statement, stays the same.
+    private static final int ID_CHUNK = 50;
+
+    private static final Logger LOG = Logger.getLogger(PropertyTableAdapter.class.getName());
 
     /**
      * Constructor for PropertyTableAdapter.
+     * Connections are borrowed from the shared ConnectionPool for each operation.
      *
-     * @param conn  A live Connection object to the iGlobalDB database.
      * @param reset If true, the PROPERTY table will be dropped (if it exists)
-     *              and recreated.
+     *              and recreated through the SchemaMigrator.
      * @throws SQLException if a database access error occurs.
      */
-    public PropertyTableAdapter(Connection conn, Boolean reset) throws SQLException {
-        this.connection = conn;
+    public PropertyTableAdapter(Boolean reset) throws SQLException {
         if (reset) {
-            // Create a Statement to execute SQL commands.
-            Statement stmt = connection.createStatement();
-            try {
-                // Attempt to drop the PROPERTY table if it exists.
-                stmt.execute("DROP TABLE PROPERTY");
-            } catch (SQLException ex) {
-                // Ignore the error if the table does not exist.
-            }
-            // Create the PROPERTY table with columns for various property attributes.
-            stmt.execute("CREATE TABLE PROPERTY (" +
-                    "ID INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1), " +
-                    "TYPE VARCHAR(50), " +
-                    "LOTSIZE DOUBLE, " +
-                    "SQUAREFOOTAGE DOUBLE, " +
-                    "BEDROOMS INT, " +
-                    "BATHROOMS DOUBLE, " +
-                    "YEARBUILT INT, " +
-                    "PRICE DOUBLE, " +
-                    "PROVINCE VARCHAR(20), " +
-                    "CITY VARCHAR(50), " +
-                    "ADDRESS VARCHAR(100), " +
-                    "POSTALCODE VARCHAR(20), " +
-                    "AMENITIES VARCHAR(200), " +
-                    "DESCRIPTION VARCHAR(500))"
-            );
+            // The migrations recreate the table with its keys, search indexes and market summary triggers.
+            SchemaMigrator.reset("PROPERTY");
+            // IDs start again at 1, so neither the text index nor the column store can catch up
+            // from the highest ID they have seen.
+            PropertyTextIndex.getInstance().invalidate();
+            PropertyColumnStore.getInstance().invalidate();
         }
     }
 
@@ -64,30 +66,47 @@ public class PropertyTableAdapter implements DataStore {
     @Override
     public void addNewRecord(Object data) throws SQLException {
         // Validate that the data is a Property object.
-        if (!(data instanceof Property))
-            throw new IllegalArgumentException("Invalid type");
-        Property p = (Property) data;
-
-        // SQL insert statement with parameter placeholders.
-        String insert = "INSERT INTO PROPERTY (TYPE, LOTSIZE, SQUAREFOOTAGE, BEDROOMS, BATHROOMS, YEARBUILT, PRICE, " +
-                "PROVINCE, CITY, ADDRESS, POSTALCODE, AMENITIES, DESCRIPTION) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Property p = toProperty(data);
         // Prepare the statement and set parameters based on the Property object.
-        PreparedStatement ps = connection.prepareStatement(insert);
-        ps.setString(1, p.getPropertyType());
-        ps.setDouble(2, p.getLotSize());
-        ps.setDouble(3, p.getSquareFootage());
-        ps.setInt(4, p.getBedrooms());
-        ps.setDouble(5, p.getBathrooms());
-        ps.setInt(6, p.getYearBuilt());
-        ps.setDouble(7, p.getPrice());
-        ps.setString(8, p.getProvince());
-        ps.setString(9, p.getCity());
-        ps.setString(10, p.getAddress());
-        ps.setString(11, p.getPostalCode());
-        ps.setString(12, p.getAmenities());
-        ps.setString(13, p.getDescription());
-        // Execute the insertion.
-        ps.executeUpdate();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            bindInsert(ps, p);
+            // Execute the insertion.
+            ps.executeUpdate();
+        }
+        indexInsertedRows();
+    }
+
+    /**
+     * Inserts many Property records as JDBC batches in a single transaction.
+     *
+     * @param data a list of Property objects.
+     * @throws SQLException if a database access error occurs; no record is inserted.
+     */
+    @Override
+    public void addRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(INSERT_SQL, data, (ps, record) -> bindInsert(ps, toProperty(record)));
+        indexInsertedRows();
+    }
+
+    /**
+     * Inserts one chunk of imported records as JDBC batches in a single transaction.
+     * Unlike addRecordList(), the in-memory indexes are not told about the new rows;
+     * the importer calls importFinished() once after the last chunk instead of after each one.
+     *
+     * @param records the records to insert.
+     * @return the number of rows inserted.
+     * @throws SQLException if a database access error occurs; no record of the chunk is inserted.
+     */
+    public int importRecordList(List<Property> records) throws SQLException {
+        return BatchWriter.execute(INSERT_SQL, records, PropertyTableAdapter::bindInsert);
+    }
+
+    /**
+     * Brings the in-memory indexes up to date after records were added with importRecordList().
+     */
+    public void importFinished() {
+        indexInsertedRows();
     }
 
     /**
@@ -114,15 +133,17 @@ public class PropertyTableAdapter implements DataStore {
     public Object findOneRecord(String key) throws SQLException {
         // SQL query to find a property by its address.
         String sql = "SELECT * FROM PROPERTY WHERE ADDRESS = ?";
-        PreparedStatement ps = connection.prepareStatement(sql);
-        ps.setString(1, key);
-        ResultSet rs = ps.executeQuery();
-
-        // If a matching record is found, populate a Property object.
-        if (rs.next()) {
-            Property p = new Property();
-            populateFromResult(p, rs);
-            return p;
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                // If a matching record is found, populate a Property object.
+                if (rs.next()) {
+                    Property p = new Property();
+                    populateFromResult(p, rs);
+                    return p;
+                }
+            }
         }
         // If no record is found, return null.
         return null;
@@ -156,6 +177,23 @@ public class PropertyTableAdapter implements DataStore {
         deletePropertyByAddress(p.getAddress());
     }
 
+    /**
+     * Deletes many Property records, matched by address, in a single transaction.
+     *
+     * @param data a list of Property objects to delete.
+     * @throws SQLException if a database access error occurs; no record is deleted.
+     */
+    @Override
+    public void deleteRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(DELETE_SQL, data, (ps, record) -> ps.setString(1, toProperty(record).getAddress()));
+        List<String> addresses = new ArrayList<>();
+        for (Object record : data) {
+            addresses.add(toProperty(record).getAddress());
+        }
+        PropertyTextIndex.getInstance().addressesDeleted(addresses);
+        PropertyColumnStore.getInstance().rowsDeleted();
+    }
+
     /**
      * Not implemented: Deletes records based on a referenced object.
      *
@@ -176,12 +214,13 @@ public class PropertyTableAdapter implements DataStore {
     @Override
     public List<String> getKeys() throws SQLException {
         List<String> keys = new ArrayList<>();
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery("SELECT ADDRESS FROM PROPERTY");
-
-        // Add each address to the list.
-        while (rs.next())
-            keys.add(rs.getString("ADDRESS"));
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT ADDRESS FROM PROPERTY");
+             ResultSet rs = ps.executeQuery()) {
+            // Add each address to the list.
+            while (rs.next())
+                keys.add(rs.getString("ADDRESS"));
+        }
         return keys;
     }
 
@@ -194,16 +233,16 @@ public class PropertyTableAdapter implements DataStore {
     @Override
     public List<Object> getAllRecords() throws SQLException {
         List<Object> result = new ArrayList<>();
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery("SELECT * FROM PROPERTY");
-
-        // For each record in the result set, create a Property object and populate it.
-        while (rs.next()) {
-            Property p = new Property();
-            populateFromResult(p, rs);
-            result.add(p);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT * FROM PROPERTY");
+             ResultSet rs = ps.executeQuery()) {
+            // For each record in the result set, create a Property object and populate it.
+            while (rs.next()) {
+                Property p = new Property();
+                populateFromResult(p, rs);
+                result.add(p);
+            }
         }
-
         return result;
     }
 
@@ -219,6 +258,18 @@ public class PropertyTableAdapter implements DataStore {
         throw new UnsupportedOperationException("getAllRecords(Object) not implemented.");
     }
 
+    /**
+     * Streams all Property records from a forward-only cursor without loading the whole table.
+     *
+     * @param fetchSize The number of rows fetched from Derby per round trip.
+     * @return A Stream of Property objects; it must be closed to release its connection.
+     * @throws SQLException if a database access error occurs.
+     */
+    @Override
+    public Stream<Object> streamAllRecords(int fetchSize) throws SQLException {
+        return RecordStream.open("SELECT * FROM PROPERTY", fetchSize, this::readProperty);
+    }
+
     /**
      * Retrieves all Property records as an ObservableList (useful for TableView).
      *
@@ -227,19 +278,166 @@ public class PropertyTableAdapter implements DataStore {
      */
     public ObservableList<Property> getAllProperties() throws SQLException {
         ObservableList<Property> list = FXCollections.observableArrayList();
-        Statement stmt = connection.createStatement();
-        ResultSet rs = stmt.executeQuery("SELECT * FROM PROPERTY");
-
-        // Populate the ObservableList with Property objects.
-        while (rs.next()) {
-            Property p = new Property();
-            populateFromResult(p, rs);
-            list.add(p);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT * FROM PROPERTY");
+             ResultSet rs = ps.executeQuery()) {
+            // Populate the ObservableList with Property objects.
+            while (rs.next()) {
+                Property p = new Property();
+                populateFromResult(p, rs);
+                list.add(p);
+            }
         }
-
         return list;
     }
 
+    /**
+     * Retrieves one page of Property records using keyset pagination.
+     * Pages are ordered by ID; pass 0 for the first page and the ID of the last
+     * record already received for every following page. Unlike OFFSET paging, the
+     * cost of a page does not grow with how far the user has scrolled.
+     *
+     * @param afterId  The ID of the last record on the previous page, or 0 for the first page.
+     * @param pageSize The maximum number of records to return.
+     * @return A List of at most pageSize Property objects; fewer means the last page was reached.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<Property> getPropertiesAfter(int afterId, int pageSize) throws SQLException {
+        List<Property> page = new ArrayList<>(pageSize);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(PAGE_SQL)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    page.add(readProperty(rs));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Retrieves one page of the Property records that match the search criteria.
+     * The criteria that are set are compiled into a single parameterized query.
+     *
+     * Results are ordered by price, then ID, and paged with a keyset on (PRICE, ID). The
+     * composite indexes on (PROVINCE, CITY, PRICE, ID), (PROVINCE, PRICE, ID),
+     * (TYPE, PRICE, ID) and (PRICE, ID) return the rows in that order, so Derby can stop
+     * after one page instead of sorting every match. Records without a price are not
+     * returned by a search.
+     *
+     * @param criteria The search criteria; criteria that are not set are ignored.
+     * @param after    The last record of the previous page, or null for the first page.
+     * @param pageSize The maximum number of records to return.
+     * @return A List of at most pageSize matching Property objects; fewer means the last page was reached.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<Property> searchProperties(PropertySearchCriteria criteria, Property after, int pageSize)
+            throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        if (after != null) {
+            conditions.add(SEARCH_AFTER);
+            values.add(after.getPrice());
+            values.add(after.getPrice());
+            values.add(after.getPrice());
+            values.add(after.getId());
+        }
+        addCriteria(criteria, conditions, values);
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+
+        List<Property> page = new ArrayList<>(pageSize);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(String.format(SEARCH_SQL, where))) {
+            int index = 1;
+            for (Object value : values) {
+                ps.setObject(index++, value);
+            }
+            ps.setInt(index, pageSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    page.add(readProperty(rs));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Retrieves the properties whose description, amenities or address best match the
+     * keywords, ranked by the PropertyTextIndex and narrowed by the search criteria.
+     *
+     * @param keywords The words to look for, for example "waterfront garage renovated".
+     * @param criteria The search criteria the results must also meet; criteria that are not set are ignored,
+     *                 and null is the same as empty criteria.
+     * @param limit    The maximum number of records to return.
+     * @return The matching Property objects, best match first.
+     * @throws SQLException if a database access error occurs.
+     */
+    public List<Property> searchText(String keywords, PropertySearchCriteria criteria, int limit)
+            throws SQLException {
+        if (criteria == null) {
+            criteria = new PropertySearchCriteria();
+        }
+        List<String> conditions = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        addCriteria(criteria, conditions, values);
+        StringBuilder sql = new StringBuilder("SELECT * FROM PROPERTY WHERE ID IN (?");
+        sql.append(", ?".repeat(ID_CHUNK - 1)).append(')');
+        for (String condition : conditions) {
+            sql.append(" AND ").append(condition);
+        }
+
+        // Without criteria every hit qualifies, so only the best limit hits are needed.
+        int candidates = criteria.isEmpty() ? limit : Integer.MAX_VALUE;
+        List<PropertyTextIndex.Hit> hits = PropertyTextIndex.getInstance().search(keywords, candidates);
+        List<Property> results = new ArrayList<>(Math.min(limit, hits.size()));
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            // Fetch the hits in rank order until enough of them also meet the criteria.
+            for (int from = 0; from < hits.size() && results.size() < limit; from += ID_CHUNK) {
+                List<PropertyTextIndex.Hit> chunk = hits.subList(from, Math.min(from + ID_CHUNK, hits.size()));
+                for (int i = 0; i < ID_CHUNK; i++) {
+                    ps.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)).getId());
+                }
+                int index = ID_CHUNK + 1;
+                for (Object value : values) {
+                    ps.setObject(index++, value);
+                }
+                Map<Integer, Property> found = new HashMap<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Property p = readProperty(rs);
+                        found.put(p.getId(), p);
+                    }
+                }
+                for (PropertyTextIndex.Hit hit : chunk) {
+                    Property p = found.get(hit.getId());
+                    if (p != null && results.size() < limit) {
+                        results.add(p);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Adds the criteria that are set as conditions on the PROPERTY columns.
+     */
+    private static void addCriteria(PropertySearchCriteria criteria, List<String> conditions, List<Object> values) {
+        addCondition(conditions, values, "TYPE = ?", blankToNull(criteria.getPropertyType()));
+        addCondition(conditions, values, "PROVINCE = ?", blankToNull(criteria.getProvince()));
+        addCondition(conditions, values, "CITY = ?", blankToNull(criteria.getCity()));
+        addCondition(conditions, values, "PRICE >= ?", criteria.getMinPrice());
+        addCondition(conditions, values, "PRICE <= ?", criteria.getMaxPrice());
+        addCondition(conditions, values, "BEDROOMS >= ?", criteria.getMinBedrooms());
+        addCondition(conditions, values, "BATHROOMS >= ?", criteria.getMinBathrooms());
+        addCondition(conditions, values, "YEARBUILT >= ?", criteria.getMinYearBuilt());
+        addCondition(conditions, values, "YEARBUILT <= ?", criteria.getMaxYearBuilt());
+        addCondition(conditions, values, "LOTSIZE >= ?", criteria.getMinLotSize());
+        addCondition(conditions, values, "LOTSIZE <= ?", criteria.getMaxLotSize());
+    }
+
     /**
      * Deletes a Property record based on its address.
      *
@@ -247,9 +445,87 @@ public class PropertyTableAdapter implements DataStore {
      * @throws SQLException if a database access error occurs.
      */
     public void deletePropertyByAddress(String address) throws SQLException {
-        PreparedStatement ps = connection.prepareStatement("DELETE FROM PROPERTY WHERE ADDRESS = ?");
-        ps.setString(1, address);
-        ps.executeUpdate();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_SQL)) {
+            ps.setString(1, address);
+            ps.executeUpdate();
+        }
+        PropertyTextIndex.getInstance().addressesDeleted(List.of(address));
+        PropertyColumnStore.getInstance().rowsDeleted();
+    }
+
+    /**
+     * Tells the in-memory indexes about rows that have just been inserted. The rows are
+     * committed by now, so a failure to index them does not fail the insert: the text
+     * index is dropped instead and built again on the next search.
+     */
+    private static void indexInsertedRows() {
+        try {
+            PropertyTextIndex.getInstance().rowsInserted();
+        } catch (SQLException | RuntimeException e) {
+            LOG.log(Level.WARNING, "New properties could not be added to the text index; it will be rebuilt", e);
+            PropertyTextIndex.getInstance().invalidate();
+        }
+        PropertyColumnStore.getInstance().rowsInserted();
+    }
+
+    /**
+     * Checks that a record passed in through the DataStore interface is a Property.
+     */
+    private static Property toProperty(Object data) {
+        if (!(data instanceof Property))
+            throw new IllegalArgumentException("Invalid type");
+        return (Property) data;
+    }
+
+    /**
+     * Helper method to append one search condition and its value, if the value is set.
+     * Only fixed column conditions are appended; values are always bound as parameters.
+     */
+    private static void addCondition(List<String> conditions, List<Object> values, String condition, Object value) {
+        if (value != null) {
+            conditions.add(condition);
+            values.add(value);
+        }
+    }
+
+    /**
+     * Treats a blank text criterion as not set.
+     */
+    private static String blankToNull(String value) {
+        return PropertySearchCriteria.isBlank(value) ? null : value;
+    }
+
+    /**
+     * Helper method to set the INSERT parameters from a Property object.
+     *
+     * @param ps The statement prepared from INSERT_SQL.
+     * @param p  The Property object supplying the values.
+     * @throws SQLException if a database access error occurs.
+     */
+    private static void bindInsert(PreparedStatement ps, Property p) throws SQLException {
+        ps.setString(1, p.getPropertyType());
+        ps.setDouble(2, p.getLotSize());
+        ps.setDouble(3, p.getSquareFootage());
+        ps.setInt(4, p.getBedrooms());
+        ps.setDouble(5, p.getBathrooms());
+        ps.setInt(6, p.getYearBuilt());
+        ps.setDouble(7, p.getPrice());
+        ps.setString(8, p.getProvince());
+        ps.setString(9, p.getCity());
+        ps.setString(10, p.getAddress());
+        ps.setString(11, p.getPostalCode());
+        ps.setString(12, p.getAmenities());
+        ps.setString(13, p.getDescription());
+    }
+
+    /**
+     * Helper method to build a new Property object from the current row of a ResultSet.
+     */
+    private Property readProperty(ResultSet rs) throws SQLException {
+        Property p = new Property();
+        populateFromResult(p, rs);
+        return p;
     }
 
     /**
@@ -260,6 +536,7 @@ public class PropertyTableAdapter implements DataStore {
      * @throws SQLException if a database access error occurs.
      */
     private void populateFromResult(Property p, ResultSet rs) throws SQLException {
+        p.setId(rs.getInt("ID"));
         p.setPropertyType(rs.getString("TYPE"));
         p.setLotSize(rs.getDouble("LOTSIZE"));
         p.setSquareFootage(rs.getDouble("SQUAREFOOTAGE"));
@@ -0,0 +1,522 @@
+package se2203b.iGlobal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * The PropertyTextIndex class is an in-memory inverted index over the description,
+ * amenities and address of every property, ranked with BM25.
+ *
+ * Each text is split into stemmed terms by the TextAnalyzer. For every term the index
+ * keeps a postings list of the property IDs that contain it and how often. A query is
+ * analyzed the same way and every property containing at least one query term is scored
+ * with Okapi BM25, so rare terms and short texts that repeat a term rank higher.
+ *
+ * The index is opened on first use. It is read from the file named by the
+ * iglobal.textIndexFile system property (iGlobalTextIndex.dat by default) and is only
+ * rebuilt from the PROPERTY table when the file is missing or no longer matches the
+ * table. PropertyTableAdapter keeps it current as rows are inserted and deleted. Every
+ * change schedules a save a few seconds later on a background thread, so a few changes
+ * in a row are written once and a crash loses at most the last few seconds; the
+ * application also calls save() when it exits. A file that missed some changes is
+ * still caught by the check against the table when it is next opened.
+ *
+ * If the index cannot be updated, invalidate() drops it and its file, and the next
+ * search builds it again from the table.
+ */
+public final class PropertyTextIndex {
+    private static final PropertyTextIndex INSTANCE = new PropertyTextIndex();
+
+    // BM25 parameters: term frequency saturation and document length normalization.
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // File format marker and version.
+    private static final int MAGIC = 0x49475449;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String TEXT_SQL = "SELECT ID, ADDRESS, AMENITIES, DESCRIPTION FROM PROPERTY";
+    // Delay between a change and the save it schedules.
+    private static final long SAVE_DELAY_SECONDS = 5;
+
+    private static final Logger LOG = Logger.getLogger(PropertyTextIndex.class.getName());
+
+    private final Path file = Paths.get(System.getProperty("iglobal.textIndexFile", "iGlobalTextIndex.dat"));
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Writes the index in the background after it changes.
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "text-index-save");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // term -> postings list
+    private final Map<String, Postings> postings = new HashMap<>();
+    // property ID -> number of terms in its text
+    private final Map<Integer, Integer> docLengths = new HashMap<>();
+    // address -> IDs of the properties at that address, for deletes by address
+    private final Map<String, Set<Integer>> idsByAddress = new HashMap<>();
+    private long totalLength;
+    // Highest property ID that has been indexed.
+    private int highWaterMark;
+    private volatile boolean open;
+    // Number of changes made to the index, and how many of them the file holds.
+    private long changes;
+    private long savedChanges;
+    // Set while a background save is waiting to run, guarded by this.
+    private boolean saveScheduled;
+
+    /**
+     * One ranked search result.
+     */
+    public static final class Hit {
+        private final int id;
+        private final double score;
+
+        private Hit(int id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * The IDs of the properties that contain one term, in ascending ID order,
+     * with the number of times the term occurs in each.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int[] counts = new int[4];
+        private int size;
+
+        private void put(int id, int count) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                counts[at] = count;
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            // IDs are assigned in increasing order, so this is nearly always an append.
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            System.arraycopy(counts, at, counts, at + 1, size - at);
+            ids[at] = id;
+            counts[at] = count;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            System.arraycopy(counts, at + 1, counts, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+
+    private PropertyTextIndex() {
+    }
+
+    /**
+     * @return the shared index instance.
+     */
+    public static PropertyTextIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ranks the properties against a free-text query.
+     *
+     * @param query the words to look for, for example "waterfront garage renovated".
+     * @param limit the maximum number of results.
+     * @return the matching property IDs with their scores, best first.
+     * @throws SQLException if the index has to be built and a database error occurs.
+     */
+    public List<Hit> search(String query, int limit) throws SQLException {
+        open();
+        lock.readLock().lock();
+        try {
+            int documents = docLengths.size();
+            if (documents == 0 || limit < 1) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalLength / documents;
+            Map<Integer, Double> scores = new HashMap<>();
+            // Repeating a word in the query does not count it twice.
+            for (String term : new LinkedHashSet<>(TextAnalyzer.analyze(query))) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documents - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int id = list.ids[i];
+                    double tf = list.counts[i];
+                    double norm = K1 * (1 - B + B * docLengths.get(id) / averageLength);
+                    scores.merge(id, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+            // Keep the best results in a min-heap of the limit's size.
+            PriorityQueue<Hit> best = new PriorityQueue<>(
+                    (a, b) -> a.score != b.score ? Double.compare(a.score, b.score) : Integer.compare(b.id, a.id));
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                best.add(new Hit(entry.getKey(), entry.getValue()));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(best.comparator().reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of properties in the index.
+     * @throws SQLException if the index has to be built and a database error occurs.
+     */
+    public int size() throws SQLException {
+        open();
+        lock.readLock().lock();
+        try {
+            return docLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the rows inserted since the last call.
+     * Called by PropertyTableAdapter after every insert; does nothing until the index is open,
+     * because opening it picks up new rows anyway.
+     *
+     * @throws SQLException if a database access error occurs.
+     */
+    public void rowsInserted() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                catchUp();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Removes the properties at the given addresses from the index.
+     * Called by PropertyTableAdapter after rows have been deleted by address.
+     *
+     * @param addresses the addresses of the deleted properties.
+     */
+    public void addressesDeleted(Collection<String> addresses) {
+        lock.writeLock().lock();
+        try {
+            if (!open) {
+                return;
+            }
+            for (String address : addresses) {
+                Set<Integer> ids = idsByAddress.remove(address);
+                if (ids != null) {
+                    for (int id : ids) {
+                        removeDocument(id);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Drops the index and its file, for when it may have missed a change to the table.
+     * The next search builds it again from the PROPERTY table.
+     */
+    public void invalidate() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            open = false;
+            changes = 0;
+            savedChanges = 0;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // The file no longer matches the table, so the next open rebuilds the index anyway.
+                LOG.log(Level.WARNING, "Property text index file could not be deleted", e);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index to its file if it has changed since it was opened or last saved.
+     * The file is written next to its final name and then moved over it, so a crash
+     * never leaves a half-written index behind. Searches go on while the file is written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public synchronized void save() throws IOException {
+        lock.readLock().lock();
+        long written;
+        try {
+            if (!open || changes == savedChanges) {
+                return;
+            }
+            written = changes;
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            // An invalidate() meanwhile has deleted the file and reset the count.
+            if (open) {
+                savedChanges = Math.max(savedChanges, written);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves the index a few seconds from now, unless a save is already waiting.
+     */
+    private synchronized void scheduleSave() {
+        if (saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        saver.schedule(() -> {
+            synchronized (this) {
+                saveScheduled = false;
+            }
+            try {
+                save();
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Property text index could not be saved", e);
+            }
+        }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Loads or builds the index on first use.
+     */
+    private void open() throws SQLException {
+        if (open) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                return;
+            }
+            if (!load() || !matchesTable()) {
+                clear();
+                changes++;
+            }
+            catchUp();
+            open = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleSave();
+    }
+
+    /**
+     * Reads the index file.
+     *
+     * @return false if there is no usable file; the index is then rebuilt from the table.
+     */
+    private boolean load() {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            read(in);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // A damaged or outdated file is simply replaced on the next save.
+            clear();
+            return false;
+        }
+    }
+
+    /**
+     * Checks that the loaded index holds exactly the rows the table has up to the
+     * high-water mark, so no delete was missed while the index was not running.
+     */
+    private boolean matchesTable() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM PROPERTY WHERE ID <= ?")) {
+            ps.setInt(1, highWaterMark);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == docLengths.size();
+            }
+        }
+    }
+
+    /**
+     * Indexes every row above the high-water mark.
+     */
+    private void catchUp() throws SQLException {
+        try (Stream<Object[]> rows = RecordStream.open(TEXT_SQL + " WHERE ID > ? ORDER BY ID",
+                RecordStream.getFetchSize(), ps -> ps.setInt(1, highWaterMark),
+                rs -> new Object[]{rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4)})) {
+            rows.forEach(row -> addDocument((Integer) row[0], (String) row[1], (String) row[2], (String) row[3]));
+        }
+    }
+
+    private void addDocument(int id, String address, String amenities, String description) {
+        if (docLengths.containsKey(id)) {
+            removeDocument(id);
+        }
+        List<String> terms = new ArrayList<>(TextAnalyzer.analyze(description));
+        terms.addAll(TextAnalyzer.analyze(amenities));
+        terms.addAll(TextAnalyzer.analyze(address));
+        Map<String, Integer> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.merge(term, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new Postings()).put(id, entry.getValue());
+        }
+        docLengths.put(id, terms.size());
+        totalLength += terms.size();
+        if (address != null) {
+            idsByAddress.computeIfAbsent(address, key -> new LinkedHashSet<>()).add(id);
+        }
+        highWaterMark = Math.max(highWaterMark, id);
+        changes++;
+    }
+
+    private void removeDocument(int id) {
+        Integer length = docLengths.remove(id);
+        if (length == null) {
+            return;
+        }
+        totalLength -= length;
+        // Deletes are rare, so the postings lists are searched instead of keeping each document's terms.
+        postings.values().removeIf(list -> list.remove(id) && list.size == 0);
+        changes++;
+    }
+
+    private void clear() {
+        postings.clear();
+        docLengths.clear();
+        idsByAddress.clear();
+        totalLength = 0;
+        highWaterMark = 0;
+    }
+
+    /**
+     * File layout: header, documents (ID, length, address), then terms with their postings.
+     */
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(highWaterMark);
+        Map<Integer, String> addresses = new HashMap<>();
+        idsByAddress.forEach((address, ids) -> ids.forEach(id -> addresses.put(id, address)));
+        out.writeInt(docLengths.size());
+        for (Map.Entry<Integer, Integer> doc : docLengths.entrySet()) {
+            out.writeInt(doc.getKey());
+            out.writeInt(doc.getValue());
+            String address = addresses.get(doc.getKey());
+            out.writeBoolean(address != null);
+            if (address != null) {
+                out.writeUTF(address);
+            }
+        }
+        out.writeInt(postings.size());
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            Postings list = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeInt(list.size);
+            for (int i = 0; i < list.size; i++) {
+                out.writeInt(list.ids[i]);
+                out.writeInt(list.counts[i]);
+            }
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a property text index file");
+        }
+        highWaterMark = in.readInt();
+        int documents = in.readInt();
+        for (int i = 0; i < documents; i++) {
+            int id = in.readInt();
+            int length = in.readInt();
+            docLengths.put(id, length);
+            totalLength += length;
+            if (in.readBoolean()) {
+                idsByAddress.computeIfAbsent(in.readUTF(), key -> new LinkedHashSet<>()).add(id);
+            }
+        }
+        int terms = in.readInt();
+        for (int i = 0; i < terms; i++) {
+            String term = in.readUTF();
+            Postings list = new Postings();
+            list.size = in.readInt();
+            list.ids = new int[Math.max(list.size, 4)];
+            list.counts = new int[list.ids.length];
+            for (int j = 0; j < list.size; j++) {
+                list.ids[j] = in.readInt();
+                list.counts[j] = in.readInt();
+            }
+            postings.put(term, list);
+        }
+    }
+}
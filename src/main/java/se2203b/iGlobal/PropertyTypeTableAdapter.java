@@ -8,50 +8,28 @@ import java.util.List;
  * The PropertyTypeTableAdapter class manages the persistence of PropertyType
  * entities in the iGlobal database. It implements the DataStore interface and
  * provides methods to create, read, update, and delete records from the PropertyType table.
+ * Every write invalidates the ReferenceDataCache, which holds the property type names.
  */
 public class PropertyTypeTableAdapter implements DataStore {
-
-    // Database connection URL for the iGlobalDB Derby database.
-    private String DB_URL = "jdbc:derby:iGlobalDB";
-
-    // Connection object used for database operations.
-    private Connection connection;
+    private static final String INSERT_SQL = "INSERT INTO PropertyType (typeCode, typeName) VALUES (?, ?)";
+    private static final String UPDATE_SQL = "UPDATE PropertyType SET typeCode = ?, typeName = ? WHERE typeCode = ?";
+    private static final String DELETE_SQL = "DELETE FROM PropertyType WHERE typeCode = ?";
 
     /**
      * Constructor for the PropertyTypeTableAdapter.
-     * Establishes a connection to the database and, if reset is true, drops the existing
-     * PropertyType table and creates a new one.
+     * If reset is true, drops the existing PropertyType table and recreates it through
+     * SchemaMigrator.reset(); otherwise the table is left to SchemaMigrator.bootstrap() and nothing is run.
      *
      * @param reset if true, the existing PropertyType table is dropped and recreated.
      * @throws SQLException if a database access error occurs.
      */
     public PropertyTypeTableAdapter(Boolean reset) throws SQLException {
-        // Open a connection to the database.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-
-        // If reset flag is true, drop the existing table.
         if (reset) {
-            try {
-                stmt.execute("DROP TABLE PropertyType");
-            } catch (SQLException ex) {
-                // If the table does not exist, ignore the exception.
-            }
-        }
-
-        // Attempt to create the PropertyType table.
-        try {
-            String command = "CREATE TABLE PropertyType (" +
-                    "typeCode VARCHAR(9) NOT NULL PRIMARY KEY, " +
-                    "typeName VARCHAR(50)" +
-                    ")";
-            stmt.execute(command);
-        } catch (SQLException ex) {
-            // If the table already exists, ignore the exception.
+            // The migrations recreate the table with its primary key.
+            SchemaMigrator.reset("PROPERTYTYPE");
+            // The cached lookup data described the old table.
+            ReferenceDataCache.getInstance().invalidate();
         }
-
-        // Close the connection after table creation.
-        connection.close();
     }
 
     /**
@@ -64,22 +42,28 @@ public class PropertyTypeTableAdapter implements DataStore {
     public void addNewRecord(Object data) throws SQLException {
         // Cast the object to a PropertyType.
         PropertyType propertyType = (PropertyType) data;
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        try {
-            // Build and execute the INSERT SQL statement.
-            String command = "INSERT INTO PropertyType (typeCode, typeName) VALUES ('" +
-                    propertyType.getTypeCode() + "', '" +
-                    propertyType.getTypeName() + "')";
-            stmt.executeUpdate(command);
+        // Execute the INSERT SQL statement.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            bindInsert(ps, propertyType);
+            ps.executeUpdate();
         } catch (SQLException e) {
             // Wrap and re-throw the exception as a runtime exception.
             throw new RuntimeException(e);
-        } finally {
-            // Ensure the connection is closed.
-            connection.close();
         }
+        ReferenceDataCache.getInstance().invalidate();
+    }
+
+    /**
+     * Adds many PropertyType records as JDBC batches in a single transaction.
+     *
+     * @param data a list of PropertyType objects.
+     * @throws SQLException if a database access error occurs; no record is added.
+     */
+    @Override
+    public void addRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(INSERT_SQL, data, (ps, record) -> bindInsert(ps, (PropertyType) record));
+        ReferenceDataCache.getInstance().invalidate();
     }
 
     /**
@@ -92,16 +76,25 @@ public class PropertyTypeTableAdapter implements DataStore {
     public void updateRecord(Object data) throws SQLException {
         // Cast the object to a PropertyType.
         PropertyType propertyType = (PropertyType) data;
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // Build the UPDATE SQL command using the typeCode as the key.
-        String command = "UPDATE PropertyType SET typeCode = '" + propertyType.getTypeCode() + "', " +
-                "typeName = '" + propertyType.getTypeName() + "' " +
-                "WHERE typeCode = '" + propertyType.getTypeCode() + "'";
-        stmt.executeUpdate(command);
-        // Close the connection.
-        connection.close();
+        // Borrow a connection from the pool and run the update, using the typeCode as the key.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(UPDATE_SQL)) {
+            bindUpdate(ps, propertyType);
+            ps.executeUpdate();
+        }
+        ReferenceDataCache.getInstance().invalidate();
+    }
+
+    /**
+     * Updates many PropertyType records as JDBC batches in a single transaction.
+     *
+     * @param data a list of PropertyType objects.
+     * @throws SQLException if a database access error occurs; no record is updated.
+     */
+    @Override
+    public void updateRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(UPDATE_SQL, data, (ps, record) -> bindUpdate(ps, (PropertyType) record));
+        ReferenceDataCache.getInstance().invalidate();
     }
 
     /**
@@ -114,12 +107,26 @@ public class PropertyTypeTableAdapter implements DataStore {
     public void deleteOneRecord(Object data) throws SQLException {
         // Cast the object to a PropertyType.
         PropertyType propertyType = (PropertyType) data;
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // Execute the DELETE SQL command using the typeCode.
-        stmt.executeUpdate("DELETE FROM PropertyType WHERE typeCode = '" + propertyType.getTypeCode() + "'");
-        connection.close();
+        // Borrow a connection from the pool.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_SQL)) {
+            // Execute the DELETE SQL command using the typeCode.
+            ps.setString(1, propertyType.getTypeCode());
+            ps.executeUpdate();
+        }
+        ReferenceDataCache.getInstance().invalidate();
+    }
+
+    /**
+     * Deletes many PropertyType records in a single transaction.
+     *
+     * @param data a list of PropertyType objects.
+     * @throws SQLException if a database access error occurs; no record is deleted.
+     */
+    @Override
+    public void deleteRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(DELETE_SQL, data, (ps, record) -> ps.setString(1, ((PropertyType) record).getTypeCode()));
+        ReferenceDataCache.getInstance().invalidate();
     }
 
     /**
@@ -143,18 +150,16 @@ public class PropertyTypeTableAdapter implements DataStore {
     public List<String> getKeys() throws SQLException {
         // Create a list to store the keys.
         List<String> list = new ArrayList<>();
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
         // Execute a SELECT query to retrieve all type names.
         String command = "SELECT typeName FROM PropertyType";
-        ResultSet rs = stmt.executeQuery(command);
-        // Iterate through the result set and add each typeName to the list.
-        while (rs.next()) {
-            list.add(rs.getString(1));
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(command);
+             ResultSet rs = ps.executeQuery()) {
+            // Iterate through the result set and add each typeName to the list.
+            while (rs.next()) {
+                list.add(rs.getString(1));
+            }
         }
-        // Close the connection.
-        connection.close();
         return list;
     }
 
@@ -169,18 +174,19 @@ public class PropertyTypeTableAdapter implements DataStore {
     public Object findOneRecord(String key) throws SQLException {
         // Create a new PropertyType object.
         PropertyType propertyType = new PropertyType();
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
         // Execute a SELECT query for the given typeCode.
-        String command = "SELECT * FROM PropertyType WHERE typeCode = '" + key + "'";
-        ResultSet rs = stmt.executeQuery(command);
-        // If a matching record is found, populate the PropertyType object.
-        while (rs.next()) {
-            propertyType.setTypeCode(rs.getString("typeCode"));
-            propertyType.setTypeName(rs.getString("typeName"));
+        String command = "SELECT * FROM PropertyType WHERE typeCode = ?";
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(command)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                // If a matching record is found, populate the PropertyType object.
+                while (rs.next()) {
+                    propertyType.setTypeCode(rs.getString("typeCode"));
+                    propertyType.setTypeName(rs.getString("typeName"));
+                }
+            }
         }
-        connection.close();
         return propertyType;
     }
 
@@ -193,20 +199,8 @@ public class PropertyTypeTableAdapter implements DataStore {
      */
     @Override
     public Object findOneRecord(Object object) throws SQLException {
-        // Create a new PropertyType object.
-        PropertyType propertyType = new PropertyType();
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // Build and execute the SELECT query using the typeCode from the provided PropertyType object.
-        String command = "SELECT * FROM PropertyType WHERE typeCode = '" + ((PropertyType)object).getTypeCode() + "'";
-        ResultSet rs = stmt.executeQuery(command);
-        while (rs.next()) {
-            propertyType.setTypeCode(rs.getString("typeCode"));
-            propertyType.setTypeName(rs.getString("typeName"));
-        }
-        connection.close();
-        return propertyType;
+        // Look the record up using the typeCode from the provided PropertyType object.
+        return findOneRecord(((PropertyType) object).getTypeCode());
     }
 
     /**
@@ -219,20 +213,19 @@ public class PropertyTypeTableAdapter implements DataStore {
     public List<Object> getAllRecords() throws SQLException {
         // Create a list to store PropertyType objects.
         List<Object> list = new ArrayList<>();
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
         // Execute a SELECT query to retrieve all records.
         String command = "SELECT * FROM PropertyType";
-        ResultSet rs = stmt.executeQuery(command);
-        // Populate each PropertyType object from the result set and add it to the list.
-        while (rs.next()) {
-            PropertyType propertyType = new PropertyType();
-            propertyType.setTypeCode(rs.getString("typeCode"));
-            propertyType.setTypeName(rs.getString("typeName"));
-            list.add(propertyType);
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(command);
+             ResultSet rs = ps.executeQuery()) {
+            // Populate each PropertyType object from the result set and add it to the list.
+            while (rs.next()) {
+                PropertyType propertyType = new PropertyType();
+                propertyType.setTypeCode(rs.getString("typeCode"));
+                propertyType.setTypeName(rs.getString("typeName"));
+                list.add(propertyType);
+            }
         }
-        connection.close();
         return list;
     }
 
@@ -247,4 +240,16 @@ public class PropertyTypeTableAdapter implements DataStore {
     public List<Object> getAllRecords(Object referencedObject) throws SQLException {
         return null;
     }
+
+    // Set the INSERT parameters from a PropertyType object.
+    private static void bindInsert(PreparedStatement ps, PropertyType propertyType) throws SQLException {
+        ps.setString(1, propertyType.getTypeCode());
+        ps.setString(2, propertyType.getTypeName());
+    }
+
+    // Set the UPDATE parameters from a PropertyType object; the typeCode is also the key.
+    private static void bindUpdate(PreparedStatement ps, PropertyType propertyType) throws SQLException {
+        bindInsert(ps, propertyType);
+        ps.setString(3, propertyType.getTypeCode());
+    }
 }
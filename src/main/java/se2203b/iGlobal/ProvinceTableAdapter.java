@@ -7,44 +7,26 @@ import java.util.List;
 /**
  * ProvinceTableAdapter manages the persistence of Province data in the iGlobalDB.
  * It implements the DataStore interface and supports basic CRUD operations for Province entries.
+ * New provinces are also added to the ReferenceDataCache.
  */
 public class ProvinceTableAdapter implements DataStore {
-    // Database URL for the Derby iGlobalDB.
-    private final String DB_URL = "jdbc:derby:iGlobalDB";
 
     /**
      * Constructor that initializes the Province table.
-     * If reset is true, the table is dropped (if it exists) and recreated.
+     * If reset is true, the table is dropped and recreated through SchemaMigrator.reset(),
+     * which also empties City; otherwise the table is left to SchemaMigrator.bootstrap()
+     * and nothing is run.
      *
      * @param reset if true, drops the existing table and recreates it.
      * @throws SQLException if a database access error occurs.
      */
     public ProvinceTableAdapter(boolean reset) throws SQLException {
-        // Open a connection to the database.
-        Connection connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-
-        // If reset is true, attempt to drop the Province table.
         if (reset) {
-            try {
-                stmt.execute("DROP TABLE Province");
-            } catch (SQLException e) {
-                // Ignore the exception if the table does not exist.
-            }
-        }
-
-        // Attempt to create the Province table.
-        try {
-            String command = "CREATE TABLE Province (" +
-                    "provinceCode VARCHAR(20) NOT NULL PRIMARY KEY" +
-                    ")";
-            stmt.execute(command);
-        } catch (SQLException e) {
-            // If the table already exists, ignore the exception.
+            // The migrations recreate the table with its primary key; City refers to it and is emptied too.
+            SchemaMigrator.reset("PROVINCE");
+            // The cached lookup data described the old tables.
+            ReferenceDataCache.getInstance().invalidate();
         }
-
-        // Close the connection.
-        connection.close();
     }
 
     /**
@@ -57,15 +39,15 @@ public class ProvinceTableAdapter implements DataStore {
     public void addNewRecord(Object data) throws SQLException {
         // Cast the data object to a String (province code).
         String provinceCode = (String) data;
-        // Open a new connection.
-        Connection conn = DriverManager.getConnection(DB_URL);
         // Prepare the INSERT SQL statement using a PreparedStatement.
         String sql = "INSERT INTO Province (provinceCode) VALUES (?)";
-        PreparedStatement ps = conn.prepareStatement(sql);
-        ps.setString(1, provinceCode);
-        ps.executeUpdate();
-        // Close the connection.
-        conn.close();
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, provinceCode);
+            ps.executeUpdate();
+        }
+        // Keep the lookup cache in step with the table.
+        ReferenceDataCache.getInstance().provinceAdded(provinceCode);
     }
 
     /**
@@ -103,16 +85,14 @@ public class ProvinceTableAdapter implements DataStore {
     @Override
     public List<String> getKeys() throws SQLException {
         List<String> list = new ArrayList<>();
-        // Open a new connection.
-        Connection conn = DriverManager.getConnection(DB_URL);
-        Statement stmt = conn.createStatement();
         // Execute a query to select all province codes.
-        ResultSet rs = stmt.executeQuery("SELECT provinceCode FROM Province");
-        while (rs.next()) {
-            list.add(rs.getString("provinceCode"));
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT provinceCode FROM Province");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                list.add(rs.getString("provinceCode"));
+            }
         }
-        // Close the connection.
-        conn.close();
         return list;
     }
 
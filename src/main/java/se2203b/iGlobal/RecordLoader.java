@@ -0,0 +1,177 @@
+package se2203b.iGlobal;
+
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Service;
+import javafx.concurrent.Task;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * The RecordLoader class loads records into an ObservableList in the background.
+ *
+ * It is a JavaFX Service: each start() or restart() opens the source stream on a worker
+ * thread and appends the records to the target list in batches on the FX thread, so a
+ * TableView starts showing rows as soon as the first batch arrives. The Service's
+ * running, message and progress properties can be bound to a progress indicator, and
+ * cancel() stops the load between rows and closes the source stream.
+ *
+ * Progress is the share of the records appended so far. The total is taken from the
+ * count call given to the constructor, such as DataStore.countRecords(), or else from the
+ * source stream when it knows its size, as a stream over a list does; without either the
+ * progress stays indeterminate and only the message counts the records.
+ *
+ * The value of a finished load is the number of records appended.
+ *
+ * @param <T> the record type.
+ */
+public class RecordLoader<T> extends Service<Integer> {
+    // Number of records handed to the FX thread at a time.
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private final ObservableList<T> target;
+    private final AsyncDataStore.DataCall<Stream<? extends T>> source;
+    // Counts the records the source will return, or null to rely on the stream's size
+    private final AsyncDataStore.DataCall<Long> count;
+    private final int batchSize;
+
+    /**
+     * Creates a loader with the default batch size.
+     *
+     * @param target the list the records are appended to.
+     * @param source opens the stream of records; called on the worker thread for every run.
+     */
+    public RecordLoader(ObservableList<T> target, AsyncDataStore.DataCall<Stream<? extends T>> source) {
+        this(target, source, null, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a loader with the default batch size that reports progress against a count.
+     *
+     * @param target the list the records are appended to.
+     * @param source opens the stream of records; called on the worker thread for every run.
+     * @param count  counts the records before each run, returning -1 if it cannot.
+     */
+    public RecordLoader(ObservableList<T> target, AsyncDataStore.DataCall<Stream<? extends T>> source,
+                        AsyncDataStore.DataCall<Long> count) {
+        this(target, source, count, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param target    the list the records are appended to.
+     * @param source    opens the stream of records; called on the worker thread for every run.
+     * @param count     counts the records before each run, returning -1 if it cannot; or null.
+     * @param batchSize the number of records appended to the list at a time.
+     */
+    public RecordLoader(ObservableList<T> target, AsyncDataStore.DataCall<Stream<? extends T>> source,
+                        AsyncDataStore.DataCall<Long> count, int batchSize) {
+        this.target = target;
+        this.source = source;
+        this.count = count;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Shows the progress of every load in the given controls: the indicator and the cancel
+     * button are only visible while a load runs, and the status label shows the load message.
+     *
+     * @param indicator    the progress indicator to show while loading.
+     * @param status       the label for the status message, or null for none.
+     * @param cancelButton the button that cancels the running load.
+     */
+    public void showProgressIn(ProgressIndicator indicator, Label status, Button cancelButton) {
+        indicator.visibleProperty().bind(runningProperty());
+        indicator.progressProperty().bind(progressProperty());
+        cancelButton.visibleProperty().bind(runningProperty());
+        cancelButton.setOnAction(event -> cancel());
+        if (status != null) {
+            status.textProperty().bind(messageProperty());
+        }
+    }
+
+    /**
+     * Gives the table a placeholder that reads "Loading..." while a load runs and
+     * emptyText once the load has finished without any rows.
+     *
+     * @param table     the table being filled.
+     * @param emptyText the text to show when there are no records.
+     */
+    public void showPlaceholderIn(TableView<?> table, String emptyText) {
+        Label placeholder = new Label();
+        placeholder.textProperty().bind(Bindings.when(runningProperty()).then("Loading...").otherwise(emptyText));
+        table.setPlaceholder(placeholder);
+    }
+
+    @Override
+    protected Task<Integer> createTask() {
+        return new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                updateMessage("Loading...");
+                long total = count == null ? -1 : count.run();
+                int loaded = 0;
+                try (Stream<? extends T> records = source.run()) {
+                    Spliterator<? extends T> it = records.spliterator();
+                    if (total < 0) {
+                        total = it.getExactSizeIfKnown();
+                    }
+                    List<T> batch = new ArrayList<>(batchSize);
+                    while (!isCancelled() && it.tryAdvance(batch::add)) {
+                        if (batch.size() == batchSize) {
+                            publish(batch);
+                            loaded += batch.size();
+                            updateMessage(total < 0 ? "Loaded " + loaded + " records..."
+                                    : "Loaded " + loaded + " of " + total + " records...");
+                            progress(loaded, total);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (!isCancelled() && !batch.isEmpty()) {
+                        publish(batch);
+                        loaded += batch.size();
+                    }
+                }
+                if (!isCancelled()) {
+                    updateProgress(loaded, loaded);
+                }
+                updateMessage(isCancelled() ? "Loading cancelled" : "Loaded " + loaded + " records");
+                return loaded;
+            }
+
+            /**
+             * Reports the records appended so far; indeterminate while the total is unknown.
+             * The count can be behind the table if rows were added since, so it is never
+             * allowed to fall below the records already loaded.
+             */
+            private void progress(long loaded, long total) {
+                if (total < 0) {
+                    updateProgress(-1, -1);
+                } else {
+                    updateProgress(loaded, Math.max(total, loaded));
+                }
+            }
+
+            /**
+             * Appends one batch on the FX thread, unless this run was cancelled meanwhile
+             * (for example by a restart that has already cleared the list).
+             */
+            private void publish(List<T> batch) {
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        target.addAll(batch);
+                    }
+                });
+            }
+        };
+    }
+}
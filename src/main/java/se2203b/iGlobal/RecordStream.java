@@ -0,0 +1,183 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The RecordStream class turns a SELECT query into a lazily read Stream of records.
+ *
+ * The stream is backed by a forward-only, read-only ResultSet on a pooled connection.
+ * Rows are fetched from Derby fetch-size rows at a time and mapped one by one as the
+ * stream is consumed, so a whole table can be processed in constant memory.
+ *
+ * The stream holds its connection until it is closed, so callers must close it, for
+ * example with try-with-resources. A database error while reading is rethrown as a
+ * RuntimeException wrapping the SQLException.
+ *
+ * The fetch size defaults to DEFAULT_FETCH_SIZE and can be changed with the
+ * iglobal.fetchSize system property or setFetchSize().
+ */
+public final class RecordStream {
+    // Number of rows Derby fetches per round trip when nothing else is configured.
+    public static final int DEFAULT_FETCH_SIZE = 200;
+
+    private static volatile int fetchSize = Integer.getInteger("iglobal.fetchSize", DEFAULT_FETCH_SIZE);
+
+    /**
+     * Builds one record from the current row of a ResultSet.
+     *
+     * @param <T> the record type.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Sets the query parameters before the query runs.
+     */
+    @FunctionalInterface
+    public interface ParameterBinder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    private RecordStream() {
+    }
+
+    /**
+     * @return the default number of rows fetched per round trip.
+     */
+    public static int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the default number of rows fetched per round trip.
+     *
+     * @param size the new fetch size; must be at least 1.
+     */
+    public static void setFetchSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Fetch size must be at least 1");
+        }
+        fetchSize = size;
+    }
+
+    /**
+     * Runs a query without parameters and streams its rows.
+     *
+     * @param sql       the SELECT statement.
+     * @param fetchSize the number of rows fetched per round trip.
+     * @param mapper    builds one record from each row.
+     * @return a Stream that must be closed to release the connection.
+     * @throws SQLException if the query cannot be run.
+     */
+    public static <T> Stream<T> open(String sql, int fetchSize, RowMapper<T> mapper) throws SQLException {
+        return open(sql, fetchSize, ps -> { }, mapper);
+    }
+
+    /**
+     * Runs a query and streams its rows.
+     *
+     * @param sql       the SELECT statement with parameter placeholders.
+     * @param fetchSize the number of rows fetched per round trip.
+     * @param binder    sets the query parameters.
+     * @param mapper    builds one record from each row.
+     * @return a Stream that must be closed to release the connection.
+     * @throws SQLException if the query cannot be run.
+     */
+    public static <T> Stream<T> open(String sql, int fetchSize, ParameterBinder binder, RowMapper<T> mapper)
+            throws SQLException {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be at least 1");
+        }
+        Connection connection = ConnectionPool.getInstance().getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs;
+        try {
+            // Plain prepareStatement gives a forward-only, read-only cursor.
+            ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            binder.bind(ps);
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeAll(null, ps, connection);
+            throw e;
+        }
+        Cursor<T> cursor = new Cursor<>(rs, mapper);
+        PreparedStatement statement = ps;
+        return StreamSupport.stream(cursor, false).onClose(() -> closeAll(rs, statement, connection));
+    }
+
+    /**
+     * Closes the cursor resources in reverse order of opening. Every resource is closed even
+     * if an earlier one fails; the first error is rethrown with the later ones suppressed.
+     */
+    private static void closeAll(ResultSet rs, PreparedStatement ps, Connection connection) {
+        SQLException failure = null;
+        if (rs != null) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        if (ps != null) {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                failure = addFailure(failure, e);
+            }
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            failure = addFailure(failure, e);
+        }
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    private static SQLException addFailure(SQLException first, SQLException next) {
+        if (first == null) {
+            return next;
+        }
+        first.addSuppressed(next);
+        return first;
+    }
+
+    /**
+     * A Spliterator that advances the ResultSet one row per element.
+     */
+    private static final class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+
+        private Cursor(ResultSet rs, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
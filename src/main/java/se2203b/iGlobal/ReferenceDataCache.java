@@ -0,0 +1,213 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The ReferenceDataCache class keeps the lookup data used by the property forms in memory:
+ * the provinces, the cities of each province and the property type names.
+ *
+ * The three tables are read together on the first request and then served from memory,
+ * so listing the cities of a province or checking whether a province or city exists
+ * needs no database round trip. The Province, City and PropertyType adapters keep the
+ * cache current: new provinces and cities are added to it after they are written, and
+ * any change to the property types invalidates it so it is read again on the next request.
+ *
+ * The cached data is replaced as a whole on every change, so readers on any thread
+ * always see a consistent copy without locking.
+ */
+public final class ReferenceDataCache {
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+    // The current copy of the lookup data, or null when it has to be read again.
+    private volatile Snapshot snapshot;
+    // Number of times the tables have been read, for monitoring.
+    private volatile int loadCount;
+
+    /**
+     * An immutable copy of the lookup tables.
+     */
+    private static final class Snapshot {
+        private final Set<String> provinces;
+        private final Map<String, Set<String>> citiesByProvince;
+        private final List<String> propertyTypes;
+
+        private Snapshot(Set<String> provinces, Map<String, Set<String>> citiesByProvince,
+                         List<String> propertyTypes) {
+            this.provinces = Collections.unmodifiableSet(provinces);
+            this.citiesByProvince = Collections.unmodifiableMap(citiesByProvince);
+            this.propertyTypes = Collections.unmodifiableList(propertyTypes);
+        }
+    }
+
+    private ReferenceDataCache() {
+    }
+
+    /**
+     * @return the shared cache instance.
+     */
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the province codes, in the order the database returned them.
+     * @throws SQLException if the lookup tables have to be read and a database error occurs.
+     */
+    public List<String> getProvinces() throws SQLException {
+        return new ArrayList<>(current().provinces);
+    }
+
+    /**
+     * @param provinceCode the province code.
+     * @return true if the province exists.
+     * @throws SQLException if the lookup tables have to be read and a database error occurs.
+     */
+    public boolean provinceExists(String provinceCode) throws SQLException {
+        return current().provinces.contains(provinceCode);
+    }
+
+    /**
+     * @param provinceCode the province code.
+     * @return the names of the cities in the province; empty if there are none.
+     * @throws SQLException if the lookup tables have to be read and a database error occurs.
+     */
+    public List<String> getCitiesInProvince(String provinceCode) throws SQLException {
+        Set<String> cities = current().citiesByProvince.get(provinceCode);
+        return cities == null ? new ArrayList<>() : new ArrayList<>(cities);
+    }
+
+    /**
+     * @return a read-only map from each province code to the names of its cities.
+     * @throws SQLException if the lookup tables have to be read and a database error occurs.
+     */
+    public Map<String, Set<String>> getCitiesByProvince() throws SQLException {
+        return current().citiesByProvince;
+    }
+
+    /**
+     * @param cityName     the name of the city.
+     * @param provinceCode the province code of the city.
+     * @return true if the city exists in the province.
+     * @throws SQLException if the lookup tables have to be read and a database error occurs.
+     */
+    public boolean cityExists(String cityName, String provinceCode) throws SQLException {
+        Set<String> cities = current().citiesByProvince.get(provinceCode);
+        return cities != null && cities.contains(cityName);
+    }
+
+    /**
+     * @return the property type names.
+     * @throws SQLException if the lookup tables have to be read and a database error occurs.
+     */
+    public List<String> getPropertyTypes() throws SQLException {
+        return new ArrayList<>(current().propertyTypes);
+    }
+
+    /**
+     * @return the number of times the lookup tables have been read from the database.
+     */
+    public int getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Drops the cached data; the tables are read again on the next request.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    /**
+     * Records a province that has just been written to the Province table.
+     *
+     * @param provinceCode the new province code.
+     */
+    public synchronized void provinceAdded(String provinceCode) {
+        Snapshot old = snapshot;
+        if (old == null || old.provinces.contains(provinceCode)) {
+            return;
+        }
+        Set<String> provinces = new LinkedHashSet<>(old.provinces);
+        provinces.add(provinceCode);
+        snapshot = new Snapshot(provinces, new LinkedHashMap<>(old.citiesByProvince),
+                new ArrayList<>(old.propertyTypes));
+    }
+
+    /**
+     * Records cities that have just been written to the City table.
+     *
+     * @param cities the new cities.
+     */
+    public synchronized void citiesAdded(List<City> cities) {
+        Snapshot old = snapshot;
+        if (old == null || cities.isEmpty()) {
+            return;
+        }
+        Map<String, Set<String>> citiesByProvince = new LinkedHashMap<>(old.citiesByProvince);
+        for (City city : cities) {
+            // Copy each province's set the first time it changes; the old snapshot stays untouched.
+            Set<String> names = citiesByProvince.get(city.getProvinceCode());
+            Set<String> copy = new LinkedHashSet<>(names == null ? Set.of() : names);
+            copy.add(city.getCityName());
+            citiesByProvince.put(city.getProvinceCode(), Collections.unmodifiableSet(copy));
+        }
+        snapshot = new Snapshot(new LinkedHashSet<>(old.provinces), citiesByProvince,
+                new ArrayList<>(old.propertyTypes));
+    }
+
+    /**
+     * Returns the cached data, reading the tables first if necessary.
+     */
+    private Snapshot current() throws SQLException {
+        Snapshot current = snapshot;
+        return current != null ? current : load();
+    }
+
+    /**
+     * Reads all three tables on one pooled connection.
+     * Writers wait while the tables are read, so a row written meanwhile is never lost.
+     */
+    private synchronized Snapshot load() throws SQLException {
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Set<String> provinces = new LinkedHashSet<>();
+        Map<String, Set<String>> citiesByProvince = new LinkedHashMap<>();
+        List<String> propertyTypes = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT provinceCode FROM Province");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    provinces.add(rs.getString(1));
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("SELECT cityName, provinceCode FROM City");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    citiesByProvince.computeIfAbsent(rs.getString(2), code -> new LinkedHashSet<>())
+                            .add(rs.getString(1));
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("SELECT typeName FROM PropertyType");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    propertyTypes.add(rs.getString(1));
+                }
+            }
+        }
+        citiesByProvince.replaceAll((code, names) -> Collections.unmodifiableSet(names));
+        snapshot = new Snapshot(provinces, citiesByProvince, propertyTypes);
+        loadCount++;
+        return snapshot;
+    }
+}
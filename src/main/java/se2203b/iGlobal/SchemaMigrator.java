@@ -0,0 +1,643 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The SchemaMigrator class brings the iGlobalDB schema up to date.
+ *
+ * The schema version is kept in the SCHEMA_VERSION table, one row per applied migration.
+ * On migrate(), every migration with a higher version than the newest row is applied in
+ * order, each in its own transaction together with the row that records it, so a failed
+ * migration leaves the database at the previous version. Migrations check the catalog
+ * before changing anything, so they are safe to run against databases that were created
+ * by older releases and may already contain some of the keys.
+ *
+ * To change the schema, append a new Migration to MIGRATIONS; never edit one that has
+ * already shipped.
+ *
+ * The application calls bootstrap() once at startup rather than migrate() directly. It
+ * migrates and adds the default administrator the first time it runs in a process and
+ * does nothing afterwards, so the table adapters never run DDL themselves. On an
+ * up-to-date database it costs one query on SCHEMA_VERSION, one on the trigger catalog
+ * and one primary-key lookup.
+ *
+ * The adapters' reset constructors empty their table through reset(), which drops it and
+ * runs every migration again, so a reset table has the same keys, indexes and triggers as
+ * a migrated one.
+ */
+public final class SchemaMigrator {
+    private static final String VERSION_TABLE = "SCHEMA_VERSION";
+    // Derby's SQLState for a table or view that does not exist
+    private static final String TABLE_NOT_FOUND = "42X05";
+
+    /**
+     * One schema change step.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Statement stmt, DatabaseMetaData meta) throws SQLException;
+    }
+
+    /**
+     * A numbered schema change.
+     */
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // The ordered list of migrations. Versions must be strictly increasing.
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create base tables", SchemaMigrator::createBaseTables),
+            new Migration(2, "Add primary keys to PROPERTY and AGENT", (stmt, meta) -> {
+                addPrimaryKey(stmt, meta, "PROPERTY", "PROPERTY_PK");
+                addPrimaryKey(stmt, meta, "AGENT", "AGENT_PK");
+            }),
+            new Migration(3, "Add unique keys on AGENT.LICENSENUMBER and EXECUTIVE.EMAIL", (stmt, meta) -> {
+                addUniqueKey(stmt, meta, "AGENT", "LICENSENUMBER", "AGENT_LICENSENUMBER_UK");
+                addUniqueKey(stmt, meta, "EXECUTIVE", "EMAIL", "EXECUTIVE_EMAIL_UK");
+            }),
+            // City.provinceCode is already covered by the index behind its foreign key.
+            new Migration(4, "Index PROPERTY.ADDRESS", (stmt, meta) ->
+                    createIndex(stmt, meta, "PROPERTY", "ADDRESS", "PROPERTY_ADDRESS_IDX")),
+            // Composite indexes for the property search: equality columns first, then the
+            // (PRICE, ID) order the search pages by, so a page is read without a sort.
+            new Migration(5, "Add composite indexes for property search", (stmt, meta) -> {
+                createCompositeIndex(stmt, meta, "PROPERTY", "PROPERTY_LOCATION_PRICE_IDX", "PROVINCE", "CITY", "PRICE", "ID");
+                createCompositeIndex(stmt, meta, "PROPERTY", "PROPERTY_PROVINCE_PRICE_IDX", "PROVINCE", "PRICE", "ID");
+                createCompositeIndex(stmt, meta, "PROPERTY", "PROPERTY_TYPE_PRICE_IDX", "TYPE", "PRICE", "ID");
+                createCompositeIndex(stmt, meta, "PROPERTY", "PROPERTY_PRICE_IDX", "PRICE", "ID");
+            }),
+            new Migration(6, "Add trigger-maintained market summary tables", SchemaMigrator::createMarketSummary)
+    );
+
+    // The migration that created the market summary, and the trigger that records PROPERTY inserts in it.
+    private static final int MARKET_SUMMARY_VERSION = 6;
+    private static final String MARKET_INSERT_TRIGGER = "MARKET_CHANGE_INS";
+    // The migrations that create the PROPERTY indexes and the insert trigger a bulk load drops.
+    private static final Set<Integer> BULK_LOAD_MIGRATIONS = Set.of(4, 5, MARKET_SUMMARY_VERSION);
+
+    // Histogram buckets per unit of ln(price per square foot): each bucket is about 5% wide.
+    static final int PPSF_BUCKETS_PER_LOG = 20;
+
+    // The histogram bucket of a PROPERTY row, or NULL if it has no price per square foot.
+    // Prices below a dollar per square foot all fall in bucket 0.
+    private static final String PPSF_BUCKET = "CASE WHEN %1$s.PRICE IS NULL OR %1$s.SQUAREFOOTAGE IS NULL "
+            + "OR %1$s.SQUAREFOOTAGE <= 0 THEN NULL WHEN %1$s.PRICE <= %1$s.SQUAREFOOTAGE THEN 0 "
+            + "ELSE CAST(FLOOR(LN(%1$s.PRICE / %1$s.SQUAREFOOTAGE) * " + PPSF_BUCKETS_PER_LOG + ") AS INT) END";
+    // The MARKET_CHANGE columns of a PROPERTY row; the sign is 1 when the row joins its group and -1 when it leaves.
+    private static final String CHANGE_COLUMNS = "COALESCE(%1$s.PROVINCE, ''), COALESCE(%1$s.CITY, ''), "
+            + "COALESCE(%1$s.TYPE, ''), %2$s, %2$s * CASE WHEN %1$s.PRICE IS NULL THEN 0 ELSE 1 END, "
+            + "%2$s * COALESCE(%1$s.PRICE, 0), %2$s * COALESCE(%1$s.SQUAREFOOTAGE, 0), " + PPSF_BUCKET;
+
+    // Tables built from PROPERTY by migration 6, dropped with it on a reset
+    private static final List<String> PROPERTY_DEPENDENTS = List.of("MARKET_CHANGE", "MARKET_SUMMARY",
+            "MARKET_PPSF_HISTOGRAM");
+    // Tables with a foreign key to a table, dropped before it on a reset
+    private static final Map<String, List<String>> REFERENCING_TABLES = Map.of("USERACCOUNT", List.of("ADMINISTRATOR"),
+            "PROVINCE", List.of("CITY"));
+    // Duplicated values listed in the message of a unique key that cannot be added
+    private static final int MAX_DUPLICATES_SHOWN = 5;
+
+    // Set once bootstrap() has succeeded in this process
+    private static boolean bootstrapped;
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Prepares the database for the application the first time it is called in a
+     * process: applies missing migrations and adds the default administrator if it is
+     * missing. Later calls return at once.
+     *
+     * @throws SQLException if a migration or the default administrator insert fails; the
+     *                      next call tries again.
+     */
+    public static synchronized void bootstrap() throws SQLException {
+        if (bootstrapped) {
+            return;
+        }
+        migrate();
+        new AdministratorTableAdapter(false).addDefaultAdminIfMissing();
+        bootstrapped = true;
+    }
+
+    /**
+     * Applies every migration the database has not seen yet.
+     *
+     * @return the schema version after migrating.
+     * @throws SQLException if a migration fails; earlier migrations stay applied.
+     */
+    public static synchronized int migrate() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            DatabaseMetaData meta = connection.getMetaData();
+            int current;
+            try {
+                // Reading the marker directly avoids a catalog lookup on every start.
+                current = currentVersion(connection);
+            } catch (SQLException e) {
+                if (!TABLE_NOT_FOUND.equals(e.getSQLState())) {
+                    throw e;
+                }
+                stmt.execute("CREATE TABLE " + VERSION_TABLE + " ("
+                        + "VERSION INT NOT NULL PRIMARY KEY, "
+                        + "DESCRIPTION VARCHAR(200), "
+                        + "APPLIED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+                current = 0;
+            }
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version > current) {
+                    apply(connection, stmt, meta, migration);
+                    current = migration.version;
+                }
+            }
+            if (current >= MARKET_SUMMARY_VERSION && !triggerExists(connection, MARKET_INSERT_TRIGGER)) {
+                recoverBulkLoad(connection, stmt, meta);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Drops a table, and for PROPERTY the market summary tables built from it, then runs
+     * every migration again from version 0. Each migration only creates what is missing,
+     * so the table comes back empty with all the keys, indexes and triggers of the current
+     * schema, and the other tables are left as they are. A table another one refers to
+     * cannot be dropped on its own, so resetting USERACCOUNT also empties ADMINISTRATOR,
+     * and resetting PROVINCE also empties CITY.
+     *
+     * @param table the table name, in upper case.
+     * @throws SQLException if a table cannot be dropped or a migration fails.
+     */
+    public static synchronized void reset(String table) throws SQLException {
+        List<String> tables = new ArrayList<>(REFERENCING_TABLES.getOrDefault(table, List.of()));
+        tables.add(table);
+        if (table.equals("PROPERTY")) {
+            tables.addAll(PROPERTY_DEPENDENTS);
+        }
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            DatabaseMetaData meta = connection.getMetaData();
+            connection.setAutoCommit(false);
+            try {
+                // The referencing tables go first, so their foreign keys no longer hold the table.
+                // Dropping PROPERTY drops its triggers too, so the market tables are free to go after it.
+                for (String name : tables) {
+                    if (tableExists(meta, name)) {
+                        stmt.execute("DROP TABLE " + name);
+                    }
+                }
+                if (tableExists(meta, VERSION_TABLE)) {
+                    stmt.execute("DELETE FROM " + VERSION_TABLE);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        migrate();
+    }
+
+    /**
+     * Prepares PROPERTY for a bulk load: drops its secondary indexes and the trigger that
+     * records inserts for the market summary, so inserted rows only update the table and
+     * its primary key. endBulkLoad() must be called afterwards, even if the load fails.
+     *
+     * Nothing else should write to PROPERTY during a bulk load: rows inserted by others
+     * before endBulkLoad() are not indexed until then and are counted in the market summary
+     * only if their ID is above the returned one.
+     *
+     * @return the highest PROPERTY ID before the load, to pass to endBulkLoad().
+     * @throws SQLException if a database access error occurs; PROPERTY is left unchanged.
+     */
+    public static synchronized int beginBulkLoad() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            try {
+                int lastId;
+                try (ResultSet rs = stmt.executeQuery("SELECT MAX(ID) FROM PROPERTY")) {
+                    lastId = rs.next() ? rs.getInt(1) : 0;
+                }
+                if (triggerExists(connection, MARKET_INSERT_TRIGGER)) {
+                    stmt.execute("DROP TRIGGER " + MARKET_INSERT_TRIGGER);
+                }
+                for (String index : secondaryIndexes(connection.getMetaData(), "PROPERTY")) {
+                    stmt.execute("DROP INDEX " + index);
+                }
+                connection.commit();
+                return lastId;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Ends a bulk load: records the rows inserted since beginBulkLoad() in the market
+     * summary, then rebuilds the PROPERTY indexes and the insert trigger in one pass over
+     * the table each. PROPERTY is locked while this runs.
+     *
+     * @param lastId the ID returned by beginBulkLoad().
+     * @throws SQLException if a database access error occurs; the next migrate() restores
+     *                      the indexes and rebuilds the market summary.
+     */
+    public static synchronized void endBulkLoad(int lastId) throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            try {
+                stmt.execute("LOCK TABLE PROPERTY IN EXCLUSIVE MODE");
+                try (PreparedStatement ps = connection.prepareStatement("INSERT INTO MARKET_CHANGE SELECT "
+                        + String.format(CHANGE_COLUMNS, "P", "1") + " FROM PROPERTY P WHERE P.ID > ?")) {
+                    ps.setInt(1, lastId);
+                    ps.executeUpdate();
+                }
+                restoreBulkLoadObjects(stmt, connection.getMetaData());
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Finishes a bulk load that was interrupted before endBulkLoad() ran. The rows loaded
+     * in the meantime are unknown, so the market summary is rebuilt from PROPERTY.
+     */
+    private static void recoverBulkLoad(Connection connection, Statement stmt, DatabaseMetaData meta)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            stmt.execute("LOCK TABLE PROPERTY IN EXCLUSIVE MODE");
+            stmt.execute("LOCK TABLE MARKET_CHANGE IN EXCLUSIVE MODE");
+            stmt.execute("DELETE FROM MARKET_CHANGE");
+            stmt.execute("DELETE FROM MARKET_PPSF_HISTOGRAM");
+            stmt.execute("DELETE FROM MARKET_SUMMARY");
+            stmt.execute("INSERT INTO MARKET_CHANGE SELECT " + String.format(CHANGE_COLUMNS, "P", "1")
+                    + " FROM PROPERTY P");
+            restoreBulkLoadObjects(stmt, meta);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Restoring PROPERTY after an interrupted bulk load failed: " + e.getMessage(),
+                    e.getSQLState(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Recreates what beginBulkLoad() dropped by applying the steps of the migrations that
+     * created them again; each step only creates what is missing.
+     */
+    private static void restoreBulkLoadObjects(Statement stmt, DatabaseMetaData meta) throws SQLException {
+        for (Migration migration : MIGRATIONS) {
+            if (BULK_LOAD_MIGRATIONS.contains(migration.version)) {
+                migration.step.apply(stmt, meta);
+            }
+        }
+    }
+
+    /**
+     * Lists the indexes on a table that can be dropped: those created with CREATE INDEX
+     * rather than generated by Derby for a key constraint.
+     */
+    private static List<String> secondaryIndexes(DatabaseMetaData meta, String table) throws SQLException {
+        Set<String> constraintIndexes = new HashSet<>();
+        try (PreparedStatement ps = meta.getConnection().prepareStatement("SELECT C.CONGLOMERATENAME "
+                + "FROM SYS.SYSCONGLOMERATES C JOIN SYS.SYSCONSTRAINTS K ON K.TABLEID = C.TABLEID "
+                + "JOIN SYS.SYSKEYS SK ON SK.CONSTRAINTID = K.CONSTRAINTID "
+                + "AND SK.CONGLOMERATEID = C.CONGLOMERATEID "
+                + "JOIN SYS.SYSTABLES T ON T.TABLEID = C.TABLEID WHERE T.TABLENAME = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    constraintIndexes.add(rs.getString(1));
+                }
+            }
+        }
+        Set<String> indexes = new LinkedHashSet<>();
+        try (ResultSet rs = meta.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                if (name != null && !constraintIndexes.contains(name)) {
+                    indexes.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(indexes);
+    }
+
+    /**
+     * @return the newest version recorded in SCHEMA_VERSION, or 0 if none.
+     */
+    public static int currentVersion(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT MAX(VERSION) FROM " + VERSION_TABLE);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Runs one migration and records it in a single transaction.
+     */
+    private static void apply(Connection connection, Statement stmt, DatabaseMetaData meta, Migration migration)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            migration.step.apply(stmt, meta);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO " + VERSION_TABLE + " (VERSION, DESCRIPTION) VALUES (?, ?)")) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Schema migration " + migration.version + " (" + migration.description
+                    + ") failed: " + e.getMessage(), e.getSQLState(), e);
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    // Migration 1: the tables the adapters have always created, for databases that lack them
+    private static void createBaseTables(Statement stmt, DatabaseMetaData meta) throws SQLException {
+        createTable(stmt, meta, "USERACCOUNT", "CREATE TABLE UserAccount ("
+                + "userAccountName VARCHAR(30) NOT NULL PRIMARY KEY, "
+                + "encryptedPassword VARCHAR(100) NOT NULL, "
+                + "passwordSalt VARCHAR(50) NOT NULL, "
+                + "accountType VARCHAR(10) NOT NULL)");
+        createTable(stmt, meta, "ADMINISTRATOR", "CREATE TABLE Administrator ("
+                + "id VARCHAR(9) NOT NULL PRIMARY KEY, "
+                + "firstName VARCHAR(60) NOT NULL, "
+                + "lastName VARCHAR(60) NOT NULL, "
+                + "email VARCHAR(60), "
+                + "phone VARCHAR(60), "
+                + "dateCreated DATE, "
+                + "userAccount VARCHAR(30) REFERENCES UserAccount(userAccountName))");
+        createTable(stmt, meta, "PROVINCE", "CREATE TABLE Province ("
+                + "provinceCode VARCHAR(20) NOT NULL PRIMARY KEY)");
+        createTable(stmt, meta, "CITY", "CREATE TABLE City ("
+                + "cityName VARCHAR(50) NOT NULL, "
+                + "provinceCode VARCHAR(20) NOT NULL, "
+                + "PRIMARY KEY (cityName, provinceCode), "
+                + "FOREIGN KEY (provinceCode) REFERENCES Province(provinceCode))");
+        createTable(stmt, meta, "PROPERTYTYPE", "CREATE TABLE PropertyType ("
+                + "typeCode VARCHAR(9) NOT NULL PRIMARY KEY, "
+                + "typeName VARCHAR(50))");
+        createTable(stmt, meta, "PROPERTY", "CREATE TABLE PROPERTY ("
+                + "ID INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1), "
+                + "TYPE VARCHAR(50), "
+                + "LOTSIZE DOUBLE, "
+                + "SQUAREFOOTAGE DOUBLE, "
+                + "BEDROOMS INT, "
+                + "BATHROOMS DOUBLE, "
+                + "YEARBUILT INT, "
+                + "PRICE DOUBLE, "
+                + "PROVINCE VARCHAR(20), "
+                + "CITY VARCHAR(50), "
+                + "ADDRESS VARCHAR(100), "
+                + "POSTALCODE VARCHAR(20), "
+                + "AMENITIES VARCHAR(200), "
+                + "DESCRIPTION VARCHAR(500))");
+        createTable(stmt, meta, "AGENT", "CREATE TABLE AGENT ("
+                + "ID INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1), "
+                + "FIRSTNAME VARCHAR(50), "
+                + "LASTNAME VARCHAR(50), "
+                + "EMAIL VARCHAR(100), "
+                + "PHONE VARCHAR(20), "
+                + "LICENSENUMBER VARCHAR(30), "
+                + "SPECIALIZATION VARCHAR(50))");
+        createTable(stmt, meta, "EXECUTIVE", "CREATE TABLE EXECUTIVE ("
+                + "ID INT NOT NULL GENERATED ALWAYS AS IDENTITY (START WITH 1, INCREMENT BY 1), "
+                + "FIRSTNAME VARCHAR(50), "
+                + "LASTNAME VARCHAR(50), "
+                + "EMAIL VARCHAR(100), "
+                + "PHONE VARCHAR(20), "
+                + "PRIVATEPHONE VARCHAR(20), "
+                + "PRIMARY KEY (ID))");
+    }
+
+    /**
+     * Migration 6: the market summary read by the MarketStatisticsAdapter.
+     *
+     * MARKET_SUMMARY holds one row per (province, city, type) with the number of listings and
+     * the price and square footage totals. MARKET_PPSF_HISTOGRAM counts listings by price per
+     * square foot in logarithmic buckets for every grouping the adapter reports (the GRAIN
+     * column names the grouping), so a median is estimated from a few rows per group.
+     *
+     * Triggers on PROPERTY record every insert, delete and update as signed rows in
+     * MARKET_CHANGE, in the transaction that changes PROPERTY, and the adapter folds those rows
+     * into the two tables before it reads them. The existing properties are recorded here the
+     * same way, so the first read builds the summary. The triggers only append: a Derby row
+     * trigger that has to look up its group row costs several milliseconds per PROPERTY row,
+     * against a fraction of a millisecond for a plain insert, and appending never makes
+     * writers wait on a shared group row.
+     */
+    private static void createMarketSummary(Statement stmt, DatabaseMetaData meta) throws SQLException {
+        createTable(stmt, meta, "MARKET_SUMMARY", "CREATE TABLE MARKET_SUMMARY ("
+                + "PROVINCE VARCHAR(20) NOT NULL, "
+                + "CITY VARCHAR(50) NOT NULL, "
+                + "TYPE VARCHAR(50) NOT NULL, "
+                + "LISTINGS INT NOT NULL, "
+                + "PRICED_LISTINGS INT NOT NULL, "
+                + "TOTAL_PRICE DOUBLE NOT NULL, "
+                + "TOTAL_SQUAREFOOTAGE DOUBLE NOT NULL, "
+                + "PRIMARY KEY (PROVINCE, CITY, TYPE))");
+        createTable(stmt, meta, "MARKET_PPSF_HISTOGRAM", "CREATE TABLE MARKET_PPSF_HISTOGRAM ("
+                + "GRAIN VARCHAR(30) NOT NULL, "
+                + "PROVINCE VARCHAR(20) NOT NULL, "
+                + "CITY VARCHAR(50) NOT NULL, "
+                + "TYPE VARCHAR(50) NOT NULL, "
+                + "BUCKET INT NOT NULL, "
+                + "LISTINGS INT NOT NULL, "
+                + "PRIMARY KEY (GRAIN, PROVINCE, CITY, TYPE, BUCKET))");
+        if (!tableExists(meta, "MARKET_CHANGE")) {
+            stmt.execute("CREATE TABLE MARKET_CHANGE ("
+                    + "PROVINCE VARCHAR(20) NOT NULL, "
+                    + "CITY VARCHAR(50) NOT NULL, "
+                    + "TYPE VARCHAR(50) NOT NULL, "
+                    + "LISTINGS INT NOT NULL, "
+                    + "PRICED_LISTINGS INT NOT NULL, "
+                    + "PRICE DOUBLE NOT NULL, "
+                    + "SQUAREFOOTAGE DOUBLE NOT NULL, "
+                    + "BUCKET INT)");
+            stmt.execute("INSERT INTO MARKET_CHANGE SELECT " + String.format(CHANGE_COLUMNS, "P", "1")
+                    + " FROM PROPERTY P");
+        }
+
+        String insertChange = "INSERT INTO MARKET_CHANGE VALUES (" + CHANGE_COLUMNS + ")";
+        createTrigger(stmt, MARKET_INSERT_TRIGGER, "AFTER INSERT ON PROPERTY REFERENCING NEW AS N",
+                String.format(insertChange, "N", "1"));
+        createTrigger(stmt, "MARKET_CHANGE_DEL", "AFTER DELETE ON PROPERTY REFERENCING OLD AS O",
+                String.format(insertChange, "O", "-1"));
+        // An update takes the row out of its old group and adds it to its new one. The triggers
+        // fire on every update: Derby 10.17 fails "AFTER UPDATE OF <columns>" triggers that
+        // insert into another table when the updated table has an identity column, and an
+        // update that leaves the group and figures unchanged cancels out when it is folded.
+        createTrigger(stmt, "MARKET_CHANGE_UPD_OLD", "AFTER UPDATE ON PROPERTY REFERENCING OLD AS O",
+                String.format(insertChange, "O", "-1"));
+        createTrigger(stmt, "MARKET_CHANGE_UPD_NEW", "AFTER UPDATE ON PROPERTY REFERENCING NEW AS N",
+                String.format(insertChange, "N", "1"));
+    }
+
+    private static void createTrigger(Statement stmt, String name, String event, String action)
+            throws SQLException {
+        if (triggerExists(stmt.getConnection(), name)) {
+            return;
+        }
+        stmt.execute("CREATE TRIGGER " + name + " " + event + " FOR EACH ROW " + action);
+    }
+
+    private static boolean triggerExists(Connection connection, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT 1 FROM SYS.SYSTRIGGERS WHERE TRIGGERNAME = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void createTable(Statement stmt, DatabaseMetaData meta, String table, String ddl)
+            throws SQLException {
+        if (!tableExists(meta, table)) {
+            stmt.execute(ddl);
+        }
+    }
+
+    private static void addPrimaryKey(Statement stmt, DatabaseMetaData meta, String table, String name)
+            throws SQLException {
+        try (ResultSet rs = meta.getPrimaryKeys(null, null, table)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + name + " PRIMARY KEY (ID)");
+    }
+
+    private static void addUniqueKey(Statement stmt, DatabaseMetaData meta, String table, String column,
+                                     String name) throws SQLException {
+        // Derby backs a unique constraint on a nullable column with a non-unique index,
+        // so look the constraint up by name as well as checking for a unique index.
+        if (constraintExists(stmt.getConnection(), name) || hasIndexOn(meta, table, column, true)) {
+            return;
+        }
+        checkNoDuplicates(stmt.getConnection(), table, column);
+        stmt.execute("ALTER TABLE " + table + " ADD CONSTRAINT " + name + " UNIQUE (" + column + ")");
+    }
+
+    /**
+     * Fails with a message that names the duplicated values, which have to be corrected
+     * by hand before the unique key can be added.
+     */
+    private static void checkNoDuplicates(Connection connection, String table, String column) throws SQLException {
+        List<String> duplicates = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT " + column + ", COUNT(*) FROM " + table
+                + " WHERE " + column + " IS NOT NULL GROUP BY " + column + " HAVING COUNT(*) > 1 ORDER BY " + column);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                duplicates.add("'" + rs.getString(1) + "' (" + rs.getInt(2) + " rows)");
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        String shown = String.join(", ", duplicates.subList(0, Math.min(duplicates.size(), MAX_DUPLICATES_SHOWN)));
+        if (duplicates.size() > MAX_DUPLICATES_SHOWN) {
+            shown += " and " + (duplicates.size() - MAX_DUPLICATES_SHOWN) + " more";
+        }
+        throw new SQLException(table + "." + column + " must be unique, but " + duplicates.size()
+                + " values are used more than once: " + shown + ". Change or delete the duplicate " + table
+                + " rows with an SQL tool such as Derby's ij, then start iGlobal again.", "23505");
+    }
+
+    private static boolean constraintExists(Connection connection, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT 1 FROM SYS.SYSCONSTRAINTS WHERE CONSTRAINTNAME = ?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void createIndex(Statement stmt, DatabaseMetaData meta, String table, String column,
+                                    String name) throws SQLException {
+        if (hasIndexOn(meta, table, column, false)) {
+            return;
+        }
+        stmt.execute("CREATE INDEX " + name + " ON " + table + " (" + column + ")");
+    }
+
+    private static void createCompositeIndex(Statement stmt, DatabaseMetaData meta, String table, String name,
+                                             String... columns) throws SQLException {
+        if (indexExists(meta, table, name)) {
+            return;
+        }
+        stmt.execute("CREATE INDEX " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+    }
+
+    private static boolean indexExists(DatabaseMetaData meta, String table, String name) throws SQLException {
+        try (ResultSet rs = meta.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (name.equals(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean tableExists(DatabaseMetaData meta, String table) throws SQLException {
+        try (ResultSet rs = meta.getTables(null, null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Checks whether an index already leads with the given column.
+     */
+    private static boolean hasIndexOn(DatabaseMetaData meta, String table, String column, boolean uniqueOnly)
+            throws SQLException {
+        try (ResultSet rs = meta.getIndexInfo(null, null, table, uniqueOnly, false)) {
+            while (rs.next()) {
+                if (rs.getShort("ORDINAL_POSITION") == 1 && column.equals(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
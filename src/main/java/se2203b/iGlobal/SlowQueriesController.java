@@ -0,0 +1,93 @@
+package se2203b.iGlobal;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.stage.Stage;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Controller class for the "Slow Queries" view.
+ *
+ * Lists the statements the SlowQueryLog has recorded since the application started,
+ * newest first. Selecting one shows its full SQL text, bind values and Derby execution
+ * plan; a plan that says "Table Scan" where an "Index Scan" was expected points at a
+ * missing index.
+ */
+public class SlowQueriesController implements ViewRegistry.Reusable {
+
+    @FXML private TableView<SlowQueryLog.Entry> entryTable;
+    @FXML private TableColumn<SlowQueryLog.Entry, String> timeCol, sqlCol;
+    @FXML private TableColumn<SlowQueryLog.Entry, Double> elapsedCol;
+    @FXML private TableColumn<SlowQueryLog.Entry, Long> rowsCol;
+    @FXML private TextArea detailArea;
+    @FXML private Label settingsLabel;
+    @FXML private Button closeBtn;
+
+    private final SlowQueryLog log = SlowQueryLog.getInstance();
+    private final ObservableList<SlowQueryLog.Entry> entries = FXCollections.observableArrayList();
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @FXML
+    public void initialize() {
+        timeCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(
+                cellData.getValue().getTime().format(TIME_FORMAT)));
+        elapsedCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(
+                Math.round(cellData.getValue().getElapsedMillis() * 10) / 10.0));
+        rowsCol.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().getRows()));
+        sqlCol.setCellValueFactory(cellData -> new ReadOnlyStringWrapper(cellData.getValue().getSql()));
+        entryTable.setItems(entries);
+        entryTable.getSelectionModel().selectedItemProperty().addListener((obs, oldEntry, entry) ->
+                detailArea.setText(entry == null ? "" : entry.getDetails()));
+
+        if (log.isEnabled()) {
+            entryTable.setPlaceholder(new Label("No statement has been slower than "
+                    + log.getThresholdMillis() + " ms"));
+            settingsLabel.setText("Statements taking " + log.getThresholdMillis() + " ms or more are logged to "
+                    + log.getFilePattern().replace("%g", "0") + " (older entries in the files numbered 1 to 4).");
+        } else {
+            entryTable.setPlaceholder(new Label("The slow query log is off"));
+            settingsLabel.setText("The slow query log is off; set iglobal.slowQueryMillis to turn it on.");
+        }
+        refresh();
+    }
+
+    /**
+     * Reloads the entries.
+     */
+    @FXML
+    private void refresh() {
+        entries.setAll(log.getRecentEntries());
+    }
+
+    /**
+     * Shows the entries logged since the window was last open.
+     */
+    @Override
+    public void prepareForReuse() {
+        detailArea.clear();
+        refresh();
+    }
+
+    /**
+     * Clears the entries shown here; the log file keeps them.
+     */
+    @FXML
+    private void clear() {
+        log.clearRecentEntries();
+        refresh();
+    }
+
+    /**
+     * Closes the current window.
+     */
+    @FXML
+    private void close() {
+        Stage stage = (Stage) closeBtn.getScene().getWindow();
+        stage.close();
+    }
+}
@@ -0,0 +1,378 @@
+package se2203b.iGlobal;
+
+import java.io.IOException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * The SlowQueryLog class records every SQL statement that takes longer than a threshold.
+ *
+ * ConnectionPool passes each statement it hands out through trace(), which wraps it in a
+ * TracedStatement, or a TracedPreparedStatement that also keeps its bind values, so the
+ * statement is timed. The wrappers forward each call directly to the driver. Only time spent in the
+ * driver counts: an update is timed from the start of the call to its end, and a query
+ * is timed for its execute call plus every call that moves its ResultSet cursor, so a
+ * caller that does its own work between rows, such as an export writing each row to a
+ * file, does not make a fast query look slow. The query is finished when its ResultSet
+ * is closed. A statement that takes at least the threshold is logged with its SQL text,
+ * bind values, row count, elapsed time and Derby execution plan.
+ *
+ * Collecting Derby runtime statistics for every statement would roughly double the cost
+ * of the short lookups the application makes most, so plans are captured only for slow
+ * queries: the query is run once more, with the same bind values, between calls to
+ * SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1) and (0), and the plan is read with
+ * SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS(). This runs on a background thread of its own,
+ * on a connection borrowed from the pool, and reads at most MAX_PLAN_ROWS rows, so the
+ * caller is never held up and a large read is not repeated in full; the entry is logged
+ * once its plan is ready. The plan is then reused for the same SQL text for
+ * PLAN_REUSE_MINUTES, so a slow query that runs often is not run twice each time.
+ * Updates are not run again, so they are logged without a plan.
+ *
+ * Entries are appended to a rotating log file, iGlobalSlowQueries0.log (the newest) to
+ * iGlobalSlowQueries4.log, and the most recent ones are kept in memory for the Slow
+ * Queries window. Bind values of statements on the USERACCOUNT table are not logged.
+ *
+ * The same wrapper records every statement in DataStoreMetrics, whatever its time. When
+ * the log and DataStoreMetrics are both off, statements are handed out unwrapped.
+ * CallableStatements, which the application does not use, are never wrapped.
+ *
+ * The threshold defaults to DEFAULT_THRESHOLD_MILLIS and can be set with the
+ * iglobal.slowQueryMillis system property; a negative value turns the log off, and
+ * statements are then only recorded in DataStoreMetrics. iglobal.slowQueryPlans=false keeps the log
+ * but never runs a query again for its plan, and iglobal.slowQueryLog sets the log
+ * file pattern.
+ */
+public final class SlowQueryLog {
+    // Statements at least this slow are logged when nothing else is configured.
+    public static final long DEFAULT_THRESHOLD_MILLIS = 500;
+    // Number of entries kept in memory for the viewer.
+    public static final int MAX_RECENT_ENTRIES = 200;
+    // Size of each log file before the log rotates, and the number of files kept.
+    private static final int FILE_LIMIT_BYTES = 1024 * 1024;
+    private static final int FILE_COUNT = 5;
+    // A captured plan is reused for the same SQL text for this long.
+    public static final int PLAN_REUSE_MINUTES = 10;
+    // Number of captured plans kept.
+    private static final int MAX_PLANS = 100;
+    // Most rows read when a query is run again for its plan.
+    public static final int MAX_PLAN_ROWS = 1000;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static SlowQueryLog instance;
+
+    private final long thresholdNanos;
+    private final boolean capturePlans;
+    private final String filePattern;
+    private final Logger logger = Logger.getLogger("se2203b.iGlobal.slowQueries");
+    // Reports problems with the log itself, which do not belong in the log file
+    private static final Logger LOG = Logger.getLogger(SlowQueryLog.class.getName());
+    private final Deque<Entry> recent = new ArrayDeque<>();
+    // Captured plans by SQL text, least recently captured first
+    private final Map<String, CapturedPlan> plans = new LinkedHashMap<>();
+    // Runs queries again for their plans, one at a time
+    private final ExecutorService planCapture = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "slow-query-plans");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Set on the plan capture thread, whose own statements are not logged
+    private final ThreadLocal<Boolean> capturing = ThreadLocal.withInitial(() -> false);
+    private boolean fileOpened;
+
+    private SlowQueryLog(long thresholdMillis, boolean capturePlans, String filePattern) {
+        this.thresholdNanos = thresholdMillis < 0 ? -1 : thresholdMillis * 1_000_000;
+        this.capturePlans = capturePlans;
+        this.filePattern = filePattern;
+        // Entries only go to the log file, not to the console.
+        logger.setUseParentHandlers(false);
+    }
+
+    /**
+     * @return the shared log, configured from the system properties on first use.
+     */
+    public static synchronized SlowQueryLog getInstance() {
+        if (instance == null) {
+            instance = new SlowQueryLog(Long.getLong("iglobal.slowQueryMillis", DEFAULT_THRESHOLD_MILLIS),
+                    Boolean.parseBoolean(System.getProperty("iglobal.slowQueryPlans", "true")),
+                    System.getProperty("iglobal.slowQueryLog", "iGlobalSlowQueries%g.log"));
+        }
+        return instance;
+    }
+
+    /**
+     * @return true if statements are being timed.
+     */
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    /**
+     * @return the threshold in milliseconds, or -1 if the log is off.
+     */
+    public long getThresholdMillis() {
+        return thresholdNanos < 0 ? -1 : thresholdNanos / 1_000_000;
+    }
+
+    /**
+     * @return the pattern of the log file names; %g is the file number.
+     */
+    public String getFilePattern() {
+        return filePattern;
+    }
+
+    /**
+     * @return the entries logged since the application started, newest first, at most MAX_RECENT_ENTRIES.
+     */
+    public synchronized List<Entry> getRecentEntries() {
+        return new ArrayList<>(recent);
+    }
+
+    /**
+     * Forgets the entries kept in memory; the log file is not changed.
+     */
+    public synchronized void clearRecentEntries() {
+        recent.clear();
+    }
+
+    /**
+     * Wraps a statement so that it is timed, recorded in DataStoreMetrics and logged when it is slow.
+     *
+     * @param statement  the statement handed out by the pool.
+     * @param sql       the SQL text of a PreparedStatement, or null for a plain Statement.
+     * @return the wrapped statement, or the statement itself when neither the log nor
+     * DataStoreMetrics is on, on the plan capture thread, or for a CallableStatement.
+     */
+    Statement trace(Statement statement, String sql) {
+        if ((!isEnabled() && !DataStoreMetrics.isEnabled()) || capturing.get()
+                || statement instanceof CallableStatement) {
+            return statement;
+        }
+        if (statement instanceof PreparedStatement prepared) {
+            return new TracedPreparedStatement(this, prepared, sql);
+        }
+        return new TracedStatement(this, statement, sql);
+    }
+
+    /**
+     * Records a statement in DataStoreMetrics, and logs it if it took at least the threshold.
+     *
+     * @param statement    the statement that ran.
+     * @param caller       the operation it ran for, or null when DataStoreMetrics is off.
+     * @param rows         the rows it returned or changed.
+     * @param elapsedNanos how long it spent in the driver.
+     * @param query        true for a query, whose plan can be captured by running it again.
+     */
+    void finished(TracedStatement statement, DataStoreMetrics.Caller caller, long rows, long elapsedNanos,
+                  boolean query) {
+        if (caller != null) {
+            DataStoreMetrics.getInstance().record(caller, elapsedNanos, rows, false);
+        }
+        if (!isEnabled() || elapsedNanos < thresholdNanos) {
+            return;
+        }
+        LocalDateTime time = LocalDateTime.now();
+        String sql = statement.getSql();
+        String binds = statement.describeBinds();
+        double elapsedMillis = elapsedNanos / 1e6;
+        if (!capturePlans) {
+            record(new Entry(time, sql, binds, rows, elapsedMillis, "Plan capture is off"));
+        } else if (!query) {
+            record(new Entry(time, sql, binds, rows, elapsedMillis,
+                    "No plan: only queries are run again to capture their plan"));
+        } else {
+            // Copy the bind values; the caller goes on using the statement.
+            Map<Integer, Object> values = statement.copyBinds();
+            planCapture.execute(() -> record(new Entry(time, sql, binds, rows, elapsedMillis, planOf(sql, values))));
+        }
+    }
+
+    /**
+     * Keeps an entry for the viewer and writes it to the log file.
+     */
+    private void record(Entry entry) {
+        synchronized (this) {
+            recent.addFirst(entry);
+            if (recent.size() > MAX_RECENT_ENTRIES) {
+                recent.removeLast();
+            }
+            if (!fileOpened) {
+                fileOpened = true;
+                openFile();
+            }
+        }
+        logger.log(Level.WARNING, entry.getDetails());
+    }
+
+    /**
+     * Adds the rotating file handler the first time an entry is logged, so no file is
+     * created unless something is slow.
+     */
+    private void openFile() {
+        try {
+            FileHandler handler = new FileHandler(filePattern, FILE_LIMIT_BYTES, FILE_COUNT, true);
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return record.getMessage() + System.lineSeparator();
+                }
+            });
+            logger.addHandler(handler);
+        } catch (IOException | SecurityException e) {
+            // The entries are still shown in the Slow Queries window.
+            LOG.log(Level.WARNING, "Slow query log file could not be opened", e);
+        }
+    }
+
+    /**
+     * Returns the plan of a slow query, capturing it unless it was captured recently.
+     * Runs on the plan capture thread.
+     */
+    private String planOf(String sql, Map<Integer, Object> binds) {
+        long now = System.nanoTime();
+        synchronized (plans) {
+            CapturedPlan cached = plans.get(sql);
+            if (cached != null && now - cached.capturedAt < TimeUnit.MINUTES.toNanos(PLAN_REUSE_MINUTES)) {
+                return cached.text;
+            }
+        }
+        String text;
+        capturing.set(true);
+        try {
+            text = capturePlan(sql, binds);
+        } catch (SQLException e) {
+            return "No plan: " + e.getMessage();
+        } finally {
+            capturing.set(false);
+        }
+        synchronized (plans) {
+            plans.remove(sql);
+            plans.put(sql, new CapturedPlan(text, now));
+            if (plans.size() > MAX_PLANS) {
+                plans.remove(plans.keySet().iterator().next());
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Runs the query again on a pooled connection with runtime statistics on, reading at
+     * most MAX_PLAN_ROWS rows, and returns the plan Derby recorded for it.
+     */
+    private static String capturePlan(String sql, Map<Integer, Object> binds) throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement control = connection.createStatement()) {
+            control.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(1)");
+            try {
+                // A statement of its own rather than the cached one, so the row limit is not kept.
+                try (PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                        ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setMaxRows(MAX_PLAN_ROWS);
+                    for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+                        if (bind.getValue() == null) {
+                            ps.setNull(bind.getKey(), ps.getParameterMetaData().getParameterType(bind.getKey()));
+                        } else {
+                            ps.setObject(bind.getKey(), bind.getValue());
+                        }
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            // Read the rows so the statistics cover fetching them.
+                        }
+                    }
+                }
+                try (ResultSet rs = control.executeQuery("VALUES SYSCS_UTIL.SYSCS_GET_RUNTIMESTATISTICS()")) {
+                    String plan = rs.next() ? rs.getString(1) : null;
+                    return plan == null ? "No plan: Derby returned no runtime statistics" : plan;
+                }
+            } finally {
+                control.execute("CALL SYSCS_UTIL.SYSCS_SET_RUNTIMESTATISTICS(0)");
+            }
+        }
+    }
+
+    /**
+     * A plan and when it was captured.
+     */
+    private static final class CapturedPlan {
+        private final String text;
+        private final long capturedAt;
+
+        private CapturedPlan(String text, long capturedAt) {
+            this.text = text;
+            this.capturedAt = capturedAt;
+        }
+    }
+
+    /**
+     * One logged statement.
+     */
+    public static final class Entry {
+        private final LocalDateTime time;
+        private final String sql;
+        private final String binds;
+        private final long rows;
+        private final double elapsedMillis;
+        private final String plan;
+
+        private Entry(LocalDateTime time, String sql, String binds, long rows, double elapsedMillis, String plan) {
+            this.time = time;
+            this.sql = sql;
+            this.binds = binds;
+            this.rows = rows;
+            this.elapsedMillis = elapsedMillis;
+            this.plan = plan;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getBinds() {
+            return binds;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getPlan() {
+            return plan;
+        }
+
+        /**
+         * @return the entry as it is written to the log file.
+         */
+        public String getDetails() {
+            return String.format("=== %s  %.1f ms  %d rows%nSQL: %s%nBinds: %s%nPlan:%n%s%n",
+                    time.format(TIME_FORMAT), elapsedMillis, rows, sql, binds, plan);
+        }
+    }
+}
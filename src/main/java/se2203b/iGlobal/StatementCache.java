@@ -0,0 +1,277 @@
+package se2203b.iGlobal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The StatementCache class keeps the PreparedStatements of one physical connection
+ * open between uses, keyed by their SQL text.
+ *
+ * ConnectionPool routes every prepareStatement(String) call through the cache of the
+ * connection it was made on. The first call for a given SQL text compiles the statement
+ * (a miss); later calls get the same statement back with its parameters cleared (a hit),
+ * so Derby skips parsing and optimizing it again. Closing a cached statement only returns
+ * it to the cache. The cache holds a bounded number of statements and closes the least
+ * recently used one when it is full.
+ *
+ * A caller may change the fetch size, maximum rows, query timeout, fetch direction or
+ * maximum field size of the statement it was given; they are put back to the values the
+ * statement was prepared with when it is returned, so the next caller never inherits
+ * them. A statement with any other setting changed, such as its cursor name, is closed
+ * instead of being returned to the cache.
+ */
+public final class StatementCache {
+    // Default number of statements kept open per connection.
+    public static final int DEFAULT_CAPACITY = 64;
+
+    // Settings restored to the statement's initial values when it is returned
+    private static final Set<String> RESTORED_SETTINGS = Set.of("setFetchSize", "setMaxRows", "setLargeMaxRows",
+            "setQueryTimeout", "setFetchDirection", "setMaxFieldSize");
+    // Settings that cannot be read back, so a statement with them changed is not reused
+    private static final Set<String> UNRESTORABLE_SETTINGS = Set.of("setCursorName", "setEscapeProcessing",
+            "setPoolable", "closeOnCompletion");
+
+    private final Connection connection;
+    private final int capacity;
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache for the given physical connection.
+     *
+     * @param connection the physical (unpooled) connection the statements belong to.
+     * @param capacity   the maximum number of statements to keep open.
+     */
+    public StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+        // Access-ordered so the eldest entry is always the least recently used one.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a PreparedStatement for the SQL text, reusing a cached one when possible.
+     * If the cached statement is still in use (for example by a caller further up the
+     * same thread), an uncached statement is prepared instead.
+     *
+     * @param sql the SQL text to prepare.
+     * @return a PreparedStatement whose close() hands it back to the cache.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    public synchronized PreparedStatement prepare(String sql) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null && !entry.inUse) {
+            hits.increment();
+            entry.inUse = true;
+            return entry.handle();
+        }
+        misses.increment();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (entry != null) {
+            // The cached copy is busy; hand out a plain statement the caller closes normally.
+            return statement;
+        }
+        try {
+            entry = new Entry(statement);
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            throw e;
+        }
+        entry.inUse = true;
+        entries.put(sql, entry);
+        evictIfFull();
+        return entry.handle();
+    }
+
+    /**
+     * Closes the least recently used idle statements until the cache is within capacity.
+     */
+    private void evictIfFull() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                closeQuietly(eldest.statement);
+                evictions.increment();
+            }
+        }
+    }
+
+    private synchronized void giveBack(Entry entry) {
+        entry.inUse = false;
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is discarded.
+     */
+    public synchronized void close() {
+        for (Entry entry : entries.values()) {
+            closeQuietly(entry.statement);
+        }
+        entries.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The statement is being thrown away anyway.
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * A cached statement, the settings it was prepared with and whether a caller currently holds it.
+     */
+    private final class Entry {
+        private final PreparedStatement statement;
+        private final int fetchSize;
+        private final long maxRows;
+        private final int queryTimeout;
+        private final int fetchDirection;
+        private final int maxFieldSize;
+        private boolean inUse;
+
+        private Entry(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getLargeMaxRows();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.fetchDirection = statement.getFetchDirection();
+            this.maxFieldSize = statement.getMaxFieldSize();
+        }
+
+        /**
+         * Puts the statement's settings back to the values it was prepared with.
+         */
+        private void restoreSettings() throws SQLException {
+            // Maximum rows first: Derby rejects a fetch size above the maximum rows.
+            statement.setLargeMaxRows(maxRows);
+            statement.setFetchSize(fetchSize);
+            statement.setQueryTimeout(queryTimeout);
+            statement.setFetchDirection(fetchDirection);
+            statement.setMaxFieldSize(maxFieldSize);
+        }
+
+        private PreparedStatement handle() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new Handle(this));
+        }
+    }
+
+    /**
+     * The statement object seen by callers. close() resets the statement and returns it
+     * to the cache; every other call goes to the real statement.
+     */
+    private final class Handle implements InvocationHandler {
+        private final Entry entry;
+        private ResultSet lastResult;
+        private boolean closed;
+        // Whether the caller changed a setting that has to be restored, or one that cannot be
+        private boolean settingsChanged;
+        private boolean unrestorable;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement has been returned to the cache");
+                    }
+                    settingsChanged |= RESTORED_SETTINGS.contains(method.getName());
+                    unrestorable |= UNRESTORABLE_SETTINGS.contains(method.getName());
+                    try {
+                        Object result = method.invoke(entry.statement, args);
+                        if (result instanceof ResultSet) {
+                            lastResult = (ResultSet) result;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        /**
+         * Leaves the statement clean for the next caller and marks it free.
+         */
+        private void release() {
+            try {
+                if (lastResult != null) {
+                    lastResult.close();
+                }
+                if (unrestorable) {
+                    drop();
+                    return;
+                }
+                entry.statement.clearParameters();
+                entry.statement.clearBatch();
+                if (settingsChanged) {
+                    entry.restoreSettings();
+                }
+            } catch (SQLException e) {
+                // A statement that cannot be reset is dropped from the cache.
+                drop();
+                return;
+            }
+            giveBack(entry);
+        }
+
+        private void drop() {
+            synchronized (StatementCache.this) {
+                entries.values().remove(entry);
+            }
+            closeQuietly(entry.statement);
+        }
+    }
+}
@@ -0,0 +1,534 @@
+package se2203b.iGlobal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The TableExporter class writes the rows of a database table to a CSV or JSON file.
+ *
+ * Rows are read from a forward-only, read-only cursor a fetch-size block at a time and
+ * written straight to a buffered writer on a FileChannel, optionally through gzip, so
+ * neither the rows nor the output are ever held in memory as a whole: a table of any
+ * size is exported in constant memory. The export can be limited to some columns and to
+ * the rows that match simple filters such as PROVINCE=ON or PRICE>=500000; table and
+ * column names are checked against the database catalog and filter values are always
+ * bound as parameters.
+ *
+ * The output is written to a temporary file next to the target and moved into place
+ * once complete, so a failed or cancelled export never leaves a partial file behind.
+ *
+ * Besides the Export Data window, the exporter can run without the user interface:
+ * IGlobalApplication passes "export" command lines to run(), for example
+ * {@code export PROPERTY property.csv.gz --columns=ID,CITY,PRICE --where=PROVINCE=ON}.
+ */
+public final class TableExporter {
+    // Rows fetched per round trip; exports read whole tables, so more than RecordStream's default.
+    public static final int EXPORT_FETCH_SIZE = 1000;
+    // Size of the output buffers, in bytes.
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Tables that are never exported: they hold password hashes.
+    private static final Set<String> EXCLUDED_TABLES = Set.of("USERACCOUNT");
+    // Comparison operators a filter may use; two-character operators come first so they match before '<' or '>'.
+    private static final String[] OPERATORS = {"<=", ">=", "<>", "!=", "=", "<", ">"};
+
+    private static final String USAGE = "Usage: export <table> <file> [--columns=COL1,COL2,...] "
+            + "[--where=COL<op>VALUE]... [--format=csv|json] [--gzip]\n"
+            + "  <op> is one of = != <> < <= > >=; the format and gzip default from the file name "
+            + "(.csv, .json, .gz).";
+
+    /**
+     * The file formats an export can be written in.
+     */
+    public enum Format {
+        // One header line with the column names, then one line per row.
+        CSV,
+        // A JSON array with one object per row; numbers and booleans are not quoted.
+        JSON
+    }
+
+    /**
+     * A condition on one column, such as PRICE>=500000.
+     */
+    public static final class Filter {
+        private final String column;
+        private final String operator;
+        private final String value;
+
+        /**
+         * @param column   the column name.
+         * @param operator one of = != <> < <= > >=.
+         * @param value    the value the column is compared with.
+         */
+        public Filter(String column, String operator, String value) {
+            if (!List.of(OPERATORS).contains(operator)) {
+                throw new IllegalArgumentException("Unknown operator " + operator);
+            }
+            this.column = column.trim().toUpperCase(Locale.ROOT);
+            this.operator = operator.equals("!=") ? "<>" : operator;
+            this.value = value;
+        }
+
+        /**
+         * Reads a filter written as column, operator and value, for example "CITY=London".
+         *
+         * @param text the filter text.
+         * @return the filter.
+         * @throws IllegalArgumentException if the text has no operator or no column name.
+         */
+        public static Filter parse(String text) {
+            int best = -1;
+            String found = null;
+            for (String operator : OPERATORS) {
+                int index = text.indexOf(operator);
+                if (index > 0 && (best < 0 || index < best)) {
+                    best = index;
+                    found = operator;
+                }
+            }
+            if (found == null || text.substring(0, best).isBlank()) {
+                throw new IllegalArgumentException("Filters are written as COLUMN<op>VALUE: " + text);
+            }
+            return new Filter(text.substring(0, best), found, text.substring(best + found.length()).trim());
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        @Override
+        public String toString() {
+            return column + operator + value;
+        }
+    }
+
+    private final String table;
+    private List<String> columns = List.of();
+    private final List<Filter> filters = new ArrayList<>();
+    private Format format = Format.CSV;
+    private boolean gzip;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates an exporter for every column and row of a table.
+     *
+     * @param table the table name, in any case.
+     */
+    public TableExporter(String table) {
+        this.table = table.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @param columns the columns to export, in order; empty for all of them.
+     */
+    public void setColumns(List<String> columns) {
+        List<String> names = new ArrayList<>();
+        for (String column : columns) {
+            if (!column.isBlank()) {
+                names.add(column.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        this.columns = names;
+    }
+
+    /**
+     * Adds a condition the exported rows must meet; all conditions must be met.
+     *
+     * @param filter the condition.
+     */
+    public void addFilter(Filter filter) {
+        filters.add(filter);
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    /**
+     * Stops a running export before its next row; the target file is left unchanged.
+     * May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Lists the tables that can be exported.
+     *
+     * @return the table names, in alphabetical order.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static List<String> getExportableTables() throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             ResultSet rs = connection.getMetaData().getTables(null, null, "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                if (!EXCLUDED_TABLES.contains(name)) {
+                    tables.add(name);
+                }
+            }
+        }
+        tables.sort(null);
+        return tables;
+    }
+
+    /**
+     * Lists the columns of a table.
+     *
+     * @param table the table name, in any case.
+     * @return the column names, in table order; empty if there is no such table.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static List<String> getColumns(String table) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            DatabaseMetaData meta = connection.getMetaData();
+            try (ResultSet rs = meta.getColumns(null, null, table.trim().toUpperCase(Locale.ROOT), "%")) {
+                while (rs.next()) {
+                    names.add(rs.getString("COLUMN_NAME"));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Exports the rows to a file, replacing it if it exists.
+     *
+     * @param file the file to write.
+     * @return the number of rows written, or -1 if the export was cancelled.
+     * @throws IOException              if the file cannot be written.
+     * @throws SQLException             if a database access error occurs.
+     * @throws IllegalArgumentException if the table, a column or a filter is not valid.
+     */
+    public long exportTo(Path file) throws IOException, SQLException {
+        String sql = buildQuery();
+        Path absolute = file.toAbsolutePath();
+        Path part = absolute.resolveSibling(absolute.getFileName() + ".part");
+        long rows;
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            for (int i = 0; i < filters.size(); i++) {
+                ps.setString(i + 1, filters.get(i).value);
+            }
+            try (ResultSet rs = ps.executeQuery();
+                 Writer out = openWriter(part)) {
+                rows = format == Format.CSV ? writeCsv(rs, out) : writeJson(rs, out);
+            }
+            if (rows < 0) {
+                Files.deleteIfExists(part);
+                return rows;
+            }
+            Files.move(part, absolute, StandardCopyOption.REPLACE_EXISTING);
+            return rows;
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        } finally {
+            cancelled = false;
+        }
+    }
+
+    /**
+     * Builds the SELECT statement after checking the table, columns and filters against the catalog.
+     */
+    private String buildQuery() throws SQLException {
+        if (EXCLUDED_TABLES.contains(table)) {
+            throw new IllegalArgumentException("The " + table + " table cannot be exported");
+        }
+        List<String> tableColumns = getColumns(table);
+        if (tableColumns.isEmpty()) {
+            throw new IllegalArgumentException("There is no table named " + table);
+        }
+        List<String> selected = columns.isEmpty() ? tableColumns : columns;
+        for (String column : selected) {
+            if (!tableColumns.contains(column)) {
+                throw new IllegalArgumentException(table + " has no column named " + column);
+            }
+        }
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < selected.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(quote(selected.get(i)));
+        }
+        sql.append(" FROM ").append(quote(table));
+        for (int i = 0; i < filters.size(); i++) {
+            Filter filter = filters.get(i);
+            if (!tableColumns.contains(filter.column)) {
+                throw new IllegalArgumentException(table + " has no column named " + filter.column);
+            }
+            sql.append(i == 0 ? " WHERE " : " AND ").append(quote(filter.column)).append(' ')
+                    .append(filter.operator).append(" ?");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Opens a buffered UTF-8 writer on a FileChannel, through gzip if requested.
+     */
+    private Writer openWriter(Path path) throws IOException {
+        OutputStream out = Channels.newOutputStream(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        try {
+            if (gzip) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a header line and one line per row. Values that contain a comma, a quote or a
+     * line break, or that start or end with a space, are enclosed in double quotes; NULL is
+     * written as an empty value.
+     */
+    private long writeCsv(ResultSet rs, Writer out) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int count = meta.getColumnCount();
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                out.write(',');
+            }
+            writeCsvValue(out, meta.getColumnLabel(i));
+        }
+        out.write('\n');
+        long rows = 0;
+        while (rs.next()) {
+            if (cancelled) {
+                return -1;
+            }
+            for (int i = 1; i <= count; i++) {
+                if (i > 1) {
+                    out.write(',');
+                }
+                String value = rs.getString(i);
+                if (value != null) {
+                    writeCsvValue(out, value);
+                }
+            }
+            out.write('\n');
+            rows++;
+        }
+        return rows;
+    }
+
+    private static void writeCsvValue(Writer out, String value) throws IOException {
+        boolean quote = value.isEmpty() ? false : value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ';
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    /**
+     * Writes a JSON array with one object per row, one row per line. Numeric and boolean
+     * columns are written as JSON numbers and booleans, everything else as strings, and
+     * NULL as null.
+     */
+    private long writeJson(ResultSet rs, Writer out) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int count = meta.getColumnCount();
+        String[] keys = new String[count + 1];
+        boolean[] literal = new boolean[count + 1];
+        for (int i = 1; i <= count; i++) {
+            StringBuilder key = new StringBuilder();
+            appendJsonString(key, meta.getColumnLabel(i));
+            keys[i] = key.append(':').toString();
+            literal[i] = isLiteral(meta.getColumnType(i));
+        }
+        out.write('[');
+        long rows = 0;
+        StringBuilder line = new StringBuilder(256);
+        while (rs.next()) {
+            if (cancelled) {
+                return -1;
+            }
+            line.setLength(0);
+            line.append(rows == 0 ? "\n{" : ",\n{");
+            for (int i = 1; i <= count; i++) {
+                if (i > 1) {
+                    line.append(',');
+                }
+                line.append(keys[i]);
+                String value = rs.getString(i);
+                if (value == null) {
+                    line.append("null");
+                } else if (literal[i]) {
+                    line.append(value);
+                } else {
+                    appendJsonString(line, value);
+                }
+            }
+            line.append('}');
+            out.append(line);
+            rows++;
+        }
+        out.write("\n]\n");
+        return rows;
+    }
+
+    private static boolean isLiteral(int type) {
+        switch (type) {
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.BOOLEAN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Quotes a name that has been checked against the catalog, so it is used exactly as stored.
+     */
+    private static String quote(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Runs an export from command-line arguments, without the user interface.
+     *
+     * @param args the table, the file and the options described in the usage text.
+     * @return the process exit code: 0 on success, 1 if the export failed, 2 for bad arguments.
+     */
+    public static int run(String[] args) {
+        List<String> positional = new ArrayList<>();
+        List<String> columns = List.of();
+        List<Filter> filters = new ArrayList<>();
+        String format = null;
+        boolean gzip = false;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--columns=")) {
+                    columns = List.of(arg.substring("--columns=".length()).split(","));
+                } else if (arg.startsWith("--where=")) {
+                    filters.add(Filter.parse(arg.substring("--where=".length())));
+                } else if (arg.startsWith("--format=")) {
+                    format = arg.substring("--format=".length()).toUpperCase(Locale.ROOT);
+                } else if (arg.equals("--gzip")) {
+                    gzip = true;
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                } else {
+                    positional.add(arg);
+                }
+            }
+            if (positional.size() != 2) {
+                throw new IllegalArgumentException("Expected a table and a file");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        String fileName = positional.get(1).toLowerCase(Locale.ROOT);
+        TableExporter exporter = new TableExporter(positional.get(0));
+        exporter.setColumns(columns);
+        filters.forEach(exporter::addFilter);
+        exporter.setGzip(gzip || fileName.endsWith(".gz"));
+        try {
+            exporter.setFormat(format != null ? Format.valueOf(format)
+                    : fileName.endsWith(".json") || fileName.endsWith(".json.gz") ? Format.JSON : Format.CSV);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown format " + format);
+            System.err.println(USAGE);
+            return 2;
+        }
+        long start = System.nanoTime();
+        try {
+            long rows = exporter.exportTo(Paths.get(positional.get(1)));
+            System.out.printf("Exported %d rows from %s to %s in %.1f s%n", rows, exporter.table,
+                    positional.get(1), (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        } catch (IOException | SQLException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            return 1;
+        } finally {
+            ConnectionPool.shutdown();
+        }
+    }
+}
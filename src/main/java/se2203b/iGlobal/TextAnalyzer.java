@@ -0,0 +1,103 @@
+package se2203b.iGlobal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The TextAnalyzer class turns free text into the terms used by the PropertyTextIndex.
+ *
+ * Text is lower-cased and split on every character that is not a letter or digit.
+ * Common English stop words are dropped, and each remaining word is reduced to its
+ * stem by a light suffix-stripping stemmer, so that "renovated", "renovation" and
+ * "renovations" all become "renovat". Documents and queries must be analyzed the
+ * same way for their terms to match.
+ */
+public final class TextAnalyzer {
+    // Words too common in listings to help ranking.
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is",
+            "it", "its", "of", "on", "or", "the", "this", "that", "to", "with");
+
+    // A stem is never cut shorter than this.
+    private static final int MIN_STEM = 3;
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Splits text into stemmed terms, in the order they appear.
+     *
+     * @param text the text to analyze; null is treated as empty.
+     * @return the terms, with repeats.
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() > 1 && !STOP_WORDS.contains(word)) {
+                terms.add(stem(word));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Reduces a lower-case word to its stem.
+     * Plurals are removed first, then -ing/-ed, -ion, -ly and a final e.
+     *
+     * @param word the word to stem.
+     * @return the stem.
+     */
+    public static String stem(String word) {
+        if (word.length() <= MIN_STEM || Character.isDigit(word.charAt(0))) {
+            return word;
+        }
+        String w = word;
+        // Plurals: amenities -> amenity, glasses -> glass, garages -> garage.
+        if (w.endsWith("ies") && w.length() - 3 >= MIN_STEM - 1) {
+            w = w.substring(0, w.length() - 3) + "y";
+        } else if (w.endsWith("sses")) {
+            w = w.substring(0, w.length() - 2);
+        } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && !w.endsWith("is")) {
+            w = w.substring(0, w.length() - 1);
+        }
+        // Verb forms: parking -> park, renovated -> renovat, shopping -> shop.
+        String before = w;
+        w = strip(w, "ing");
+        if (w.equals(before)) {
+            w = strip(w, "ed");
+        }
+        if (!w.equals(before)) {
+            w = undouble(w);
+        }
+        // Nouns and adverbs: renovation -> renovat, newly -> new.
+        w = strip(w, "ion");
+        w = strip(w, "ly");
+        // A final e: garage -> garag, renovate -> renovat.
+        if (w.endsWith("e") && w.length() - 1 >= MIN_STEM + 1) {
+            w = w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+
+    // Removes the suffix if a long enough stem remains.
+    private static String strip(String word, String suffix) {
+        if (word.endsWith(suffix) && word.length() - suffix.length() >= MIN_STEM) {
+            return word.substring(0, word.length() - suffix.length());
+        }
+        return word;
+    }
+
+    // Undoubles a final consonant left by -ing/-ed, except l, s and z (fill, pass, buzz).
+    private static String undouble(String word) {
+        int n = word.length();
+        if (n > MIN_STEM && word.charAt(n - 1) == word.charAt(n - 2) && "aeiouylsz".indexOf(word.charAt(n - 1)) < 0) {
+            return word.substring(0, n - 1);
+        }
+        return word;
+    }
+}
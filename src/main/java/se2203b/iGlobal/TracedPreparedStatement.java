@@ -0,0 +1,383 @@
+package se2203b.iGlobal;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * The TracedPreparedStatement class is the TracedStatement for a PreparedStatement. Each
+ * setter keeps its value for the slow query log before passing it on.
+ */
+final class TracedPreparedStatement extends TracedStatement implements PreparedStatement {
+    private final PreparedStatement prepared;
+
+    TracedPreparedStatement(SlowQueryLog log, PreparedStatement prepared, String sql) {
+        super(log, prepared, sql);
+        this.prepared = prepared;
+    }
+
+    // Statements that run the prepared SQL
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        return query(run(null, prepared::executeQuery));
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        return updated(run(null, prepared::executeUpdate));
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        return largeUpdated(run(null, prepared::executeLargeUpdate));
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        return executed(run(null, prepared::execute));
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        batchAdded();
+        prepared.addBatch();
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        clearBinds();
+        prepared.clearParameters();
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return prepared.getMetaData();
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        return prepared.getParameterMetaData();
+    }
+
+    // Setters
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        bind(parameterIndex, null);
+        prepared.setNull(parameterIndex, sqlType);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBoolean(parameterIndex, x);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setByte(parameterIndex, x);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setShort(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setInt(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setLong(parameterIndex, x);
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setFloat(parameterIndex, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setDouble(parameterIndex, x);
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBigDecimal(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setString(parameterIndex, x);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBytes(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setDate(parameterIndex, x);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setTime(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setTimestamp(parameterIndex, x);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setAsciiStream(parameterIndex, x, length);
+    }
+
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setUnicodeStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBinaryStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setObject(parameterIndex, x, targetSqlType);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setObject(parameterIndex, x);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader x, int length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setCharacterStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setRef(parameterIndex, x);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBlob(parameterIndex, x);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setClob(parameterIndex, x);
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setArray(parameterIndex, x);
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setDate(parameterIndex, x, cal);
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setTime(parameterIndex, x, cal);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setTimestamp(parameterIndex, x, cal);
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        bind(parameterIndex, null);
+        prepared.setNull(parameterIndex, sqlType, typeName);
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setURL(parameterIndex, x);
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setRowId(parameterIndex, x);
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setNString(parameterIndex, x);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setNCharacterStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setNClob(parameterIndex, x);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setClob(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBlob(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setNClob(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setSQLXML(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setAsciiStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBinaryStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setCharacterStream(parameterIndex, x, length);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setAsciiStream(parameterIndex, x);
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBinaryStream(parameterIndex, x);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setCharacterStream(parameterIndex, x);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setNCharacterStream(parameterIndex, x);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setClob(parameterIndex, x);
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setBlob(parameterIndex, x);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader x) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setNClob(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType, int scaleOrLength) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, SQLType targetSqlType) throws SQLException {
+        bind(parameterIndex, x);
+        prepared.setObject(parameterIndex, x, targetSqlType);
+    }
+}
@@ -0,0 +1,510 @@
+package se2203b.iGlobal;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The TracedStatement class is the Statement the SlowQueryLog hands out in place of the
+ * driver's. It times every execute call and reports the statement to the SlowQueryLog
+ * and DataStoreMetrics when it finishes; every other call is forwarded unchanged.
+ *
+ * An update finishes when its execute call returns. A query finishes when its
+ * TracedResultSet is closed, or when the statement is run again or closed first.
+ * TracedPreparedStatement adds the bind values, which are kept for the log.
+ */
+class TracedStatement implements Statement {
+    // Longer bind values are cut to this many characters.
+    private static final int MAX_VALUE_LENGTH = 100;
+
+    private final SlowQueryLog log;
+    private final Statement statement;
+    // Bind values are only kept while the slow query log is on, the one place they are shown.
+    private final boolean keepBinds;
+    private String sql;
+    // Bind values by parameter index
+    private final Map<Integer, Object> binds = new TreeMap<>();
+    private int batchSize;
+    // The operation the last execution ran for, or null when DataStoreMetrics is off
+    private DataStoreMetrics.Caller caller;
+    // When the last execute call started
+    private long startNanos;
+    // Duration of an execute() whose ResultSet has not been fetched yet, or -1
+    private long pendingNanos = -1;
+    // The ResultSet still being read, finished if the statement is closed or re-run first
+    private TracedResultSet openResult;
+
+    /**
+     * A call to the driver that runs the statement.
+     */
+    @FunctionalInterface
+    interface Execution<T> {
+        T run() throws SQLException;
+    }
+
+    TracedStatement(SlowQueryLog log, Statement statement, String sql) {
+        this.log = log;
+        this.statement = statement;
+        this.sql = sql;
+        this.keepBinds = log.isEnabled();
+    }
+
+    /**
+     * @return the SQL text last run.
+     */
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return a copy of the bind values by parameter index.
+     */
+    Map<Integer, Object> copyBinds() {
+        return new TreeMap<>(binds);
+    }
+
+    /**
+     * Keeps a bind value for the log.
+     */
+    void bind(int parameterIndex, Object value) {
+        if (keepBinds) {
+            binds.put(parameterIndex, value);
+        }
+    }
+
+    void clearBinds() {
+        binds.clear();
+    }
+
+    void batchAdded() {
+        batchSize++;
+    }
+
+    /**
+     * Runs an execute call of the driver and starts timing it. A failure is recorded in
+     * DataStoreMetrics and rethrown.
+     *
+     * @param text the SQL text passed to the call, or null if it runs the prepared text.
+     */
+    <T> T run(String text, Execution<T> execution) throws SQLException {
+        finishOpenResult();
+        if (text != null) {
+            sql = text;
+        }
+        caller = DataStoreMetrics.isEnabled() ? DataStoreMetrics.caller() : null;
+        startNanos = System.nanoTime();
+        try {
+            return execution.run();
+        } catch (SQLException | RuntimeException e) {
+            if (caller != null) {
+                DataStoreMetrics.getInstance().record(caller, System.nanoTime() - startNanos, 0, true);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Finishes an update that changed the given number of rows.
+     */
+    int updated(int rows) {
+        log.finished(this, caller, rows, System.nanoTime() - startNanos, false);
+        return rows;
+    }
+
+    long largeUpdated(long rows) {
+        log.finished(this, caller, rows, System.nanoTime() - startNanos, false);
+        return rows;
+    }
+
+    /**
+     * Finishes an execute() that returned an update count, or keeps its time until its
+     * ResultSet is fetched.
+     */
+    boolean executed(boolean hasResultSet) throws SQLException {
+        if (hasResultSet) {
+            pendingNanos = System.nanoTime() - startNanos;
+        } else {
+            log.finished(this, caller, statement.getUpdateCount(), System.nanoTime() - startNanos, false);
+        }
+        return hasResultSet;
+    }
+
+    int[] batched(int[] counts) {
+        long total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        log.finished(this, caller, total, System.nanoTime() - startNanos, false);
+        batchSize = 0;
+        return counts;
+    }
+
+    long[] batched(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += Math.max(count, 0);
+        }
+        log.finished(this, caller, total, System.nanoTime() - startNanos, false);
+        batchSize = 0;
+        return counts;
+    }
+
+    /**
+     * Wraps the ResultSet of a query that has just run, so the time spent reading it is counted.
+     */
+    ResultSet query(ResultSet rs) {
+        openResult = new TracedResultSet(this, caller, rs, System.nanoTime() - startNanos);
+        return openResult;
+    }
+
+    /**
+     * Called by a TracedResultSet once it has been read and closed.
+     */
+    void resultFinished(TracedResultSet result, DataStoreMetrics.Caller resultCaller, long rows, long elapsedNanos) {
+        if (openResult == result) {
+            openResult = null;
+        }
+        log.finished(this, resultCaller, rows, elapsedNanos, true);
+    }
+
+    private void finishOpenResult() {
+        if (openResult != null) {
+            openResult.finish();
+        }
+    }
+
+    /**
+     * Lists the bind values, "(none)" if there are none; batches report the last row's values.
+     */
+    String describeBinds() {
+        if (binds.isEmpty()) {
+            return batchSize > 0 ? "(none), batch of " + batchSize : "(none)";
+        }
+        if (sql != null && sql.toUpperCase(Locale.ROOT).contains("USERACCOUNT")) {
+            return "(not logged for USERACCOUNT)";
+        }
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Integer, Object> bind : binds.entrySet()) {
+            if (text.length() > 0) {
+                text.append(", ");
+            }
+            text.append(bind.getKey()).append('=');
+            Object value = bind.getValue();
+            if (value == null) {
+                text.append("NULL");
+            } else if (value instanceof String s) {
+                text.append('\'').append(s.length() > MAX_VALUE_LENGTH ? s.substring(0, MAX_VALUE_LENGTH) + "..." : s)
+                        .append('\'');
+            } else {
+                text.append(value);
+            }
+        }
+        if (batchSize > 0) {
+            text.append(" (last row of a batch of ").append(batchSize).append(')');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "TracedStatement[" + statement + "]";
+    }
+
+    // Statements that run SQL
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return query(run(sql, () -> statement.executeQuery(sql)));
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return updated(run(sql, () -> statement.executeUpdate(sql)));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return updated(run(sql, () -> statement.executeUpdate(sql, autoGeneratedKeys)));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return updated(run(sql, () -> statement.executeUpdate(sql, columnIndexes)));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return updated(run(sql, () -> statement.executeUpdate(sql, columnNames)));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return largeUpdated(run(sql, () -> statement.executeLargeUpdate(sql)));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return largeUpdated(run(sql, () -> statement.executeLargeUpdate(sql, autoGeneratedKeys)));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return largeUpdated(run(sql, () -> statement.executeLargeUpdate(sql, columnIndexes)));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return largeUpdated(run(sql, () -> statement.executeLargeUpdate(sql, columnNames)));
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return executed(run(sql, () -> statement.execute(sql)));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return executed(run(sql, () -> statement.execute(sql, autoGeneratedKeys)));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return executed(run(sql, () -> statement.execute(sql, columnIndexes)));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return executed(run(sql, () -> statement.execute(sql, columnNames)));
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        return batched(run(null, statement::executeBatch));
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        return batched(run(null, statement::executeLargeBatch));
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        ResultSet rs = statement.getResultSet();
+        if (rs == null || pendingNanos < 0) {
+            return rs;
+        }
+        startNanos = System.nanoTime() - pendingNanos;
+        pendingNanos = -1;
+        return query(rs);
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        batchSize++;
+        statement.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        batchSize = 0;
+        statement.clearBatch();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finishOpenResult();
+        statement.close();
+    }
+
+    // Everything else is forwarded
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return statement.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        statement.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return statement.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        statement.setMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return statement.getLargeMaxRows();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        statement.setLargeMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        statement.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return statement.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        statement.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        statement.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return statement.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        statement.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        statement.setCursorName(name);
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return statement.getUpdateCount();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return statement.getLargeUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return statement.getMoreResults();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return statement.getMoreResults(current);
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        statement.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return statement.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        statement.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return statement.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return statement.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return statement.getResultSetType();
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return statement.getResultSetHoldability();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return statement.getConnection();
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return statement.getGeneratedKeys();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return statement.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        statement.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return statement.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        statement.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return statement.isCloseOnCompletion();
+    }
+
+    @Override
+    public String enquoteLiteral(String val) throws SQLException {
+        return statement.enquoteLiteral(val);
+    }
+
+    @Override
+    public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+        return statement.enquoteIdentifier(identifier, alwaysQuote);
+    }
+
+    @Override
+    public boolean isSimpleIdentifier(String identifier) throws SQLException {
+        return statement.isSimpleIdentifier(identifier);
+    }
+
+    @Override
+    public String enquoteNCharLiteral(String val) throws SQLException {
+        return statement.enquoteNCharLiteral(val);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return statement.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return statement.isWrapperFor(iface);
+    }
+}
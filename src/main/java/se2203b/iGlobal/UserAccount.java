@@ -2,71 +2,102 @@ package se2203b.iGlobal;
 
 import javafx.beans.property.*;
 /**
+ * Each value is kept in a plain field; its JavaFX property is only created the first
+ * time the xxxProperty() method is called, and then holds the value from there on.
+ *
  * @author Abdelkader Ouda
  */
 public class UserAccount {
-    private StringProperty userAccountName;
-    private StringProperty encryptedPassword;
-    private StringProperty passwordSalt;
-    private StringProperty accountType;  // "admin", "executive, or "egent"
+    private String userAccountName;
+    private StringProperty userAccountNameProperty;
+    private String encryptedPassword;
+    private StringProperty encryptedPasswordProperty;
+    private String passwordSalt;
+    private StringProperty passwordSaltProperty;
+    private String accountType;  // "admin", "executive, or "egent"
+    private StringProperty accountTypeProperty;
 
     public UserAccount() {
-        this.userAccountName = new SimpleStringProperty();
-        this.encryptedPassword = new SimpleStringProperty();
-        this.passwordSalt = new SimpleStringProperty();
-        this.accountType = new SimpleStringProperty();
     }
 
     public UserAccount(String userAccountName, String encryptedPassword, String passwordSalt, String accountType) {
-        this.userAccountName = new SimpleStringProperty(userAccountName);
-        this.encryptedPassword = new SimpleStringProperty(encryptedPassword);
-        this.passwordSalt = new SimpleStringProperty(passwordSalt);
-        this.accountType = new SimpleStringProperty(accountType);
+        this.userAccountName = userAccountName;
+        this.encryptedPassword = encryptedPassword;
+        this.passwordSalt = passwordSalt;
+        this.accountType = accountType;
     }
 
     //set and get methods
     // userName property
     public void setUserAccountName(String userAccountName) {
-        this.userAccountName.set(userAccountName);
+        if (this.userAccountNameProperty == null) {
+            this.userAccountName = userAccountName;
+        } else {
+            this.userAccountNameProperty.set(userAccountName);
+        }
     }
     public StringProperty userAccountNameProperty() {
-        return this.userAccountName;
+        if (this.userAccountNameProperty == null) {
+            this.userAccountNameProperty = new SimpleStringProperty(this, "userAccountName", this.userAccountName);
+        }
+        return this.userAccountNameProperty;
     }
     public String getUserAccountName() {
-        return this.userAccountName.get();
+        return this.userAccountNameProperty == null ? this.userAccountName : this.userAccountNameProperty.get();
     }
 
     // encryptedPassword property
     public void setEncryptedPassword(String encryptedPassword) {
-        this.encryptedPassword.set(encryptedPassword);
+        if (this.encryptedPasswordProperty == null) {
+            this.encryptedPassword = encryptedPassword;
+        } else {
+            this.encryptedPasswordProperty.set(encryptedPassword);
+        }
     }
     public StringProperty encryptedPasswordProperty() {
-        return this.encryptedPassword;
+        if (this.encryptedPasswordProperty == null) {
+            this.encryptedPasswordProperty = new SimpleStringProperty(this, "encryptedPassword", this.encryptedPassword);
+        }
+        return this.encryptedPasswordProperty;
     }
     public String getEncryptedPassword() {
-        return this.encryptedPassword.get();
+        return this.encryptedPasswordProperty == null ? this.encryptedPassword : this.encryptedPasswordProperty.get();
     }
 
     // passwordSalt property
     public void setPasswordSalt(String passwordSalt) {
-        this.passwordSalt.set(passwordSalt);
+        if (this.passwordSaltProperty == null) {
+            this.passwordSalt = passwordSalt;
+        } else {
+            this.passwordSaltProperty.set(passwordSalt);
+        }
     }
     public StringProperty passwordSaltProperty() {
-        return this.passwordSalt;
+        if (this.passwordSaltProperty == null) {
+            this.passwordSaltProperty = new SimpleStringProperty(this, "passwordSalt", this.passwordSalt);
+        }
+        return this.passwordSaltProperty;
     }
     public String getPasswordSalt() {
-        return this.passwordSalt.get();
+        return this.passwordSaltProperty == null ? this.passwordSalt : this.passwordSaltProperty.get();
     }
 
     // account type property
     public void setAccountType(String accountType) {
-        this.accountType.set(accountType);
+        if (this.accountTypeProperty == null) {
+            this.accountType = accountType;
+        } else {
+            this.accountTypeProperty.set(accountType);
+        }
     }
     public StringProperty accountTypeProperty() {
-        return this.accountType;
+        if (this.accountTypeProperty == null) {
+            this.accountTypeProperty = new SimpleStringProperty(this, "accountType", this.accountType);
+        }
+        return this.accountTypeProperty;
     }
     public String getAccountType() {
-        return this.accountType.get();
+        return this.accountTypeProperty == null ? this.accountType : this.accountTypeProperty.get();
     }
 
 }
@@ -0,0 +1,229 @@
+package se2203b.iGlobal;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The UserAccountCache class keeps recently used user accounts and the list of account
+ * names in memory, so logging in and switching accounts in Manage User Accounts does
+ * not read the UserAccount table every time.
+ *
+ * UserAccountTableAdapter reads through the cache and writes through it: an account is
+ * cached after it is read, added or updated, and a deleted account is dropped. Names that
+ * are not in the table are remembered too, so mistyped logins do not reach the database
+ * either. Both are bounded and the least recently used entries are dropped first; unknown
+ * names have a smaller bound of their own, so they cannot push out real accounts. The
+ * cache relies on every change to the table going through the adapter, which holds in
+ * this application because the embedded database belongs to this process alone.
+ *
+ * Accounts are copied on the way in and out, so a caller changing the account it was
+ * given, for example before a save that then fails, never changes the cached copy. A
+ * read that overlaps a write is not cached, so the cache cannot go back to an old row.
+ * Hits, misses and evictions are counted and shown in the Performance window.
+ */
+public final class UserAccountCache {
+    // Most accounts kept in memory
+    public static final int MAX_ACCOUNTS = 1000;
+    // Most unknown account names remembered
+    public static final int MAX_MISSING = 200;
+
+    private static final UserAccountCache INSTANCE = new UserAccountCache();
+
+    // Lookup and eviction counts, for the Performance window
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Cached accounts by name, least recently used first
+    private final Map<String, UserAccount> accounts = lru(MAX_ACCOUNTS);
+    // Names known not to be in the table, least recently used first
+    private final Map<String, Boolean> missing = lru(MAX_MISSING);
+    // All account names in key order, or null when they have to be read again
+    private NavigableSet<String> keys;
+    // Incremented by every change, so a read that overlaps one is not cached
+    private long version;
+
+    private UserAccountCache() {
+    }
+
+    /**
+     * @return the shared cache instance.
+     */
+    public static UserAccountCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns an account, reading it with the given call if it is not cached.
+     *
+     * @param name the account name.
+     * @param load reads the account from the database; returns null if there is none.
+     * @return a copy of the account, or null if there is no such account.
+     * @throws SQLException if the account has to be read and a database error occurs.
+     */
+    public UserAccount find(String name, AsyncDataStore.DataCall<UserAccount> load) throws SQLException {
+        long readVersion;
+        synchronized (this) {
+            UserAccount cached = accounts.get(name);
+            if (cached != null || missing.get(name) != null) {
+                hits.increment();
+                return cached == null ? null : copy(cached);
+            }
+            readVersion = version;
+        }
+        misses.increment();
+        UserAccount loaded = load.run();
+        synchronized (this) {
+            if (readVersion == version) {
+                if (loaded == null) {
+                    missing.put(name, Boolean.TRUE);
+                } else {
+                    accounts.put(name, copy(loaded));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the names of all accounts, reading them with the given call if they are not cached.
+     *
+     * @param load reads the names from the database.
+     * @return the account names in key order.
+     * @throws SQLException if the names have to be read and a database error occurs.
+     */
+    public List<String> keys(AsyncDataStore.DataCall<List<String>> load) throws SQLException {
+        long readVersion;
+        synchronized (this) {
+            if (keys != null) {
+                hits.increment();
+                return new ArrayList<>(keys);
+            }
+            readVersion = version;
+        }
+        misses.increment();
+        List<String> loaded = load.run();
+        synchronized (this) {
+            if (readVersion == version) {
+                keys = new TreeSet<>(loaded);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Records accounts that have just been added to or updated in the table.
+     *
+     * @param written the accounts as written.
+     */
+    public synchronized void stored(List<UserAccount> written) {
+        for (UserAccount account : written) {
+            String name = account.getUserAccountName();
+            accounts.put(name, copy(account));
+            missing.remove(name);
+            if (keys != null) {
+                keys.add(name);
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Records accounts that have just been deleted from the table.
+     *
+     * @param names the names of the deleted accounts.
+     */
+    public synchronized void removed(List<String> names) {
+        for (String name : names) {
+            accounts.remove(name);
+            missing.put(name, Boolean.TRUE);
+            if (keys != null) {
+                keys.remove(name);
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Drops everything cached, for when the table is dropped and created again.
+     */
+    public synchronized void invalidate() {
+        accounts.clear();
+        missing.clear();
+        keys = null;
+        version++;
+    }
+
+    /**
+     * @return the number of lookups answered from memory, including unknown names.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that read the database.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the share of lookups answered from memory, from 0 to 1; 0 if there were none.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return the number of entries dropped to stay within the bounds.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of accounts held in memory.
+     */
+    public synchronized int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Clears the hit, miss and eviction counts; the cached data is kept.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private static UserAccount copy(UserAccount account) {
+        return new UserAccount(account.getUserAccountName(), account.getEncryptedPassword(),
+                account.getPasswordSalt(), account.getAccountType());
+    }
+
+    /**
+     * @return a map in access order that drops its least recently used entry beyond the given size.
+     */
+    private <V> Map<String, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+}
@@ -3,51 +3,38 @@ package se2203b.iGlobal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * UserAccountTableAdapter is responsible for performing CRUD operations on the UserAccount table in the database.
  * It implements the DataStore interface and provides methods to add, update, find, and delete user account records.
+ * Lookups are served from the UserAccountCache where possible, and every successful write is passed on to it.
  */
 public class UserAccountTableAdapter implements DataStore {
-    // Database connection string
-    private String DB_URL = "jdbc:derby:iGlobalDB";
-    // Connection object to interact with the database
-    private Connection connection;
+    private static final String INSERT_SQL = "INSERT INTO UserAccount "
+            + "(userAccountName, encryptedPassword, passwordSalt, accountType) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE UserAccount SET "
+            + "userAccountName = ?, encryptedPassword = ?, passwordSalt = ?, accountType = ? "
+            + "WHERE userAccountName = ?";
+    private static final String DELETE_SQL = "DELETE FROM UserAccount WHERE userAccountName = ?";
+
+    private final UserAccountCache cache = UserAccountCache.getInstance();
 
     /**
      * Constructor for UserAccountTableAdapter.
-     * Establishes a database connection, optionally resets the UserAccount table, and creates the table if it does not exist.
+     * If reset is true, drops and recreates the UserAccount table through SchemaMigrator.reset(),
+     * which also empties Administrator; otherwise the table is left to
+     * SchemaMigrator.bootstrap() and nothing is run.
      *
      * @param reset if true, the table will be dropped and recreated.
      * @throws SQLException if a database access error occurs.
      */
     public UserAccountTableAdapter(Boolean reset) throws SQLException {
-        // Open a connection to the database.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // If reset flag is true, drop the UserAccount table if it exists.
         if (reset) {
-            try {
-                // Remove the UserAccount table.
-                stmt.execute("DROP TABLE UserAccount");
-            } catch (SQLException ex) {
-                // Table did not exist; ignore the exception.
-            }
-        }
-        // Try to create the UserAccount table.
-        try {
-            String command = "CREATE TABLE UserAccount ("
-                    + "userAccountName VARCHAR(30) NOT NULL PRIMARY KEY, "
-                    + "encryptedPassword VARCHAR(100) NOT NULL, "
-                    + "passwordSalt VARCHAR(50) NOT NULL, "
-                    + "accountType VARCHAR(10) NOT NULL"
-                    + ")";
-            stmt.execute(command);
-        } catch (SQLException ex) {
-            // If the table already exists, ignore the error.
+            // The migrations recreate the table with its primary key; Administrator refers to it and is emptied too.
+            SchemaMigrator.reset("USERACCOUNT");
+            cache.invalidate();
         }
-        // Close the connection after setting up the table.
-        connection.close();
     }
 
     /**
@@ -60,20 +47,25 @@ public class UserAccountTableAdapter implements DataStore {
     public void addNewRecord(Object data) throws SQLException {
         // Cast the input object to UserAccount.
         UserAccount userAccount = (UserAccount) data;
-        // Open a new database connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // Build the SQL INSERT command using the values from the UserAccount object.
-        String command = "INSERT INTO UserAccount (userAccountName, encryptedPassword, passwordSalt, accountType) "
-                + "VALUES ('"
-                + userAccount.getUserAccountName() + "', '"
-                + userAccount.getEncryptedPassword() + "', '"
-                + userAccount.getPasswordSalt() + "', '"
-                + userAccount.getAccountType() + "')";
-        // Execute the SQL command.
-        stmt.executeUpdate(command);
-        // Close the connection.
-        connection.close();
+        // Borrow a connection and execute the SQL INSERT command.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            bindAccount(ps, userAccount);
+            ps.executeUpdate();
+        }
+        cache.stored(List.of(userAccount));
+    }
+
+    /**
+     * Adds many UserAccount records as JDBC batches in a single transaction.
+     *
+     * @param data a list of UserAccount objects.
+     * @throws SQLException if a database access error occurs; no record is added.
+     */
+    @Override
+    public void addRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(INSERT_SQL, data, (ps, record) -> bindAccount(ps, (UserAccount) record));
+        cache.stored(accounts(data));
     }
 
     /**
@@ -86,47 +78,67 @@ public class UserAccountTableAdapter implements DataStore {
     public void updateRecord(Object data) throws SQLException {
         // Cast the input object to UserAccount.
         UserAccount userAccount = (UserAccount) data;
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // Build the SQL UPDATE command using the values from the UserAccount object.
-        String command = "UPDATE UserAccount SET "
-                + "userAccountName = '" + userAccount.getUserAccountName() + "', "
-                + "encryptedPassword = '" + userAccount.getEncryptedPassword() + "', "
-                + "passwordSalt = '" + userAccount.getPasswordSalt() + "', "
-                + "accountType = '" + userAccount.getAccountType() + "' "
-                + "WHERE userAccountName = '" + userAccount.getUserAccountName() + "'";
-        // Execute the UPDATE command.
-        stmt.executeUpdate(command);
-        // Close the connection.
-        connection.close();
+        // Borrow a connection and execute the UPDATE command.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(UPDATE_SQL)) {
+            bindUpdate(ps, userAccount);
+            // An account that is not in the table is left out of the cache too.
+            if (ps.executeUpdate() > 0) {
+                cache.stored(List.of(userAccount));
+            }
+        }
+    }
+
+    /**
+     * Updates many UserAccount records as JDBC batches in a single transaction.
+     *
+     * @param data a list of UserAccount objects.
+     * @throws SQLException if a database access error occurs; no record is updated.
+     */
+    @Override
+    public void updateRecordList(List<?> data) throws SQLException {
+        int updated = BatchWriter.execute(UPDATE_SQL, data, (ps, record) -> bindUpdate(ps, (UserAccount) record));
+        // Only the total is known, so if some account was not in the table nothing is kept.
+        if (updated == data.size()) {
+            cache.stored(accounts(data));
+        } else {
+            cache.invalidate();
+        }
     }
 
     /**
-     * Retrieves a UserAccount record from the database based on the given username.
+     * Retrieves a UserAccount record based on the given username, from the UserAccountCache
+     * if it holds the account or knows there is none.
      *
      * @param key the username (userAccountName) to search for.
-     * @return a UserAccount object populated with data from the database.
+     * @return a UserAccount object populated with the account data; empty if there is no such account.
      * @throws SQLException if a database access error occurs.
      */
     @Override
     public Object findOneRecord(String key) throws SQLException {
-        UserAccount userAccount = new UserAccount();
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
+        UserAccount userAccount = cache.find(key, () -> readAccount(key));
+        return userAccount != null ? userAccount : new UserAccount();
+    }
+
+    // Read one account from the database; null if there is none.
+    private UserAccount readAccount(String key) throws SQLException {
+        UserAccount userAccount = null;
         // Build the SQL SELECT command.
-        String command = "SELECT * FROM UserAccount WHERE userAccountName = '" + key + "'";
-        ResultSet rs = stmt.executeQuery(command);
-        // Populate the UserAccount object with the retrieved data.
-        while (rs.next()) {
-            userAccount.setUserAccountName(rs.getString(1));
-            userAccount.setEncryptedPassword(rs.getString(2));
-            userAccount.setPasswordSalt(rs.getString(3));
-            userAccount.setAccountType(rs.getString(4));
+        String command = "SELECT * FROM UserAccount WHERE userAccountName = ?";
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(command)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                // Populate the UserAccount object with the retrieved data.
+                while (rs.next()) {
+                    userAccount = new UserAccount();
+                    userAccount.setUserAccountName(rs.getString(1));
+                    userAccount.setEncryptedPassword(rs.getString(2));
+                    userAccount.setPasswordSalt(rs.getString(3));
+                    userAccount.setAccountType(rs.getString(4));
+                }
+            }
         }
-        // Close the connection.
-        connection.close();
         return userAccount;
     }
 
@@ -148,14 +160,26 @@ public class UserAccountTableAdapter implements DataStore {
     @Override
     public void deleteOneRecord(Object data) throws SQLException {
         UserAccount userAccount = (UserAccount) data;
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
-        // Build and execute the SQL DELETE command.
-        stmt.executeUpdate("DELETE FROM UserAccount WHERE userAccountName = '"
-                + userAccount.getUserAccountName() + "'");
-        // Close the connection.
-        connection.close();
+        // Borrow a connection, then build and execute the SQL DELETE command.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(DELETE_SQL)) {
+            ps.setString(1, userAccount.getUserAccountName());
+            ps.executeUpdate();
+        }
+        cache.removed(List.of(userAccount.getUserAccountName()));
+    }
+
+    /**
+     * Deletes many UserAccount records in a single transaction.
+     *
+     * @param data a list of UserAccount objects.
+     * @throws SQLException if a database access error occurs; no record is deleted.
+     */
+    @Override
+    public void deleteRecordList(List<?> data) throws SQLException {
+        BatchWriter.execute(DELETE_SQL, data,
+                (ps, record) -> ps.setString(1, ((UserAccount) record).getUserAccountName()));
+        cache.removed(accounts(data).stream().map(UserAccount::getUserAccountName).collect(Collectors.toList()));
     }
 
     /**
@@ -185,23 +209,28 @@ public class UserAccountTableAdapter implements DataStore {
     }
 
     /**
-     * Returns a List of all user account keys (i.e., userAccountName values) from the database.
+     * Returns a List of all user account keys (i.e., userAccountName values), from the
+     * UserAccountCache once they have been read.
      *
-     * @return List of userAccountName strings.
+     * @return List of userAccountName strings, in key order.
      * @throws SQLException if a database access error occurs.
      */
     public List<String> getAllKeys() throws SQLException {
+        return cache.keys(this::readKeys);
+    }
+
+    // Read all account names from the database, in the order the cache keeps them.
+    private List<String> readKeys() throws SQLException {
         List<String> keys = new ArrayList<>();
-        // Open a new connection.
-        connection = DriverManager.getConnection(DB_URL);
-        Statement stmt = connection.createStatement();
         // Execute the query to retrieve all userAccountName values.
-        ResultSet rs = stmt.executeQuery("SELECT userAccountName FROM UserAccount");
-        while (rs.next()) {
-            keys.add(rs.getString("userAccountName"));
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT userAccountName FROM UserAccount ORDER BY userAccountName");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                keys.add(rs.getString("userAccountName"));
+            }
         }
-        // Close the connection.
-        connection.close();
         return keys;
     }
 
@@ -215,4 +244,24 @@ public class UserAccountTableAdapter implements DataStore {
     public List<String> getKeys() throws SQLException {
         return getAllKeys();
     }
+
+    // The list methods are always given UserAccount objects.
+    @SuppressWarnings("unchecked")
+    private static List<UserAccount> accounts(List<?> data) {
+        return (List<UserAccount>) data;
+    }
+
+    // Set the INSERT parameters from a UserAccount object.
+    private static void bindAccount(PreparedStatement ps, UserAccount userAccount) throws SQLException {
+        ps.setString(1, userAccount.getUserAccountName());
+        ps.setString(2, userAccount.getEncryptedPassword());
+        ps.setString(3, userAccount.getPasswordSalt());
+        ps.setString(4, userAccount.getAccountType());
+    }
+
+    // Set the UPDATE parameters from a UserAccount object; the account name is also the key.
+    private static void bindUpdate(PreparedStatement ps, UserAccount userAccount) throws SQLException {
+        bindAccount(ps, userAccount);
+        ps.setString(5, userAccount.getUserAccountName());
+    }
 }
@@ -0,0 +1,162 @@
+package se2203b.iGlobal;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The ViewRegistry class parses each FXML view once and reuses it.
+ *
+ * A view is the modal Stage, Scene and controller built from one FXML file. The first
+ * get() of a file parses it and builds the Stage; later calls return the same view once
+ * its window has been closed, calling the controller's prepareForReuse() first if it
+ * implements Reusable, so nothing typed or selected during the last use shows up again.
+ * If the window is still open, for example an alert raised while another alert is
+ * showing, an uncached copy is built instead.
+ *
+ * preload() parses views on a background thread after startup, so the first time a
+ * common window is opened only its Stage has to be built. Parsing and the controller's
+ * initialize() may run off the FX thread because the nodes are not yet part of a showing
+ * window; Stages and Scenes are only built on the FX thread, by get().
+ *
+ * get() and preload() must be called on the FX thread.
+ */
+public final class ViewRegistry {
+
+    /**
+     * Implemented by controllers that have to clear state left from the last time their
+     * window was open. prepareForReuse() is called before the view is handed out again;
+     * the caller then passes in its data stores as it does for a new view.
+     */
+    public interface Reusable {
+        void prepareForReuse();
+    }
+
+    /**
+     * A Stage together with the controller of the view shown in it.
+     */
+    public static final class View<C> {
+        private final Stage stage;
+        private final C controller;
+
+        private View(Stage stage, C controller) {
+            this.stage = stage;
+            this.controller = controller;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public C getController() {
+            return controller;
+        }
+    }
+
+    private static final ViewRegistry INSTANCE = new ViewRegistry();
+
+    // Built views by FXML file name
+    private final Map<String, View<?>> views = new HashMap<>();
+    // Views parsed by preload() that get() has not picked up yet
+    private final Map<String, Future<FXMLLoader>> preloaded = new ConcurrentHashMap<>();
+    // Parses preloaded views one after another, so startup work is not slowed down much
+    private final ExecutorService preloader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "view-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ViewRegistry() {
+    }
+
+    public static ViewRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the view of an FXML file, prepared for reuse if it has been used before.
+     *
+     * @param fxml  the FXML file name, relative to this package.
+     * @param title the window title.
+     * @return the view; show its Stage once the controller is set up.
+     * @throws IOException if the FXML file cannot be found or parsed.
+     */
+    @SuppressWarnings("unchecked")
+    public <C> View<C> get(String fxml, String title) throws IOException {
+        View<C> view = (View<C>) views.get(fxml);
+        if (view == null) {
+            view = build(takePreloaded(fxml), title);
+            views.put(fxml, view);
+        } else if (view.stage.isShowing()) {
+            return build(load(fxml), title);
+        } else if (view.controller instanceof Reusable reusable) {
+            reusable.prepareForReuse();
+        }
+        return view;
+    }
+
+    /**
+     * Starts parsing views in the background. Views already built or being parsed are skipped.
+     *
+     * @param fxmlFiles the FXML file names, relative to this package.
+     */
+    public void preload(String... fxmlFiles) {
+        for (String fxml : fxmlFiles) {
+            if (!views.containsKey(fxml)) {
+                preloaded.computeIfAbsent(fxml, name -> preloader.submit(() -> load(name)));
+            }
+        }
+    }
+
+    /**
+     * Returns the loader of a preloaded view, or parses the view now if it was not
+     * preloaded or preloading failed.
+     */
+    private FXMLLoader takePreloaded(String fxml) throws IOException {
+        Future<FXMLLoader> future = preloaded.remove(fxml);
+        if (future != null) {
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                // Parse it again here, so the caller sees the error.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return load(fxml);
+    }
+
+    private static FXMLLoader load(String fxml) throws IOException {
+        URL resource = ViewRegistry.class.getResource(fxml);
+        if (resource == null) {
+            throw new IOException("View not found: " + fxml);
+        }
+        FXMLLoader loader = new FXMLLoader(resource);
+        loader.load();
+        return loader;
+    }
+
+    /**
+     * Builds the modal Stage around a parsed view.
+     */
+    private static <C> View<C> build(FXMLLoader loader, String title) {
+        Stage stage = new Stage();
+        stage.setScene(new Scene(loader.<Parent>getRoot()));
+        stage.getIcons().add(ImageRegistry.getInstance().get(ImageRegistry.LOGO));
+        stage.setTitle(title);
+        stage.initModality(Modality.APPLICATION_MODAL);
+        return new View<>(stage, loader.getController());
+    }
+}
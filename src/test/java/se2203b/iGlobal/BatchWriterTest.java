@@ -0,0 +1,112 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Commit and rollback of batched writes through the shared pool.
+ */
+class BatchWriterTest {
+    private static final String INSERT = "INSERT INTO BATCH_TEST (ID, NAME) VALUES (?, ?)";
+    private static final BatchWriter.Binder<Integer> BINDER = (ps, id) -> {
+        ps.setInt(1, id);
+        ps.setString(2, "row " + id);
+    };
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE BATCH_TEST (ID INT NOT NULL PRIMARY KEY, NAME VARCHAR(20))");
+        }
+    }
+
+    @AfterEach
+    void dropTable() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE BATCH_TEST");
+        }
+    }
+
+    @Test
+    void allBatchesAreCommitted() throws SQLException {
+        assertEquals(5, BatchWriter.execute(INSERT, List.of(1, 2, 3, 4, 5), 2, BINDER));
+        assertEquals(5, countRows());
+    }
+
+    @Test
+    void emptyListWritesNothing() throws SQLException {
+        assertEquals(0, BatchWriter.execute(INSERT, List.of(), 2, BINDER));
+        assertEquals(0, countRows());
+    }
+
+    @Test
+    void failingRowRollsBackEarlierBatches() throws SQLException {
+        // The duplicate key fails in the third batch, after two batches have been sent.
+        assertThrows(SQLException.class, () -> BatchWriter.execute(INSERT, List.of(1, 2, 3, 4, 1), 2, BINDER));
+        assertEquals(0, countRows());
+    }
+
+    @Test
+    void failingBinderRollsBack() throws SQLException {
+        BatchWriter.Binder<Integer> failing = (ps, id) -> {
+            if (id == 3) {
+                throw new IllegalStateException("cannot bind " + id);
+            }
+            BINDER.bind(ps, id);
+        };
+        assertThrows(IllegalStateException.class, () -> BatchWriter.execute(INSERT, List.of(1, 2, 3), 1, failing));
+        assertEquals(0, countRows());
+    }
+
+    @Test
+    void connectionIsBackInAutoCommitAfterAFailure() throws SQLException {
+        assertThrows(SQLException.class, () -> BatchWriter.execute(INSERT, List.of(1, 1), 10, BINDER));
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            assertTrue(connection.getAutoCommit());
+        }
+    }
+
+    @Test
+    void refusesToJoinAnOpenTransaction() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                SQLException error = assertThrows(SQLException.class,
+                        () -> BatchWriter.execute(INSERT, List.of(1, 2), 10, BINDER));
+                assertTrue(error.getMessage().contains("transaction"));
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+        assertEquals(0, countRows());
+    }
+
+    @Test
+    void rejectsBatchSizeBelowOne() {
+        assertThrows(IllegalArgumentException.class, () -> BatchWriter.execute(INSERT, List.of(1), 0, BINDER));
+        assertThrows(IllegalArgumentException.class, () -> BatchWriter.setBatchSize(0));
+    }
+
+    private static int countRows() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM BATCH_TEST")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Leasing, sharing and timeouts of a one-connection pool on its own in-memory database.
+ */
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:derby:memory:connectionPoolTest;create=true";
+    private static final long TIMEOUT_MILLIS = 200;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void createPool() {
+        pool = new ConnectionPool(URL, 1, TIMEOUT_MILLIS);
+    }
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void nestedBorrowOnOneThreadSharesTheConnection() throws SQLException {
+        try (Connection outer = pool.getConnection();
+             Connection inner = pool.getConnection()) {
+            assertSame(outer.unwrap(Connection.class), inner.unwrap(Connection.class));
+            assertEquals(1, pool.getActiveCount());
+            assertEquals(1, pool.getReuseCount());
+            // Closing the inner handle does not give the connection back while the outer one is open.
+            inner.close();
+            assertFalse(outer.isClosed());
+            assertEquals(1, pool.getActiveCount());
+        }
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void returnedConnectionIsReusedByTheNextBorrower() throws Exception {
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.isValid(1));
+        }
+        CompletableFuture.runAsync(() -> {
+            try (Connection connection = pool.getConnection()) {
+                assertTrue(connection.isValid(1));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get();
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getBorrowCount());
+    }
+
+    @Test
+    void borrowerTimesOutWhileAnotherThreadHoldsTheOnlyConnection() throws Exception {
+        try (Connection held = pool.getConnection()) {
+            ExecutionException failure = assertThrows(ExecutionException.class, () ->
+                    CompletableFuture.supplyAsync(() -> {
+                        try (Connection connection = pool.getConnection()) {
+                            return connection;
+                        } catch (SQLException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }).get());
+            assertInstanceOf(SQLException.class, failure.getCause().getCause());
+            assertTrue(failure.getCause().getCause().getMessage().contains("Timed out"));
+            assertFalse(held.isClosed());
+        }
+        assertEquals(1, pool.getTimeoutCount());
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void waitingBorrowerGetsTheConnectionWhenItIsReturned() throws Exception {
+        CountDownLatch borrowed = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (Connection connection = pool.getConnection()) {
+                borrowed.countDown();
+                Thread.sleep(TIMEOUT_MILLIS / 4);
+            } catch (SQLException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS));
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.isValid(1));
+        }
+        holder.get();
+        assertEquals(0, pool.getTimeoutCount());
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void openTransactionIsRolledBackWhenTheConnectionIsReturned() throws SQLException {
+        try (Connection connection = pool.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE POOL_TEST (ID INT)");
+        }
+        try {
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                stmt.executeUpdate("INSERT INTO POOL_TEST VALUES (1)");
+            }
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM POOL_TEST")) {
+                assertTrue(connection.getAutoCommit());
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+            }
+        } finally {
+            try (Connection connection = pool.getConnection();
+                 Statement stmt = connection.createStatement()) {
+                stmt.execute("DROP TABLE POOL_TEST");
+            }
+        }
+    }
+
+    @Test
+    void closedPoolRefusesToLend() {
+        pool.close();
+        assertTrue(pool.isClosed());
+        assertThrows(SQLException.class, pool::getConnection);
+    }
+}
@@ -0,0 +1,155 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PBKDF2 hashing, verification of old SHA-256 hashes and rehashing on login.
+ */
+class CredentialServiceTest {
+    private static final String NAME = "credential-test";
+    private static final String PASSWORD = "correct horse";
+    private static final String SALT = "5f1c3a9e0b7d2468";
+
+    private final CredentialService credentials = new CredentialService(1000);
+    private UserAccountTableAdapter accounts;
+
+    @BeforeEach
+    void openAccounts() throws SQLException {
+        SchemaMigrator.migrate();
+        accounts = new UserAccountTableAdapter(false);
+    }
+
+    @AfterEach
+    void deleteAccount() throws SQLException {
+        accounts.deleteOneRecord(new UserAccount(NAME, "", "", "agent"));
+    }
+
+    @Test
+    void hashMatchesThePbkdf2TestVector() {
+        // PBKDF2-HMAC-SHA256("password", "salt", 1 iteration, 32 bytes)
+        assertEquals("pbkdf2$1$120fb6cffcf8b32c43e7225256c4f837a86548c92ccc35480805987cb70be17b",
+                new CredentialService(1).hash("password", "salt"));
+    }
+
+    @Test
+    void hashedPasswordMatchesOnlyWithItsSalt() {
+        String stored = credentials.hash(PASSWORD, SALT);
+        assertTrue(stored.startsWith("pbkdf2$1000$"));
+        assertTrue(credentials.matches(PASSWORD, SALT, stored));
+        assertFalse(credentials.matches("wrong", SALT, stored));
+        assertFalse(credentials.matches(PASSWORD, "other salt", stored));
+        assertFalse(credentials.needsRehash(stored));
+    }
+
+    @Test
+    void hashWithAnotherIterationCountMatchesButNeedsRehash() {
+        String stored = new CredentialService(500).hash(PASSWORD, SALT);
+        assertTrue(credentials.matches(PASSWORD, SALT, stored));
+        assertTrue(credentials.needsRehash(stored));
+    }
+
+    @Test
+    void legacyHashMatchesButNeedsRehash() throws Exception {
+        String legacy = legacyHash(PASSWORD, SALT);
+        assertTrue(credentials.matches(PASSWORD, SALT, legacy));
+        assertFalse(credentials.matches("wrong", SALT, legacy));
+        assertTrue(credentials.needsRehash(legacy));
+    }
+
+    @Test
+    void unreadableHashesNeverMatch() {
+        for (String stored : new String[]{null, "", "plain text", "pbkdf2$1000", "pbkdf2$x$00", "pbkdf2$0$00",
+                "pbkdf2$1000$zz", "g".repeat(64)}) {
+            assertFalse(credentials.matches(PASSWORD, SALT, stored), String.valueOf(stored));
+        }
+        assertFalse(credentials.matches(null, SALT, credentials.hash(PASSWORD, SALT)));
+        assertThrows(IllegalArgumentException.class, () -> new CredentialService(0));
+    }
+
+    @Test
+    void setPasswordGivesANewSaltEachTime() {
+        UserAccount first = new UserAccount(NAME, null, null, "agent");
+        UserAccount second = new UserAccount(NAME, null, null, "agent");
+        credentials.setPassword(first, PASSWORD);
+        credentials.setPassword(second, PASSWORD);
+        assertEquals(32, first.getPasswordSalt().length());
+        assertNotEquals(first.getPasswordSalt(), second.getPasswordSalt());
+        assertNotEquals(first.getEncryptedPassword(), second.getEncryptedPassword());
+        assertTrue(credentials.matches(PASSWORD, second.getPasswordSalt(), second.getEncryptedPassword()));
+    }
+
+    @Test
+    void loginWithLegacyHashSavesAPbkdf2Hash() throws Exception {
+        UserAccount account = new UserAccount(NAME, legacyHash(PASSWORD, SALT), SALT, "agent");
+        accounts.addNewRecord(account);
+
+        assertTrue(credentials.verify(account, PASSWORD, accounts).get());
+        UserAccount saved = readFromDatabase();
+        assertTrue(saved.getEncryptedPassword().startsWith("pbkdf2$1000$"));
+        assertNotEquals(SALT, saved.getPasswordSalt());
+        assertTrue(credentials.matches(PASSWORD, saved.getPasswordSalt(), saved.getEncryptedPassword()));
+        assertFalse(credentials.needsRehash(saved.getEncryptedPassword()));
+    }
+
+    @Test
+    void wrongPasswordLeavesTheHashAlone() throws Exception {
+        String legacy = legacyHash(PASSWORD, SALT);
+        UserAccount account = new UserAccount(NAME, legacy, SALT, "agent");
+        accounts.addNewRecord(account);
+
+        assertFalse(credentials.verify(account, "wrong", accounts).get());
+        assertEquals(legacy, readFromDatabase().getEncryptedPassword());
+    }
+
+    @Test
+    void failedRehashKeepsTheOldHash() throws Exception {
+        String legacy = legacyHash(PASSWORD, SALT);
+        UserAccount account = new UserAccount(NAME, legacy, SALT, "agent");
+        DataStore failing = (DataStore) Proxy.newProxyInstance(DataStore.class.getClassLoader(),
+                new Class<?>[]{DataStore.class}, (proxy, method, args) -> {
+                    throw new SQLException("database is read-only");
+                });
+
+        assertTrue(credentials.verify(account, PASSWORD, failing).get());
+        assertEquals(legacy, account.getEncryptedPassword());
+        assertEquals(SALT, account.getPasswordSalt());
+    }
+
+    @Test
+    void changePasswordNeedsTheOldPassword() throws Exception {
+        UserAccount account = new UserAccount(NAME, null, null, "agent");
+        credentials.setPassword(account, PASSWORD);
+        accounts.addNewRecord(account);
+
+        assertFalse(credentials.changePassword(account, "wrong", "new password", accounts).get());
+        assertTrue(credentials.changePassword(account, PASSWORD, "new password", accounts).get());
+        UserAccount saved = readFromDatabase();
+        assertTrue(credentials.matches("new password", saved.getPasswordSalt(), saved.getEncryptedPassword()));
+        assertFalse(credentials.matches(PASSWORD, saved.getPasswordSalt(), saved.getEncryptedPassword()));
+    }
+
+    // Reads the account past the UserAccountCache
+    private UserAccount readFromDatabase() throws SQLException {
+        UserAccountCache.getInstance().invalidate();
+        return (UserAccount) accounts.findOneRecord(NAME);
+    }
+
+    private static String legacyHash(String password, String salt) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest((password + salt).getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,116 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Attribution of statements to the operations that ran them, and the latency histogram.
+ */
+class DataStoreMetricsTest {
+    private final DataStoreMetrics metrics = DataStoreMetrics.getInstance();
+
+    @BeforeEach
+    void resetMetrics() throws SQLException {
+        SchemaMigrator.migrate();
+        metrics.reset();
+    }
+
+    @Test
+    void statementIsRecordedUnderTheAdapterMethod() throws SQLException {
+        new PropertyTableAdapter(false).getPropertiesAfter(0, 5);
+        DataStoreMetrics.OperationStats stats = operation("PropertyTableAdapter", "getPropertiesAfter");
+        assertEquals(1, stats.getCalls());
+        assertEquals(0, stats.getErrors());
+    }
+
+    @Test
+    void connectionLayerIsSkipped() throws SQLException {
+        // The batch is run by BatchWriter, part of the connection layer.
+        new PropertyTypeTableAdapter(false).deleteRecordList(List.of(new PropertyType("none", "None")));
+        assertEquals(1, operation("PropertyTypeTableAdapter", "deleteRecordList").getCalls());
+    }
+
+    @Test
+    void statementInALambdaIsRecordedUnderItsMethod() throws Exception {
+        AsyncDataStore.run(() -> {
+            try (Connection connection = ConnectionPool.getInstance().getConnection();
+                 PreparedStatement ps = connection.prepareStatement("VALUES 1");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+            }
+        }).get();
+        assertEquals(1, operation("DataStoreMetricsTest", "statementInALambdaIsRecordedUnderItsMethod").getCalls());
+        assertEquals("findOneRecord", DataStoreMetrics.operationName("lambda$findOneRecord$0"));
+        assertEquals("lambda$", DataStoreMetrics.operationName("lambda$"));
+        assertEquals("readAccount", DataStoreMetrics.operationName("readAccount"));
+    }
+
+    @Test
+    void queryIsRecordedWithItsRowsWhenItsResultSetCloses() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("VALUES 1, 2, 3")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                assertSame(ps, rs.getStatement());
+                int sum = 0;
+                while (rs.next()) {
+                    sum += rs.getInt(1);
+                }
+                assertEquals(6, sum);
+                assertTrue(operations("queryIsRecordedWithItsRowsWhenItsResultSetCloses").isEmpty());
+            }
+            DataStoreMetrics.OperationStats stats = operation("DataStoreMetricsTest",
+                    "queryIsRecordedWithItsRowsWhenItsResultSetCloses");
+            assertEquals(1, stats.getCalls());
+            assertEquals(3, stats.getRows());
+
+            // Running the statement again finishes a ResultSet left open.
+            ResultSet open = ps.executeQuery();
+            open.next();
+            ps.executeQuery().close();
+            stats = operation("DataStoreMetricsTest", "queryIsRecordedWithItsRowsWhenItsResultSetCloses");
+            assertEquals(3, stats.getCalls());
+            assertEquals(4, stats.getRows());
+        }
+    }
+
+    @Test
+    void callerIsCachedPerMethod() {
+        assertSame(callerHere(), callerHere());
+    }
+
+    @Test
+    void bucketsCoverEveryLatency() {
+        for (long micros : new long[]{0, 1, 7, 8, 9, 100, 1000, 123_456, 10_000_000}) {
+            int bucket = DataStoreMetrics.bucketOf(micros);
+            double middle = DataStoreMetrics.bucketMiddle(bucket);
+            // Each bucket is at most an eighth of its lower bound wide.
+            assertTrue(Math.abs(middle - micros) <= Math.max(1, micros / 8.0), micros + " -> " + middle);
+        }
+        assertEquals(DataStoreMetrics.bucketOf(Long.MAX_VALUE), DataStoreMetrics.bucketOf(Long.MAX_VALUE / 2));
+    }
+
+    private static DataStoreMetrics.Caller callerHere() {
+        return DataStoreMetrics.caller();
+    }
+
+    private List<DataStoreMetrics.OperationStats> operations(String operation) {
+        return metrics.getOperations().stream().filter(stats -> stats.getOperation().equals(operation)).toList();
+    }
+
+    private DataStoreMetrics.OperationStats operation(String adapter, String operation) {
+        return metrics.getOperations().stream()
+                .filter(stats -> stats.getAdapter().equals(adapter) && stats.getOperation().equals(operation))
+                .findFirst().orElseThrow(() -> new AssertionError(adapter + "." + operation + " not recorded: "
+                        + metrics.getOperations()));
+    }
+}
@@ -0,0 +1,251 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Market figures read from the summary tables, checked against aggregates of the PROPERTY
+ * rows themselves after inserts, deletes and updates in the shared test database.
+ */
+class MarketStatisticsAdapterTest {
+    private static final String[] PROVINCES = {"ON", "BC"};
+    private static final String[][] CITIES = {{"London", "Toronto"}, {"Victoria"}};
+    private static final String[] TYPES = {"House", "Condo"};
+    // The median is interpolated within the histogram bucket of the middle listing, about 5% wide.
+    private static final double MEDIAN_TOLERANCE = 1.0 / SchemaMigrator.PPSF_BUCKETS_PER_LOG;
+
+    private final MarketStatisticsAdapter market = new MarketStatisticsAdapter();
+    private PropertyTableAdapter properties;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        properties = new PropertyTableAdapter(true);
+    }
+
+    @Test
+    void emptyMarketHasNoGroups() throws SQLException {
+        assertTrue(market.getByProvince().isEmpty());
+        MarketStatistics overall = market.getOverall();
+        assertEquals(0, overall.getListings());
+        assertTrue(Double.isNaN(overall.getAveragePrice()));
+        assertTrue(Double.isNaN(overall.getMedianPricePerSquareFoot()));
+    }
+
+    @Test
+    void pendingChangesAreFoldedIntoTheSummary() throws SQLException {
+        properties.addRecordList(generate(40, 1));
+        assertEquals(40, count("SELECT COUNT(*) FROM MARKET_CHANGE"));
+        assertEquals(0, count("SELECT COUNT(*) FROM MARKET_SUMMARY"));
+
+        market.applyPendingChanges();
+        assertEquals(0, count("SELECT COUNT(*) FROM MARKET_CHANGE"));
+        assertEquals(40, count("SELECT SUM(LISTINGS) FROM MARKET_SUMMARY"));
+        assertEquals(count("SELECT COUNT(DISTINCT PROVINCE || '/' || CITY || '/' || TYPE) FROM PROPERTY"),
+                count("SELECT COUNT(*) FROM MARKET_SUMMARY"));
+
+        // Deleting folds into the same rows instead of adding new ones.
+        properties.deleteOneRecord(generate(40, 1).get(0));
+        assertEquals(1, count("SELECT COUNT(*) FROM MARKET_CHANGE"));
+        assertEquals(39, market.getOverall().getListings());
+        assertEquals(0, count("SELECT COUNT(*) FROM MARKET_CHANGE"));
+    }
+
+    @Test
+    void figuresMatchThePropertyRowsAfterInsertsAndDeletes() throws SQLException {
+        List<Property> generated = generate(120, 2);
+        properties.addRecordList(generated.subList(0, 80));
+        assertMatchesPropertyTable();
+
+        properties.addRecordList(generated.subList(80, 120));
+        properties.deleteRecordList(generated.subList(0, 30));
+        for (Property property : generated.subList(30, 35)) {
+            properties.deleteOneRecord(property);
+        }
+        assertMatchesPropertyTable();
+    }
+
+    @Test
+    void updatesMoveRowsBetweenGroups() throws SQLException {
+        properties.addRecordList(generate(60, 3));
+        assertMatchesPropertyTable();
+        execute("UPDATE PROPERTY SET CITY = 'Toronto', PRICE = PRICE * 2 WHERE CITY = 'London'");
+        assertMatchesPropertyTable();
+        assertFalse(market.getByCity().stream().anyMatch(group -> group.getCity().equals("London")));
+    }
+
+    @Test
+    void missingValuesAreGroupedUnderAnEmptyString() throws SQLException {
+        properties.addRecordList(generate(20, 4));
+        // No province or type, and no price: counted as a listing but not in the averages or median.
+        execute("INSERT INTO PROPERTY (SQUAREFOOTAGE, CITY, ADDRESS) VALUES (1200, 'London', 'No Price Rd')");
+        execute("INSERT INTO PROPERTY (PRICE, SQUAREFOOTAGE, CITY, ADDRESS) VALUES (300000, 1500, 'London', 'Priced Rd')");
+        assertMatchesPropertyTable();
+        MarketStatistics unknown = market.getByProvince().stream()
+                .filter(group -> group.getProvince().isEmpty()).findFirst().orElseThrow();
+        assertEquals(2, unknown.getListings());
+        assertEquals(300000, unknown.getAveragePrice(), 1e-6);
+    }
+
+    @Test
+    void medianIsInterpolatedWithinItsBucket() throws SQLException {
+        // Nine listings at 100 to 900 per square foot: the middle one is 500.
+        List<Property> rows = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            rows.add(property("House", "ON", "London", "Median " + i, 1000, i * 100_000.0));
+        }
+        properties.addRecordList(rows);
+        double median = market.getOverall().getMedianPricePerSquareFoot();
+        assertEquals(Math.log(500), Math.log(median), MEDIAN_TOLERANCE);
+    }
+
+    /**
+     * Compares every grouping the adapter reports with the same figures computed from PROPERTY.
+     */
+    private void assertMatchesPropertyTable() throws SQLException {
+        assertGroups("PROVINCE", market.getByProvince(),
+                g -> List.of(g.getProvince()));
+        assertGroups("PROVINCE, CITY", market.getByCity(),
+                g -> List.of(g.getProvince(), g.getCity()));
+        assertGroups("TYPE", market.getByPropertyType(),
+                g -> List.of(g.getPropertyType()));
+        assertGroups("PROVINCE, CITY, TYPE", market.getByCityAndPropertyType(),
+                g -> List.of(g.getProvince(), g.getCity(), g.getPropertyType()));
+        assertGroups("", List.of(market.getOverall()), g -> List.of());
+    }
+
+    private interface Key {
+        List<String> of(MarketStatistics group);
+    }
+
+    private void assertGroups(String columns, List<MarketStatistics> actual, Key key) throws SQLException {
+        Map<List<String>, Expected> expected = expected(columns);
+        assertEquals(expected.size(), actual.size(), columns);
+        for (MarketStatistics group : actual) {
+            Expected figures = expected.get(key.of(group));
+            String label = columns + " " + key.of(group);
+            assertTrue(figures != null, label);
+            assertEquals(figures.listings, group.getListings(), label);
+            if (Double.isNaN(figures.averagePrice)) {
+                assertTrue(Double.isNaN(group.getAveragePrice()), label);
+            } else {
+                assertEquals(figures.averagePrice, group.getAveragePrice(), 1e-6 * figures.averagePrice, label);
+            }
+            if (Double.isNaN(figures.medianPricePerSquareFoot)) {
+                assertTrue(Double.isNaN(group.getMedianPricePerSquareFoot()), label);
+            } else {
+                assertEquals(Math.log(figures.medianPricePerSquareFoot),
+                        Math.log(group.getMedianPricePerSquareFoot()), MEDIAN_TOLERANCE, label);
+            }
+        }
+    }
+
+    private static final class Expected {
+        private int listings;
+        private double averagePrice;
+        private final List<Double> pricesPerSquareFoot = new ArrayList<>();
+        private double medianPricePerSquareFoot = Double.NaN;
+    }
+
+    /**
+     * Counts and averages each group with an aggregate query on PROPERTY and takes the price per
+     * square foot of its middle listing; of an even count, the lower of the two in the middle.
+     */
+    private static Map<List<String>, Expected> expected(String columns) throws SQLException {
+        String[] names = columns.isEmpty() ? new String[0] : columns.split(", ");
+        StringBuilder keys = new StringBuilder();
+        for (String name : names) {
+            keys.append("COALESCE(").append(name).append(", ''), ");
+        }
+        String groupBy = names.length == 0 ? "" : " GROUP BY " + keys.substring(0, keys.length() - 2);
+        Map<List<String>, Expected> result = new HashMap<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT " + keys
+                    + "COUNT(*), AVG(PRICE) FROM PROPERTY" + groupBy + (names.length == 0 ? " HAVING COUNT(*) > 0" : ""));
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Expected figures = new Expected();
+                    figures.listings = rs.getInt(names.length + 1);
+                    double average = rs.getDouble(names.length + 2);
+                    figures.averagePrice = rs.wasNull() ? Double.NaN : average;
+                    result.put(readKey(rs, names.length), figures);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement("SELECT " + keys
+                    + "PRICE / SQUAREFOOTAGE FROM PROPERTY WHERE PRICE IS NOT NULL AND SQUAREFOOTAGE > 0");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.get(readKey(rs, names.length)).pricesPerSquareFoot.add(rs.getDouble(names.length + 1));
+                }
+            }
+        }
+        for (Expected figures : result.values()) {
+            List<Double> values = figures.pricesPerSquareFoot;
+            if (!values.isEmpty()) {
+                values.sort(null);
+                figures.medianPricePerSquareFoot = values.get((values.size() - 1) / 2);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> readKey(ResultSet rs, int columns) throws SQLException {
+        List<String> key = new ArrayList<>();
+        for (int i = 1; i <= columns; i++) {
+            key.add(rs.getString(i));
+        }
+        return key;
+    }
+
+    // Properties spread over every province, city and type, with prices per square foot from about 150 to 900.
+    private static List<Property> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<Property> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int province = random.nextInt(PROVINCES.length);
+            String[] cities = CITIES[province];
+            double squareFootage = 800 + random.nextInt(2200);
+            double pricePerSquareFoot = 150 * Math.exp(random.nextDouble() * Math.log(6));
+            result.add(property(TYPES[random.nextInt(TYPES.length)], PROVINCES[province],
+                    cities[random.nextInt(cities.length)], i + " Market St", squareFootage,
+                    Math.round(squareFootage * pricePerSquareFoot)));
+        }
+        return result;
+    }
+
+    private static Property property(String type, String province, String city, String address,
+                                     double squareFootage, double price) {
+        return new Property(type, 5000, squareFootage, 3, 2, 1990, price, province, city, address,
+                "N6A 1A1", null, null);
+    }
+
+    private static int count(String sql) throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Incremental refreshes of the shared PropertyColumnStore after inserts, deletes, compaction
+ * and a reset of PROPERTY.
+ */
+class PropertyColumnStoreTest {
+    private final PropertyColumnStore store = PropertyColumnStore.getInstance();
+    private PropertyTableAdapter properties;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        properties = new PropertyTableAdapter(true);
+    }
+
+    @Test
+    void snapshotIsReusedUntilTheTableChanges() throws SQLException {
+        properties.addRecordList(PropertySnapshotTest.generate(10, 1));
+        PropertySnapshot first = store.getSnapshot();
+        assertSame(first, store.getSnapshot());
+
+        properties.addRecordList(PropertySnapshotTest.generate(5, 2));
+        PropertySnapshot second = store.getSnapshot();
+        assertNotSame(first, second);
+        assertEquals(15, second.size());
+        // A published snapshot never changes.
+        assertEquals(10, first.size());
+        assertEquals(10, first.all().count());
+        assertArrayEquals(PropertySnapshotTest.ids("SELECT ID FROM PROPERTY ORDER BY ID"), second.all().ids());
+    }
+
+    @Test
+    void newRowsAreAppendedPastTheInitialCapacity() throws SQLException {
+        properties.addRecordList(PropertySnapshotTest.generate(600, 3));
+        store.getSnapshot();
+        properties.addRecordList(PropertySnapshotTest.generate(900, 4));
+        PropertySnapshot snapshot = store.getSnapshot();
+        assertEquals(1500, snapshot.size());
+        assertArrayEquals(PropertySnapshotTest.ids("SELECT ID FROM PROPERTY ORDER BY ID"), snapshot.all().ids());
+        assertEquals(PropertySnapshotTest.counts("SELECT CITY, COUNT(*) FROM PROPERTY GROUP BY CITY"),
+                snapshot.all().countBy(PropertySnapshot.Category.CITY));
+    }
+
+    @Test
+    void deletedRowsAreClearedAndThenCompacted() throws SQLException {
+        List<Property> generated = PropertySnapshotTest.generate(100, 5);
+        properties.addRecordList(generated);
+        PropertySnapshot full = store.getSnapshot();
+
+        // A tenth of the rows: cleared from the bitmap, still in the arrays.
+        properties.deleteRecordList(generated.subList(0, 10));
+        PropertySnapshot cleared = store.getSnapshot();
+        assertEquals(90, cleared.size());
+        assertEquals(100, cleared.rowCount());
+        assertArrayEquals(PropertySnapshotTest.ids("SELECT ID FROM PROPERTY ORDER BY ID"), cleared.all().ids());
+        assertEquals(100, full.size());
+
+        // Past a quarter of the rows the arrays are rebuilt without them.
+        properties.deleteRecordList(generated.subList(40, 60));
+        properties.deleteOneRecord(generated.get(99));
+        PropertySnapshot compacted = store.getSnapshot();
+        assertEquals(69, compacted.size());
+        assertEquals(69, compacted.rowCount());
+        assertArrayEquals(PropertySnapshotTest.ids("SELECT ID FROM PROPERTY ORDER BY ID"), compacted.all().ids());
+        assertEquals(PropertySnapshotTest.counts("SELECT TYPE, COUNT(*) FROM PROPERTY GROUP BY TYPE"),
+                compacted.all().countBy(PropertySnapshot.Category.TYPE));
+        assertEquals(90, cleared.size());
+
+        // Rows inserted after compaction follow the kept ones.
+        properties.addRecordList(PropertySnapshotTest.generate(20, 6));
+        PropertySnapshot appended = store.getSnapshot();
+        assertEquals(89, appended.size());
+        assertArrayEquals(PropertySnapshotTest.ids("SELECT ID FROM PROPERTY ORDER BY ID"), appended.all().ids());
+        assertEquals(PropertySnapshotTest.counts("SELECT PROVINCE, COUNT(*) FROM PROPERTY GROUP BY PROVINCE"),
+                appended.all().countBy(PropertySnapshot.Category.PROVINCE));
+    }
+
+    @Test
+    void deletingEveryRowLeavesAnEmptySnapshot() throws SQLException {
+        List<Property> generated = PropertySnapshotTest.generate(30, 7);
+        properties.addRecordList(generated);
+        store.getSnapshot();
+        properties.deleteRecordList(generated);
+        PropertySnapshot snapshot = store.getSnapshot();
+        assertEquals(0, snapshot.size());
+        assertEquals(0, snapshot.all().count());
+    }
+
+    @Test
+    void resetStartsTheSnapshotAgain() throws SQLException {
+        properties.addRecordList(PropertySnapshotTest.generate(50, 8));
+        store.getSnapshot();
+
+        // The recreated table numbers its rows from 1 again, below the IDs loaded so far.
+        properties = new PropertyTableAdapter(true);
+        properties.addRecordList(List.of(new Property("Cottage", 2000, 900, 2, 1, 1975, 250_000, "NS", "Halifax",
+                "1 Reset Rd", "B3H 1A1", null, null)));
+        PropertySnapshot snapshot = store.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertArrayEquals(new int[]{1}, snapshot.all().ids());
+        assertEquals(Map.of("Cottage", 1), snapshot.all().countBy(PropertySnapshot.Category.TYPE));
+        assertEquals(1, snapshot.dictionary(PropertySnapshot.Category.CITY).size());
+    }
+}
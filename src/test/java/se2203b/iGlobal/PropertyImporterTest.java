@@ -0,0 +1,167 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV parsing and the rejection of bad records, importing into the shared test database.
+ */
+class PropertyImporterTest {
+    private static final String HEADER = "\uFEFFProperty Type,Lot Size,Square Footage,Bedrooms,Bathrooms,"
+            + "Year Built,Price,Province,City,Address,Postal Code,Description\n";
+
+    @TempDir
+    Path folder;
+
+    private PropertyImporter importer;
+
+    @BeforeEach
+    void createTables() throws SQLException {
+        new PropertyTypeTableAdapter(true).addNewRecord(new PropertyType("H", "House"));
+        importer = new PropertyImporter(new PropertyTableAdapter(true));
+        importer.setThreads(2);
+        importer.setChunkSize(2);
+    }
+
+    @Test
+    void parseRecordSplitsOnCommas() {
+        assertEquals(List.of("a", "b", "", "d", ""), PropertyImporter.parseRecord("a,b,,d,"));
+    }
+
+    @Test
+    void parseRecordHandlesQuotedFields() {
+        assertEquals(List.of("1 Elm St, Unit 5", "Says \"sold\"", "two\nlines", "x"),
+                PropertyImporter.parseRecord("\"1 Elm St, Unit 5\",\"Says \"\"sold\"\"\",\"two\nlines\",x"));
+        assertEquals(List.of("a", "b"), PropertyImporter.parseRecord("a,b\r"));
+    }
+
+    @Test
+    void validRecordsAreImportedAndBadOnesReportedByLine() throws Exception {
+        Path file = write(HEADER
+                + "House,5000,1800,3,2,1990,450000,ON,London,1 Elm St,N6A 1A1,Plain\n"
+                + "House,5000,1800,3,2,1990,450000,ON,London,\"2 Elm St, Unit 5\",N6A 1A1,\"Says \"\"sold\"\",\n"
+                + "second line\"\n"
+                + "House,abc,1800,3,2,1990,450000,ON,London,3 Elm St,N6A 1A1,\n"
+                + "Castle,5000,1800,3,2,1990,450000,ON,London,4 Elm St,N6A 1A1,\n"
+                + "\n"
+                + "House,5000,1800,3,2,1990,,ON,London,5 Elm St,N6A 1A1,\n"
+                + "House,5000,1800,-3,2,1990,450000,ON,London,6 Elm St,N6A 1A1,\n"
+                + "House,5000,1800,3,2,1990,450000,Province Name Too Long,London,7 Elm St,N6A 1A1,\n"
+                + "House,6000,2400,4,3,2005,900000,BC,Victoria,8 Oak Ave,V8V 1A1\n");
+        List<PropertyImporter.RowError> rejected = new ArrayList<>();
+        AtomicLong lastProgress = new AtomicLong();
+        PropertyImporter.Result result = importer.importFile(file, new PropertyImporter.Listener() {
+            @Override
+            public void progress(long bytesRead, long totalBytes, long imported, long rejectedRows) {
+                lastProgress.set(bytesRead);
+            }
+
+            @Override
+            public synchronized void rowRejected(PropertyImporter.RowError error) {
+                rejected.add(error);
+            }
+        });
+
+        assertEquals(3, result.getImported());
+        assertEquals(5, result.getRejected());
+        assertFalse(result.isCancelled());
+        assertEquals(List.of(5L, 6L, 8L, 9L, 10L),
+                result.getErrors().stream().map(PropertyImporter.RowError::getLineNumber).toList());
+        assertEquals(5, rejected.size());
+        assertEquals(Files.size(file), lastProgress.get());
+
+        List<String> messages = result.getErrors().stream().map(PropertyImporter.RowError::getMessage).toList();
+        assertTrue(messages.get(0).startsWith("LOTSIZE is not a valid number"), messages.get(0));
+        assertTrue(messages.get(1).startsWith("Unknown property type"), messages.get(1));
+        assertEquals("PRICE is missing", messages.get(2));
+        assertTrue(messages.get(3).startsWith("BEDROOMS is not a valid whole number"), messages.get(3));
+        assertEquals("PROVINCE is longer than 20 characters", messages.get(4));
+
+        assertEquals("Says \"sold\",\nsecond line", description("2 Elm St, Unit 5"));
+        assertNull(description("8 Oak Ave"));
+        assertTrue(ReferenceDataCache.getInstance().cityExists("Victoria", "BC"));
+    }
+
+    @Test
+    void missingRequiredColumnStopsTheImport() throws IOException {
+        Path file = write("Type,Lot Size,Square Footage,Bedrooms,Bathrooms,Year Built,Province,City,Address,"
+                + "Postal Code\nHouse,5000,1800,3,2,1990,ON,London,1 Elm St,N6A 1A1\n");
+        IOException error = assertThrows(IOException.class, () -> importer.importFile(file, null));
+        assertTrue(error.getMessage().contains("PRICE"), error.getMessage());
+    }
+
+    @Test
+    void bulkLoadRestoresTheMarketSummaryTrigger() throws Exception {
+        importer.setBulkLoad(true);
+        Path file = write(HEADER
+                + "House,5000,1800,3,2,1990,450000,ON,London,1 Elm St,N6A 1A1,\n"
+                + "House,5000,1800,3,2,1990,475000,ON,London,2 Elm St,N6A 1A1,\n"
+                + "House,5000,1800,3,2,1990,500000,ON,London,3 Elm St,N6A 1A1,\n");
+        assertEquals(3, importer.importFile(file, null).getImported());
+        assertMarketTriggerExists();
+        assertEquals(3, new PropertyTableAdapter(false).getPropertiesAfter(0, 10).size());
+    }
+
+    @Test
+    void failedBulkLoadStillRestoresTheTrigger() throws Exception {
+        importer.setBulkLoad(true);
+        // A bad header fails before the bulk load begins.
+        Path badHeader = write("Type,Price\nHouse,450000\n");
+        assertThrows(IOException.class, () -> importer.importFile(badHeader, null));
+        assertMarketTriggerExists();
+
+        // A failing worker stops the import after the bulk load has begun.
+        Path file = write(HEADER
+                + "House,5000,1800,3,2,1990,450000,ON,London,1 Elm St,N6A 1A1,\n"
+                + "House,5000,1800,3,2,1990,475000,ON,London,2 Elm St,N6A 1A1,\n");
+        PropertyImporter.Listener failing = (bytesRead, total, imported, rejected) -> {
+            throw new IllegalStateException("listener failed");
+        };
+        assertThrows(IllegalStateException.class, () -> importer.importFile(file, failing));
+        assertMarketTriggerExists();
+    }
+
+    private static void assertMarketTriggerExists() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT COUNT(*) FROM SYS.SYSTRIGGERS WHERE TRIGGERNAME = 'MARKET_CHANGE_INS'");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(folder.resolve("properties.csv"), content, StandardCharsets.UTF_8);
+    }
+
+    private static String description(String address) throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT DESCRIPTION FROM PROPERTY WHERE ADDRESS = ?")) {
+            ps.setString(1, address);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next(), address);
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Filters and aggregates of the columnar snapshot, checked against the same queries on
+ * PROPERTY in the shared test database.
+ */
+class PropertySnapshotTest {
+    private static final String[] TYPES = {"House", "Condo", "Townhouse"};
+    private static final String[] PROVINCES = {"ON", "BC", "QC"};
+    private static final String[] CITIES = {"London", "Victoria", "Montreal", "Toronto"};
+
+    private PropertySnapshot snapshot;
+
+    @BeforeEach
+    void loadProperties() throws SQLException {
+        PropertyTableAdapter properties = new PropertyTableAdapter(true);
+        properties.addRecordList(generate(300, 7));
+        // A property with no type, city, price, bedrooms or year built.
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("INSERT INTO PROPERTY (PROVINCE, LOTSIZE, BATHROOMS, ADDRESS) VALUES ('ON', 4000, 1, 'Empty Rd')");
+        }
+        PropertyColumnStore.getInstance().rowsInserted();
+        snapshot = PropertyColumnStore.getInstance().getSnapshot();
+    }
+
+    @Test
+    void snapshotHoldsEveryRow() throws SQLException {
+        assertEquals(301, snapshot.size());
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY ORDER BY ID"), snapshot.all().ids());
+    }
+
+    @Test
+    void selectAppliesEveryCriterion() throws SQLException {
+        PropertySearchCriteria criteria = new PropertySearchCriteria();
+        criteria.setMinPrice(300_000.0);
+        criteria.setMaxPrice(700_000.0);
+        criteria.setMinBedrooms(3);
+        criteria.setMinBathrooms(1.5);
+        criteria.setPropertyType("House");
+        criteria.setProvince("ON");
+        criteria.setMinYearBuilt(1970);
+        criteria.setMaxYearBuilt(2010);
+        criteria.setMinLotSize(3000.0);
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY WHERE PRICE BETWEEN 300000 AND 700000 AND BEDROOMS >= 3 "
+                        + "AND BATHROOMS >= 1.5 AND TYPE = 'House' AND PROVINCE = 'ON' "
+                        + "AND YEARBUILT BETWEEN 1970 AND 2010 AND LOTSIZE >= 3000 ORDER BY ID"),
+                snapshot.select(criteria).ids());
+    }
+
+    @Test
+    void selectIgnoresCriteriaThatAreNotSet() throws SQLException {
+        PropertySearchCriteria criteria = new PropertySearchCriteria();
+        assertEquals(301, snapshot.select(criteria).count());
+        criteria.setCity("Toronto");
+        criteria.setProvince(" ");
+        criteria.setMaxPrice(500_000.0);
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY WHERE CITY = 'Toronto' AND PRICE <= 500000 ORDER BY ID"),
+                snapshot.select(criteria).ids());
+    }
+
+    @Test
+    void betweenIsInclusiveAndDropsMissingValues() throws SQLException {
+        double[] prices = doubles("SELECT PRICE FROM PROPERTY WHERE PRICE IS NOT NULL ORDER BY PRICE");
+        double low = prices[50];
+        double high = prices[200];
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY WHERE PRICE BETWEEN " + low + " AND " + high + " ORDER BY ID"),
+                snapshot.all().between(PropertySnapshot.Column.PRICE, low, high).ids());
+        assertEquals(300, snapshot.all().atLeast(PropertySnapshot.Column.PRICE, Double.NEGATIVE_INFINITY).count());
+
+        // Int columns round the bounds inward and never match a missing value.
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY WHERE BEDROOMS = 3 ORDER BY ID"),
+                snapshot.all().between(PropertySnapshot.Column.BEDROOMS, 2.5, 3.5).ids());
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY WHERE YEARBUILT <= 1980 ORDER BY ID"),
+                snapshot.all().atMost(PropertySnapshot.Column.YEAR_BUILT, 1980).ids());
+        assertEquals(300, snapshot.all().atMost(PropertySnapshot.Column.YEAR_BUILT, Integer.MAX_VALUE).count());
+    }
+
+    @Test
+    void filtersCombineAndUnknownValuesSelectNothing() throws SQLException {
+        assertArrayEquals(ids("SELECT ID FROM PROPERTY WHERE CITY = 'London' AND TYPE = 'Condo' "
+                        + "AND SQUAREFOOTAGE >= 1500 ORDER BY ID"),
+                snapshot.all().is(PropertySnapshot.Category.CITY, "London")
+                        .is(PropertySnapshot.Category.TYPE, "Condo")
+                        .atLeast(PropertySnapshot.Column.SQUARE_FOOTAGE, 1500).ids());
+        assertEquals(0, snapshot.all().is(PropertySnapshot.Category.CITY, "Halifax").count());
+        assertEquals(0, snapshot.all().is(PropertySnapshot.Category.CITY, null).count());
+    }
+
+    @Test
+    void countByCountsMissingValuesUnderNull() throws SQLException {
+        for (PropertySnapshot.Category category : PropertySnapshot.Category.values()) {
+            String column = category == PropertySnapshot.Category.TYPE ? "TYPE" : category.name();
+            assertEquals(counts("SELECT " + column + ", COUNT(*) FROM PROPERTY GROUP BY " + column),
+                    snapshot.all().countBy(category), column);
+        }
+        Map<String, Integer> types = snapshot.all().between(PropertySnapshot.Column.PRICE, 0, 400_000)
+                .countBy(PropertySnapshot.Category.TYPE);
+        assertEquals(counts("SELECT TYPE, COUNT(*) FROM PROPERTY WHERE PRICE <= 400000 GROUP BY TYPE"), types);
+        // Values are listed in order of first appearance in the table.
+        assertEquals(List.of(firstTypes()), new ArrayList<>(snapshot.all().countBy(PropertySnapshot.Category.TYPE)
+                .keySet()).subList(0, TYPES.length));
+    }
+
+    @Test
+    void aggregatesSkipMissingValues() throws SQLException {
+        double[] expected = doubles("SELECT AVG(PRICE), MIN(PRICE), MAX(PRICE), SUM(PRICE), "
+                + "AVG(CAST(BEDROOMS AS DOUBLE)) FROM PROPERTY");
+        PropertySnapshot.Selection all = snapshot.all();
+        assertEquals(expected[0], all.average(PropertySnapshot.Column.PRICE), 1e-6);
+        assertEquals(expected[1], all.min(PropertySnapshot.Column.PRICE));
+        assertEquals(expected[2], all.max(PropertySnapshot.Column.PRICE));
+        assertEquals(expected[3], all.sum(PropertySnapshot.Column.PRICE), 1e-3);
+        assertEquals(expected[4], all.average(PropertySnapshot.Column.BEDROOMS), 1e-9);
+
+        PropertySnapshot.Selection empty = snapshot.all().is(PropertySnapshot.Category.PROVINCE, "QC")
+                .atLeast(PropertySnapshot.Column.PRICE, 1e12);
+        assertTrue(Double.isNaN(empty.average(PropertySnapshot.Column.PRICE)));
+        assertTrue(Double.isNaN(empty.min(PropertySnapshot.Column.PRICE)));
+        assertEquals(0, empty.sum(PropertySnapshot.Column.PRICE));
+    }
+
+    // The distinct types in order of their first row.
+    private static String[] firstTypes() throws SQLException {
+        List<String> result = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "SELECT TYPE FROM PROPERTY WHERE TYPE IS NOT NULL ORDER BY ID");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (!result.contains(rs.getString(1))) {
+                    result.add(rs.getString(1));
+                }
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    static int[] ids(String sql) throws SQLException {
+        List<Integer> result = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.add(rs.getInt(1));
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Reads the first row of a query, or the first column of every row if the query has one column.
+    private static double[] doubles(String sql) throws SQLException {
+        List<Double> result = new ArrayList<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    result.add(rs.getDouble(i));
+                }
+                if (columns > 1) {
+                    break;
+                }
+            }
+        }
+        return result.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    static Map<String, Integer> counts(String sql) throws SQLException {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                result.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return result;
+    }
+
+    static List<Property> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<Property> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(new Property(TYPES[random.nextInt(TYPES.length)], 1000 + random.nextInt(9000),
+                    800 + random.nextInt(2200), 1 + random.nextInt(5), 1 + random.nextInt(4) / 2.0,
+                    1950 + random.nextInt(70), 100_000 + random.nextInt(900) * 1000.0,
+                    PROVINCES[random.nextInt(PROVINCES.length)], CITIES[random.nextInt(CITIES.length)],
+                    seed + "-" + i + " Snapshot St", "N6A 1A1", null, null));
+        }
+        return result;
+    }
+}
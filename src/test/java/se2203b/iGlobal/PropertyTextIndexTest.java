@@ -0,0 +1,99 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BM25 ranking of the text index over a handful of properties in the shared test database.
+ */
+class PropertyTextIndexTest {
+    private final PropertyTextIndex index = PropertyTextIndex.getInstance();
+    private PropertyTableAdapter properties;
+
+    @BeforeEach
+    void addProperties() throws SQLException {
+        // The reset starts the IDs at 1 again and invalidates the index.
+        properties = new PropertyTableAdapter(true);
+        properties.addRecordList(List.of(
+                property("1 Elm St", "garage", "Waterfront cottage near the lake"),
+                property("2 Elm St", null, "Waterfront waterfront waterfront views"),
+                property("3 Elm St", "garage pool", "Renovated family home"),
+                property("4 Elm St", null, "Cozy bungalow"),
+                property("5 Elm St", null, "Cozy condo downtown")));
+    }
+
+    @Test
+    void higherTermFrequencyRanksFirst() throws SQLException {
+        assertEquals(List.of(2, 1), ids(index.search("waterfront", 10)));
+    }
+
+    @Test
+    void documentMatchingMoreTermsRanksFirst() throws SQLException {
+        assertEquals(List.of(1, 3), ids(index.search("garage lake", 10)));
+    }
+
+    @Test
+    void rareTermOutweighsCommonTerm() throws SQLException {
+        // Every property is on Elm St, so "elm" barely counts next to "pool".
+        List<PropertyTextIndex.Hit> hits = index.search("elm pool", 10);
+        assertEquals(5, hits.size());
+        assertEquals(3, hits.get(0).getId());
+        assertTrue(hits.get(0).getScore() > 2 * hits.get(1).getScore());
+    }
+
+    @Test
+    void scoresAreBestFirst() throws SQLException {
+        List<PropertyTextIndex.Hit> hits = index.search("cozy waterfront garage", 10);
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+        }
+    }
+
+    @Test
+    void queryIsAnalyzedLikeTheDocuments() throws SQLException {
+        // "Renovations" and "Renovated" share the stem "renovat"; stop words are ignored.
+        assertEquals(List.of(3), ids(index.search("the RENOVATIONS", 10)));
+        assertTrue(index.search("the and of", 10).isEmpty());
+        assertTrue(index.search("skyscraper", 10).isEmpty());
+    }
+
+    @Test
+    void repeatedQueryWordCountsOnce() throws SQLException {
+        double once = index.search("waterfront", 1).get(0).getScore();
+        double twice = index.search("waterfront waterfront", 1).get(0).getScore();
+        assertEquals(once, twice);
+    }
+
+    @Test
+    void limitKeepsTheBestResults() throws SQLException {
+        assertEquals(List.of(2), ids(index.search("waterfront", 1)));
+        assertTrue(index.search("waterfront", 0).isEmpty());
+    }
+
+    @Test
+    void insertedAndDeletedRowsUpdateTheIndex() throws SQLException {
+        assertEquals(5, index.size());
+        properties.addNewRecord(property("6 Oak Ave", null, "Penthouse with waterfront views"));
+        assertEquals(6, index.size());
+        assertEquals(List.of(6), ids(index.search("penthouse", 10)));
+
+        properties.deletePropertyByAddress("6 Oak Ave");
+        assertEquals(5, index.size());
+        assertTrue(index.search("penthouse", 10).isEmpty());
+    }
+
+    private static Property property(String address, String amenities, String description) {
+        return new Property("House", 5000, 1800, 3, 2, 1990, 450000, "ON", "London", address, "N6A 1A1",
+                amenities, description);
+    }
+
+    private static List<Integer> ids(List<PropertyTextIndex.Hit> hits) {
+        return hits.stream().map(PropertyTextIndex.Hit::getId).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrations and table resets on the shared test database.
+ */
+class SchemaMigratorTest {
+    private static final int LATEST_VERSION = 6;
+
+    @BeforeEach
+    void migrate() throws SQLException {
+        SchemaMigrator.migrate();
+    }
+
+    @Test
+    void migrateBringsTheSchemaToTheLatestVersionOnce() throws SQLException {
+        assertEquals(LATEST_VERSION, SchemaMigrator.migrate());
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            assertEquals(LATEST_VERSION, SchemaMigrator.currentVersion(connection));
+            assertEquals(LATEST_VERSION, count(connection, "SELECT COUNT(*) FROM SCHEMA_VERSION"));
+        }
+    }
+
+    @Test
+    void resetEmptiesTheTableAndKeepsItsKeys() throws SQLException {
+        execute("INSERT INTO AGENT (FIRSTNAME, LICENSENUMBER) VALUES ('Ann', 'L-100')");
+        SchemaMigrator.reset("AGENT");
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM AGENT"));
+            assertTrue(exists(connection, "SELECT 1 FROM SYS.SYSCONSTRAINTS WHERE CONSTRAINTNAME = ?", "AGENT_PK"));
+            assertTrue(exists(connection, "SELECT 1 FROM SYS.SYSCONSTRAINTS WHERE CONSTRAINTNAME = ?",
+                    "AGENT_LICENSENUMBER_UK"));
+            assertEquals(LATEST_VERSION, SchemaMigrator.currentVersion(connection));
+        }
+    }
+
+    @Test
+    void resetOfPropertyRecreatesTheMarketSummary() throws SQLException {
+        SchemaMigrator.reset("PROPERTY");
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            assertTrue(exists(connection, "SELECT 1 FROM SYS.SYSTRIGGERS WHERE TRIGGERNAME = ?", "MARKET_CHANGE_INS"));
+            assertTrue(exists(connection, "SELECT 1 FROM SYS.SYSCONSTRAINTS WHERE CONSTRAINTNAME = ?", "PROPERTY_PK"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM MARKET_CHANGE"));
+        }
+        execute("INSERT INTO PROPERTY (TYPE, PRICE, SQUAREFOOTAGE, PROVINCE, CITY) "
+                + "VALUES ('House', 500000, 2000, 'ON', 'London')");
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            assertEquals(1, count(connection, "SELECT COUNT(*) FROM MARKET_CHANGE"));
+        }
+        SchemaMigrator.reset("PROPERTY");
+    }
+
+    @Test
+    void resetAlsoEmptiesTheTablesThatReferToIt() throws SQLException {
+        execute("INSERT INTO UserAccount VALUES ('resetuser', 'x', 'y', 'admin')");
+        execute("INSERT INTO Administrator (id, firstName, lastName, userAccount) "
+                + "VALUES ('R1', 'Ann', 'Lee', 'resetuser')");
+        execute("INSERT INTO Province VALUES ('RS')");
+        execute("INSERT INTO City VALUES ('Resetville', 'RS')");
+        new UserAccountTableAdapter(true);
+        new ProvinceTableAdapter(true);
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM USERACCOUNT"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM ADMINISTRATOR"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM PROVINCE"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM CITY"));
+            assertEquals(LATEST_VERSION, SchemaMigrator.currentVersion(connection));
+        }
+        // The foreign keys are back.
+        assertEquals("23503", assertThrows(SQLException.class,
+                () -> execute("INSERT INTO City VALUES ('Nowhere', 'XX')")).getSQLState());
+        assertEquals("23503", assertThrows(SQLException.class,
+                () -> execute("INSERT INTO Administrator (id, firstName, lastName, userAccount) "
+                        + "VALUES ('R2', 'Bo', 'Li', 'nobody')")).getSQLState());
+    }
+
+    @Test
+    void duplicateValuesStopTheUniqueKeyMigration() throws SQLException {
+        // Take AGENT back to before migration 3 and give it duplicate license numbers.
+        execute("ALTER TABLE AGENT DROP CONSTRAINT AGENT_LICENSENUMBER_UK");
+        execute("ALTER TABLE EXECUTIVE DROP CONSTRAINT EXECUTIVE_EMAIL_UK");
+        execute("DELETE FROM SCHEMA_VERSION WHERE VERSION >= 3");
+        execute("INSERT INTO AGENT (FIRSTNAME, LICENSENUMBER) VALUES ('Ann', 'L-1'), ('Bob', 'L-1'), "
+                + "('Cy', 'L-2'), ('Di', 'L-3')");
+        try {
+            SQLException error = assertThrows(SQLException.class, SchemaMigrator::migrate);
+            assertEquals("23505", error.getSQLState());
+            assertTrue(error.getMessage().contains("AGENT.LICENSENUMBER must be unique"), error.getMessage());
+            assertTrue(error.getMessage().contains("'L-1' (2 rows)"), error.getMessage());
+            assertFalse(error.getMessage().contains("L-2"), error.getMessage());
+            try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+                // The failed migration is not recorded; the earlier ones stay applied.
+                assertEquals(2, SchemaMigrator.currentVersion(connection));
+                assertEquals(4, count(connection, "SELECT COUNT(*) FROM AGENT"));
+            }
+        } finally {
+            SchemaMigrator.reset("AGENT");
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static int count(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static boolean exists(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reuse of cached statements and the reset they get between callers, on a plain connection.
+ */
+class StatementCacheTest {
+    private static final String URL = "jdbc:derby:memory:statementCacheTest;create=true";
+    private static final String SELECT = "SELECT ID FROM CACHE_TEST WHERE ID >= ? ORDER BY ID";
+
+    private Connection connection;
+    private StatementCache cache;
+
+    @BeforeEach
+    void openConnection() throws SQLException {
+        connection = DriverManager.getConnection(URL);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE CACHE_TEST (ID INT)");
+            stmt.execute("INSERT INTO CACHE_TEST VALUES (1), (2), (3)");
+        }
+        cache = new StatementCache(connection, 2);
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        cache.close();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE CACHE_TEST");
+        }
+        connection.close();
+    }
+
+    @Test
+    void sameSqlReusesTheStatement() throws SQLException {
+        PreparedStatement first = cache.prepare(SELECT);
+        PreparedStatement physical = first.unwrap(PreparedStatement.class);
+        first.close();
+        try (PreparedStatement second = cache.prepare(SELECT)) {
+            assertSame(physical, second.unwrap(PreparedStatement.class));
+        }
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void statementInUseIsNotHandedOutTwice() throws SQLException {
+        try (PreparedStatement first = cache.prepare(SELECT);
+             PreparedStatement second = cache.prepare(SELECT)) {
+            assertNotSame(first.unwrap(PreparedStatement.class), second.unwrap(PreparedStatement.class));
+        }
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void closedHandleCannotBeUsed() throws SQLException {
+        PreparedStatement statement = cache.prepare(SELECT);
+        statement.close();
+        assertTrue(statement.isClosed());
+        assertThrows(SQLException.class, () -> statement.setInt(1, 1));
+    }
+
+    @Test
+    void parametersAreClearedOnReturn() throws SQLException {
+        try (PreparedStatement statement = cache.prepare(SELECT)) {
+            statement.setInt(1, 2);
+            try (ResultSet rs = statement.executeQuery()) {
+                assertTrue(rs.next());
+            }
+        }
+        try (PreparedStatement statement = cache.prepare(SELECT)) {
+            // Derby refuses to run a statement with an unset parameter.
+            assertThrows(SQLException.class, statement::executeQuery);
+        }
+    }
+
+    @Test
+    void changedSettingsAreRestoredOnReturn() throws SQLException {
+        int fetchSize;
+        try (PreparedStatement statement = cache.prepare(SELECT)) {
+            fetchSize = statement.getFetchSize();
+            statement.setMaxRows(1);
+            statement.setFetchSize(1);
+            statement.setQueryTimeout(30);
+            statement.setMaxFieldSize(10);
+        }
+        try (PreparedStatement statement = cache.prepare(SELECT)) {
+            assertEquals(0, statement.getMaxRows());
+            assertEquals(fetchSize, statement.getFetchSize());
+            assertEquals(0, statement.getQueryTimeout());
+            assertEquals(0, statement.getMaxFieldSize());
+            statement.setInt(1, 1);
+            try (ResultSet rs = statement.executeQuery()) {
+                int rows = 0;
+                while (rs.next()) {
+                    rows++;
+                }
+                assertEquals(3, rows);
+            }
+        }
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void statementWithUnrestorableSettingIsDropped() throws SQLException {
+        PreparedStatement physical;
+        try (PreparedStatement statement = cache.prepare(SELECT)) {
+            physical = statement.unwrap(PreparedStatement.class);
+            statement.setCursorName("CACHE_TEST_CURSOR");
+        }
+        assertEquals(0, cache.size());
+        assertTrue(physical.isClosed());
+        try (PreparedStatement statement = cache.prepare(SELECT)) {
+            assertNotSame(physical, statement.unwrap(PreparedStatement.class));
+        }
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementIsEvicted() throws SQLException {
+        String[] sql = {SELECT, "SELECT COUNT(*) FROM CACHE_TEST", "SELECT MAX(ID) FROM CACHE_TEST"};
+        for (String text : sql) {
+            cache.prepare(text).close();
+        }
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        // The first statement was evicted, so preparing it again is a miss.
+        cache.prepare(SELECT).close();
+        assertEquals(4, cache.getMissCount());
+    }
+}
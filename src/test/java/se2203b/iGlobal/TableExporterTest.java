@@ -0,0 +1,145 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CSV and JSON escaping of exported values, from a table in the shared test database.
+ */
+class TableExporterTest {
+    @TempDir
+    Path folder;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection()) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("CREATE TABLE EXPORT_TEST (ID INT NOT NULL PRIMARY KEY, NAME VARCHAR(50), PRICE DOUBLE)");
+            }
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO EXPORT_TEST VALUES (?, ?, ?)")) {
+                insert(ps, 1, "plain", 1.5);
+                insert(ps, 2, "a,b", null);
+                insert(ps, 3, "say \"hi\"", 2.0);
+                insert(ps, 4, "two\nlines", null);
+                insert(ps, 5, " padded ", null);
+                insert(ps, 6, "back\\slash\ttab\u0001", null);
+                insert(ps, 7, null, null);
+            }
+        }
+    }
+
+    @AfterEach
+    void dropTable() throws SQLException {
+        try (Connection connection = ConnectionPool.getInstance().getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP TABLE EXPORT_TEST");
+        }
+    }
+
+    @Test
+    void csvQuotesValuesThatNeedIt() throws Exception {
+        Path file = folder.resolve("export.csv");
+        TableExporter exporter = new TableExporter("export_test");
+        assertEquals(7, exporter.exportTo(file));
+        assertEquals("ID,NAME,PRICE\n"
+                + "1,plain,1.5\n"
+                + "2,\"a,b\",\n"
+                + "3,\"say \"\"hi\"\"\",2.0\n"
+                + "4,\"two\nlines\",\n"
+                + "5,\" padded \",\n"
+                + "6,back\\slash\ttab\u0001,\n"
+                + "7,,\n", Files.readString(file));
+    }
+
+    @Test
+    void jsonEscapesStringsAndLeavesNumbersUnquoted() throws Exception {
+        Path file = folder.resolve("export.json");
+        TableExporter exporter = new TableExporter("EXPORT_TEST");
+        exporter.setFormat(TableExporter.Format.JSON);
+        assertEquals(7, exporter.exportTo(file));
+        assertEquals("[\n"
+                + "{\"ID\":1,\"NAME\":\"plain\",\"PRICE\":1.5},\n"
+                + "{\"ID\":2,\"NAME\":\"a,b\",\"PRICE\":null},\n"
+                + "{\"ID\":3,\"NAME\":\"say \\\"hi\\\"\",\"PRICE\":2.0},\n"
+                + "{\"ID\":4,\"NAME\":\"two\\nlines\",\"PRICE\":null},\n"
+                + "{\"ID\":5,\"NAME\":\" padded \",\"PRICE\":null},\n"
+                + "{\"ID\":6,\"NAME\":\"back\\\\slash\\ttab\\u0001\",\"PRICE\":null},\n"
+                + "{\"ID\":7,\"NAME\":null,\"PRICE\":null}\n"
+                + "]\n", Files.readString(file));
+    }
+
+    @Test
+    void columnsAndFiltersLimitTheExport() throws Exception {
+        Path file = folder.resolve("export.csv.gz");
+        TableExporter exporter = new TableExporter("EXPORT_TEST");
+        exporter.setColumns(List.of("name", " id "));
+        exporter.addFilter(TableExporter.Filter.parse("ID>=3"));
+        exporter.addFilter(TableExporter.Filter.parse("ID!=4"));
+        exporter.addFilter(new TableExporter.Filter("ID", "<", "6"));
+        exporter.setGzip(true);
+        assertEquals(2, exporter.exportTo(file));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals("NAME,ID\n\"say \"\"hi\"\"\",3\n\" padded \",5\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void emptyResultStillWritesTheHeaderOrArray() throws Exception {
+        TableExporter csv = new TableExporter("EXPORT_TEST");
+        csv.addFilter(TableExporter.Filter.parse("ID>100"));
+        assertEquals(0, csv.exportTo(folder.resolve("empty.csv")));
+        assertEquals("ID,NAME,PRICE\n", Files.readString(folder.resolve("empty.csv")));
+
+        TableExporter json = new TableExporter("EXPORT_TEST");
+        json.addFilter(TableExporter.Filter.parse("ID>100"));
+        json.setFormat(TableExporter.Format.JSON);
+        assertEquals(0, json.exportTo(folder.resolve("empty.json")));
+        assertEquals("[\n]\n", Files.readString(folder.resolve("empty.json")));
+    }
+
+    @Test
+    void unknownNamesAndExcludedTablesAreRefusedWithoutAFile() throws IOException {
+        Path file = folder.resolve("refused.csv");
+        TableExporter unknownColumn = new TableExporter("EXPORT_TEST");
+        unknownColumn.setColumns(List.of("ID", "ID\" FROM SYS.SYSTABLES --"));
+        assertThrows(IllegalArgumentException.class, () -> unknownColumn.exportTo(file));
+        assertThrows(IllegalArgumentException.class, () -> new TableExporter("NO_SUCH_TABLE").exportTo(file));
+        assertThrows(IllegalArgumentException.class, () -> new TableExporter("UserAccount").exportTo(file));
+        assertThrows(IllegalArgumentException.class, () -> TableExporter.Filter.parse("=5"));
+        assertFalse(Files.exists(file));
+        try (var files = Files.list(folder)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static void insert(PreparedStatement ps, int id, String name, Double price) throws SQLException {
+        ps.setInt(1, id);
+        ps.setString(2, name);
+        if (price == null) {
+            ps.setNull(3, Types.DOUBLE);
+        } else {
+            ps.setDouble(3, price);
+        }
+        ps.executeUpdate();
+    }
+}
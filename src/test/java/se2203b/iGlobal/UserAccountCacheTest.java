@@ -0,0 +1,161 @@
+package se2203b.iGlobal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Read-through, write-through and negative entries of the shared UserAccountCache.
+ */
+class UserAccountCacheTest {
+    private final UserAccountCache cache = UserAccountCache.getInstance();
+    // Number of times a test's loader has been called
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void clearCache() {
+        cache.invalidate();
+        cache.resetStatistics();
+    }
+
+    @Test
+    void accountIsReadOnceAndThenServedFromMemory() throws SQLException {
+        assertEquals("agent", cache.find("ann", load(account("ann"))).getAccountType());
+        assertEquals("agent", cache.find("ann", load(account("ann"))).getAccountType());
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void unknownNameIsRemembered() throws SQLException {
+        assertNull(cache.find("nobody", load(null)));
+        assertNull(cache.find("nobody", load(null)));
+        assertEquals(1, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void storedAccountReplacesTheNegativeEntry() throws SQLException {
+        assertNull(cache.find("ann", load(null)));
+        cache.stored(List.of(account("ann")));
+        assertEquals("ann", cache.find("ann", load(null)).getUserAccountName());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void updatedAccountIsWrittenThrough() throws SQLException {
+        cache.find("ann", load(account("ann")));
+        UserAccount changed = account("ann");
+        changed.setEncryptedPassword("new hash");
+        cache.stored(List.of(changed));
+        assertEquals("new hash", cache.find("ann", load(account("ann"))).getEncryptedPassword());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void removedAccountBecomesANegativeEntry() throws SQLException {
+        cache.stored(List.of(account("ann")));
+        cache.removed(List.of("ann"));
+        assertNull(cache.find("ann", load(account("ann"))));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void callersGetCopies() throws SQLException {
+        UserAccount written = account("ann");
+        cache.stored(List.of(written));
+        written.setEncryptedPassword("changed after the save");
+        UserAccount found = cache.find("ann", load(null));
+        found.setAccountType("admin");
+        UserAccount again = cache.find("ann", load(null));
+        assertEquals("hash", again.getEncryptedPassword());
+        assertEquals("agent", again.getAccountType());
+    }
+
+    @Test
+    void readOverlappingAWriteIsNotCached() throws SQLException {
+        // The row read is older than the write that happens meanwhile.
+        UserAccount stale = cache.find("ann", () -> {
+            loads.incrementAndGet();
+            cache.removed(List.of("ann"));
+            return account("ann");
+        });
+        assertEquals("ann", stale.getUserAccountName());
+        assertNull(cache.find("ann", load(account("ann"))));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedReadIsNotCached() throws SQLException {
+        assertThrows(SQLException.class, () -> cache.find("ann", () -> {
+            throw new SQLException("connection lost");
+        }));
+        assertEquals("ann", cache.find("ann", load(account("ann"))).getUserAccountName());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void keysFollowTheWrites() throws SQLException {
+        assertEquals(List.of("bob", "ann"), cache.keys(() -> {
+            loads.incrementAndGet();
+            return List.of("bob", "ann");
+        }));
+        cache.stored(List.of(account("cy")));
+        cache.removed(List.of("bob"));
+        assertEquals(List.of("ann", "cy"), cache.keys(() -> {
+            throw new SQLException("keys should be cached");
+        }));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void unknownNamesAreBoundedSeparately() throws SQLException {
+        cache.stored(List.of(account("ann")));
+        for (int i = 0; i <= UserAccountCache.MAX_MISSING; i++) {
+            cache.find("nobody" + i, load(null));
+        }
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.size());
+        // The oldest unknown name was dropped, so it is read again; the real account was kept.
+        cache.find("nobody0", load(null));
+        assertEquals(UserAccountCache.MAX_MISSING + 2, loads.get());
+        assertEquals("ann", cache.find("ann", load(null)).getUserAccountName());
+    }
+
+    @Test
+    void adapterWritesThroughTheCache() throws SQLException {
+        SchemaMigrator.migrate();
+        UserAccountTableAdapter accounts = new UserAccountTableAdapter(false);
+        try {
+            assertNull(((UserAccount) accounts.findOneRecord("cache-test")).getUserAccountName());
+            accounts.addNewRecord(account("cache-test"));
+            assertEquals("agent", ((UserAccount) accounts.findOneRecord("cache-test")).getAccountType());
+            assertEquals(1, cache.getMisses());
+
+            accounts.deleteOneRecord(account("cache-test"));
+            assertNull(((UserAccount) accounts.findOneRecord("cache-test")).getUserAccountName());
+            assertEquals(1, cache.getMisses());
+        } finally {
+            accounts.deleteOneRecord(account("cache-test"));
+        }
+    }
+
+    private AsyncDataStore.DataCall<UserAccount> load(UserAccount result) {
+        return () -> {
+            loads.incrementAndGet();
+            return result;
+        };
+    }
+
+    private static UserAccount account(String name) {
+        return new UserAccount(name, "hash", "salt", "agent");
+    }
+}